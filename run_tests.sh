@@ -0,0 +1,30 @@
+#!/bin/bash
+# ========================================
+# BankApp Test Runner
+# ========================================
+# Compiles src/ and test/ into build/test-classes and runs every *Test class.
+# Each test class is a plain main() that exits with a non-zero status on failure.
+
+cd "$(dirname "$0")"
+OUT_DIR="build/test-classes"
+
+rm -rf "$OUT_DIR"
+mkdir -p "$OUT_DIR"
+
+echo "Compiling sources and tests..."
+javac -encoding UTF-8 -d "$OUT_DIR" $(find src test -name '*.java') || exit 1
+
+FAILED=0
+for test in $(cd test && find . -name '*Test.java' | sed 's|^\./||; s|\.java$||; s|/|.|g' | sort); do
+    echo "Running $test"
+    if ! java -cp "$OUT_DIR" "$test"; then
+        echo "FAILED: $test"
+        FAILED=1
+    fi
+done
+
+if [ $FAILED -ne 0 ]; then
+    echo "Some tests failed."
+    exit 1
+fi
+echo "All tests passed."
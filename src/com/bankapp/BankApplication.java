@@ -1,12 +1,29 @@
 package com.bankapp;
 
+import com.bankapp.controllers.ApiController;
 import com.bankapp.controllers.AuthController;
+import com.bankapp.controllers.BatchController;
+import com.bankapp.controllers.GatewayController;
 import com.bankapp.controllers.AccountController;
 import com.bankapp.controllers.TransactionController;
+import com.bankapp.data.InMemoryDataStore;
+import com.bankapp.data.ReplicationFollower;
 import com.bankapp.model.Account;
 import com.bankapp.model.User;
 import com.bankapp.services.BankService;
+import com.bankapp.services.TransactionImportService;
+import com.bankapp.services.UserImportService;
 import com.bankapp.utils.ConsoleUtils;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
 
 /**
  * BankApplication - Điểm vào chính của ứng dụng ngân hàng.
@@ -41,6 +58,10 @@ public class BankApplication {
         ConsoleUtils.printHeader("WELCOME TO BANKAPP");
         ConsoleUtils.printInfo("A Simple Java Banking Application");
 
+        ReplicationFollower follower = InMemoryDataStore.getInstance().getReplicationFollower();
+        if (follower != null) {
+            runStandby(follower);
+        }
         while (true) {
             if (currentUser == null) {
                 showAuthMenu();
@@ -50,6 +71,47 @@ public class BankApplication {
         }
     }
 
+    /**
+     * Chạy ở chế độ dự phòng: chỉ theo dõi nút chính và xem trạng thái sao chép
+     * cho đến khi được nâng lên làm nút chính.
+     *
+     * @param follower Phía nút dự phòng của cơ chế sao chép
+     */
+    private void runStandby(ReplicationFollower follower) {
+        ConsoleUtils.printWarning("Running as a warm standby - writes are accepted only after promotion");
+        while (true) {
+            ConsoleUtils.printSubHeader("STANDBY");
+            int choice = ConsoleUtils.readMenuChoice(
+                    "Show replication status",
+                    "Promote to primary",
+                    "Exit"
+            );
+
+            switch (choice) {
+                case 0: // Status
+                    ConsoleUtils.printInfo((follower.isConnected() ? "Connected" : "Disconnected")
+                            + " | applied #" + follower.getAppliedSequence()
+                            + " of #" + follower.getLeaderSequence()
+                            + " | lag " + follower.getLagEntries() + " entries, "
+                            + follower.getLagMillis() + " ms");
+                    if (follower.getLastFailure() != null) {
+                        ConsoleUtils.printWarning("Last failure: " + follower.getLastFailure());
+                    }
+                    break;
+                case 1: // Promote
+                    long applied = InMemoryDataStore.getInstance().promote();
+                    ConsoleUtils.printSuccess("Promoted to primary after entry #" + applied);
+                    return;
+                case 2: // Exit
+                    ConsoleUtils.printInfo("Thank you for using BankApp. Goodbye!");
+                    System.exit(0);
+                    break;
+                default:
+                    ConsoleUtils.printError("Invalid choice");
+            }
+        }
+    }
+
     /**
      * Hiển thị menu xác thực (đăng nhập / đăng ký).
      */
@@ -198,12 +260,179 @@ public class BankApplication {
         }
     }
 
+    /**
+     * Chạy API HTTP/JSON trên kho dữ liệu dùng chung cho đến khi tiến trình bị dừng.
+     * Số luồng xử lý và độ dài hàng đợi request đọc từ bankapp.server.threads và bankapp.server.queueSize;
+     * thời hạn phiên (phút) và số phiên tối đa đọc từ bankapp.server.sessionMinutes và bankapp.server.maxSessions.
+     * API chỉ nhận kết nối từ chính máy này trừ khi bankapp.server.host chỉ định địa chỉ lắng nghe khác.
+     *
+     * @param port Cổng lắng nghe
+     */
+    private static void runServer(int port) {
+        if (System.getProperty("sun.net.httpserver.nodelay") == null) {
+            // Process-wide JDK setting: headers and body are written separately, so without TCP_NODELAY
+            // each keep-alive response waits on the client's delayed ACK (about 40ms)
+            System.setProperty("sun.net.httpserver.nodelay", "true");
+        }
+        ApiController api = new ApiController(InMemoryDataStore.getInstance(), System.getProperty("bankapp.server.host"),
+                port,
+                Integer.getInteger("bankapp.server.threads", Runtime.getRuntime().availableProcessors() * 2),
+                Integer.getInteger("bankapp.server.queueSize", 1024),
+                Long.getLong("bankapp.server.sessionMinutes", 30) * 60 * 1000,
+                Integer.getInteger("bankapp.server.maxSessions", 100_000));
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            api.stop(1);
+            InMemoryDataStore.getInstance().shutdown();
+        }));
+        api.start();
+        if (api.isLoopbackOnly()) {
+            ConsoleUtils.printWarning("bankapp.server.host is not set; the API accepts local connections only");
+        }
+        ConsoleUtils.printSuccess("BankApp API listening on port " + api.getPort());
+    }
+
+    /**
+     * Chạy gateway nhị phân trên kho dữ liệu dùng chung cho đến khi tiến trình bị dừng.
+     * Số luồng xử lý, độ dài hàng đợi và key xác thực đọc từ bankapp.gateway.threads,
+     * bankapp.gateway.queueSize và bankapp.gateway.key. Khi không có key, gateway chỉ nhận kết nối
+     * từ chính máy này.
+     *
+     * @param port Cổng lắng nghe
+     */
+    private static void runGateway(int port) {
+        GatewayController gateway = new GatewayController(InMemoryDataStore.getInstance(), port,
+                Integer.getInteger("bankapp.gateway.threads", Runtime.getRuntime().availableProcessors() * 2),
+                Integer.getInteger("bankapp.gateway.queueSize", 65536),
+                System.getProperty("bankapp.gateway.key"));
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            gateway.stop();
+            InMemoryDataStore.getInstance().shutdown();
+        }));
+        gateway.start();
+        if (gateway.isLoopbackOnly()) {
+            ConsoleUtils.printWarning("bankapp.gateway.key is not set; the gateway accepts local connections only");
+        }
+        ConsoleUtils.printSuccess("BankApp gateway listening on port " + gateway.getPort());
+    }
+
+    /**
+     * Chạy một kịch bản lệnh qua BatchController, ghi kết quả ra stdout qua buffer
+     * và tóm tắt ra stderr.
+     *
+     * @param file Đường dẫn tệp lệnh, hoặc null để đọc stdin
+     * @return Mã thoát: 0 nếu mọi lệnh thành công, 1 nếu có lệnh thất bại, 2 nếu không đọc / ghi được
+     */
+    private static int runBatch(String file) {
+        BankService bankService = new BankService();
+        BatchController batch = new BatchController(bankService.getAuthService(),
+                bankService.getAccountService(), bankService.getTransactionService());
+        long start = System.nanoTime();
+        Writer out = new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8), 1 << 20);
+        try (BufferedReader in = file != null
+                ? Files.newBufferedReader(Paths.get(file), StandardCharsets.UTF_8)
+                : new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8), 1 << 20)) {
+            batch.run(in, out);
+            out.flush();
+        } catch (IOException e) {
+            System.err.println("Batch aborted: " + e.getMessage());
+            return 2;
+        } finally {
+            InMemoryDataStore.getInstance().shutdown();
+        }
+        long millis = (System.nanoTime() - start) / 1_000_000;
+        System.err.println("Processed " + batch.getCommandCount() + " commands (" + batch.getFailureCount()
+                + " failed) in " + millis + " ms");
+        return batch.getFailureCount() > 0 ? 1 : 0;
+    }
+
+    /**
+     * Nhập một tệp giao dịch của chi nhánh qua TransactionImportService.
+     * Định dạng là CSV nếu tệp có đuôi .csv, ngược lại là cột cố định; có thể chỉ định bằng
+     * bankapp.import.format (CSV / FIXED_WIDTH). Số luồng áp dụng đọc từ bankapp.import.threads.
+     *
+     * @param file Đường dẫn tệp cần nhập
+     * @param rejectsFile Đường dẫn tệp ghi các dòng bị từ chối
+     * @return Mã thoát: 0 nếu mọi dòng được áp dụng, 1 nếu có dòng bị từ chối, 2 nếu không đọc / ghi được
+     */
+    private static int runImport(String file, String rejectsFile) {
+        TransactionImportService.Format format = TransactionImportService.Format.valueOf(
+                System.getProperty("bankapp.import.format",
+                        file.toLowerCase().endsWith(".csv") ? "CSV" : "FIXED_WIDTH").toUpperCase());
+        TransactionImportService importer = new TransactionImportService(InMemoryDataStore.getInstance(),
+                Integer.getInteger("bankapp.import.threads", Runtime.getRuntime().availableProcessors()));
+        if (!InMemoryDataStore.getInstance().getTransactionHistoryStore().isEnabled()) {
+            System.err.println("Warning: bankapp.history.dir is not set; imported transactions stay in memory");
+        }
+        try {
+            TransactionImportService.Result result = importer.importFile(Paths.get(file), format, Paths.get(rejectsFile));
+            System.err.println(result + (result.getRejected() > 0 ? "; rejects written to " + rejectsFile : ""));
+            return result.getRejected() > 0 ? 1 : 0;
+        } catch (UncheckedIOException e) {
+            System.err.println("Import aborted: " + e.getMessage());
+            return 2;
+        } finally {
+            InMemoryDataStore.getInstance().shutdown();
+        }
+    }
+
+    /**
+     * Đăng ký hàng loạt khách hàng từ một tệp CSV, in tiến độ ra stderr khoảng mỗi giây.
+     * Số luồng băm mật khẩu đọc từ thuộc tính hệ thống bankapp.registration.threads.
+     *
+     * @param file Tệp cần nhập
+     * @param errorsFile Tệp ghi các dòng bị từ chối
+     * @return Mã thoát: 0 nếu mọi dòng được đăng ký, 1 nếu có dòng bị từ chối, 2 nếu lỗi đọc / ghi tệp
+     */
+    private static int runUserImport(String file, String errorsFile) {
+        UserImportService importer = new UserImportService(InMemoryDataStore.getInstance(),
+                Integer.getInteger("bankapp.registration.threads", Runtime.getRuntime().availableProcessors()));
+        long[] lastReport = {System.nanoTime()};
+        try {
+            UserImportService.Result result = importer.importFile(Paths.get(file), Paths.get(errorsFile),
+                    (rows, registered, rejected) -> {
+                        long now = System.nanoTime();
+                        if (now - lastReport[0] >= 1_000_000_000L) {
+                            lastReport[0] = now;
+                            System.err.println("... " + rows + " rows, " + registered + " registered, "
+                                    + rejected + " rejected");
+                        }
+                    });
+            System.err.println(result + (result.getRejected() > 0 ? "; errors written to " + errorsFile : ""));
+            return result.getRejected() > 0 ? 1 : 0;
+        } catch (UncheckedIOException e) {
+            System.err.println("User import aborted: " + e.getMessage());
+            return 2;
+        } finally {
+            InMemoryDataStore.getInstance().shutdown();
+        }
+    }
+
     /**
      * Phương thức main - điểm vào của ứng dụng.
      *
-     * @param args Tham số dòng lệnh (không sử dụng)
+     * @param args Tham số dòng lệnh: "--server [cổng]" để chạy API HTTP/JSON, "--gateway [cổng]" để chạy
+     *             giao thức nhị phân cho các cổng kênh nội bộ, "--batch [tệp lệnh]" để chạy kịch bản lệnh
+     *             (mặc định đọc stdin), "--import &lt;tệp&gt; [tệp rejects]" để nhập giao dịch hàng loạt,
+     *             "--import-users &lt;tệp&gt; [tệp lỗi]" để đăng ký khách hàng hàng loạt, thay cho menu console
      */
     public static void main(String[] args) {
+        if (args.length > 0 && args[0].equals("--server")) {
+            runServer(args.length > 1 ? Integer.parseInt(args[1]) : 8080);
+            return;
+        }
+        if (args.length > 0 && args[0].equals("--batch")) {
+            System.exit(runBatch(args.length > 1 ? args[1] : null));
+        }
+        if (args.length > 1 && args[0].equals("--import")) {
+            System.exit(runImport(args[1], args.length > 2 ? args[2] : args[1] + ".rejects"));
+        }
+        if (args.length > 1 && args[0].equals("--import-users")) {
+            System.exit(runUserImport(args[1], args.length > 2 ? args[2] : args[1] + ".errors"));
+        }
+        if (args.length > 0 && args[0].equals("--gateway")) {
+            runGateway(args.length > 1 ? Integer.parseInt(args[1]) : 9090);
+            return;
+        }
         try {
             BankApplication app = new BankApplication();
             app.start();
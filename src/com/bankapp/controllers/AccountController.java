@@ -48,6 +48,10 @@ public class AccountController {
                     account.getAccountNumber() + " | Balance: " +
                     ConsoleUtils.formatAmount(account.getBalance()));
         }
+        System.out.println("Checking: " + user.getAccountCount("CHECKING") + " ("
+                + ConsoleUtils.formatAmount(user.getBalanceByType("CHECKING")) + ") | Savings: "
+                + user.getAccountCount("SAVINGS") + " ("
+                + ConsoleUtils.formatAmount(user.getBalanceByType("SAVINGS")) + ")");
     }
 
     /**
@@ -150,10 +154,9 @@ public class AccountController {
         }
         
         // Try matching account number (ACC123456)
-        for (Account account : accounts) {
-            if (account.getAccountNumber().equals(input)) {
-                return account;
-            }
+        Account account = user.getAccountByNumber(input);
+        if (account != null) {
+            return account;
         }
         
         ConsoleUtils.printError("Invalid selection");
@@ -171,7 +174,7 @@ public class AccountController {
         System.out.println("Account Type: " + account.getAccountType());
         System.out.println("Balance: " + ConsoleUtils.formatAmount(account.getBalance()));
         System.out.println("Status: " + (account.isActive() ? "Active" : "Inactive"));
-        System.out.println("Total Transactions: " + account.getTransactions().size());
+        System.out.println("Total Transactions: " + account.getTransactionCount());
 
         if (account instanceof SavingsAccount) {
             SavingsAccount sa = (SavingsAccount) account;
@@ -0,0 +1,652 @@
+package com.bankapp.controllers;
+
+import com.bankapp.data.InMemoryDataStore;
+import com.bankapp.model.Account;
+import com.bankapp.model.Transaction;
+import com.bankapp.model.User;
+import com.bankapp.services.AccountService;
+import com.bankapp.services.AuthService;
+import com.bankapp.services.StripedLockTransactionService;
+import com.bankapp.services.TransactionOperations;
+import com.bankapp.utils.InputValidator;
+import com.bankapp.utils.JsonUtils;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * ApiController - Phục vụ AuthService, AccountService và các giao dịch qua HTTP/JSON,
+ * dùng HTTP server có sẵn của JDK (com.sun.net.httpserver).
+ * <pre>
+ *   POST   /api/register                        {username, password, fullName, email}
+ *   POST   /api/login                           {username, password} -> {token, ...}
+ *   POST   /api/logout
+ *   GET    /api/accounts                        Danh sách tài khoản của người dùng
+ *   POST   /api/accounts                        {type: CHECKING|SAVINGS, initialBalance, overdraftLimit|interestRate}
+ *   GET    /api/accounts/{n}                    Chi tiết tài khoản
+ *   GET    /api/accounts/{n}/balance            Số dư
+ *   GET    /api/accounts/{n}/transactions?limit=N
+ *   POST   /api/accounts/{n}/deposit            {amount, description}
+ *   POST   /api/accounts/{n}/withdraw           {amount, description}
+ *   DELETE /api/accounts/{n}                    Đóng tài khoản
+ *   POST   /api/transfers                       {from, to, amount, description}
+ * </pre>
+ * Các request sau đăng nhập gửi kèm header "Authorization: Bearer &lt;token&gt;".
+ * Phiên chỉ lưu ID người dùng và hết hạn sau một khoảng không hoạt động; người dùng được tra lại
+ * ở mỗi request nên thay đổi hồ sơ hoặc việc xóa người dùng có hiệu lực ngay. Số phiên có giới hạn:
+ * khi đầy, phiên hết hạn bị dọn trước, sau đó đến phiên sắp hết hạn nhất.
+ * Kết nối được giữ lại (keep-alive) giữa các request vì phản hồi luôn có Content-Length.
+ * Request được xử lý trên một thread pool cố định với hàng đợi có giới hạn; khi hàng đợi đầy,
+ * luồng nhận kết nối tự xử lý request, nên server chậm nhận thêm thay vì tích lũy request vô hạn.
+ * Giao dịch đi qua StripedLockTransactionService, hoặc service giao dịch (TransactionOperations) truyền vào
+ * constructor; các thao tác thay đổi cấu trúc (đăng ký, mở, đóng tài khoản) giữ khóa ghi để loại trừ các
+ * request khác, còn truy vấn số dư đọc thẳng từ danh sách tài khoản của người dùng mà không cần khóa.
+ * Mặc định server chỉ lắng nghe trên loopback; muốn mở API ra mạng phải truyền địa chỉ host tường minh.
+ * Server của JDK chỉ bật TCP_NODELAY qua thuộc tính toàn tiến trình sun.net.httpserver.nodelay, nên
+ * controller không tự đặt nó; BankApplication đặt thuộc tính này khi khởi động chế độ server.
+ */
+public class ApiController {
+    private static final int TOKEN_BYTES = 24;
+    private static final int DEFAULT_HISTORY_LIMIT = 20;
+    private static final int MAX_HISTORY_LIMIT = 1000;
+    private static final int MAX_BODY_BYTES = 64 * 1024;
+    private static final long DEFAULT_SESSION_TTL_MILLIS = 30L * 60 * 1000;
+    private static final int DEFAULT_MAX_SESSIONS = 100_000;
+
+    private final AuthService authService;
+    private final AccountService accountService;
+    private final TransactionOperations transactionService;
+    private final Map<String, Session> sessions = new ConcurrentHashMap<>();
+    private final long sessionTtlMillis;
+    private final int maxSessions;
+    private final ReadWriteLock structureLock = new ReentrantReadWriteLock();
+    private final SecureRandom random = new SecureRandom();
+    private final HttpServer server;
+    private final ThreadPoolExecutor executor;
+
+    /**
+     * Constructor cho ApiController.
+     *
+     * @param dataStore Kho dữ liệu
+     * @param port Cổng lắng nghe (0 để hệ điều hành tự chọn)
+     * @param threads Số luồng xử lý request
+     * @param queueSize Số request tối đa chờ trong hàng đợi
+     */
+    public ApiController(InMemoryDataStore dataStore, int port, int threads, int queueSize) {
+        this(dataStore, port, threads, queueSize, DEFAULT_SESSION_TTL_MILLIS, DEFAULT_MAX_SESSIONS);
+    }
+
+    /**
+     * Constructor cho ApiController với thời hạn và số lượng phiên tùy chỉnh.
+     *
+     * @param dataStore Kho dữ liệu
+     * @param port Cổng lắng nghe (0 để hệ điều hành tự chọn)
+     * @param threads Số luồng xử lý request
+     * @param queueSize Số request tối đa chờ trong hàng đợi
+     * @param sessionTtlMillis Thời gian không hoạt động trước khi phiên hết hạn (mili giây)
+     * @param maxSessions Số phiên tối đa được giữ cùng lúc
+     */
+    public ApiController(InMemoryDataStore dataStore, int port, int threads, int queueSize,
+                         long sessionTtlMillis, int maxSessions) {
+        this(dataStore, null, port, threads, queueSize, sessionTtlMillis, maxSessions);
+    }
+
+    /**
+     * Constructor cho ApiController với địa chỉ lắng nghe tùy chỉnh.
+     *
+     * @param dataStore Kho dữ liệu
+     * @param host Địa chỉ lắng nghe (ví dụ "0.0.0.0" để nhận kết nối từ mọi giao diện mạng),
+     *             hoặc null / rỗng để chỉ nhận kết nối từ chính máy này
+     * @param port Cổng lắng nghe (0 để hệ điều hành tự chọn)
+     * @param threads Số luồng xử lý request
+     * @param queueSize Số request tối đa chờ trong hàng đợi
+     * @param sessionTtlMillis Thời gian không hoạt động trước khi phiên hết hạn (mili giây)
+     * @param maxSessions Số phiên tối đa được giữ cùng lúc
+     */
+    public ApiController(InMemoryDataStore dataStore, String host, int port, int threads, int queueSize,
+                         long sessionTtlMillis, int maxSessions) {
+        this(dataStore, new StripedLockTransactionService(dataStore, Math.max(16, threads * 4)), host, port, threads,
+                queueSize, sessionTtlMillis, maxSessions);
+    }
+
+    /**
+     * Constructor cho ApiController với một service giao dịch cho trước (ví dụ ShardedTransactionService).
+     *
+     * @param dataStore Kho dữ liệu của người dùng và tài khoản
+     * @param transactionService Service thực hiện giao dịch
+     * @param host Địa chỉ lắng nghe, hoặc null / rỗng để chỉ nhận kết nối từ chính máy này
+     * @param port Cổng lắng nghe (0 để hệ điều hành tự chọn)
+     * @param threads Số luồng xử lý request
+     * @param queueSize Số request tối đa chờ trong hàng đợi
+     * @param sessionTtlMillis Thời gian không hoạt động trước khi phiên hết hạn (mili giây)
+     * @param maxSessions Số phiên tối đa được giữ cùng lúc
+     */
+    public ApiController(InMemoryDataStore dataStore, TransactionOperations transactionService, String host, int port,
+                         int threads, int queueSize, long sessionTtlMillis, int maxSessions) {
+        if (sessionTtlMillis <= 0 || maxSessions <= 0) {
+            throw new IllegalArgumentException("Session TTL and session limit must be positive");
+        }
+        this.sessionTtlMillis = sessionTtlMillis;
+        this.maxSessions = maxSessions;
+        this.authService = new AuthService(dataStore);
+        this.accountService = new AccountService(dataStore);
+        this.transactionService = transactionService;
+        AtomicInteger workerCount = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, queueSize)),
+                task -> {
+                    Thread worker = new Thread(task, "bankapp-api-" + workerCount.incrementAndGet());
+                    worker.setDaemon(true);
+                    return worker;
+                },
+                new ThreadPoolExecutor.CallerRunsPolicy()); // Back-pressure onto the accept thread
+        try {
+            this.server = HttpServer.create(host != null && !host.isEmpty() ? new InetSocketAddress(host, port)
+                    : new InetSocketAddress(InetAddress.getLoopbackAddress(), port), queueSize);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot open API server on port " + port, e);
+        }
+        server.createContext("/api/", this::handle);
+        server.setExecutor(executor);
+    }
+
+    /**
+     * Bắt đầu nhận request.
+     */
+    public void start() {
+        server.start();
+    }
+
+    /**
+     * Dừng server và thread pool.
+     *
+     * @param delaySeconds Thời gian tối đa chờ các request đang xử lý (giây)
+     */
+    public void stop(int delaySeconds) {
+        server.stop(delaySeconds);
+        executor.shutdown();
+    }
+
+    /**
+     * Lấy cổng server đang lắng nghe.
+     *
+     * @return Cổng lắng nghe
+     */
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    /**
+     * Kiểm tra server có chỉ nhận kết nối từ chính máy này hay không.
+     *
+     * @return true nếu server lắng nghe trên địa chỉ loopback
+     */
+    public boolean isLoopbackOnly() {
+        return server.getAddress().getAddress().isLoopbackAddress();
+    }
+
+    /**
+     * Lấy số phiên đăng nhập đang hoạt động.
+     *
+     * @return Số phiên
+     */
+    public int getSessionCount() {
+        return sessions.size();
+    }
+
+    // ============= Request Dispatch =============
+
+    private void handle(HttpExchange exchange) throws IOException {
+        int status;
+        String body;
+        try {
+            Response response = route(exchange);
+            status = response.status;
+            body = response.body;
+        } catch (IllegalArgumentException e) {
+            status = 400;
+            body = error(e.getMessage());
+        } catch (RuntimeException e) {
+            status = 500;
+            body = error("Internal error");
+        }
+        send(exchange, status, body);
+    }
+
+    private Response route(HttpExchange exchange) throws IOException {
+        String method = exchange.getRequestMethod();
+        URI uri = exchange.getRequestURI();
+        String[] path = uri.getPath().substring("/api/".length()).split("/");
+        Map<String, String> request = "POST".equals(method)
+                ? JsonUtils.parseObject(readBody(exchange)) : Map.of();
+
+        switch (path[0]) {
+            case "register":
+            case "login":
+            case "logout":
+                if (path.length > 1) {
+                    return new Response(404, error("Not found"));
+                }
+                if (!"POST".equals(method)) {
+                    return methodNotAllowed();
+                }
+                if (path[0].equals("register")) {
+                    return register(request);
+                }
+                return path[0].equals("login") ? login(request) : logout(exchange);
+            case "accounts":
+            case "transfers":
+                break;
+            default:
+                return new Response(404, error("Not found"));
+        }
+
+        User user = authenticate(exchange);
+        if (user == null) {
+            return new Response(401, error("Missing or invalid token"));
+        }
+        if (path[0].equals("transfers")) {
+            if (path.length > 1) {
+                return new Response(404, error("Not found"));
+            }
+            return "POST".equals(method) ? transfer(user, request) : methodNotAllowed();
+        }
+        if (path.length == 1) {
+            if ("GET".equals(method)) {
+                return listAccounts(user);
+            }
+            return "POST".equals(method) ? openAccount(user, request) : methodNotAllowed();
+        }
+
+        Account account = user.getAccountByNumber(path[1]);
+        if (account == null || path.length > 3) {
+            return new Response(404, error("Account not found"));
+        }
+        String action = path.length == 3 ? path[2] : "";
+        switch (action) {
+            case "":
+                if ("GET".equals(method)) {
+                    return new Response(200, accountJson(account));
+                }
+                return "DELETE".equals(method) ? closeAccount(account) : methodNotAllowed();
+            case "balance":
+                return "GET".equals(method) ? new Response(200, "{\"accountNumber\":"
+                        + JsonUtils.quote(account.getAccountNumber()) + ",\"balance\":"
+                        + JsonUtils.number(account.getBalance()) + "}") : methodNotAllowed();
+            case "transactions":
+                return "GET".equals(method) ? transactions(account, uri.getRawQuery()) : methodNotAllowed();
+            case "deposit":
+            case "withdraw":
+                return "POST".equals(method) ? moveMoney(account, action, request) : methodNotAllowed();
+            default:
+                return new Response(404, error("Not found"));
+        }
+    }
+
+    // ============= Handlers =============
+
+    private Response register(Map<String, String> request) {
+        User user;
+        structureLock.writeLock().lock();
+        try {
+            user = authService.register(request.get("username"), request.get("password"),
+                    request.get("fullName"), request.get("email"));
+        } finally {
+            structureLock.writeLock().unlock();
+        }
+        if (user == null) {
+            return new Response(400, error("Registration failed. Username may already exist or inputs are invalid"));
+        }
+        return new Response(201, userJson(user, null));
+    }
+
+    private Response login(Map<String, String> request) {
+        User user;
+        structureLock.readLock().lock();
+        try {
+            user = authService.login(request.get("username"), request.get("password"));
+        } finally {
+            structureLock.readLock().unlock();
+        }
+        if (user == null) {
+            return new Response(401, error("Invalid username or password"));
+        }
+        byte[] bytes = new byte[TOKEN_BYTES];
+        random.nextBytes(bytes);
+        String token = Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+        long now = System.currentTimeMillis();
+        if (sessions.size() >= maxSessions) {
+            evictSessions(now);
+        }
+        sessions.put(token, new Session(user.getUserId(), now + sessionTtlMillis));
+        return new Response(200, userJson(user, token));
+    }
+
+    private Response logout(HttpExchange exchange) {
+        String token = bearerToken(exchange);
+        if (token == null || sessions.remove(token) == null) {
+            return new Response(401, error("Missing or invalid token"));
+        }
+        return new Response(200, "{\"loggedOut\":true}");
+    }
+
+    private Response listAccounts(User user) {
+        StringBuilder sb = new StringBuilder("{\"totalBalance\":")
+                .append(JsonUtils.number(user.getTotalBalance()))
+                .append(",\"accounts\":[");
+        List<Account> accounts = user.getAccounts();
+        for (int i = 0; i < accounts.size(); i++) {
+            if (i > 0) {
+                sb.append(',');
+            }
+            sb.append(accountJson(accounts.get(i)));
+        }
+        return new Response(200, sb.append("]}").toString());
+    }
+
+    private Response openAccount(User user, Map<String, String> request) {
+        String type = request.get("type");
+        double initialBalance = amount(request, "initialBalance", 0);
+        Account account;
+        structureLock.writeLock().lock();
+        try {
+            if ("CHECKING".equalsIgnoreCase(type)) {
+                account = accountService.createCheckingAccount(user, initialBalance,
+                        amount(request, "overdraftLimit", 0));
+            } else if ("SAVINGS".equalsIgnoreCase(type)) {
+                account = accountService.createSavingsAccount(user, initialBalance,
+                        amount(request, "interestRate", 0));
+            } else {
+                return new Response(400, error("Account type must be CHECKING or SAVINGS"));
+            }
+        } finally {
+            structureLock.writeLock().unlock();
+        }
+        if (account == null) {
+            return new Response(400, error("Failed to open account"));
+        }
+        return new Response(201, accountJson(account));
+    }
+
+    private Response closeAccount(Account account) {
+        boolean closed;
+        structureLock.writeLock().lock();
+        try {
+            closed = accountService.closeAccount(account.getAccountNumber());
+        } finally {
+            structureLock.writeLock().unlock();
+        }
+        return closed ? new Response(200, accountJson(account)) : new Response(404, error("Account not found"));
+    }
+
+    private Response moveMoney(Account account, String action, Map<String, String> request) {
+        double amount = requiredAmount(request, "amount");
+        String description = request.get("description");
+        boolean success;
+        structureLock.readLock().lock();
+        try {
+            success = action.equals("deposit")
+                    ? transactionService.deposit(account.getAccountNumber(), amount,
+                            description != null ? description : "Deposit")
+                    : transactionService.withdraw(account.getAccountNumber(), amount,
+                            description != null ? description : "Withdrawal");
+        } finally {
+            structureLock.readLock().unlock();
+        }
+        if (!success) {
+            return new Response(400, error(action.equals("deposit") ? "Deposit failed"
+                    : "Withdrawal failed. Check amount and balance"));
+        }
+        return new Response(200, accountJson(account));
+    }
+
+    private Response transfer(User user, Map<String, String> request) {
+        Account from = user.getAccountByNumber(request.get("from"));
+        if (from == null) {
+            return new Response(404, error("Account not found"));
+        }
+        String to = request.get("to");
+        double amount = requiredAmount(request, "amount");
+        String description = request.get("description");
+        boolean success;
+        structureLock.readLock().lock();
+        try {
+            success = to != null && transactionService.transfer(from.getAccountNumber(), to, amount,
+                    description != null ? description : "Transfer");
+        } finally {
+            structureLock.readLock().unlock();
+        }
+        if (!success) {
+            return new Response(400, error("Transfer failed. Check accounts, amount and balance"));
+        }
+        return new Response(200, accountJson(from));
+    }
+
+    private Response transactions(Account account, String query) {
+        int limit = DEFAULT_HISTORY_LIMIT;
+        String value = queryParameter(query, "limit");
+        if (value != null) {
+            try {
+                limit = Integer.parseInt(value);
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("limit must be a number");
+            }
+            limit = Math.max(1, Math.min(limit, MAX_HISTORY_LIMIT));
+        }
+        List<Transaction> recent;
+        structureLock.readLock().lock();
+        try {
+            recent = transactionService.getRecentTransactions(account.getAccountNumber(), limit);
+        } finally {
+            structureLock.readLock().unlock();
+        }
+        StringBuilder sb = new StringBuilder("{\"accountNumber\":")
+                .append(JsonUtils.quote(account.getAccountNumber()))
+                .append(",\"transactions\":[");
+        for (int i = 0; i < recent.size(); i++) {
+            if (i > 0) {
+                sb.append(',');
+            }
+            sb.append(transactionJson(recent.get(i)));
+        }
+        return new Response(200, sb.append("]}").toString());
+    }
+
+    // ============= Helper Methods =============
+
+    private User authenticate(HttpExchange exchange) {
+        String token = bearerToken(exchange);
+        Session session = token != null ? sessions.get(token) : null;
+        if (session == null) {
+            return null;
+        }
+        long now = System.currentTimeMillis();
+        if (session.expiresAt <= now) {
+            sessions.remove(token, session);
+            return null;
+        }
+        User user = authService.getUserById(session.userId);
+        if (user == null) {
+            sessions.remove(token, session); // The user was deleted
+            return null;
+        }
+        session.expiresAt = now + sessionTtlMillis;
+        return user;
+    }
+
+    /**
+     * Giải phóng chỗ cho một phiên mới: dọn các phiên hết hạn, và nếu vẫn đầy thì bỏ
+     * phiên sắp hết hạn nhất (phiên lâu không hoạt động nhất).
+     */
+    private void evictSessions(long now) {
+        sessions.values().removeIf(session -> session.expiresAt <= now);
+        while (sessions.size() >= maxSessions) {
+            Map.Entry<String, Session> oldest = null;
+            for (Map.Entry<String, Session> entry : sessions.entrySet()) {
+                if (oldest == null || entry.getValue().expiresAt < oldest.getValue().expiresAt) {
+                    oldest = entry;
+                }
+            }
+            if (oldest == null) {
+                return;
+            }
+            sessions.remove(oldest.getKey(), oldest.getValue());
+        }
+    }
+
+    private static String bearerToken(HttpExchange exchange) {
+        String header = exchange.getRequestHeaders().getFirst("Authorization");
+        if (header == null || !header.regionMatches(true, 0, "Bearer ", 0, 7)) {
+            return null;
+        }
+        return header.substring(7).trim();
+    }
+
+    private static Response methodNotAllowed() {
+        return new Response(405, error("Method not allowed"));
+    }
+
+    private static double amount(Map<String, String> request, String field, double defaultValue) {
+        String value = request.get(field);
+        if (value == null) {
+            return defaultValue;
+        }
+        double amount;
+        try {
+            amount = Double.parseDouble(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(field + " must be a number");
+        }
+        if (!Double.isFinite(amount)) {
+            throw new IllegalArgumentException(field + " must be a finite number");
+        }
+        return amount;
+    }
+
+    /**
+     * Đọc số tiền bắt buộc của một giao dịch; thiếu, không hữu hạn hoặc ngoài khoảng
+     * InputValidator.isValidAmount đều bị từ chối (400).
+     */
+    private static double requiredAmount(Map<String, String> request, String field) {
+        if (request.get(field) == null) {
+            throw new IllegalArgumentException(field + " is required");
+        }
+        double amount = amount(request, field, Double.NaN);
+        if (!InputValidator.isValidAmount(amount)) {
+            throw new IllegalArgumentException(field + " must be greater than 0 and at most 999999999.99");
+        }
+        return amount;
+    }
+
+    private static String queryParameter(String query, String name) {
+        if (query == null) {
+            return null;
+        }
+        for (String pair : query.split("&")) {
+            int eq = pair.indexOf('=');
+            if (eq > 0 && pair.substring(0, eq).equals(name)) {
+                return pair.substring(eq + 1);
+            }
+        }
+        return null;
+    }
+
+    private static String readBody(HttpExchange exchange) throws IOException {
+        try (InputStream in = exchange.getRequestBody()) {
+            byte[] bytes = in.readNBytes(MAX_BODY_BYTES + 1);
+            if (bytes.length > MAX_BODY_BYTES) {
+                throw new IllegalArgumentException("Request body too large");
+            }
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+    }
+
+    private static void send(HttpExchange exchange, int status, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        // A fixed length keeps the connection reusable for the next request
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    private static String error(String message) {
+        return "{\"error\":" + JsonUtils.quote(message) + "}";
+    }
+
+    private static String userJson(User user, String token) {
+        StringBuilder sb = new StringBuilder("{");
+        if (token != null) {
+            sb.append("\"token\":").append(JsonUtils.quote(token)).append(',');
+        }
+        return sb.append("\"userId\":").append(JsonUtils.quote(user.getUserId()))
+                .append(",\"username\":").append(JsonUtils.quote(user.getUsername()))
+                .append(",\"fullName\":").append(JsonUtils.quote(user.getFullName()))
+                .append(",\"email\":").append(JsonUtils.quote(user.getEmail()))
+                .append('}').toString();
+    }
+
+    private static String accountJson(Account account) {
+        return "{\"accountNumber\":" + JsonUtils.quote(account.getAccountNumber())
+                + ",\"type\":" + JsonUtils.quote(account.getAccountType())
+                + ",\"balance\":" + JsonUtils.number(account.getBalance())
+                + ",\"active\":" + account.isActive() + "}";
+    }
+
+    private static String transactionJson(Transaction transaction) {
+        return "{\"transactionId\":" + JsonUtils.quote(transaction.getTransactionId())
+                + ",\"type\":" + JsonUtils.quote(transaction.getType())
+                + ",\"amount\":" + JsonUtils.number(transaction.getAmount())
+                + ",\"from\":" + JsonUtils.quote(transaction.getFromAccountNumber())
+                + ",\"to\":" + JsonUtils.quote(transaction.getToAccountNumber())
+                + ",\"description\":" + JsonUtils.quote(transaction.getDescription())
+                + ",\"timestamp\":" + transaction.getTimestamp()
+                + ",\"status\":" + JsonUtils.quote(transaction.getStatus())
+                + ",\"balanceAfter\":" + JsonUtils.number(transaction.getBalanceAfter()) + "}";
+    }
+
+    /**
+     * Một phiên đăng nhập: ID người dùng và thời điểm hết hạn, được gia hạn ở mỗi request.
+     */
+    private static class Session {
+        final String userId;
+        volatile long expiresAt;
+
+        Session(String userId, long expiresAt) {
+            this.userId = userId;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    /**
+     * Kết quả xử lý một request: mã trạng thái HTTP và thân JSON.
+     */
+    private static class Response {
+        final int status;
+        final String body;
+
+        Response(int status, String body) {
+            this.status = status;
+            this.body = body;
+        }
+    }
+}
@@ -0,0 +1,372 @@
+package com.bankapp.controllers;
+
+import com.bankapp.model.Account;
+import com.bankapp.model.Transaction;
+import com.bankapp.model.User;
+import com.bankapp.services.AccountService;
+import com.bankapp.services.AuthService;
+import com.bankapp.services.TransactionOperations;
+import com.bankapp.utils.InputValidator;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * BatchController - Chạy một kịch bản lệnh không tương tác (tệp lệnh hoặc stdin) qua cùng các service
+ * mà menu console sử dụng, dành cho các tác vụ hàng loạt ban đêm và việc tái hiện tải.
+ * Mỗi dòng là một lệnh, các trường cách nhau bởi khoảng trắng; dòng trống và dòng bắt đầu bằng '#'
+ * được bỏ qua:
+ * <pre>
+ *   register &lt;username&gt; &lt;password&gt; &lt;email&gt; &lt;full name...&gt;
+ *   open &lt;checking|savings&gt; &lt;username&gt; &lt;initialBalance&gt; [overdraftLimit|interestRate] [as &lt;alias&gt;]
+ *   deposit &lt;account&gt; &lt;amount&gt; [description...]
+ *   withdraw &lt;account&gt; &lt;amount&gt; [description...]
+ *   transfer &lt;from&gt; &lt;to&gt; &lt;amount&gt; [description...]
+ *   balance &lt;account&gt;
+ *   history &lt;account&gt; [count]
+ *   close &lt;account&gt;
+ * </pre>
+ * Số tài khoản do hệ thống sinh ra, nên "open ... as name" đặt bí danh để các lệnh sau
+ * tham chiếu bằng "$name".
+ * Mỗi lệnh ghi đúng một dòng kết quả ("OK ..." hoặc "ERR &lt;số dòng&gt; ...", riêng history có thêm
+ * một dòng cho mỗi giao dịch) vào một Writer có buffer; lỗi của một lệnh, kể cả ngoại lệ bất ngờ
+ * từ service, chỉ được báo trên dòng kết quả của nó và không dừng kịch bản.
+ * Số tiền được kiểm tra bằng InputValidator.parseAmount (số dư ban đầu, hạn mức và lãi suất được phép bằng 0).
+ */
+public class BatchController {
+    private static final int DEFAULT_HISTORY_COUNT = 10;
+
+    private final AuthService authService;
+    private final AccountService accountService;
+    private final TransactionOperations transactionService;
+    private final Map<String, String> aliases = new HashMap<>();
+    private final List<String> tokens = new ArrayList<>(8);
+    private final StringBuilder line = new StringBuilder(128);
+    private long commandCount;
+    private long failureCount;
+
+    /**
+     * Constructor - khởi tạo với các service cần thiết.
+     *
+     * @param authService Đối tượng AuthService
+     * @param accountService Đối tượng AccountService
+     * @param transactionService Service giao dịch (TransactionService hoặc một chế độ thực thi khác)
+     */
+    public BatchController(AuthService authService, AccountService accountService,
+                           TransactionOperations transactionService) {
+        this.authService = authService;
+        this.accountService = accountService;
+        this.transactionService = transactionService;
+    }
+
+    /**
+     * Chạy toàn bộ kịch bản cho đến hết đầu vào. Writer không được flush hay đóng ở đây.
+     *
+     * @param in Nguồn lệnh
+     * @param out Nơi ghi kết quả
+     * @return Số lệnh thất bại trong lần chạy này
+     * @throws IOException nếu không đọc được lệnh hoặc không ghi được kết quả
+     */
+    public long run(BufferedReader in, Writer out) throws IOException {
+        long failuresBefore = failureCount;
+        long lineNumber = 0;
+        String command;
+        while ((command = in.readLine()) != null) {
+            lineNumber++;
+            if (!tokenize(command)) {
+                continue;
+            }
+            commandCount++;
+            line.setLength(0);
+            String error;
+            try {
+                error = execute(command);
+            } catch (NumberFormatException e) {
+                error = "invalid number";
+            } catch (RuntimeException e) {
+                error = "failed: " + e;
+            }
+            if (error != null) {
+                failureCount++;
+                line.setLength(0);
+                line.append("ERR ").append(lineNumber).append(' ').append(tokens.get(0)).append(": ").append(error);
+            }
+            line.append('\n');
+            out.append(line);
+        }
+        return failureCount - failuresBefore;
+    }
+
+    /**
+     * Lấy tổng số lệnh đã chạy.
+     *
+     * @return Số lệnh
+     */
+    public long getCommandCount() {
+        return commandCount;
+    }
+
+    /**
+     * Lấy tổng số lệnh thất bại.
+     *
+     * @return Số lệnh thất bại
+     */
+    public long getFailureCount() {
+        return failureCount;
+    }
+
+    // ============= Commands =============
+
+    /**
+     * Thực hiện lệnh đã tách trong tokens và ghi kết quả thành công vào line.
+     *
+     * @param command Dòng lệnh gốc (để lấy phần mô tả / họ tên còn lại của dòng)
+     * @return Thông báo lỗi, hoặc null nếu thành công
+     */
+    private String execute(String command) {
+        String name = tokens.get(0);
+        switch (name) {
+            case "register":
+                return register(command);
+            case "open":
+                return open();
+            case "deposit":
+            case "withdraw": {
+                if (tokens.size() < 3) {
+                    return "usage: " + name + " <account> <amount> [description]";
+                }
+                String accountNumber = resolve(tokens.get(1));
+                double amount = InputValidator.parseAmount(tokens.get(2));
+                if (amount < 0) {
+                    return "invalid amount";
+                }
+                String description = rest(command, 3);
+                boolean success = name.equals("deposit")
+                        ? transactionService.deposit(accountNumber, amount, description != null ? description : "Deposit")
+                        : transactionService.withdraw(accountNumber, amount, description != null ? description : "Withdrawal");
+                if (!success) {
+                    return accountService.accountExists(accountNumber) ? "rejected" : "account not found";
+                }
+                line.append("OK ").append(name).append(' ').append(accountNumber).append(" balance=");
+                appendAmount(accountService.getAccountBalance(accountNumber));
+                return null;
+            }
+            case "transfer": {
+                if (tokens.size() < 4) {
+                    return "usage: transfer <from> <to> <amount> [description]";
+                }
+                String from = resolve(tokens.get(1));
+                String to = resolve(tokens.get(2));
+                double amount = InputValidator.parseAmount(tokens.get(3));
+                if (amount < 0) {
+                    return "invalid amount";
+                }
+                String description = rest(command, 4);
+                if (!transactionService.transfer(from, to, amount, description != null ? description : "Transfer")) {
+                    return accountService.accountExists(from) && accountService.accountExists(to)
+                            ? "rejected" : "account not found";
+                }
+                line.append("OK transfer ").append(from).append(' ').append(to).append(" balance=");
+                appendAmount(accountService.getAccountBalance(from));
+                return null;
+            }
+            case "balance": {
+                if (tokens.size() < 2) {
+                    return "usage: balance <account>";
+                }
+                String accountNumber = resolve(tokens.get(1));
+                double balance = accountService.getAccountBalance(accountNumber);
+                if (balance == -1 && !accountService.accountExists(accountNumber)) {
+                    return "account not found";
+                }
+                line.append("OK balance ").append(accountNumber).append(' ');
+                appendAmount(balance);
+                return null;
+            }
+            case "history":
+                return history();
+            case "close": {
+                if (tokens.size() < 2) {
+                    return "usage: close <account>";
+                }
+                String accountNumber = resolve(tokens.get(1));
+                if (!accountService.closeAccount(accountNumber)) {
+                    return "account not found";
+                }
+                line.append("OK close ").append(accountNumber);
+                return null;
+            }
+            default:
+                return "unknown command";
+        }
+    }
+
+    private String register(String command) {
+        if (tokens.size() < 5) {
+            return "usage: register <username> <password> <email> <full name>";
+        }
+        User user = authService.register(tokens.get(1), tokens.get(2), rest(command, 4), tokens.get(3));
+        if (user == null) {
+            return "registration failed (duplicate username or invalid input)";
+        }
+        line.append("OK register ").append(user.getUsername()).append(' ').append(user.getUserId());
+        return null;
+    }
+
+    private String open() {
+        if (tokens.size() < 4) {
+            return "usage: open <checking|savings> <username> <initialBalance> [limit|rate] [as <alias>]";
+        }
+        int end = tokens.size();
+        String alias = null;
+        if (end >= 6 && tokens.get(end - 2).equals("as")) {
+            alias = tokens.get(end - 1);
+            end -= 2;
+        }
+        User user = authService.getUserByUsername(tokens.get(2));
+        if (user == null) {
+            return "user not found";
+        }
+        double initialBalance = parseOptionalAmount(tokens.get(3));
+        double extra = end > 4 ? parseOptionalAmount(tokens.get(4)) : 0;
+        if (initialBalance < 0 || extra < 0) {
+            return "invalid amount";
+        }
+        Account account;
+        if (tokens.get(1).equalsIgnoreCase("checking")) {
+            account = accountService.createCheckingAccount(user, initialBalance, extra);
+        } else if (tokens.get(1).equalsIgnoreCase("savings")) {
+            account = accountService.createSavingsAccount(user, initialBalance, extra);
+        } else {
+            return "account type must be checking or savings";
+        }
+        if (account == null) {
+            return "failed to open account";
+        }
+        if (alias != null) {
+            aliases.put(alias, account.getAccountNumber());
+        }
+        line.append("OK open ").append(account.getAccountNumber()).append(' ').append(account.getAccountType())
+                .append(" balance=");
+        appendAmount(account.getBalance());
+        return null;
+    }
+
+    private String history() {
+        if (tokens.size() < 2) {
+            return "usage: history <account> [count]";
+        }
+        String accountNumber = resolve(tokens.get(1));
+        if (!accountService.accountExists(accountNumber)) {
+            return "account not found";
+        }
+        int count = tokens.size() > 2 ? Integer.parseInt(tokens.get(2)) : DEFAULT_HISTORY_COUNT;
+        List<Transaction> recent = transactionService.getRecentTransactions(accountNumber, Math.max(1, count));
+        line.append("OK history ").append(accountNumber).append(' ').append(recent.size());
+        for (Transaction transaction : recent) {
+            line.append("\n  ").append(transaction.getTransactionId())
+                    .append(' ').append(transaction.getType()).append(' ');
+            appendAmount(transaction.getAmount());
+            line.append(" balance=");
+            appendAmount(transaction.getBalanceAfter());
+            line.append(' ').append(transaction.getStatus()).append(' ').append(transaction.getDescription());
+        }
+        return null;
+    }
+
+    // ============= Helper Methods =============
+
+    /**
+     * Tách dòng lệnh thành tokens (không dùng regex để giữ tốc độ).
+     *
+     * @return false nếu dòng trống hoặc là chú thích
+     */
+    private boolean tokenize(String command) {
+        tokens.clear();
+        int length = command.length();
+        int i = 0;
+        while (i < length) {
+            while (i < length && command.charAt(i) <= ' ') {
+                i++;
+            }
+            int start = i;
+            while (i < length && command.charAt(i) > ' ') {
+                i++;
+            }
+            if (i > start) {
+                tokens.add(command.substring(start, i));
+            }
+        }
+        return !tokens.isEmpty() && tokens.get(0).charAt(0) != '#';
+    }
+
+    /**
+     * Lấy phần còn lại của dòng bắt đầu từ token thứ index (giữ nguyên khoảng trắng bên trong).
+     *
+     * @return Phần còn lại, hoặc null nếu không có
+     */
+    private String rest(String command, int index) {
+        if (tokens.size() <= index) {
+            return null;
+        }
+        int position = 0;
+        for (int i = 0; i < index; i++) {
+            position = command.indexOf(tokens.get(i), position) + tokens.get(i).length();
+        }
+        return command.substring(command.indexOf(tokens.get(index), position)).trim();
+    }
+
+    /**
+     * Đọc số tiền có thể bằng 0 (số dư ban đầu, hạn mức thấu chi, lãi suất).
+     *
+     * @return Số tiền, 0, hoặc -1 nếu không hợp lệ theo InputValidator.parseAmount
+     */
+    private static double parseOptionalAmount(String token) {
+        int zeros = 0;
+        int dots = 0;
+        for (int i = 0; i < token.length(); i++) {
+            char c = token.charAt(i);
+            if (c == '0') {
+                zeros++;
+            } else if (c == '.') {
+                dots++;
+            } else {
+                return InputValidator.parseAmount(token);
+            }
+        }
+        return zeros > 0 && dots <= 1 ? 0 : -1;
+    }
+
+    private String resolve(String reference) {
+        if (reference.startsWith("$")) {
+            String accountNumber = aliases.get(reference.substring(1));
+            return accountNumber != null ? accountNumber : reference;
+        }
+        return reference;
+    }
+
+    /**
+     * Ghi số tiền với hai chữ số thập phân mà không qua String.format.
+     */
+    private void appendAmount(double amount) {
+        if (!Double.isFinite(amount) || Math.abs(amount) >= 1e15) {
+            line.append(amount);
+            return;
+        }
+        long cents = Math.round(amount * 100);
+        if (cents < 0) {
+            line.append('-');
+            cents = -cents;
+        }
+        long fraction = cents % 100;
+        line.append(cents / 100).append('.');
+        if (fraction < 10) {
+            line.append('0');
+        }
+        line.append(fraction);
+    }
+}
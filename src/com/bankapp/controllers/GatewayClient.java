@@ -0,0 +1,341 @@
+package com.bankapp.controllers;
+
+import com.bankapp.model.Transaction;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * GatewayClient - Client Java nhỏ gọn cho GatewayController.
+ * Mỗi lệnh được gửi ngay với một request ID mới và trả về CompletableFuture, nên có thể gửi
+ * nhiều lệnh liên tiếp trên cùng kết nối (pipelining) mà không chờ phản hồi; một luồng đọc riêng
+ * hoàn thành future tương ứng khi phản hồi về, theo bất kỳ thứ tự nào.
+ * Khi tắt autoFlush, các lệnh được gom trong buffer và chỉ gửi khi gọi flush() (hoặc khi buffer đầy).
+ */
+public class GatewayClient implements AutoCloseable {
+    private final Socket socket;
+    private final OutputStream out;
+    private final ByteBuffer frame = ByteBuffer.allocate(64 * 1024);
+    private final Map<Long, Pending> inFlight = new ConcurrentHashMap<>();
+    private final AtomicLong nextRequestId = new AtomicLong();
+    private final Thread reader;
+    private volatile boolean autoFlush = true;
+    private volatile IOException failure;
+
+    /**
+     * Kết quả của một lệnh.
+     */
+    public static class Response {
+        private final byte status;
+        private final double balance;
+        private final List<Transaction> transactions;
+
+        Response(byte status, double balance, List<Transaction> transactions) {
+            this.status = status;
+            this.balance = balance;
+            this.transactions = transactions;
+        }
+
+        /**
+         * Lấy mã trạng thái (GatewayProtocol.STATUS_*).
+         *
+         * @return Mã trạng thái
+         */
+        public byte getStatus() {
+            return status;
+        }
+
+        /**
+         * Kiểm tra lệnh có thành công hay không.
+         *
+         * @return true nếu trạng thái là STATUS_OK
+         */
+        public boolean isOk() {
+            return status == GatewayProtocol.STATUS_OK;
+        }
+
+        /**
+         * Lấy số dư trả về (BALANCE, DEPOSIT, WITHDRAW, TRANSFER).
+         *
+         * @return Số dư, hoặc NaN nếu phản hồi không có số dư
+         */
+        public double getBalance() {
+            return balance;
+        }
+
+        /**
+         * Lấy các giao dịch của một trang lịch sử.
+         *
+         * @return Danh sách giao dịch từ cũ đến mới, rỗng nếu không phải phản hồi HISTORY_PAGE
+         */
+        public List<Transaction> getTransactions() {
+            return transactions;
+        }
+    }
+
+    /**
+     * Constructor - kết nối tới gateway.
+     *
+     * @param host Địa chỉ server
+     * @param port Cổng gateway
+     * @throws UncheckedIOException nếu không kết nối được
+     */
+    public GatewayClient(String host, int port) {
+        try {
+            this.socket = new Socket(host, port);
+            socket.setTcpNoDelay(true);
+            this.out = new BufferedOutputStream(socket.getOutputStream(), 64 * 1024);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot connect to gateway " + host + ":" + port, e);
+        }
+        this.reader = new Thread(this::readResponses, "bankapp-gateway-client");
+        reader.setDaemon(true);
+        reader.start();
+    }
+
+    /**
+     * Bật / tắt việc gửi ngay từng lệnh.
+     *
+     * @param autoFlush true để gửi ngay mỗi lệnh, false để gom lệnh cho đến khi gọi flush()
+     */
+    public void setAutoFlush(boolean autoFlush) {
+        this.autoFlush = autoFlush;
+    }
+
+    /**
+     * Gửi các lệnh đang được gom trong buffer.
+     */
+    public void flush() {
+        synchronized (out) {
+            try {
+                out.flush();
+            } catch (IOException e) {
+                throw new UncheckedIOException("Cannot send to gateway", e);
+            }
+        }
+    }
+
+    // ============= Commands =============
+
+    /**
+     * Xác thực kết nối bằng key của gateway.
+     *
+     * @param key Key của gateway
+     * @return Future của phản hồi
+     */
+    public CompletableFuture<Response> authenticate(String key) {
+        byte[] keyBytes = GatewayProtocol.encode(key);
+        return send(GatewayProtocol.OP_AUTH, GatewayProtocol.sizeOf(keyBytes),
+                buffer -> GatewayProtocol.putString(buffer, keyBytes));
+    }
+
+    /**
+     * Truy vấn số dư.
+     *
+     * @param accountNumber Số tài khoản
+     * @return Future của phản hồi (số dư trong getBalance())
+     */
+    public CompletableFuture<Response> balance(String accountNumber) {
+        byte[] account = GatewayProtocol.encode(accountNumber);
+        return send(GatewayProtocol.OP_BALANCE, GatewayProtocol.sizeOf(account),
+                buffer -> GatewayProtocol.putString(buffer, account));
+    }
+
+    /**
+     * Nạp tiền vào một tài khoản.
+     *
+     * @return Future của phản hồi (số dư sau khi nạp trong getBalance())
+     */
+    public CompletableFuture<Response> deposit(String accountNumber, double amount, String description) {
+        return sendAmount(GatewayProtocol.OP_DEPOSIT, accountNumber, amount, description);
+    }
+
+    /**
+     * Rút tiền từ một tài khoản.
+     *
+     * @return Future của phản hồi (số dư sau khi rút trong getBalance())
+     */
+    public CompletableFuture<Response> withdraw(String accountNumber, double amount, String description) {
+        return sendAmount(GatewayProtocol.OP_WITHDRAW, accountNumber, amount, description);
+    }
+
+    /**
+     * Chuyển tiền giữa hai tài khoản.
+     *
+     * @return Future của phản hồi (số dư tài khoản nguồn trong getBalance())
+     */
+    public CompletableFuture<Response> transfer(String fromAccountNumber, String toAccountNumber,
+                                                double amount, String description) {
+        byte[] from = GatewayProtocol.encode(fromAccountNumber);
+        byte[] to = GatewayProtocol.encode(toAccountNumber);
+        byte[] text = GatewayProtocol.encode(description);
+        int size = GatewayProtocol.sizeOf(from) + GatewayProtocol.sizeOf(to) + 8 + GatewayProtocol.sizeOf(text);
+        return send(GatewayProtocol.OP_TRANSFER, size, buffer -> {
+            GatewayProtocol.putString(buffer, from);
+            GatewayProtocol.putString(buffer, to);
+            buffer.putDouble(amount);
+            GatewayProtocol.putString(buffer, text);
+        });
+    }
+
+    /**
+     * Lấy một trang lịch sử giao dịch.
+     *
+     * @param accountNumber Số tài khoản
+     * @param offset Số giao dịch mới nhất bỏ qua
+     * @param limit Số giao dịch tối đa của trang (1 đến GatewayProtocol.MAX_HISTORY_PAGE)
+     * @return Future của phản hồi
+     */
+    public CompletableFuture<Response> historyPage(String accountNumber, int offset, int limit) {
+        byte[] account = GatewayProtocol.encode(accountNumber);
+        return send(GatewayProtocol.OP_HISTORY_PAGE, GatewayProtocol.sizeOf(account) + 8, buffer -> {
+            GatewayProtocol.putString(buffer, account);
+            buffer.putInt(offset);
+            buffer.putInt(limit);
+        });
+    }
+
+    /**
+     * Lấy số lệnh đã gửi nhưng chưa có phản hồi.
+     *
+     * @return Số lệnh đang chờ
+     */
+    public int getInFlightCount() {
+        return inFlight.size();
+    }
+
+    /**
+     * Đóng kết nối; các lệnh chưa có phản hồi kết thúc với lỗi.
+     */
+    @Override
+    public void close() {
+        try {
+            socket.close();
+        } catch (IOException e) {
+            // Already closed
+        }
+        try {
+            reader.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // ============= Helper Methods =============
+
+    private static final class Pending {
+        final byte opcode;
+        final CompletableFuture<Response> future;
+
+        Pending(byte opcode, CompletableFuture<Response> future) {
+            this.opcode = opcode;
+            this.future = future;
+        }
+    }
+
+    private interface Arguments {
+        void write(ByteBuffer buffer);
+    }
+
+    private CompletableFuture<Response> sendAmount(byte opcode, String accountNumber, double amount, String description) {
+        byte[] account = GatewayProtocol.encode(accountNumber);
+        byte[] text = GatewayProtocol.encode(description);
+        return send(opcode, GatewayProtocol.sizeOf(account) + 8 + GatewayProtocol.sizeOf(text), buffer -> {
+            GatewayProtocol.putString(buffer, account);
+            buffer.putDouble(amount);
+            GatewayProtocol.putString(buffer, text);
+        });
+    }
+
+    private CompletableFuture<Response> send(byte opcode, int argumentBytes, Arguments arguments) {
+        CompletableFuture<Response> future = new CompletableFuture<>();
+        if (GatewayProtocol.REQUEST_HEADER + argumentBytes > frame.capacity()) {
+            future.completeExceptionally(new IllegalArgumentException("Request too large"));
+            return future;
+        }
+        long requestId = nextRequestId.incrementAndGet();
+        inFlight.put(requestId, new Pending(opcode, future));
+        synchronized (out) {
+            try {
+                if (failure != null) {
+                    throw failure;
+                }
+                frame.clear();
+                frame.putInt(GatewayProtocol.REQUEST_HEADER - 4 + argumentBytes).putLong(requestId).put(opcode);
+                arguments.write(frame);
+                out.write(frame.array(), 0, frame.position());
+                if (autoFlush) {
+                    out.flush();
+                }
+            } catch (IOException e) {
+                inFlight.remove(requestId);
+                future.completeExceptionally(e);
+            }
+        }
+        return future;
+    }
+
+    private void readResponses() {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream(), 64 * 1024))) {
+            byte[] scratch = new byte[256];
+            while (true) {
+                int length = in.readInt();
+                if (length < GatewayProtocol.RESPONSE_HEADER - 4 || length > GatewayProtocol.MAX_FRAME_BYTES) {
+                    throw new IOException("Corrupt gateway response");
+                }
+                byte[] body = new byte[length];
+                in.readFully(body);
+                ByteBuffer buffer = ByteBuffer.wrap(body);
+                long requestId = buffer.getLong();
+                byte status = buffer.get();
+                double balance = Double.NaN;
+                List<Transaction> transactions = List.of();
+                Pending pending = inFlight.remove(requestId);
+                if (pending == null) {
+                    continue;
+                }
+                if (status == GatewayProtocol.STATUS_OK && pending.opcode == GatewayProtocol.OP_HISTORY_PAGE) {
+                    int count = buffer.getInt();
+                    transactions = new ArrayList<>(count);
+                    for (int i = 0; i < count; i++) {
+                        String id = GatewayProtocol.getString(buffer, scratch);
+                        String type = GatewayProtocol.getString(buffer, scratch);
+                        double amount = buffer.getDouble();
+                        String from = GatewayProtocol.getString(buffer, scratch);
+                        String to = GatewayProtocol.getString(buffer, scratch);
+                        String description = GatewayProtocol.getString(buffer, scratch);
+                        long timestamp = buffer.getLong();
+                        String transactionStatus = GatewayProtocol.getString(buffer, scratch);
+                        transactions.add(new Transaction(id, from, to, amount, type, description, timestamp,
+                                transactionStatus, buffer.getDouble()));
+                    }
+                } else if (status == GatewayProtocol.STATUS_OK && buffer.remaining() >= 8) {
+                    balance = buffer.getDouble();
+                }
+                pending.future.complete(new Response(status, balance, transactions));
+            }
+        } catch (IOException e) {
+            failure = e;
+        } finally {
+            IOException cause = failure != null ? failure : new IOException("Gateway connection closed");
+            failure = cause;
+            for (Long requestId : inFlight.keySet()) {
+                Pending pending = inFlight.remove(requestId);
+                if (pending != null) {
+                    pending.future.completeExceptionally(cause);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,559 @@
+package com.bankapp.controllers;
+
+import com.bankapp.data.InMemoryDataStore;
+import com.bankapp.model.Account;
+import com.bankapp.model.Transaction;
+import com.bankapp.services.AccountService;
+import com.bankapp.services.StripedLockTransactionService;
+import com.bankapp.services.TransactionOperations;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * GatewayController - Server giao thức nhị phân (GatewayProtocol) trên NIO cho các cổng kênh nội bộ.
+ * Một luồng selector duy nhất nhận kết nối, đọc và ghi; mỗi kết nối có một buffer đọc và một buffer
+ * ghi kiểu direct được dùng lại suốt vòng đời kết nối:
+ * <ul>
+ *   <li>Khung request được đọc ngay tại chỗ trong buffer đọc, không sao chép ra mảng hay stream.</li>
+ *   <li>Truy vấn số dư được trả lời ngay trên luồng selector và ghi thẳng vào buffer ghi, nên
+ *       một loạt request gửi liên tiếp (pipelining) được trả lời bằng một lần ghi socket.</li>
+ *   <li>Nạp, rút, chuyển tiền và trang lịch sử chạy trên thread pool (qua
+ *       StripedLockTransactionService hoặc service giao dịch truyền vào constructor) và trả lời theo thứ tự hoàn thành, khớp với request
+ *       bằng request ID.</li>
+ * </ul>
+ * Hàng đợi của thread pool có giới hạn (đầy thì trả STATUS_BUSY), và một kết nối có quá nhiều
+ * request chưa trả lời sẽ tạm ngừng được đọc cho đến khi client nhận bớt phản hồi.
+ * Nếu có key, kết nối phải gửi AUTH với đúng key trước các lệnh khác; nếu không có key, gateway
+ * chỉ lắng nghe trên địa chỉ loopback để không mở các lệnh chuyển tiền ra mạng mà không xác thực.
+ * Số tiền không hữu hạn (NaN, vô cực) bị trả về STATUS_BAD_REQUEST ngay trên luồng selector.
+ * Các lệnh không thay đổi cấu trúc repository (không mở / đóng tài khoản), nên tra cứu tài khoản
+ * không cần khóa.
+ */
+public class GatewayController {
+    private static final int BUFFER_BYTES = 64 * 1024;      // Per-connection read and write buffers
+    private static final int MAX_PENDING_PER_CONNECTION = 4096;
+    private static final int BALANCE_RESPONSE_BYTES = GatewayProtocol.RESPONSE_HEADER + 8;
+
+    private final AccountService accountService;
+    private final TransactionOperations transactionService;
+    private final byte[] key;
+    private final ServerSocketChannel serverChannel;
+    private final Selector selector;
+    private final ThreadPoolExecutor workers;
+    private final ConcurrentLinkedQueue<Connection> writeReady = new ConcurrentLinkedQueue<>();
+    private final Thread selectorThread;
+    private final AtomicInteger connectionCount = new AtomicInteger();
+    private volatile boolean running;
+
+    /**
+     * Constructor cho GatewayController.
+     *
+     * @param dataStore Kho dữ liệu
+     * @param port Cổng lắng nghe (0 để hệ điều hành tự chọn)
+     * @param threads Số luồng xử lý giao dịch
+     * @param queueSize Số lệnh tối đa chờ trong hàng đợi của thread pool
+     * @param key Key mà client phải gửi bằng AUTH, hoặc null (hay rỗng) để không yêu cầu
+     *            và chỉ lắng nghe trên loopback
+     */
+    public GatewayController(InMemoryDataStore dataStore, int port, int threads, int queueSize, String key) {
+        this(dataStore, new StripedLockTransactionService(dataStore, Math.max(16, threads * 4)), port, threads,
+                queueSize, key);
+    }
+
+    /**
+     * Constructor cho GatewayController với một service giao dịch cho trước (ví dụ ShardedTransactionService).
+     *
+     * @param dataStore Kho dữ liệu dùng để tra cứu tài khoản
+     * @param transactionService Service thực hiện giao dịch
+     * @param port Cổng lắng nghe (0 để hệ điều hành tự chọn)
+     * @param threads Số luồng xử lý giao dịch
+     * @param queueSize Số lệnh tối đa chờ trong hàng đợi của thread pool
+     * @param key Key mà client phải gửi bằng AUTH, hoặc null (hay rỗng) để không yêu cầu
+     *            và chỉ lắng nghe trên loopback
+     */
+    public GatewayController(InMemoryDataStore dataStore, TransactionOperations transactionService, int port,
+                             int threads, int queueSize, String key) {
+        this.accountService = new AccountService(dataStore);
+        this.transactionService = transactionService;
+        this.key = key != null && !key.isEmpty() ? key.getBytes(StandardCharsets.UTF_8) : null;
+        AtomicInteger workerCount = new AtomicInteger();
+        this.workers = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, queueSize)),
+                task -> {
+                    Thread worker = new Thread(task, "bankapp-gateway-" + workerCount.incrementAndGet());
+                    worker.setDaemon(true);
+                    return worker;
+                });
+        try {
+            this.selector = Selector.open();
+            this.serverChannel = ServerSocketChannel.open();
+            // Without a key anyone who can reach the port could move money, so stay on loopback
+            serverChannel.bind(this.key != null ? new InetSocketAddress(port)
+                    : new InetSocketAddress(InetAddress.getLoopbackAddress(), port));
+            serverChannel.configureBlocking(false);
+            serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot open gateway on port " + port, e);
+        }
+        this.selectorThread = new Thread(this::run, "bankapp-gateway-selector");
+    }
+
+    /**
+     * Bắt đầu nhận kết nối.
+     */
+    public void start() {
+        running = true;
+        selectorThread.start();
+    }
+
+    /**
+     * Dừng server: đóng mọi kết nối và thread pool.
+     */
+    public void stop() {
+        running = false;
+        selector.wakeup();
+        try {
+            selectorThread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        workers.shutdown();
+    }
+
+    /**
+     * Lấy cổng server đang lắng nghe.
+     *
+     * @return Cổng lắng nghe
+     */
+    public int getPort() {
+        return serverChannel.socket().getLocalPort();
+    }
+
+    /**
+     * Kiểm tra gateway có chỉ lắng nghe trên loopback hay không (khi không có key).
+     *
+     * @return true nếu chỉ nhận kết nối cục bộ
+     */
+    public boolean isLoopbackOnly() {
+        return key == null;
+    }
+
+    /**
+     * Lấy số kết nối đang mở.
+     *
+     * @return Số kết nối
+     */
+    public int getConnectionCount() {
+        return connectionCount.get();
+    }
+
+    // ============= Selector Loop =============
+
+    private void run() {
+        while (running) {
+            try {
+                selector.select();
+            } catch (IOException e) {
+                break;
+            }
+            Connection ready;
+            while ((ready = writeReady.poll()) != null) {
+                ready.writeScheduled.set(false);
+                flushQuietly(ready);
+            }
+            Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+            while (keys.hasNext()) {
+                SelectionKey selected = keys.next();
+                keys.remove();
+                if (!selected.isValid()) {
+                    continue;
+                }
+                if (selected.isAcceptable()) {
+                    accept();
+                    continue;
+                }
+                Connection connection = (Connection) selected.attachment();
+                try {
+                    if (selected.isReadable()) {
+                        read(connection);
+                    }
+                    if (selected.isValid() && selected.isWritable()) {
+                        flush(connection);
+                    }
+                } catch (IOException e) {
+                    close(connection);
+                }
+            }
+        }
+        for (SelectionKey registered : selector.keys()) {
+            if (registered.attachment() instanceof Connection) {
+                close((Connection) registered.attachment());
+            }
+        }
+        try {
+            serverChannel.close();
+            selector.close();
+        } catch (IOException e) {
+            // Shutting down anyway
+        }
+    }
+
+    private void accept() {
+        try {
+            SocketChannel channel = serverChannel.accept();
+            if (channel == null) {
+                return;
+            }
+            channel.configureBlocking(false);
+            channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+            Connection connection = new Connection(channel);
+            connection.key = channel.register(selector, SelectionKey.OP_READ, connection);
+            connectionCount.incrementAndGet();
+        } catch (IOException e) {
+            // The client went away before the connection was set up
+        }
+    }
+
+    private void read(Connection connection) throws IOException {
+        ByteBuffer in = connection.readBuffer;
+        if (connection.channel.read(in) < 0) {
+            close(connection);
+            return;
+        }
+        in.flip();
+        boolean repliedInline = false;
+        while (in.remaining() >= 4) {
+            int start = in.position();
+            int length = in.getInt(start);
+            if (length < GatewayProtocol.REQUEST_HEADER - 4 || length > BUFFER_BYTES - 4) {
+                close(connection); // Not a gateway client, or a corrupt stream
+                return;
+            }
+            if (in.remaining() < 4 + length) {
+                break;
+            }
+            int end = start + 4 + length;
+            int limit = in.limit();
+            in.position(start + 4).limit(end); // Confine argument decoding to this frame
+            long requestId = in.getLong();
+            byte opcode = in.get();
+            try {
+                repliedInline |= dispatch(connection, requestId, opcode, in);
+            } catch (BufferUnderflowException e) {
+                repliedInline |= reply(connection, requestId, GatewayProtocol.STATUS_BAD_REQUEST, Double.NaN);
+            } catch (RuntimeException e) {
+                repliedInline |= reply(connection, requestId, GatewayProtocol.STATUS_ERROR, Double.NaN);
+            }
+            in.limit(limit).position(end);
+        }
+        in.compact();
+        if (repliedInline) {
+            flush(connection);
+        }
+        if (connection.pending.get() >= MAX_PENDING_PER_CONNECTION && connection.key.isValid()) {
+            // Stop reading until the client drains its responses
+            connection.key.interestOps(connection.key.interestOps() & ~SelectionKey.OP_READ);
+            connection.readPaused = true;
+        }
+    }
+
+    /**
+     * Giải mã tham số của một request và thực hiện (trả lời ngay hoặc giao cho thread pool).
+     *
+     * @return true nếu phản hồi đã được ghi thẳng vào buffer ghi của kết nối
+     */
+    private boolean dispatch(Connection connection, long requestId, byte opcode, ByteBuffer in) {
+        if (opcode == GatewayProtocol.OP_AUTH) {
+            String presented = GatewayProtocol.getString(in, connection.scratch);
+            connection.authenticated = key == null || (presented != null
+                    && MessageDigest.isEqual(key, presented.getBytes(StandardCharsets.UTF_8)));
+            return reply(connection, requestId, connection.authenticated
+                    ? GatewayProtocol.STATUS_OK : GatewayProtocol.STATUS_UNAUTHORIZED, Double.NaN);
+        }
+        if (key != null && !connection.authenticated) {
+            return reply(connection, requestId, GatewayProtocol.STATUS_UNAUTHORIZED, Double.NaN);
+        }
+        switch (opcode) {
+            case GatewayProtocol.OP_BALANCE: {
+                Account account = accountService.getAccount(GatewayProtocol.getString(in, connection.scratch));
+                if (account == null) {
+                    return reply(connection, requestId, GatewayProtocol.STATUS_NOT_FOUND, Double.NaN);
+                }
+                return reply(connection, requestId, GatewayProtocol.STATUS_OK, account.getBalance());
+            }
+            case GatewayProtocol.OP_DEPOSIT:
+            case GatewayProtocol.OP_WITHDRAW: {
+                String accountNumber = GatewayProtocol.getString(in, connection.scratch);
+                double amount = in.getDouble();
+                String description = GatewayProtocol.getString(in, connection.scratch);
+                if (!Double.isFinite(amount)) {
+                    return reply(connection, requestId, GatewayProtocol.STATUS_BAD_REQUEST, Double.NaN);
+                }
+                boolean deposit = opcode == GatewayProtocol.OP_DEPOSIT;
+                return submit(connection, requestId, () -> {
+                    Account account = accountService.getAccount(accountNumber);
+                    if (account == null) {
+                        return statusFrame(requestId, GatewayProtocol.STATUS_NOT_FOUND);
+                    }
+                    boolean success = deposit
+                            ? transactionService.deposit(accountNumber, amount,
+                                    description != null ? description : "Deposit")
+                            : transactionService.withdraw(accountNumber, amount,
+                                    description != null ? description : "Withdrawal");
+                    return success ? balanceFrame(requestId, account.getBalance())
+                            : statusFrame(requestId, GatewayProtocol.STATUS_REJECTED);
+                });
+            }
+            case GatewayProtocol.OP_TRANSFER: {
+                String from = GatewayProtocol.getString(in, connection.scratch);
+                String to = GatewayProtocol.getString(in, connection.scratch);
+                double amount = in.getDouble();
+                String description = GatewayProtocol.getString(in, connection.scratch);
+                if (!Double.isFinite(amount)) {
+                    return reply(connection, requestId, GatewayProtocol.STATUS_BAD_REQUEST, Double.NaN);
+                }
+                return submit(connection, requestId, () -> {
+                    Account source = accountService.getAccount(from);
+                    if (source == null || accountService.getAccount(to) == null) {
+                        return statusFrame(requestId, GatewayProtocol.STATUS_NOT_FOUND);
+                    }
+                    return transactionService.transfer(from, to, amount, description != null ? description : "Transfer")
+                            ? balanceFrame(requestId, source.getBalance())
+                            : statusFrame(requestId, GatewayProtocol.STATUS_REJECTED);
+                });
+            }
+            case GatewayProtocol.OP_HISTORY_PAGE: {
+                String accountNumber = GatewayProtocol.getString(in, connection.scratch);
+                int offset = in.getInt();
+                int limit = in.getInt();
+                if (offset < 0 || limit < 1 || limit > GatewayProtocol.MAX_HISTORY_PAGE) {
+                    return reply(connection, requestId, GatewayProtocol.STATUS_BAD_REQUEST, Double.NaN);
+                }
+                return submit(connection, requestId, () -> {
+                    if (accountService.getAccount(accountNumber) == null) {
+                        return statusFrame(requestId, GatewayProtocol.STATUS_NOT_FOUND);
+                    }
+                    // Oldest to newest; skip the newest "offset" transactions
+                    List<Transaction> recent = transactionService.getRecentTransactions(accountNumber,
+                            (int) Math.min(Integer.MAX_VALUE, (long) offset + limit));
+                    int to = Math.max(0, recent.size() - offset);
+                    return historyFrame(requestId, recent.subList(Math.max(0, to - limit), to));
+                });
+            }
+            default:
+                return reply(connection, requestId, GatewayProtocol.STATUS_BAD_REQUEST, Double.NaN);
+        }
+    }
+
+    private interface Command {
+        ByteBuffer execute();
+    }
+
+    private boolean submit(Connection connection, long requestId, Command command) {
+        connection.pending.incrementAndGet();
+        try {
+            workers.execute(() -> {
+                ByteBuffer response;
+                try {
+                    response = command.execute();
+                } catch (RuntimeException e) {
+                    response = statusFrame(requestId, GatewayProtocol.STATUS_ERROR);
+                }
+                connection.responses.add(response);
+                if (connection.writeScheduled.compareAndSet(false, true)) {
+                    writeReady.add(connection);
+                    selector.wakeup();
+                }
+            });
+            return false;
+        } catch (RejectedExecutionException e) {
+            connection.pending.decrementAndGet();
+            return reply(connection, requestId, GatewayProtocol.STATUS_BUSY, Double.NaN);
+        }
+    }
+
+    /**
+     * Trả lời một request ngay trên luồng selector. Phản hồi được ghi thẳng vào buffer ghi
+     * nếu còn chỗ và không có phản hồi nào đang ghi dở, nếu không thì xếp hàng.
+     *
+     * @param value Số dư kèm theo, hoặc NaN nếu phản hồi không có nội dung
+     * @return true nếu đã ghi thẳng vào buffer ghi
+     */
+    private boolean reply(Connection connection, long requestId, byte status, double value) {
+        boolean withValue = !Double.isNaN(value);
+        ByteBuffer out = connection.writeBuffer;
+        if (connection.current == null && out.remaining() >= BALANCE_RESPONSE_BYTES) {
+            out.putInt(withValue ? BALANCE_RESPONSE_BYTES - 4 : GatewayProtocol.RESPONSE_HEADER - 4);
+            out.putLong(requestId);
+            out.put(status);
+            if (withValue) {
+                out.putDouble(value);
+            }
+            return true;
+        }
+        connection.pending.incrementAndGet();
+        connection.responses.add(withValue ? balanceFrame(requestId, value) : statusFrame(requestId, status));
+        return true;
+    }
+
+    private void flushQuietly(Connection connection) {
+        try {
+            flush(connection);
+        } catch (IOException e) {
+            close(connection);
+        }
+    }
+
+    /**
+     * Chuyển các phản hồi đang chờ vào buffer ghi và ghi ra socket cho đến khi hết dữ liệu
+     * hoặc socket đầy, rồi cập nhật việc theo dõi OP_WRITE / OP_READ của kết nối.
+     */
+    private void flush(Connection connection) throws IOException {
+        if (connection.closed) {
+            return;
+        }
+        ByteBuffer out = connection.writeBuffer;
+        while (true) {
+            while (out.hasRemaining()) {
+                if (connection.current == null) {
+                    connection.current = connection.responses.poll();
+                    if (connection.current == null) {
+                        break;
+                    }
+                    connection.pending.decrementAndGet();
+                }
+                ByteBuffer response = connection.current;
+                if (response.remaining() <= out.remaining()) {
+                    out.put(response);
+                    connection.current = null;
+                } else {
+                    int limit = response.limit();
+                    response.limit(response.position() + out.remaining());
+                    out.put(response);
+                    response.limit(limit);
+                }
+            }
+            if (out.position() == 0) {
+                break;
+            }
+            out.flip();
+            connection.channel.write(out);
+            boolean socketFull = out.hasRemaining();
+            out.compact();
+            if (socketFull) {
+                break;
+            }
+        }
+        boolean moreToWrite = out.position() > 0 || connection.current != null || !connection.responses.isEmpty();
+        int ops = connection.key.interestOps();
+        ops = moreToWrite ? ops | SelectionKey.OP_WRITE : ops & ~SelectionKey.OP_WRITE;
+        if (connection.readPaused && connection.pending.get() < MAX_PENDING_PER_CONNECTION / 2) {
+            ops |= SelectionKey.OP_READ;
+            connection.readPaused = false;
+        }
+        connection.key.interestOps(ops);
+    }
+
+    private void close(Connection connection) {
+        if (connection.closed) {
+            return;
+        }
+        connection.closed = true;
+        connection.key.cancel();
+        try {
+            connection.channel.close();
+        } catch (IOException e) {
+            // Already closed
+        }
+        connectionCount.decrementAndGet();
+    }
+
+    // ============= Response Frames =============
+
+    private static ByteBuffer statusFrame(long requestId, byte status) {
+        ByteBuffer frame = ByteBuffer.allocate(GatewayProtocol.RESPONSE_HEADER);
+        frame.putInt(GatewayProtocol.RESPONSE_HEADER - 4).putLong(requestId).put(status);
+        return frame.flip();
+    }
+
+    private static ByteBuffer balanceFrame(long requestId, double balance) {
+        ByteBuffer frame = ByteBuffer.allocate(BALANCE_RESPONSE_BYTES);
+        frame.putInt(BALANCE_RESPONSE_BYTES - 4).putLong(requestId).put(GatewayProtocol.STATUS_OK).putDouble(balance);
+        return frame.flip();
+    }
+
+    private static ByteBuffer historyFrame(long requestId, List<Transaction> transactions) {
+        // Encode strings once to size the frame exactly
+        List<byte[]> strings = new ArrayList<>(transactions.size() * 6);
+        int size = GatewayProtocol.RESPONSE_HEADER + 4;
+        for (Transaction transaction : transactions) {
+            for (String value : new String[] {transaction.getTransactionId(), transaction.getType(),
+                    transaction.getFromAccountNumber(), transaction.getToAccountNumber(),
+                    transaction.getDescription(), transaction.getStatus()}) {
+                byte[] utf8 = GatewayProtocol.encode(value);
+                strings.add(utf8);
+                size += GatewayProtocol.sizeOf(utf8);
+            }
+            size += 8 + 8 + 8; // amount, timestamp, balanceAfter
+        }
+        ByteBuffer frame = ByteBuffer.allocate(size);
+        frame.putInt(size - 4).putLong(requestId).put(GatewayProtocol.STATUS_OK).putInt(transactions.size());
+        int next = 0;
+        for (Transaction transaction : transactions) {
+            GatewayProtocol.putString(frame, strings.get(next++)); // id
+            GatewayProtocol.putString(frame, strings.get(next++)); // type
+            frame.putDouble(transaction.getAmount());
+            GatewayProtocol.putString(frame, strings.get(next++)); // from
+            GatewayProtocol.putString(frame, strings.get(next++)); // to
+            GatewayProtocol.putString(frame, strings.get(next++)); // description
+            frame.putLong(transaction.getTimestamp());
+            GatewayProtocol.putString(frame, strings.get(next++)); // status
+            frame.putDouble(transaction.getBalanceAfter());
+        }
+        return frame.flip();
+    }
+
+    /**
+     * Trạng thái của một kết nối. Buffer đọc, buffer ghi và current chỉ được dùng trên luồng selector;
+     * responses, pending và writeScheduled được các luồng xử lý cập nhật.
+     */
+    private static final class Connection {
+        final SocketChannel channel;
+        final ByteBuffer readBuffer = ByteBuffer.allocateDirect(BUFFER_BYTES);
+        final ByteBuffer writeBuffer = ByteBuffer.allocateDirect(BUFFER_BYTES);
+        final ConcurrentLinkedQueue<ByteBuffer> responses = new ConcurrentLinkedQueue<>();
+        final AtomicInteger pending = new AtomicInteger();      // Requests whose response is not yet in writeBuffer
+        final AtomicBoolean writeScheduled = new AtomicBoolean();
+        final byte[] scratch = new byte[256];
+        SelectionKey key;
+        ByteBuffer current;                                      // Response partly copied into writeBuffer
+        boolean readPaused;
+        boolean authenticated;
+        boolean closed;
+
+        Connection(SocketChannel channel) {
+            this.channel = channel;
+        }
+    }
+}
@@ -0,0 +1,132 @@
+package com.bankapp.controllers;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * GatewayProtocol - Định dạng khung (frame) của giao thức nhị phân dành cho các cổng kênh nội bộ,
+ * dùng chung cho GatewayController (server) và GatewayClient.
+ * <pre>
+ *   Request:  [int length][long requestId][byte opcode][tham số]
+ *   Response: [int length][long requestId][byte status][kết quả]
+ * </pre>
+ * length là số byte phía sau trường length. Chuỗi được mã hóa [short length][UTF-8].
+ * <pre>
+ *   AUTH          [chuỗi key]                                  -> (trống)
+ *   BALANCE       [chuỗi tài khoản]                            -> [double số dư]
+ *   DEPOSIT       [chuỗi tài khoản][double số tiền][chuỗi mô tả] -> [double số dư]
+ *   WITHDRAW      [chuỗi tài khoản][double số tiền][chuỗi mô tả] -> [double số dư]
+ *   TRANSFER      [chuỗi từ][chuỗi đến][double số tiền][chuỗi mô tả] -> [double số dư tài khoản nguồn]
+ *   HISTORY_PAGE  [chuỗi tài khoản][int offset][int limit]    -> [int n][n giao dịch]
+ * </pre>
+ * Một trang lịch sử bỏ qua offset giao dịch mới nhất rồi lấy tối đa limit giao dịch, theo thứ tự
+ * cũ đến mới. Mỗi giao dịch gồm: id, loại, số tiền, tài khoản nguồn, tài khoản đích, mô tả,
+ * thời điểm (long), trạng thái và số dư sau giao dịch.
+ * Request ID do client chọn và được trả lại nguyên vẹn, nên một kết nối có thể gửi liên tiếp
+ * nhiều request (pipelining) và nhận phản hồi theo thứ tự hoàn thành.
+ */
+public final class GatewayProtocol {
+    public static final byte OP_AUTH = 0;
+    public static final byte OP_BALANCE = 1;
+    public static final byte OP_DEPOSIT = 2;
+    public static final byte OP_WITHDRAW = 3;
+    public static final byte OP_TRANSFER = 4;
+    public static final byte OP_HISTORY_PAGE = 5;
+
+    public static final byte STATUS_OK = 0;
+    public static final byte STATUS_REJECTED = 1;     // Business rule failed (funds, amount, closed account)
+    public static final byte STATUS_NOT_FOUND = 2;
+    public static final byte STATUS_BAD_REQUEST = 3;
+    public static final byte STATUS_UNAUTHORIZED = 4;
+    public static final byte STATUS_BUSY = 5;         // Server queue full; the client may retry
+    public static final byte STATUS_ERROR = 6;
+
+    public static final int MAX_FRAME_BYTES = 256 * 1024;
+    public static final int REQUEST_HEADER = 4 + 8 + 1;
+    public static final int RESPONSE_HEADER = 4 + 8 + 1;
+    public static final int MAX_HISTORY_PAGE = 1000;
+
+    private GatewayProtocol() {
+    }
+
+    /**
+     * Ghi một chuỗi vào buffer (null được ghi với độ dài -1).
+     *
+     * @param buffer Buffer đích
+     * @param value Chuỗi cần ghi
+     */
+    public static void putString(ByteBuffer buffer, String value) {
+        putString(buffer, encode(value));
+    }
+
+    /**
+     * Ghi một chuỗi đã mã hóa UTF-8 vào buffer.
+     *
+     * @param buffer Buffer đích
+     * @param utf8 Các byte UTF-8 của chuỗi, hoặc null
+     */
+    public static void putString(ByteBuffer buffer, byte[] utf8) {
+        if (utf8 == null) {
+            buffer.putShort((short) -1);
+            return;
+        }
+        buffer.putShort((short) utf8.length);
+        buffer.put(utf8);
+    }
+
+    /**
+     * Mã hóa một chuỗi sang UTF-8 để tính trước kích thước khung.
+     *
+     * @param value Chuỗi cần mã hóa
+     * @return Các byte UTF-8, hoặc null nếu chuỗi null
+     * @throws IllegalArgumentException nếu chuỗi quá dài
+     */
+    public static byte[] encode(String value) {
+        if (value == null) {
+            return null;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > Short.MAX_VALUE) {
+            throw new IllegalArgumentException("String too long for the gateway protocol");
+        }
+        return bytes;
+    }
+
+    /**
+     * Số byte một chuỗi đã mã hóa chiếm trong khung.
+     *
+     * @param utf8 Các byte UTF-8 của chuỗi, hoặc null
+     * @return Số byte kể cả trường độ dài
+     */
+    public static int sizeOf(byte[] utf8) {
+        return 2 + (utf8 != null ? utf8.length : 0);
+    }
+
+    /**
+     * Đọc một chuỗi từ vị trí hiện tại của buffer.
+     *
+     * @param buffer Buffer nguồn
+     * @param scratch Mảng tạm để sao chép byte khi buffer không có mảng nền (direct buffer)
+     * @return Chuỗi đã đọc, hoặc null
+     * @throws BufferUnderflowException nếu khung bị cắt cụt
+     */
+    public static String getString(ByteBuffer buffer, byte[] scratch) {
+        int length = buffer.getShort();
+        if (length < 0) {
+            return null;
+        }
+        if (length > buffer.remaining()) {
+            throw new BufferUnderflowException();
+        }
+        if (buffer.hasArray()) {
+            String value = new String(buffer.array(), buffer.arrayOffset() + buffer.position(), length,
+                    StandardCharsets.UTF_8);
+            buffer.position(buffer.position() + length);
+            return value;
+        }
+        byte[] bytes = length <= scratch.length ? scratch : new byte[length];
+        buffer.get(bytes, 0, length);
+        return new String(bytes, 0, length, StandardCharsets.UTF_8);
+    }
+}
@@ -3,7 +3,7 @@ package com.bankapp.controllers;
 import com.bankapp.model.Account;
 import com.bankapp.model.Transaction;
 import com.bankapp.model.User;
-import com.bankapp.services.TransactionService;
+import com.bankapp.services.TransactionOperations;
 import com.bankapp.utils.ConsoleUtils;
 import com.bankapp.utils.InputValidator;
 import java.util.List;
@@ -13,14 +13,14 @@ import java.util.List;
  * Implements the MVC Controller pattern - validates input and delegates to service layer.
  */
 public class TransactionController {
-    private final TransactionService transactionService;
+    private final TransactionOperations transactionService;
 
     /**
         * Constructor - khởi tạo với TransactionService.
      *
-     * @param transactionService TransactionService instance
+     * @param transactionService TransactionService instance (or any other TransactionOperations mode)
      */
-    public TransactionController(TransactionService transactionService) {
+    public TransactionController(TransactionOperations transactionService) {
         this.transactionService = transactionService;
     }
 
@@ -162,7 +162,7 @@ public class TransactionController {
         ConsoleUtils.printSubHeader("TRANSACTION HISTORY");
         ConsoleUtils.printInfo("Account: " + account.getAccountNumber());
 
-        List<Transaction> transactions = account.getTransactions();
+        List<Transaction> transactions = transactionService.getTransactionHistory(account.getAccountNumber());
         if (transactions.isEmpty()) {
             ConsoleUtils.printInfo("No transactions found");
             return;
@@ -0,0 +1,154 @@
+package com.bankapp.data;
+
+import com.bankapp.model.Account;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * AccountArchive - Kho lưu trữ lạnh cho các tài khoản đã đóng.
+ * Mỗi tài khoản (kèm phần lịch sử giao dịch còn trong bộ nhớ) được tuần tự hóa và nén GZIP.
+ * - Nếu có thư mục lưu trữ: mỗi tài khoản là một file .acc.gz trong thư mục đó.
+ * - Nếu không: bản nén được giữ trong bộ nhớ, vẫn nhỏ hơn nhiều so với đối tượng gốc.
+ */
+public class AccountArchive {
+    private final Path directory;
+    private final Map<String, byte[]> inMemoryRecords; // Used when no directory is configured
+    private long archivedBytes;
+
+    /**
+     * Constructor cho AccountArchive.
+     *
+     * @param directory Thư mục lưu trữ, null để giữ bản nén trong bộ nhớ
+     */
+    public AccountArchive(Path directory) {
+        this.directory = directory;
+        this.inMemoryRecords = new HashMap<>();
+    }
+
+    /**
+     * Nén và lưu một tài khoản vào kho, ghi đè bản cũ nếu có.
+     *
+     * @param account Tài khoản cần lưu
+     * @return true nếu lưu thành công, false nếu lỗi ghi
+     */
+    public synchronized boolean store(Account account) {
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            try (ObjectOutputStream out = new ObjectOutputStream(new GZIPOutputStream(bytes))) {
+                out.writeObject(account);
+            }
+            byte[] record = bytes.toByteArray();
+            if (directory == null) {
+                byte[] previous = inMemoryRecords.put(account.getAccountNumber(), record);
+                archivedBytes -= previous != null ? previous.length : 0;
+            } else {
+                Files.createDirectories(directory);
+                Path file = file(account.getAccountNumber());
+                archivedBytes -= Files.exists(file) ? Files.size(file) : 0;
+                Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+                Files.write(temp, record);
+                Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            }
+            archivedBytes += record.length;
+            return true;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Đọc lại một tài khoản từ kho.
+     *
+     * @param accountNumber Số tài khoản cần đọc
+     * @return Đối tượng Account, hoặc null nếu không có trong kho
+     * @throws UncheckedIOException nếu bản lưu trữ có nhưng không đọc được
+     */
+    public synchronized Account load(String accountNumber) {
+        try {
+            byte[] record;
+            if (directory == null) {
+                record = inMemoryRecords.get(accountNumber);
+            } else {
+                Path file = file(accountNumber);
+                record = Files.exists(file) ? Files.readAllBytes(file) : null;
+            }
+            if (record == null) {
+                return null;
+            }
+            try (ObjectInputStream in = new ObjectInputStream(
+                    new GZIPInputStream(new ByteArrayInputStream(record)))) {
+                return (Account) in.readObject();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot load archived account " + accountNumber, e);
+        } catch (ClassNotFoundException e) {
+            throw new IllegalStateException("Cannot load archived account " + accountNumber, e);
+        }
+    }
+
+    /**
+     * Xóa một tài khoản khỏi kho.
+     *
+     * @param accountNumber Số tài khoản cần xóa
+     */
+    public synchronized void remove(String accountNumber) {
+        if (directory == null) {
+            byte[] previous = inMemoryRecords.remove(accountNumber);
+            archivedBytes -= previous != null ? previous.length : 0;
+            return;
+        }
+        try {
+            Path file = file(accountNumber);
+            if (Files.exists(file)) {
+                archivedBytes -= Files.size(file);
+                Files.delete(file);
+            }
+        } catch (IOException e) {
+            // A leftover archive file is harmless once the tombstone is gone
+        }
+    }
+
+    /**
+     * Tổng dung lượng (byte, đã nén) của các bản lưu trữ.
+     *
+     * @return Số byte
+     */
+    public synchronized long getArchivedBytes() {
+        return archivedBytes;
+    }
+
+    /**
+     * Xóa toàn bộ kho lưu trữ.
+     */
+    public synchronized void clear() {
+        if (directory != null) {
+            try (Stream<Path> files = Files.list(directory)) {
+                for (Path file : (Iterable<Path>) files::iterator) {
+                    if (file.getFileName().toString().endsWith(".acc.gz")) {
+                        Files.deleteIfExists(file);
+                    }
+                }
+            } catch (IOException e) {
+                // Directory missing or unreadable: nothing to clear
+            }
+        }
+        inMemoryRecords.clear();
+        archivedBytes = 0;
+    }
+
+    private Path file(String accountNumber) {
+        return directory.resolve(accountNumber + ".acc.gz");
+    }
+}
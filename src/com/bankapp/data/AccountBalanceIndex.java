@@ -0,0 +1,300 @@
+package com.bankapp.data;
+
+import com.bankapp.model.Account;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * AccountBalanceIndex - Chỉ mục có thứ tự các tài khoản theo số dư.
+ * Sắp xếp theo khóa (số dư, số tài khoản) trên một cây treap có lưu kích thước
+ * cây con (order-statistic tree), nên:
+ * - cập nhật số dư của một tài khoản: O(log n)
+ * - lấy N tài khoản số dư lớn nhất / nhỏ nhất: O(log n + N)
+ * - lấy thứ hạng của một tài khoản theo số dư: O(log n)
+ * Chỉ lưu số tài khoản, số dư và loại tài khoản - không giữ tham chiếu tới Account.
+ * Các phương thức được đồng bộ nên có thể dùng chung giữa nhiều luồng.
+ */
+public class AccountBalanceIndex {
+    private final Map<String, Entry> entries; // accountNumber -> current entry in the tree
+    private final Random random;
+    private Node root;
+
+    public AccountBalanceIndex() {
+        this.entries = new HashMap<>();
+        this.random = new Random();
+        this.root = null;
+    }
+
+    /**
+     * Thêm mới hoặc cập nhật vị trí của một tài khoản theo số dư hiện tại.
+     *
+     * @param account Tài khoản vừa được lưu hoặc thay đổi số dư
+     */
+    public synchronized void update(Account account) {
+        Entry current = entries.get(account.getAccountNumber());
+        if (current != null && current.balance == account.getBalance()) {
+            return;
+        }
+        if (current != null) {
+            root = erase(root, current);
+        }
+        Entry entry = new Entry(account.getAccountNumber(), account.getBalance(), account.getAccountType());
+        entries.put(entry.accountNumber, entry);
+        root = insert(root, new Node(entry, random.nextInt()));
+    }
+
+    /**
+     * Xóa một tài khoản khỏi chỉ mục.
+     *
+     * @param accountNumber Số tài khoản cần xóa
+     */
+    public synchronized void remove(String accountNumber) {
+        Entry current = entries.remove(accountNumber);
+        if (current != null) {
+            root = erase(root, current);
+        }
+    }
+
+    /**
+     * Lấy N tài khoản có số dư lớn nhất, giảm dần.
+     *
+     * @param n Số lượng cần lấy
+     * @return Danh sách tài khoản theo số dư giảm dần
+     */
+    public synchronized List<Entry> top(int n) {
+        List<Entry> result = new ArrayList<>();
+        Deque<Node> stack = new ArrayDeque<>();
+        Node node = root;
+        while ((node != null || !stack.isEmpty()) && result.size() < n) {
+            while (node != null) {
+                stack.push(node);
+                node = node.right;
+            }
+            node = stack.pop();
+            result.add(node.entry);
+            node = node.left;
+        }
+        return result;
+    }
+
+    /**
+     * Lấy N tài khoản có số dư nhỏ nhất, tăng dần.
+     *
+     * @param n Số lượng cần lấy
+     * @return Danh sách tài khoản theo số dư tăng dần
+     */
+    public synchronized List<Entry> bottom(int n) {
+        return ascending(n, null, Double.POSITIVE_INFINITY);
+    }
+
+    /**
+     * Lấy N tài khoản thanh toán (CHECKING) đang thấu chi nhiều nhất (số dư âm nhỏ nhất).
+     *
+     * @param n Số lượng cần lấy
+     * @return Danh sách tài khoản theo số dư tăng dần
+     */
+    public synchronized List<Entry> mostOverdrawn(int n) {
+        return ascending(n, "CHECKING", 0.0);
+    }
+
+    /**
+     * Lấy thứ hạng của một tài khoản theo số dư (1 là số dư lớn nhất).
+     *
+     * @param accountNumber Số tài khoản
+     * @return Thứ hạng, hoặc -1 nếu tài khoản không có trong chỉ mục
+     */
+    public synchronized int rank(String accountNumber) {
+        Entry entry = entries.get(accountNumber);
+        if (entry == null) {
+            return -1;
+        }
+        int greater = 0;
+        Node node = root;
+        while (node != null) {
+            int cmp = compare(entry, node.entry);
+            if (cmp < 0) {
+                greater += 1 + size(node.right);
+                node = node.left;
+            } else if (cmp > 0) {
+                node = node.right;
+            } else {
+                greater += size(node.right);
+                break;
+            }
+        }
+        return greater + 1;
+    }
+
+    public synchronized int size() {
+        return size(root);
+    }
+
+    /**
+     * Xóa toàn bộ chỉ mục.
+     */
+    public synchronized void clear() {
+        entries.clear();
+        root = null;
+    }
+
+    /**
+     * Duyệt tăng dần theo số dư, chỉ lấy tài khoản có số dư nhỏ hơn ngưỡng
+     * và (nếu có) đúng loại tài khoản yêu cầu.
+     */
+    private List<Entry> ascending(int n, String accountType, double belowBalance) {
+        List<Entry> result = new ArrayList<>();
+        Deque<Node> stack = new ArrayDeque<>();
+        Node node = root;
+        while ((node != null || !stack.isEmpty()) && result.size() < n) {
+            while (node != null) {
+                stack.push(node);
+                node = node.left;
+            }
+            node = stack.pop();
+            if (node.entry.balance >= belowBalance) {
+                break;
+            }
+            if (accountType == null || accountType.equals(node.entry.accountType)) {
+                result.add(node.entry);
+            }
+            node = node.right;
+        }
+        return result;
+    }
+
+    // ============= Treap =============
+
+    private static class Node {
+        private final Entry entry;
+        private final int priority;
+        private Node left;
+        private Node right;
+        private int size;
+
+        Node(Entry entry, int priority) {
+            this.entry = entry;
+            this.priority = priority;
+            this.size = 1;
+        }
+    }
+
+    private static int compare(Entry a, Entry b) {
+        int cmp = Double.compare(a.balance, b.balance);
+        return cmp != 0 ? cmp : a.accountNumber.compareTo(b.accountNumber);
+    }
+
+    private static int size(Node node) {
+        return node != null ? node.size : 0;
+    }
+
+    private static void resize(Node node) {
+        node.size = 1 + size(node.left) + size(node.right);
+    }
+
+    private static Node insert(Node node, Node newNode) {
+        if (node == null) {
+            return newNode;
+        }
+        if (compare(newNode.entry, node.entry) < 0) {
+            node.left = insert(node.left, newNode);
+            if (node.left.priority > node.priority) {
+                node = rotateRight(node);
+            }
+        } else {
+            node.right = insert(node.right, newNode);
+            if (node.right.priority > node.priority) {
+                node = rotateLeft(node);
+            }
+        }
+        resize(node);
+        return node;
+    }
+
+    private static Node erase(Node node, Entry entry) {
+        if (node == null) {
+            return null;
+        }
+        int cmp = compare(entry, node.entry);
+        if (cmp < 0) {
+            node.left = erase(node.left, entry);
+        } else if (cmp > 0) {
+            node.right = erase(node.right, entry);
+        } else {
+            return merge(node.left, node.right);
+        }
+        resize(node);
+        return node;
+    }
+
+    private static Node merge(Node left, Node right) {
+        if (left == null) {
+            return right;
+        }
+        if (right == null) {
+            return left;
+        }
+        if (left.priority > right.priority) {
+            left.right = merge(left.right, right);
+            resize(left);
+            return left;
+        }
+        right.left = merge(left, right.left);
+        resize(right);
+        return right;
+    }
+
+    private static Node rotateRight(Node node) {
+        Node pivot = node.left;
+        node.left = pivot.right;
+        pivot.right = node;
+        resize(node);
+        resize(pivot);
+        return pivot;
+    }
+
+    private static Node rotateLeft(Node node) {
+        Node pivot = node.right;
+        node.right = pivot.left;
+        pivot.left = node;
+        resize(node);
+        resize(pivot);
+        return pivot;
+    }
+
+    /**
+     * Entry - Vị trí của một tài khoản trong chỉ mục số dư.
+     */
+    public static class Entry {
+        private final String accountNumber;
+        private final double balance;
+        private final String accountType;
+
+        public Entry(String accountNumber, double balance, String accountType) {
+            this.accountNumber = accountNumber;
+            this.balance = balance;
+            this.accountType = accountType;
+        }
+
+        public String getAccountNumber() {
+            return accountNumber;
+        }
+
+        public double getBalance() {
+            return balance;
+        }
+
+        public String getAccountType() {
+            return accountType;
+        }
+
+        @Override
+        public String toString() {
+            return accountType + "{" + accountNumber + ", balance=" + balance + '}';
+        }
+    }
+}
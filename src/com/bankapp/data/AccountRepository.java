@@ -1,18 +1,50 @@
 package com.bankapp.data;
 
 import com.bankapp.model.Account;
+import com.bankapp.model.AccountTombstone;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 /**
  * AccountRepository - Đối tượng truy xuất dữ liệu cho thực thể Account.
  * Xử lý việc lưu trữ và truy vấn tài khoản.
+ * Duy trì chỉ mục số dư được cập nhật mỗi khi tài khoản được lưu hoặc cập nhật.
+ * Mặc định tài khoản được lưu trong NumericKeyedMap (số tài khoản được mã hóa thành khóa số);
+ * bảng lưu trữ có thể được thay thế, ví dụ bằng DiskBackedAccountMap để giữ tài khoản trên đĩa;
+ * vì vậy sau khi thay đổi một tài khoản luôn phải gọi update để lưu lại.
+ * Tài khoản đã đóng có thể được chuyển sang kho lưu trữ lạnh (AccountArchive), chỉ để lại
+ * một tombstone nhỏ; khi được tra cứu, tài khoản được đọc từ kho thành một bản sao tách rời
+ * mà không đưa lại vào bảng tài khoản đang dùng, nên việc đọc không làm mất tác dụng lưu trữ.
+ * Thay đổi trên bản sao đó được ghi lại vào kho khi gọi update.
+ * Repository được dùng đồng thời (luồng HTTP, gateway, nhập dữ liệu, điểm kiểm tra) nên mọi thao tác
+ * đều đồng bộ trên repository, giống UserRepository. Không gọi repository khi đang giữ khóa của một
+ * tài khoản: bảng lưu trữ có thể khóa tài khoản để ghi nó ra đĩa khi đang giữ khóa repository.
  */
 public class AccountRepository {
-    private Map<String, Account> accounts; // accountNumber -> Account
+    private final Map<String, Account> accounts; // accountNumber -> Account (numeric-keyed by default)
+    private final Map<String, AccountTombstone> tombstones; // accountNumber -> archived closed account
+    private final AccountArchive archive;
+    private final AccountBalanceIndex balanceIndex;
 
     public AccountRepository() {
-        this.accounts = new HashMap<>();
+        this(new NumericKeyedMap<>(), new AccountArchive(null));
+    }
+
+    /**
+     * Constructor với bảng lưu trữ và kho lưu trữ lạnh tùy chọn.
+     *
+     * @param accounts Bảng accountNumber -> Account (rỗng) dùng để lưu tài khoản
+     * @param archive  Kho lưu trữ các tài khoản đã đóng
+     */
+    public AccountRepository(Map<String, Account> accounts, AccountArchive archive) {
+        this.accounts = accounts;
+        this.tombstones = new HashMap<>();
+        this.archive = archive;
+        this.balanceIndex = new AccountBalanceIndex();
     }
 
     /**
@@ -21,35 +53,120 @@ public class AccountRepository {
      * @param account Đối tượng Account cần lưu
      * @return true nếu lưu thành công, false nếu tài khoản đã tồn tại
      */
-    public boolean save(Account account) {
-        if (account == null || accounts.containsKey(account.getAccountNumber())) {
+    public synchronized boolean save(Account account) {
+        if (account == null || exists(account.getAccountNumber())) {
             return false;
         }
         accounts.put(account.getAccountNumber(), account);
+        balanceIndex.update(account);
+        return true;
+    }
+
+    /**
+     * Lưu nhiều tài khoản trong một bước: hoặc lưu tất cả, hoặc không lưu tài khoản nào.
+     *
+     * @param batch Danh sách tài khoản cần lưu
+     * @return true nếu lưu thành công, false nếu có tài khoản null, trùng số trong danh sách
+     *         hoặc đã tồn tại
+     */
+    public synchronized boolean saveAll(List<? extends Account> batch) {
+        Set<String> numbers = new HashSet<>(batch.size() * 2);
+        for (Account account : batch) {
+            if (account == null || !numbers.add(account.getAccountNumber()) || exists(account.getAccountNumber())) {
+                return false;
+            }
+        }
+        for (Account account : batch) {
+            accounts.put(account.getAccountNumber(), account);
+            balanceIndex.update(account);
+        }
         return true;
     }
 
     /**
      * Tìm tài khoản theo số tài khoản.
+     * Tài khoản đã lưu trữ được đọc từ kho lưu trữ lạnh thành bản sao tách rời, mỗi lần gọi
+     * một bản; tài khoản vẫn nằm trong kho.
      *
      * @param accountNumber Số tài khoản cần tìm
      * @return Đối tượng Account nếu tìm thấy, null nếu không
+     * @throws java.io.UncheckedIOException nếu không đọc được bản lưu trữ
+     */
+    public synchronized Account findByAccountNumber(String accountNumber) {
+        Account account = accounts.get(accountNumber);
+        if (account == null && tombstones.containsKey(accountNumber)) {
+            account = archive.load(accountNumber);
+        }
+        return account;
+    }
+
+    /**
+     * Chuyển một tài khoản đã đóng sang kho lưu trữ lạnh, chỉ giữ lại tombstone.
+     *
+     * @param accountNumber Số tài khoản cần lưu trữ
+     * @return true nếu lưu trữ thành công, false nếu không tìm thấy, tài khoản còn hoạt động
+     *         hoặc ghi kho thất bại
+     */
+    public synchronized boolean archive(String accountNumber) {
+        Account account = accounts.get(accountNumber);
+        if (account == null || account.isActive() || !archive.store(account)) {
+            return false;
+        }
+        tombstones.put(accountNumber, new AccountTombstone(accountNumber, account.getAccountType(),
+                account.getBalance(), System.currentTimeMillis()));
+        accounts.remove(accountNumber);
+        balanceIndex.remove(accountNumber);
+        return true;
+    }
+
+    /**
+     * Lấy tombstone của một tài khoản đã lưu trữ.
+     *
+     * @param accountNumber Số tài khoản
+     * @return Tombstone, hoặc null nếu tài khoản không nằm trong kho lưu trữ
+     */
+    public synchronized AccountTombstone findTombstone(String accountNumber) {
+        return tombstones.get(accountNumber);
+    }
+
+    /**
+     * Lấy số lượng tài khoản đang nằm trong kho lưu trữ lạnh.
+     *
+     * @return Số lượng tài khoản đã lưu trữ
      */
-    public Account findByAccountNumber(String accountNumber) {
-        return accounts.get(accountNumber);
+    public synchronized int getArchivedAccountCount() {
+        return tombstones.size();
+    }
+
+    public AccountArchive getArchive() {
+        return archive;
     }
 
     /**
      * Cập nhật một tài khoản đã tồn tại.
+     * Tài khoản đã lưu trữ được ghi lại vào kho lưu trữ lạnh và vẫn nằm trong kho.
      *
      * @param account Đối tượng Account cần cập nhật
-     * @return true nếu cập nhật thành công, false nếu không tìm thấy tài khoản
+     * @return true nếu cập nhật thành công, false nếu không tìm thấy tài khoản hoặc ghi kho thất bại
      */
-    public boolean update(Account account) {
-        if (account == null || !accounts.containsKey(account.getAccountNumber())) {
+    public synchronized boolean update(Account account) {
+        if (account == null) {
+            return false;
+        }
+        AccountTombstone tombstone = tombstones.get(account.getAccountNumber());
+        if (tombstone != null) {
+            if (!archive.store(account)) {
+                return false;
+            }
+            tombstones.put(account.getAccountNumber(), new AccountTombstone(account.getAccountNumber(),
+                    account.getAccountType(), account.getBalance(), tombstone.getArchivedAt()));
+            return true;
+        }
+        if (!accounts.containsKey(account.getAccountNumber())) {
             return false;
         }
         accounts.put(account.getAccountNumber(), account);
+        balanceIndex.update(account);
         return true;
     }
 
@@ -59,7 +176,12 @@ public class AccountRepository {
      * @param accountNumber Số tài khoản cần xóa
      * @return true nếu xóa thành công, false nếu không tìm thấy
      */
-    public boolean delete(String accountNumber) {
+    public synchronized boolean delete(String accountNumber) {
+        balanceIndex.remove(accountNumber);
+        if (tombstones.remove(accountNumber) != null) {
+            archive.remove(accountNumber);
+            return true;
+        }
         return accounts.remove(accountNumber) != null;
     }
 
@@ -69,23 +191,48 @@ public class AccountRepository {
      * @param accountNumber Số tài khoản cần kiểm tra
      * @return true nếu tồn tại, false nếu không
      */
-    public boolean exists(String accountNumber) {
-        return accounts.containsKey(accountNumber);
+    public synchronized boolean exists(String accountNumber) {
+        return accounts.containsKey(accountNumber) || tombstones.containsKey(accountNumber);
+    }
+
+    /**
+     * Lấy bản chụp số tài khoản của mọi tài khoản, kể cả tài khoản đã lưu trữ
+     * (dùng cho các tác vụ quản trị như chụp toàn bộ kho dữ liệu).
+     *
+     * @return Danh sách số tài khoản
+     */
+    public synchronized List<String> getAccountNumbers() {
+        List<String> numbers = new ArrayList<>(accounts.size() + tombstones.size());
+        numbers.addAll(accounts.keySet());
+        numbers.addAll(tombstones.keySet());
+        return numbers;
     }
 
     /**
-     * Lấy tổng số lượng tài khoản.
+     * Lấy tổng số lượng tài khoản, kể cả tài khoản đã lưu trữ.
      *
      * @return Số lượng tài khoản
      */
-    public int getAccountCount() {
-        return accounts.size();
+    public synchronized int getAccountCount() {
+        return accounts.size() + tombstones.size();
+    }
+
+    /**
+     * Lấy chỉ mục số dư của các tài khoản.
+     *
+     * @return Đối tượng AccountBalanceIndex
+     */
+    public AccountBalanceIndex getBalanceIndex() {
+        return balanceIndex;
     }
 
     /**
      * Xóa toàn bộ tài khoản khỏi repository.
      */
-    public void clear() {
+    public synchronized void clear() {
         accounts.clear();
+        tombstones.clear();
+        archive.clear();
+        balanceIndex.clear();
     }
 }
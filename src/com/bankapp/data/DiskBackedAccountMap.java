@@ -0,0 +1,424 @@
+package com.bankapp.data;
+
+import com.bankapp.model.Account;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.UncheckedIOException;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * DiskBackedAccountMap - Bảng accountNumber -> Account lưu trạng thái tài khoản trên đĩa.
+ * - Mỗi tài khoản là một file trong thư mục lưu trữ, ghi ra file tạm rồi đổi tên nên file
+ *   trên đĩa luôn đầy đủ.
+ * - Chỉ một số lượng giới hạn đối tượng Account được giữ trên heap, trong bộ đệm W-TinyLFU;
+ *   tài khoản nóng được trả về với tốc độ bộ nhớ, tài khoản ít dùng được đọc lại từ đĩa.
+ * - Ghi trễ (write-back): put chỉ đánh dấu tài khoản đã thay đổi; file được ghi một lần khi
+ *   tài khoản bị đẩy khỏi bộ đệm hoặc khi flush, nên cập nhật liên tục một tài khoản nóng
+ *   không tuần tự hóa lại nó mỗi lần. Việc tuần tự hóa và ghi / đọc file diễn ra ngoài khóa
+ *   của bảng, chỉ giữ khóa của chính tài khoản đang được ghi.
+ * - Một bảng tham chiếu yếu bảo đảm mỗi tài khoản chỉ có một đối tượng Account tại một thời
+ *   điểm: nếu đối tượng cũ còn được nơi khác giữ (kể cả khi đang chờ ghi) thì dùng lại thay vì
+ *   đọc bản sao mới từ đĩa. Khi phải đọc đối tượng mới, loadListener được gọi để nơi khác
+ *   (ví dụ người dùng sở hữu) gắn lại vào đối tượng đó.
+ * Dùng làm bảng lưu trữ cho AccountRepository khi đặt thuộc tính bankapp.accounts.dir.
+ * Kho không được nạp lại khi khởi động, vì các dữ liệu khác của ứng dụng vẫn nằm trong bộ nhớ;
+ * độ bền khi sự cố dựa vào nhật ký thay đổi (bankapp.journal.dir), không dựa vào các file này.
+ */
+public class DiskBackedAccountMap extends AbstractMap<String, Account> {
+    private final Path directory;
+    private final Set<String> accountNumbers; // Keys of every account stored on disk
+    private final WTinyLfuCache<String, Account> cache;
+    private final Map<String, LiveReference> liveAccounts; // Instances that may still be referenced
+    private final ReferenceQueue<Account> collected;
+    private final Map<String, Account> dirty; // Changed since last written; cached or awaiting a retry
+    private List<Account> evicted; // Dirty accounts pushed out of the cache, written once the lock is released
+    private volatile Consumer<Account> loadListener;
+    private long hits;
+    private long misses;
+    private long loadNanos;
+    private long writes;
+    private long writeNanos;
+
+    /**
+     * Constructor cho DiskBackedAccountMap.
+     *
+     * @param directory     Thư mục chứa file tài khoản
+     * @param cacheCapacity Số đối tượng Account tối đa giữ trong bộ đệm
+     */
+    public DiskBackedAccountMap(Path directory, int cacheCapacity) {
+        this.directory = directory;
+        this.accountNumbers = new HashSet<>();
+        this.cache = new WTinyLfuCache<>(cacheCapacity, this::onEvicted);
+        this.liveAccounts = new HashMap<>();
+        this.collected = new ReferenceQueue<>();
+        this.dirty = new HashMap<>();
+        this.evicted = new ArrayList<>();
+        this.loadListener = account -> { };
+    }
+
+    /**
+     * Đặt hàm được gọi mỗi khi một tài khoản được đọc từ đĩa thành đối tượng mới
+     * (gọi ngoài khóa của bảng).
+     *
+     * @param loadListener Hàm nhận tài khoản vừa nạp
+     */
+    public void setLoadListener(Consumer<Account> loadListener) {
+        this.loadListener = loadListener;
+    }
+
+    @Override
+    public Account get(Object key) {
+        if (!(key instanceof String)) {
+            return null;
+        }
+        String accountNumber = (String) key;
+        long start;
+        Account account;
+        List<Account> toWrite = null;
+        synchronized (this) {
+            if (!accountNumbers.contains(accountNumber)) {
+                return null;
+            }
+            account = cache.get(accountNumber);
+            if (account != null) {
+                hits++;
+                return account;
+            }
+            misses++;
+            start = System.nanoTime();
+            account = liveAccount(accountNumber);
+            if (account != null) {
+                cache.put(accountNumber, account);
+                loadNanos += System.nanoTime() - start;
+                toWrite = takeEvicted();
+            }
+        }
+        if (account != null) {
+            writeAll(toWrite);
+            return account;
+        }
+
+        // Not referenced anywhere, so the file holds its latest state; read it without the lock
+        Account loaded = read(accountNumber);
+        synchronized (this) {
+            if (!accountNumbers.contains(accountNumber)) {
+                return null; // Removed while the file was being read
+            }
+            account = liveAccount(accountNumber);
+            if (account == null) {
+                account = loaded;
+                liveAccounts.put(accountNumber, new LiveReference(account, collected));
+            }
+            cache.put(accountNumber, account);
+            loadNanos += System.nanoTime() - start;
+            toWrite = takeEvicted();
+        }
+        writeAll(toWrite);
+        if (account == loaded) {
+            loadListener.accept(account);
+        }
+        return account;
+    }
+
+    /**
+     * Đưa tài khoản vào bộ đệm và đánh dấu cần ghi xuống đĩa.
+     * Để tránh đọc đĩa, giá trị trả về là đối tượng cũ nếu nó đang nằm trong bộ đệm,
+     * ngược lại là null kể cả khi khóa đã tồn tại.
+     */
+    @Override
+    public Account put(String accountNumber, Account account) {
+        Account previous;
+        List<Account> toWrite;
+        synchronized (this) {
+            accountNumbers.add(accountNumber);
+            expungeCollected();
+            LiveReference live = liveAccounts.get(accountNumber);
+            if (live == null || live.get() != account) {
+                liveAccounts.put(accountNumber, new LiveReference(account, collected));
+            }
+            dirty.put(accountNumber, account);
+            previous = cache.put(accountNumber, account);
+            toWrite = takeEvicted();
+        }
+        writeAll(toWrite);
+        return previous;
+    }
+
+    /**
+     * Ghi xuống đĩa mọi tài khoản đã thay đổi mà chưa được ghi (ví dụ khi tắt ứng dụng).
+     */
+    public void flush() {
+        List<Account> toWrite;
+        synchronized (this) {
+            toWrite = new ArrayList<>(dirty.values());
+            dirty.clear();
+        }
+        writeAll(toWrite);
+    }
+
+    @Override
+    public synchronized Account remove(Object key) {
+        if (!(key instanceof String) || !accountNumbers.remove(key)) {
+            return null;
+        }
+        String accountNumber = (String) key;
+        dirty.remove(accountNumber);
+        Account previous = cache.remove(accountNumber);
+        if (previous == null) {
+            previous = liveAccount(accountNumber);
+        }
+        liveAccounts.remove(accountNumber);
+        try {
+            Files.deleteIfExists(file(accountNumber));
+        } catch (IOException e) {
+            // The key is gone, so a leftover file is never read again
+        }
+        return previous;
+    }
+
+    @Override
+    public synchronized boolean containsKey(Object key) {
+        return accountNumbers.contains(key);
+    }
+
+    @Override
+    public synchronized int size() {
+        return accountNumbers.size();
+    }
+
+    @Override
+    public synchronized void clear() {
+        for (String accountNumber : accountNumbers) {
+            try {
+                Files.deleteIfExists(file(accountNumber));
+            } catch (IOException e) {
+                // Leftover account files are harmless; they are never read again
+            }
+        }
+        accountNumbers.clear();
+        dirty.clear();
+        liveAccounts.clear();
+        cache.clear();
+    }
+
+    /**
+     * Lấy bản chụp số tài khoản mà không đọc tài khoản nào từ đĩa.
+     */
+    @Override
+    public synchronized Set<String> keySet() {
+        return new HashSet<>(accountNumbers);
+    }
+
+    /**
+     * Duyệt toàn bộ tài khoản. Mỗi tài khoản không có trong bộ đệm sẽ được đọc từ đĩa,
+     * nên chỉ nên dùng cho các tác vụ quản trị.
+     */
+    @Override
+    public Set<Map.Entry<String, Account>> entrySet() {
+        return new AbstractSet<Map.Entry<String, Account>>() {
+            @Override
+            public Iterator<Map.Entry<String, Account>> iterator() {
+                List<String> keys;
+                synchronized (DiskBackedAccountMap.this) {
+                    keys = new ArrayList<>(accountNumbers);
+                }
+                Iterator<String> keyIterator = keys.iterator();
+                return new Iterator<Map.Entry<String, Account>>() {
+                    private String current;
+
+                    @Override
+                    public boolean hasNext() {
+                        return keyIterator.hasNext();
+                    }
+
+                    @Override
+                    public Map.Entry<String, Account> next() {
+                        current = keyIterator.next();
+                        return new SimpleImmutableEntry<>(current, get(current));
+                    }
+
+                    @Override
+                    public void remove() {
+                        DiskBackedAccountMap.this.remove(current);
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return DiskBackedAccountMap.this.size();
+            }
+        };
+    }
+
+    // ============= Metrics =============
+
+    public synchronized long getHitCount() {
+        return hits;
+    }
+
+    public synchronized long getMissCount() {
+        return misses;
+    }
+
+    public synchronized long getWriteCount() {
+        return writes;
+    }
+
+    /**
+     * Tỉ lệ truy cập trúng bộ đệm.
+     *
+     * @return Tỉ lệ trong khoảng [0, 1], 0 nếu chưa có truy cập nào
+     */
+    public synchronized double getHitRate() {
+        long total = hits + misses;
+        return total == 0 ? 0.0 : (double) hits / total;
+    }
+
+    /**
+     * Thời gian trung bình nạp một tài khoản không có trong bộ đệm.
+     *
+     * @return Số micro giây trung bình
+     */
+    public synchronized double getAverageLoadMicros() {
+        return misses == 0 ? 0.0 : loadNanos / 1000.0 / misses;
+    }
+
+    /**
+     * Thời gian trung bình ghi một tài khoản xuống đĩa (chỉ tính các lần ghi thật sự,
+     * không tính các lần put chỉ đánh dấu tài khoản đã thay đổi).
+     *
+     * @return Số micro giây trung bình
+     */
+    public synchronized double getAverageWriteMicros() {
+        return writes == 0 ? 0.0 : writeNanos / 1000.0 / writes;
+    }
+
+    public synchronized int getCachedAccountCount() {
+        return cache.size();
+    }
+
+    // ============= Storage =============
+
+    private Path file(String accountNumber) {
+        return directory.resolve(accountNumber + ".acc");
+    }
+
+    private void onEvicted(String accountNumber, Account account) {
+        // Called by the cache while this map's lock is held
+        if (dirty.remove(accountNumber, account)) {
+            evicted.add(account);
+        }
+    }
+
+    private List<Account> takeEvicted() {
+        if (evicted.isEmpty()) {
+            return null;
+        }
+        List<Account> taken = evicted;
+        evicted = new ArrayList<>();
+        return taken;
+    }
+
+    /**
+     * Ghi các tài khoản xuống đĩa, ngoài khóa của bảng. Tài khoản ghi thất bại được đánh dấu
+     * lại là đã thay đổi (giữ tham chiếu mạnh để không bị đọc lại bản cũ từ đĩa) và được
+     * thử lại ở lần flush sau.
+     */
+    private void writeAll(List<Account> accounts) {
+        if (accounts == null) {
+            return;
+        }
+        UncheckedIOException failure = null;
+        for (Account account : accounts) {
+            try {
+                long start = System.nanoTime();
+                write(account);
+                synchronized (this) {
+                    writes++;
+                    writeNanos += System.nanoTime() - start;
+                }
+            } catch (UncheckedIOException e) {
+                synchronized (this) {
+                    if (accountNumbers.contains(account.getAccountNumber())) {
+                        dirty.putIfAbsent(account.getAccountNumber(), account);
+                    }
+                }
+                failure = e;
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    private void write(Account account) {
+        String accountNumber = account.getAccountNumber();
+        // Holding the account keeps two writers of the same account from landing out of order
+        synchronized (account) {
+            try {
+                ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+                try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+                    out.writeObject(account);
+                }
+                Files.createDirectories(directory);
+                Path file = file(accountNumber);
+                Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+                Files.write(temp, bytes.toByteArray());
+                Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Cannot write account " + accountNumber, e);
+            }
+        }
+    }
+
+    private Account read(String accountNumber) {
+        try (ObjectInputStream in = new ObjectInputStream(
+                new ByteArrayInputStream(Files.readAllBytes(file(accountNumber))))) {
+            return (Account) in.readObject();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot read account " + accountNumber, e);
+        } catch (ClassNotFoundException e) {
+            throw new IllegalStateException("Cannot read account " + accountNumber, e);
+        }
+    }
+
+    private Account liveAccount(String accountNumber) {
+        expungeCollected();
+        LiveReference reference = liveAccounts.get(accountNumber);
+        return reference != null ? reference.get() : null;
+    }
+
+    private void expungeCollected() {
+        LiveReference reference;
+        while ((reference = (LiveReference) collected.poll()) != null) {
+            liveAccounts.remove(reference.accountNumber, reference);
+        }
+    }
+
+    private static class LiveReference extends WeakReference<Account> {
+        private final String accountNumber;
+
+        LiveReference(Account account, ReferenceQueue<Account> queue) {
+            super(account, queue);
+            this.accountNumber = account.getAccountNumber();
+        }
+    }
+}
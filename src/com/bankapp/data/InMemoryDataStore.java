@@ -1,28 +1,178 @@
 package com.bankapp.data;
 
+import com.bankapp.model.User;
+import com.bankapp.utils.IDGenerator;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.temporal.ChronoUnit;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
 /**
  * InMemoryDataStore - Kho lưu trữ dữ liệu trung tâm cho ứng dụng ngân hàng.
  * Áp dụng Repository Pattern để trừu tượng hóa tầng truy xuất dữ liệu.
  * Tất cả dữ liệu được lưu trong bộ nhớ và sẽ mất khi ứng dụng tắt
  * (trừ khi được mở rộng thêm cơ chế lưu file / cơ sở dữ liệu).
+ * Lịch sử giao dịch cũ có thể được chuyển ra đĩa bằng cách đặt thuộc tính hệ thống
+ * bankapp.history.dir (xem TieredTransactionStore), và trạng thái tài khoản có thể được
+ * giữ trên đĩa với bộ đệm giới hạn bằng thuộc tính bankapp.accounts.dir (xem DiskBackedAccountMap).
+ * Tài khoản đã đóng được lưu trữ vào bankapp.archive.dir, hoặc dạng nén trong bộ nhớ nếu
+ * không đặt thuộc tính này (xem AccountArchive).
+ * Đặt bankapp.retention.days để nén dần các giao dịch cũ hơn số ngày đó thành bản ghi tổng hợp
+ * theo kỳ (xem RetentionPolicy và LedgerCompactor).
+ * Đặt bankapp.users.offHeap=true để giữ danh bạ người dùng ngoài heap (xem OffHeapUserDirectory).
+ * Ngoài thể hiện dùng chung (getInstance), có thể tạo nhiều kho độc lập, ví dụ mỗi phân vùng
+ * của PartitionedDataStore một kho; các thư mục cấu hình khi đó được tách theo tên phân vùng.
+ * Kho không phân vùng có thể sao chép sang một tiến trình dự phòng: đặt bankapp.replication.role=leader
+ * và bankapp.replication.port ở nút chính, bankapp.replication.role=follower và
+ * bankapp.replication.leader=host:port ở nút dự phòng; bankapp.replication.ack=sync để thao tác ghi
+ * chờ nút dự phòng xác nhận (xem MutationJournal, ReplicationLeader, ReplicationFollower). Nút dự phòng
+ * tụt quá xa được đồng bộ lại từ bản chụp của nút chính (xem JournalSnapshot).
+ * Đặt bankapp.journal.dir để lưu nhật ký thay đổi ra file và khôi phục dữ liệu từ đó khi khởi động;
+ * việc phát lại chạy song song trên bankapp.journal.replayThreads luồng (xem JournalReplay).
+ * Đặt bankapp.journal.checkpointIntervalSeconds để định kỳ ghi điểm kiểm tra và cắt ngắn nhật ký (xem checkpoint).
  */
 public class InMemoryDataStore {
     private static InMemoryDataStore instance;
     private UserRepository userRepository;
     private AccountRepository accountRepository;
     private TransactionRepository transactionRepository;
+    private TieredTransactionStore transactionHistoryStore;
+    private DiskBackedAccountMap accountStorage; // null when accounts stay on the heap
+    private LedgerCompactor ledgerCompactor;
+    private MutationJournal mutationJournal;
+    private ReplicationLeader replicationLeader;     // null unless this store is a replication leader
+    private ReplicationFollower replicationFollower; // null unless this store is a standby
+    private ScheduledExecutorService checkpointer;   // null unless periodic checkpoints are configured
+
+    /**
+     * Constructor tạo một kho dữ liệu độc lập, cấu hình theo các thuộc tính hệ thống.
+     * Ứng dụng thông thường dùng getInstance() để lấy kho dùng chung.
+     */
+    public InMemoryDataStore() {
+        this(null);
+    }
 
     /**
-     * Constructor private dùng cho mẫu thiết kế Singleton.
+     * Constructor tạo một kho dữ liệu độc lập cho một phân vùng.
+     * Các thư mục cấu hình (bankapp.*.dir) được thêm thư mục con mang tên phân vùng
+     * để các kho không ghi đè dữ liệu của nhau.
+     *
+     * @param partitionName Tên phân vùng, hoặc null nếu không phân vùng
      */
-    private InMemoryDataStore() {
-        this.userRepository = new UserRepository();
-        this.accountRepository = new AccountRepository();
+    public InMemoryDataStore(String partitionName) {
+        OffHeapUserDirectory userDirectory = Boolean.getBoolean("bankapp.users.offHeap")
+                ? new OffHeapUserDirectory() : null;
+        this.userRepository = userDirectory != null ? new UserRepository(userDirectory) : new UserRepository();
+        AccountArchive accountArchive = new AccountArchive(directory("bankapp.archive.dir", partitionName));
+        Path accountsDir = directory("bankapp.accounts.dir", partitionName);
+        if (accountsDir != null) {
+            this.accountStorage = new DiskBackedAccountMap(accountsDir,
+                    Integer.getInteger("bankapp.accounts.cacheSize", 10000));
+            this.accountRepository = new AccountRepository(accountStorage, accountArchive);
+        } else {
+            this.accountRepository = new AccountRepository(new NumericKeyedMap<>(), accountArchive);
+        }
+        userRepository.setAccountResolver(accountRepository::findByAccountNumber);
+        if (accountStorage != null && userDirectory == null) {
+            // Users outlive evicted Account instances; hook a freshly loaded copy back to its owner
+            accountStorage.setLoadListener(account -> {
+                String ownerUserId = account.getOwnerUserId();
+                User owner = ownerUserId != null ? userRepository.findById(ownerUserId) : null;
+                if (owner != null) {
+                    owner.attachAccount(account);
+                }
+            });
+        }
         this.transactionRepository = new TransactionRepository();
+        this.ledgerCompactor = new LedgerCompactor(transactionRepository,
+                Integer.getInteger("bankapp.retention.batchSize", 1000));
+        Long retentionDays = Long.getLong("bankapp.retention.days");
+        if (retentionDays != null) {
+            transactionRepository.setRetentionPolicy(new RetentionPolicy(
+                    TimeUnit.DAYS.toMillis(retentionDays),
+                    ChronoUnit.valueOf(System.getProperty("bankapp.retention.period", "MONTHS")),
+                    directory("bankapp.retention.exportDir", partitionName)));
+            ledgerCompactor.start(TimeUnit.SECONDS.toMillis(Long.getLong("bankapp.retention.intervalSeconds", 60L)));
+        }
+
+        this.transactionHistoryStore = new TieredTransactionStore(
+                directory("bankapp.history.dir", partitionName),
+                Integer.getInteger("bankapp.history.hotTransactions", 1000),
+                TimeUnit.DAYS.toMillis(Long.getLong("bankapp.history.hotDays", 30L)),
+                Integer.getInteger("bankapp.history.cachedSegments", 64));
+        if (transactionHistoryStore.isEnabled()) {
+            transactionRepository.setHistoryStore(transactionHistoryStore);
+        }
+
+        String replicationRole = partitionName == null ? System.getProperty("bankapp.replication.role") : null;
+        Path journalDir = directory("bankapp.journal.dir", partitionName);
+        if (replicationRole == null && journalDir == null) {
+            this.mutationJournal = new MutationJournal();
+        } else {
+            this.mutationJournal = new MutationJournal(journalDir, replicationRole != null,
+                    "sync".equalsIgnoreCase(System.getProperty("bankapp.replication.ack", "async")),
+                    Long.getLong("bankapp.replication.syncTimeoutMillis", 1000L),
+                    "stall".equalsIgnoreCase(System.getProperty("bankapp.replication.syncTimeoutPolicy", "degrade"))
+                            ? MutationJournal.SyncTimeoutPolicy.STALL : MutationJournal.SyncTimeoutPolicy.DEGRADE,
+                    Integer.getInteger("bankapp.replication.maxBacklog", 1000000));
+            JournalSnapshot checkpoint = mutationJournal.restoreCheckpoint(this);
+            JournalReplay.replay(mutationJournal.takeRecoveredEntries(), this,
+                    Integer.getInteger("bankapp.journal.replayThreads", Runtime.getRuntime().availableProcessors()),
+                    checkpoint);
+            transactionRepository.setCompactionListener(mutationJournal::recordLedgerCompacted);
+        }
+        if (replicationRole != null) {
+            if ("leader".equalsIgnoreCase(replicationRole)) {
+                this.replicationLeader = new ReplicationLeader(this,
+                        Integer.getInteger("bankapp.replication.port", 7400));
+            } else if ("follower".equalsIgnoreCase(replicationRole)) {
+                String leader = System.getProperty("bankapp.replication.leader", "localhost:7400");
+                int colon = leader.lastIndexOf(':');
+                this.replicationFollower = new ReplicationFollower(this, leader.substring(0, colon),
+                        Integer.parseInt(leader.substring(colon + 1)));
+                replicationFollower.start();
+            }
+        }
+        advanceAccountNumbers();
+        Long checkpointInterval = Long.getLong("bankapp.journal.checkpointIntervalSeconds");
+        if (checkpointInterval != null && journalDir != null) {
+            checkpointer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "journal-checkpoint");
+                thread.setDaemon(true);
+                return thread;
+            });
+            checkpointer.scheduleWithFixedDelay(() -> {
+                try {
+                    checkpoint();
+                } catch (RuntimeException e) {
+                    // Keep the schedule alive; the journal is still complete and the next run retries
+                }
+            }, checkpointInterval, checkpointInterval, TimeUnit.SECONDS);
+        }
     }
 
     /**
-     * Lấy thể hiện duy nhất (singleton) của InMemoryDataStore.
+     * Đẩy bộ đếm số tài khoản vượt qua mọi tài khoản đang có (khôi phục từ nhật ký, điểm kiểm tra, đĩa
+     * hoặc nhận từ nút chính), để tài khoản mở sau đó không phải thử lại các số đã dùng.
+     */
+    private void advanceAccountNumbers() {
+        for (String accountNumber : accountRepository.getAccountNumbers()) {
+            IDGenerator.advanceAccountSequencePast(accountNumber);
+        }
+    }
+
+    private static Path directory(String property, String partitionName) {
+        String dir = System.getProperty(property);
+        if (dir == null) {
+            return null;
+        }
+        return partitionName != null ? Paths.get(dir, partitionName) : Paths.get(dir);
+    }
+
+    /**
+     * Lấy thể hiện dùng chung (singleton) của InMemoryDataStore.
      *
      * @return Đối tượng InMemoryDataStore
      */
@@ -60,6 +210,114 @@ public class InMemoryDataStore {
         return transactionRepository;
     }
 
+    /**
+     * Lấy kho lưu trữ lịch sử giao dịch theo tầng (bộ nhớ / đĩa).
+     *
+     * @return Đối tượng TieredTransactionStore
+     */
+    public TieredTransactionStore getTransactionHistoryStore() {
+        return transactionHistoryStore;
+    }
+
+    /**
+     * Lấy kho lưu trữ tài khoản trên đĩa (để xem số liệu bộ đệm).
+     *
+     * @return Đối tượng DiskBackedAccountMap, hoặc null nếu tài khoản được giữ trong bộ nhớ
+     */
+    public DiskBackedAccountMap getAccountStorage() {
+        return accountStorage;
+    }
+
+    /**
+     * Lấy tác vụ nén lịch sử giao dịch theo chính sách lưu giữ.
+     *
+     * @return Đối tượng LedgerCompactor
+     */
+    public LedgerCompactor getLedgerCompactor() {
+        return ledgerCompactor;
+    }
+
+    /**
+     * Lấy nhật ký thay đổi dùng để sao chép sang nút dự phòng.
+     *
+     * @return Đối tượng MutationJournal (bị tắt nếu kho không sao chép)
+     */
+    public MutationJournal getMutationJournal() {
+        return mutationJournal;
+    }
+
+    /**
+     * Lấy phía nút chính của cơ chế sao chép.
+     *
+     * @return Đối tượng ReplicationLeader, hoặc null nếu kho không phải nút chính
+     */
+    public ReplicationLeader getReplicationLeader() {
+        return replicationLeader;
+    }
+
+    /**
+     * Lấy phía nút dự phòng của cơ chế sao chép.
+     *
+     * @return Đối tượng ReplicationFollower, hoặc null nếu kho không phải nút dự phòng
+     */
+    public ReplicationFollower getReplicationFollower() {
+        return replicationFollower;
+    }
+
+    /**
+     * Nâng kho dự phòng lên làm nút chính. Nếu có đặt bankapp.replication.port, kho bắt đầu
+     * phục vụ nút dự phòng mới trên cổng đó.
+     *
+     * @return Số thứ tự của bản ghi cuối cùng đã áp dụng, hoặc -1 nếu kho không phải nút dự phòng
+     */
+    public synchronized long promote() {
+        if (replicationFollower == null) {
+            return -1;
+        }
+        long appliedSequence = replicationFollower.promote();
+        replicationFollower = null;
+        advanceAccountNumbers();
+        Integer port = Integer.getInteger("bankapp.replication.port");
+        if (port != null) {
+            replicationLeader = new ReplicationLeader(this, port);
+        }
+        return appliedSequence;
+    }
+
+    /**
+     * Ghi một điểm kiểm tra của kho dữ liệu vào thư mục nhật ký và cắt bỏ phần nhật ký đã nằm trong đó
+     * (xem MutationJournal.checkpoint). Không áp dụng cho nút dự phòng (nhật ký của nó đi theo nút chính)
+     * và khi bật tầng lạnh của lịch sử giao dịch: segment trên đĩa không được nạp lại khi khởi động,
+     * nên phần lịch sử đó chỉ khôi phục được bằng cách phát lại toàn bộ nhật ký.
+     *
+     * @return Số thứ tự bắt đầu của điểm kiểm tra, hoặc -1 nếu không ghi
+     * @throws java.io.UncheckedIOException nếu không ghi được điểm kiểm tra
+     */
+    public synchronized long checkpoint() {
+        if (replicationFollower != null || transactionHistoryStore.isEnabled()) {
+            return -1;
+        }
+        return mutationJournal.checkpoint(this);
+    }
+
+    /**
+     * Dừng các tác vụ nền của kho dữ liệu (nén lịch sử giao dịch, điểm kiểm tra, sao chép) và đóng nhật ký
+     * thay đổi.
+     */
+    public void shutdown() {
+        ledgerCompactor.stop();
+        if (checkpointer != null) {
+            checkpointer.shutdown();
+        }
+        if (replicationLeader != null) {
+            replicationLeader.shutdown();
+        }
+        mutationJournal.close();
+        if (accountStorage != null) {
+            accountStorage.flush();
+        }
+    }
+
     /**
      * Xóa toàn bộ dữ liệu trong kho dữ liệu.
      * Hữu ích cho việc kiểm thử hoặc đặt lại ứng dụng.
@@ -68,5 +326,6 @@ public class InMemoryDataStore {
         userRepository.clear();
         accountRepository.clear();
         transactionRepository.clear();
+        transactionHistoryStore.clear();
     }
 }
@@ -0,0 +1,378 @@
+package com.bankapp.data;
+
+import com.bankapp.model.Account;
+import com.bankapp.model.Transaction;
+import com.bankapp.model.TransactionPeriodSummary;
+import com.bankapp.model.User;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * JournalEntry - Một bản ghi trong nhật ký thay đổi (MutationJournal) được sao chép sang nút dự phòng.
+ * Nội dung bản ghi là thay đổi đã xảy ra trên nút chính (người dùng mới, tài khoản mới, các giao dịch
+ * vừa ghi, trạng thái giao dịch, tài khoản đóng / lưu trữ, bộ đếm lượt rút trong tháng được đặt lại,
+ * một lô giao dịch cũ được nén khỏi sổ cái), nên nút dự phòng chỉ cần áp dụng lại
+ * theo thứ tự số thứ tự mà không chạy lại quy tắc nghiệp vụ.
+ * Bản ghi tổng hợp theo kỳ (PERIOD_SUMMARY) chỉ xuất hiện trong bản chụp (JournalSnapshot), không bao giờ
+ * trong nhật ký.
+ * Giao dịch được mã hóa từng trường (không cần từ điển như segment lưu trữ vì mỗi bản ghi chỉ có
+ * vài giao dịch), tài khoản mới bằng tuần tự hóa Java.
+ */
+final class JournalEntry {
+    static final byte USER_REGISTERED = 1;
+    static final byte ACCOUNT_OPENED = 2;
+    static final byte TRANSACTIONS_POSTED = 3;
+    static final byte STATUS_CHANGED = 4;
+    static final byte ACCOUNT_CLOSED = 5;
+    static final byte ACCOUNT_ARCHIVED = 6;
+    static final byte WITHDRAWALS_RESET = 7;
+    static final byte LEDGER_COMPACTED = 8;
+    static final byte PERIOD_SUMMARY = 9;
+
+    final long sequence;
+    final long appendedAt; // Leader clock, used to report replication lag in milliseconds
+    final byte[] payload;
+
+    // Decoded content, filled in by decode()
+    byte type;
+    String userId;
+    String accountNumber;
+    User user;
+    Account account;
+    List<Transaction> transactions;
+    String transactionId;
+    String status;
+    long compactedThrough; // Timestamp of the newest compacted transaction
+    int compactedRows;
+    TransactionPeriodSummary periodSummary;
+    int historyIndex = -1; // Position of the first transaction in the account history, set by applyToAccount
+
+    JournalEntry(long sequence, long appendedAt, byte[] payload) {
+        this.sequence = sequence;
+        this.appendedAt = appendedAt;
+        this.payload = payload;
+    }
+
+    static byte[] userRegistered(User user) {
+        return encode(USER_REGISTERED, out -> {
+            writeString(out, user.getUserId());
+            writeString(out, user.getUsername());
+            writeString(out, user.getPasswordHash());
+            writeString(out, user.getFullName());
+            writeString(out, user.getEmail());
+            out.writeLong(user.getCreatedAt());
+        });
+    }
+
+    static byte[] accountOpened(String ownerUserId, Account account) {
+        return encode(ACCOUNT_OPENED, out -> {
+            writeString(out, ownerUserId);
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            try (ObjectOutputStream snapshot = new ObjectOutputStream(bytes)) {
+                snapshot.writeObject(account);
+            }
+            writeBytes(out, bytes.toByteArray());
+        });
+    }
+
+    static byte[] transactionsPosted(String accountNumber, List<Transaction> transactions) {
+        return encode(TRANSACTIONS_POSTED, out -> {
+            writeString(out, accountNumber);
+            out.writeInt(transactions.size());
+            for (Transaction transaction : transactions) {
+                writeString(out, transaction.getTransactionId());
+                writeString(out, transaction.getFromAccountNumber());
+                writeString(out, transaction.getToAccountNumber());
+                out.writeDouble(transaction.getAmount());
+                writeString(out, transaction.getType());
+                writeString(out, transaction.getDescription());
+                out.writeLong(transaction.getTimestamp());
+                writeString(out, transaction.getStatus());
+                out.writeDouble(transaction.getBalanceAfter());
+            }
+        });
+    }
+
+    static byte[] statusChanged(String accountNumber, String transactionId, String status) {
+        return encode(STATUS_CHANGED, out -> {
+            writeString(out, accountNumber);
+            writeString(out, transactionId);
+            writeString(out, status);
+        });
+    }
+
+    static byte[] accountClosed(String accountNumber) {
+        return encode(ACCOUNT_CLOSED, out -> writeString(out, accountNumber));
+    }
+
+    static byte[] withdrawalsReset(String accountNumber) {
+        return encode(WITHDRAWALS_RESET, out -> writeString(out, accountNumber));
+    }
+
+    static byte[] accountArchived(String ownerUserId, String accountNumber) {
+        return encode(ACCOUNT_ARCHIVED, out -> {
+            writeString(out, ownerUserId);
+            writeString(out, accountNumber);
+        });
+    }
+
+    static byte[] ledgerCompacted(long throughTimestamp, int rows) {
+        return encode(LEDGER_COMPACTED, out -> {
+            out.writeLong(throughTimestamp);
+            out.writeInt(rows);
+        });
+    }
+
+    static byte[] periodSummary(TransactionPeriodSummary summary) {
+        return encode(PERIOD_SUMMARY, out -> {
+            writeString(out, summary.getAccountNumber());
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            try (ObjectOutputStream snapshot = new ObjectOutputStream(bytes)) {
+                snapshot.writeObject(summary);
+            }
+            writeBytes(out, bytes.toByteArray());
+        });
+    }
+
+    /**
+     * Giải mã nội dung bản ghi vào các trường type, userId, accountNumber, user, account,
+     * transactions, transactionId, status, compactedThrough, compactedRows và periodSummary
+     * (tùy loại bản ghi).
+     *
+     * @throws IOException nếu bản ghi hỏng
+     */
+    void decode() throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload));
+        type = in.readByte();
+        switch (type) {
+            case USER_REGISTERED:
+                user = new User(readString(in), readString(in), readString(in),
+                        readString(in), readString(in), in.readLong());
+                userId = user.getUserId();
+                break;
+            case ACCOUNT_OPENED:
+                userId = readString(in);
+                try (ObjectInputStream snapshot = new ObjectInputStream(new ByteArrayInputStream(readBytes(in)))) {
+                    account = (Account) snapshot.readObject();
+                } catch (ClassNotFoundException e) {
+                    throw new IOException("Cannot read replicated account", e);
+                }
+                accountNumber = account.getAccountNumber();
+                break;
+            case TRANSACTIONS_POSTED:
+                accountNumber = readString(in);
+                int count = in.readInt();
+                transactions = new ArrayList<>(count);
+                for (int i = 0; i < count; i++) {
+                    transactions.add(new Transaction(readString(in), readString(in), readString(in),
+                            in.readDouble(), readString(in), readString(in), in.readLong(), readString(in),
+                            in.readDouble()));
+                }
+                break;
+            case STATUS_CHANGED:
+                accountNumber = readString(in);
+                transactionId = readString(in);
+                status = readString(in);
+                break;
+            case ACCOUNT_CLOSED:
+            case WITHDRAWALS_RESET:
+                accountNumber = readString(in);
+                break;
+            case ACCOUNT_ARCHIVED:
+                userId = readString(in);
+                accountNumber = readString(in);
+                break;
+            case LEDGER_COMPACTED:
+                compactedThrough = in.readLong();
+                compactedRows = in.readInt();
+                break;
+            case PERIOD_SUMMARY:
+                accountNumber = readString(in);
+                try (ObjectInputStream snapshot = new ObjectInputStream(new ByteArrayInputStream(readBytes(in)))) {
+                    periodSummary = (TransactionPeriodSummary) snapshot.readObject();
+                } catch (ClassNotFoundException e) {
+                    throw new IOException("Cannot read period summary", e);
+                }
+                break;
+            default:
+                throw new IOException("Unknown journal entry type " + type);
+        }
+    }
+
+    /**
+     * Giải mã và áp dụng bản ghi lên kho dữ liệu của nút dự phòng.
+     *
+     * @param dataStore Kho dữ liệu của nút dự phòng
+     * @throws IOException nếu bản ghi hỏng
+     */
+    void apply(InMemoryDataStore dataStore) throws IOException {
+        decode();
+        applyDecoded(dataStore);
+    }
+
+    /**
+     * Áp dụng bản ghi đã giải mã lên kho dữ liệu của nút dự phòng.
+     *
+     * @param dataStore Kho dữ liệu của nút dự phòng
+     */
+    void applyDecoded(InMemoryDataStore dataStore) {
+        switch (type) {
+            case USER_REGISTERED:
+                dataStore.getUserRepository().save(user);
+                break;
+            case ACCOUNT_OPENED:
+                dataStore.getAccountRepository().save(account);
+                attachAccount(dataStore);
+                break;
+            case TRANSACTIONS_POSTED: {
+                Account target = applyToAccount(dataStore.getAccountRepository());
+                if (target != null) {
+                    dataStore.getAccountRepository().update(target);
+                    postTransactions(dataStore, target);
+                    if (dataStore.getTransactionHistoryStore().spillIfNeeded(target)) {
+                        dataStore.getAccountRepository().update(target);
+                    }
+                }
+                break;
+            }
+            case STATUS_CHANGED:
+                updateStatus(dataStore);
+                break;
+            case ACCOUNT_CLOSED:
+            case WITHDRAWALS_RESET: {
+                Account target = applyToAccount(dataStore.getAccountRepository());
+                if (target != null) {
+                    dataStore.getAccountRepository().update(target);
+                }
+                break;
+            }
+            case LEDGER_COMPACTED:
+                compactLedger(dataStore);
+                break;
+            case PERIOD_SUMMARY:
+                dataStore.getTransactionRepository().restorePeriodSummary(periodSummary);
+                break;
+            default:
+                archiveAccount(dataStore);
+                break;
+        }
+    }
+
+    // ============= Apply Steps (shared with JournalReplay) =============
+
+    /**
+     * Áp dụng phần thay đổi chỉ thuộc về một tài khoản (số dư, lịch sử, đóng tài khoản,
+     * đặt lại bộ đếm lượt rút).
+     * Người gọi cập nhật tài khoản vào repository sau đó.
+     *
+     * @return Tài khoản đã thay đổi, hoặc null nếu không tìm thấy
+     */
+    Account applyToAccount(AccountRepository accounts) {
+        Account target = accounts.findByAccountNumber(accountNumber);
+        if (target == null) {
+            return null;
+        }
+        if (type == TRANSACTIONS_POSTED) {
+            historyIndex = target.getTransactionCount();
+            for (Transaction transaction : transactions) {
+                target.applyRecordedTransaction(transaction);
+            }
+        } else if (type == ACCOUNT_CLOSED) {
+            target.closeAccount();
+        } else if (type == WITHDRAWALS_RESET) {
+            target.resetMonthlyWithdrawals();
+        }
+        return target;
+    }
+
+    void postTransactions(InMemoryDataStore dataStore, Account target) {
+        if (historyIndex >= 0) {
+            dataStore.getTransactionRepository().saveTransactions(target, historyIndex, transactions);
+            return;
+        }
+        for (Transaction transaction : transactions) {
+            dataStore.getTransactionRepository().saveTransaction(target.getAccountNumber(), transaction);
+        }
+    }
+
+    void attachAccount(InMemoryDataStore dataStore) {
+        User owner = userId != null ? dataStore.getUserRepository().findById(userId) : null;
+        // Attach the stored instance: after a resync snapshot it may not be the decoded copy
+        Account stored = owner != null ? dataStore.getAccountRepository().findByAccountNumber(accountNumber) : null;
+        if (stored != null && owner.addAccount(stored)) {
+            dataStore.getUserRepository().update(owner);
+        }
+    }
+
+    void updateStatus(InMemoryDataStore dataStore) {
+        Account target = dataStore.getAccountRepository().findByAccountNumber(accountNumber);
+        if (!dataStore.getTransactionRepository().updateStatus(transactionId, status) && target != null) {
+            Transaction transaction = target.findTransaction(transactionId);
+            if (transaction != null) {
+                transaction.setStatus(status);
+            }
+        }
+        if (target != null) {
+            dataStore.getAccountRepository().update(target);
+        }
+    }
+
+    void archiveAccount(InMemoryDataStore dataStore) {
+        User owner = dataStore.getUserRepository().findById(userId);
+        if (dataStore.getAccountRepository().archive(accountNumber) && owner != null) {
+            owner.removeAccount(accountNumber);
+            dataStore.getUserRepository().update(owner);
+        }
+    }
+
+    void compactLedger(InMemoryDataStore dataStore) {
+        dataStore.getTransactionRepository().replayCompaction(compactedThrough, compactedRows);
+    }
+
+    private interface Writer {
+        void write(DataOutputStream out) throws IOException;
+    }
+
+    private static byte[] encode(byte type, Writer writer) {
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeByte(type);
+            writer.write(out);
+            out.flush();
+            return bytes.toByteArray();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot encode journal entry", e);
+        }
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeUTF(value);
+        }
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+
+    private static void writeBytes(DataOutputStream out, byte[] value) throws IOException {
+        out.writeInt(value.length);
+        out.write(value);
+    }
+
+    private static byte[] readBytes(DataInputStream in) throws IOException {
+        byte[] value = new byte[in.readInt()];
+        in.readFully(value);
+        return value;
+    }
+}
@@ -0,0 +1,216 @@
+package com.bankapp.data;
+
+import com.bankapp.model.Account;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * JournalReplay - Khôi phục kho dữ liệu bằng cách phát lại nhật ký thay đổi (MutationJournal) khi khởi động.
+ * Việc phát lại chia thành các pha để phần tốn kém chạy song song trên một ForkJoinPool:
+ * <pre>
+ *   1. Giải mã các bản ghi                                   - song song theo khoảng bản ghi
+ *   2. Người dùng mới, tài khoản mới                         - tuần tự, theo thứ tự nhật ký
+ *   3. Số dư, lịch sử, trạng thái đóng, bộ đếm lượt rút      - song song theo phân vùng tài khoản
+ *   4. Sổ cái, trạng thái giao dịch, gắn / lưu trữ tài khoản,
+ *      nén sổ cái                                            - tuần tự, theo thứ tự nhật ký
+ * </pre>
+ * Một chuyển khoản giữa hai tài khoản nằm trong nhật ký thành hai bản ghi độc lập (mỗi bên một bản ghi
+ * kèm số dư sau giao dịch), nên ở pha 3 mỗi phân vùng chỉ cần giữ thứ tự bản ghi của các tài khoản
+ * của nó. Ràng buộc thứ tự giữa các tài khoản (vị trí trong sổ cái, trạng thái các bước chuyển khoản
+ * giữa phân vùng, thứ tự tài khoản của người dùng) được giữ bằng cách áp dụng ở pha 2 và 4 theo đúng
+ * thứ tự nhật ký. Các repository không an toàn luồng (NumericKeyedMap, chỉ mục số dư), nên ở pha 3 các luồng
+ * chỉ đọc repository và thay đổi các tài khoản thuộc phân vùng của mình; việc ghi lại tài khoản vào repository
+ * được làm trên luồng phát lại sau khi pha 3 kết thúc. Vì vậy kết quả không phụ thuộc số luồng: phát lại với parallelism = 1 chính là
+ * phát lại tuần tự để đối chiếu.
+ * Khi nhật ký có điểm kiểm tra (đã được nạp vào kho trước đó), các bản ghi đã nằm trong điểm kiểm tra
+ * bị bỏ qua sau pha 1.
+ */
+final class JournalReplay {
+    private static final int DECODE_CHUNK = 4096;   // Entries decoded per fork/join leaf
+    private static final int PARTITIONS_PER_THREAD = 4; // More partitions than threads to even out skew
+
+    private JournalReplay() {
+    }
+
+    /**
+     * Phát lại các bản ghi vào kho dữ liệu.
+     *
+     * @param entries Các bản ghi theo thứ tự số thứ tự
+     * @param dataStore Kho dữ liệu cần khôi phục (đang rỗng)
+     * @param parallelism Số luồng dùng cho các pha song song (1 để phát lại tuần tự)
+     * @return Số bản ghi đã phát lại
+     */
+    static int replay(List<JournalEntry> entries, InMemoryDataStore dataStore, int parallelism) {
+        return replay(entries, dataStore, parallelism, null);
+    }
+
+    /**
+     * Phát lại các bản ghi chưa nằm trong điểm kiểm tra vào kho dữ liệu.
+     *
+     * @param entries Các bản ghi theo thứ tự số thứ tự
+     * @param dataStore Kho dữ liệu cần khôi phục (rỗng, hoặc vừa nạp điểm kiểm tra)
+     * @param parallelism Số luồng dùng cho các pha song song (1 để phát lại tuần tự)
+     * @param checkpoint Điểm kiểm tra đã nạp vào kho, hoặc null
+     * @return Số bản ghi đã phát lại
+     */
+    static int replay(List<JournalEntry> entries, InMemoryDataStore dataStore, int parallelism,
+                      JournalSnapshot checkpoint) {
+        if (entries.isEmpty()) {
+            return 0;
+        }
+        ForkJoinPool pool = new ForkJoinPool(Math.max(1, parallelism));
+        try {
+            // Phase 1: decode
+            pool.invoke(new DecodeTask(entries, 0, entries.size()));
+            if (checkpoint != null) {
+                List<JournalEntry> remaining = new ArrayList<>(entries.size());
+                for (JournalEntry entry : entries) {
+                    if (!checkpoint.covers(entry)) {
+                        remaining.add(entry);
+                    }
+                }
+                entries = remaining;
+            }
+
+            // Phase 2: users and accounts, so every later phase finds them
+            int partitionCount = Math.max(1, parallelism) * PARTITIONS_PER_THREAD;
+            List<List<JournalEntry>> partitions = new ArrayList<>(partitionCount);
+            for (int i = 0; i < partitionCount; i++) {
+                partitions.add(new ArrayList<>());
+            }
+            for (JournalEntry entry : entries) {
+                if (entry.type == JournalEntry.USER_REGISTERED) {
+                    dataStore.getUserRepository().save(entry.user);
+                } else if (entry.type == JournalEntry.ACCOUNT_OPENED) {
+                    dataStore.getAccountRepository().save(entry.account);
+                } else if (entry.type == JournalEntry.TRANSACTIONS_POSTED || entry.type == JournalEntry.ACCOUNT_CLOSED
+                        || entry.type == JournalEntry.WITHDRAWALS_RESET) {
+                    partitions.get(PartitionedDataStore.partitionOf(entry.accountNumber, partitionCount)).add(entry);
+                }
+            }
+
+            // Phase 3: per-account state; an account only ever lives in one partition
+            List<PartitionTask> tasks = new ArrayList<>(partitionCount);
+            for (List<JournalEntry> partition : partitions) {
+                tasks.add(new PartitionTask(partition, dataStore.getAccountRepository()));
+            }
+            pool.invoke(new RecursiveAction() {
+                private static final long serialVersionUID = 1L;
+
+                @Override
+                protected void compute() {
+                    invokeAll(tasks);
+                }
+            });
+            // One repository update per account, on this thread: the repository is not thread-safe
+            for (PartitionTask task : tasks) {
+                for (Account account : task.touched.values()) {
+                    dataStore.getAccountRepository().update(account);
+                }
+            }
+
+            // Phase 4: the global ledger and cross-account state, in journal order
+            Map<String, Account> touched = new LinkedHashMap<>();
+            for (JournalEntry entry : entries) {
+                switch (entry.type) {
+                    case JournalEntry.ACCOUNT_OPENED:
+                        entry.attachAccount(dataStore);
+                        break;
+                    case JournalEntry.TRANSACTIONS_POSTED: {
+                        Account account = dataStore.getAccountRepository().findByAccountNumber(entry.accountNumber);
+                        if (account != null) {
+                            entry.postTransactions(dataStore, account);
+                            touched.put(entry.accountNumber, account);
+                        }
+                        break;
+                    }
+                    case JournalEntry.STATUS_CHANGED:
+                        entry.updateStatus(dataStore);
+                        break;
+                    case JournalEntry.ACCOUNT_ARCHIVED:
+                        entry.archiveAccount(dataStore);
+                        touched.remove(entry.accountNumber);
+                        break;
+                    case JournalEntry.LEDGER_COMPACTED:
+                        entry.compactLedger(dataStore);
+                        break;
+                    default:
+                        break;
+                }
+            }
+            // Move old history out of the heap once, after every status is final
+            for (Account account : touched.values()) {
+                if (dataStore.getTransactionHistoryStore().spillIfNeeded(account)) {
+                    dataStore.getAccountRepository().update(account);
+                }
+            }
+            return entries.size();
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Giải mã một khoảng bản ghi, chia đôi cho đến khi đủ nhỏ.
+     */
+    private static class DecodeTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        private final List<JournalEntry> entries;
+        private final int from;
+        private final int to;
+
+        DecodeTask(List<JournalEntry> entries, int from, int to) {
+            this.entries = entries;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > DECODE_CHUNK) {
+                int mid = (from + to) >>> 1;
+                invokeAll(new DecodeTask(entries, from, mid), new DecodeTask(entries, mid, to));
+                return;
+            }
+            try {
+                for (int i = from; i < to; i++) {
+                    entries.get(i).decode();
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException("Cannot decode mutation journal", e);
+            }
+        }
+    }
+
+    /**
+     * Áp dụng các bản ghi của một phân vùng tài khoản theo thứ tự nhật ký. Chỉ đọc repository; các tài khoản
+     * đã thay đổi được giữ trong touched để luồng phát lại ghi lại sau.
+     */
+    private static class PartitionTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        private final List<JournalEntry> entries;
+        private final AccountRepository accounts;
+        private final Map<String, Account> touched = new LinkedHashMap<>();
+
+        PartitionTask(List<JournalEntry> entries, AccountRepository accounts) {
+            this.entries = entries;
+            this.accounts = accounts;
+        }
+
+        @Override
+        protected void compute() {
+            for (JournalEntry entry : entries) {
+                Account account = entry.applyToAccount(accounts);
+                if (account != null) {
+                    touched.put(entry.accountNumber, account);
+                }
+            }
+        }
+    }
+}
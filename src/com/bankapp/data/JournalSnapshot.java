@@ -0,0 +1,170 @@
+package com.bankapp.data;
+
+import com.bankapp.model.Account;
+import com.bankapp.model.TransactionPeriodSummary;
+import com.bankapp.model.User;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * JournalSnapshot - Bản chụp người dùng và tài khoản của một kho dữ liệu, gắn với vị trí trong nhật ký
+ * thay đổi (MutationJournal). Dùng để đồng bộ lại nút dự phòng khi nút chính không còn giữ các bản ghi
+ * nó cần, và làm điểm kiểm tra (checkpoint) để nhật ký trên đĩa không phải phát lại từ đầu.
+ * Việc chụp không dừng toàn bộ kho: mỗi tài khoản được chụp dưới khóa của chính nó, kèm số thứ tự mới nhất
+ * của nhật ký lúc đó (mốc cắt). Mọi thay đổi trên một tài khoản được áp dụng và ghi nhật ký dưới cùng khóa
+ * đó, nên bản ghi của tài khoản có số thứ tự không vượt mốc cắt đã nằm trong bản chụp, bản ghi sau mốc cắt
+ * thì chưa. Khi áp dụng tiếp nhật ký sau bản chụp, covers() cho biết bản ghi nào phải bỏ qua.
+ * Định dạng: [long số thứ tự bắt đầu], rồi các bản ghi [long mốc cắt][int độ dài][nội dung JournalEntry],
+ * kết thúc bằng mốc cắt -1. Người dùng được ghi trước để tài khoản tìm thấy người sở hữu.
+ * Bản ghi tổng hợp theo kỳ của phần sổ cái đã nén được chụp dưới khóa sổ cái với một mốc cắt chung; việc nén
+ * được ghi nhật ký dưới cùng khóa đó, nên các lô nén không vượt mốc cắt này đã nằm trong bản chụp.
+ * Lịch sử giao dịch đã chuyển ra tầng lạnh (TieredTransactionStore) không nằm trong bản chụp.
+ */
+final class JournalSnapshot {
+    private static final long END = -1;
+    final long sequence;                // Every entry up to here is covered
+    private final Map<String, Long> cuts; // accountNumber -> later cut, only when above sequence
+    private long compactionCut;           // Every compaction batch up to here is in the period summaries
+    private long lastCut;
+
+    private JournalSnapshot(long sequence) {
+        this.sequence = sequence;
+        this.cuts = new HashMap<>();
+        this.compactionCut = sequence;
+        this.lastCut = sequence;
+    }
+
+    /**
+     * Ghi bản chụp của kho dữ liệu ra luồng.
+     *
+     * @param dataStore Kho dữ liệu cần chụp
+     * @param out Luồng đích
+     * @return Số thứ tự bắt đầu của bản chụp
+     * @throws IOException nếu ghi thất bại
+     */
+    static long write(InMemoryDataStore dataStore, DataOutputStream out) throws IOException {
+        MutationJournal journal = dataStore.getMutationJournal();
+        long sequence = journal.getLastSequence();
+        out.writeLong(sequence);
+        // Users and accounts saved before their entry was journaled, so reading after the sequence sees them
+        for (User user : dataStore.getUserRepository().findAll()) {
+            writeRecord(out, journal.getLastSequence(), JournalEntry.userRegistered(user));
+        }
+        TransactionRepository ledger = dataStore.getTransactionRepository();
+        long compactionCut;
+        List<byte[]> summaries = new ArrayList<>();
+        synchronized (ledger) {
+            // Before the accounts: a batch compacted while they are written is replayed, not counted twice
+            compactionCut = journal.getLastSequence();
+            for (TransactionPeriodSummary summary : ledger.getAllPeriodSummaries()) {
+                summaries.add(JournalEntry.periodSummary(summary));
+            }
+        }
+        for (byte[] summary : summaries) {
+            writeRecord(out, compactionCut, summary);
+        }
+        AccountRepository accounts = dataStore.getAccountRepository();
+        for (String accountNumber : accounts.getAccountNumbers()) {
+            Account account = accounts.findByAccountNumber(accountNumber);
+            if (account == null) {
+                continue; // Deleted since the numbers were listed
+            }
+            long cut;
+            byte[] payload;
+            synchronized (account) {
+                cut = journal.getLastSequence();
+                payload = JournalEntry.accountOpened(account.getOwnerUserId(), account);
+            }
+            writeRecord(out, cut, payload);
+            if (accounts.findTombstone(accountNumber) != null) {
+                writeRecord(out, cut, JournalEntry.accountArchived(account.getOwnerUserId(), accountNumber));
+            }
+        }
+        out.writeLong(END);
+        return sequence;
+    }
+
+    private static void writeRecord(DataOutputStream out, long cut, byte[] payload) throws IOException {
+        out.writeLong(cut);
+        out.writeInt(payload.length);
+        out.write(payload);
+    }
+
+    /**
+     * Đọc một bản chụp và áp dụng vào kho dữ liệu (đang rỗng).
+     *
+     * @param in Luồng chứa bản chụp
+     * @param dataStore Kho dữ liệu đích
+     * @param copy Luồng nhận bản sao nguyên văn của bản chụp (ví dụ file điểm kiểm tra), hoặc null
+     * @return Bản chụp đã áp dụng, dùng để lọc các bản ghi nhật ký tiếp theo
+     * @throws IOException nếu bản chụp hỏng hoặc bị cắt
+     */
+    static JournalSnapshot read(DataInputStream in, InMemoryDataStore dataStore, DataOutputStream copy)
+            throws IOException {
+        JournalSnapshot snapshot = new JournalSnapshot(in.readLong());
+        if (copy != null) {
+            copy.writeLong(snapshot.sequence);
+        }
+        while (true) {
+            long cut = in.readLong();
+            if (cut == END) {
+                break;
+            }
+            byte[] payload = new byte[in.readInt()];
+            in.readFully(payload);
+            if (copy != null) {
+                writeRecord(copy, cut, payload);
+            }
+            JournalEntry entry = new JournalEntry(cut, 0, payload);
+            entry.apply(dataStore);
+            if (entry.type == JournalEntry.ACCOUNT_OPENED) {
+                // The account carries its in-memory history; index it in the ledger like a post would
+                dataStore.getTransactionRepository().saveTransactions(entry.account,
+                        entry.account.getArchivedTransactionCount(), entry.account.getTransactions());
+                snapshot.recordCut(entry.accountNumber, cut);
+            } else if (entry.type == JournalEntry.PERIOD_SUMMARY) {
+                snapshot.compactionCut = Math.max(snapshot.compactionCut, cut);
+                snapshot.lastCut = Math.max(snapshot.lastCut, cut);
+            }
+        }
+        if (copy != null) {
+            copy.writeLong(END);
+        }
+        return snapshot;
+    }
+
+    private void recordCut(String accountNumber, long cut) {
+        if (cut > sequence) {
+            cuts.put(accountNumber, cut);
+            lastCut = Math.max(lastCut, cut);
+        }
+    }
+
+    /**
+     * Kiểm tra một bản ghi (đã giải mã) đã nằm trong bản chụp hay chưa.
+     *
+     * @param entry Bản ghi nhật ký
+     * @return true nếu bản ghi đã được phản ánh trong bản chụp và phải bỏ qua
+     */
+    boolean covers(JournalEntry entry) {
+        if (entry.type == JournalEntry.LEDGER_COMPACTED) {
+            return entry.sequence <= compactionCut;
+        }
+        Long cut = entry.accountNumber != null ? cuts.get(entry.accountNumber) : null;
+        return entry.sequence <= (cut != null ? cut : sequence);
+    }
+
+    /**
+     * Lấy mốc cắt lớn nhất; các bản ghi sau mốc này không cần lọc nữa.
+     *
+     * @return Số thứ tự lớn nhất có thể đã nằm trong bản chụp
+     */
+    long getLastCut() {
+        return lastCut;
+    }
+}
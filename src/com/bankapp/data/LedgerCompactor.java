@@ -0,0 +1,77 @@
+package com.bankapp.data;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * LedgerCompactor - Tác vụ nền nén dần lịch sử giao dịch theo chính sách lưu giữ.
+ * Mỗi lần chạy gọi TransactionRepository.compact theo từng lô nhỏ cho tới khi hết việc;
+ * giữa các lô sổ cái được nhả khóa nên việc ghi sổ giao dịch mới không bị dừng.
+ */
+public class LedgerCompactor {
+    private final TransactionRepository transactionRepository;
+    private final int batchSize;
+    private ScheduledExecutorService executor;
+
+    /**
+     * Constructor cho LedgerCompactor.
+     *
+     * @param transactionRepository Sổ cái cần nén
+     * @param batchSize             Số giao dịch tối đa mỗi lô
+     */
+    public LedgerCompactor(TransactionRepository transactionRepository, int batchSize) {
+        this.transactionRepository = transactionRepository;
+        this.batchSize = Math.max(1, batchSize);
+    }
+
+    /**
+     * Bắt đầu chạy nén định kỳ trên một luồng nền.
+     *
+     * @param intervalMillis Khoảng thời gian giữa hai lần chạy
+     */
+    public synchronized void start(long intervalMillis) {
+        if (executor != null) {
+            return;
+        }
+        executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "ledger-compactor");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.scheduleWithFixedDelay(this::runSafely, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Dừng tác vụ nền. Lô đang chạy (nếu có) vẫn được hoàn tất.
+     */
+    public synchronized void stop() {
+        if (executor != null) {
+            executor.shutdown();
+            executor = null;
+        }
+    }
+
+    /**
+     * Nén toàn bộ phần lịch sử đã quá hạn lưu giữ, theo từng lô.
+     *
+     * @return Tổng số giao dịch đã được nén
+     */
+    public int runOnce() {
+        int total = 0;
+        int compacted;
+        while ((compacted = transactionRepository.compact(batchSize)) > 0) {
+            total += compacted;
+            Thread.yield();
+        }
+        return total;
+    }
+
+    private void runSafely() {
+        try {
+            runOnce();
+        } catch (RuntimeException e) {
+            // Keep the schedule alive; the batch is retried on the next run
+        }
+    }
+}
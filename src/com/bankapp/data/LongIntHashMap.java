@@ -0,0 +1,155 @@
+package com.bankapp.data;
+
+import java.util.Arrays;
+
+/**
+ * LongIntHashMap - Bảng băm địa chỉ mở (dò tuyến tính) ánh xạ khóa long không âm sang int.
+ * Khóa và giá trị nằm trong hai mảng nguyên thủy song song nên không có đối tượng entry,
+ * không boxing và mỗi lần tra cứu chỉ đọc các ô liền kề trong bộ nhớ.
+ * Xóa bằng cách dịch lùi các phần tử phía sau (backward shift) nên không cần tombstone.
+ */
+class LongIntHashMap {
+    static final int MISSING = -1;
+    private static final long EMPTY = -1L;
+    private static final int MIN_CAPACITY = 16;
+    private long[] keys;
+    private int[] values;
+    private int mask;
+    private int size;
+
+    LongIntHashMap() {
+        allocate(MIN_CAPACITY);
+    }
+
+    /**
+     * Lấy giá trị của một khóa.
+     *
+     * @param key Khóa không âm
+     * @return Giá trị, hoặc MISSING nếu không có
+     */
+    int get(long key) {
+        int slot = slot(key);
+        while (true) {
+            long current = keys[slot];
+            if (current == key) {
+                return values[slot];
+            }
+            if (current == EMPTY) {
+                return MISSING;
+            }
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    /**
+     * Thêm hoặc thay giá trị của một khóa.
+     *
+     * @param key   Khóa không âm
+     * @param value Giá trị
+     * @return Giá trị cũ, hoặc MISSING nếu khóa chưa có
+     */
+    int put(long key, int value) {
+        int slot = slot(key);
+        while (keys[slot] != EMPTY) {
+            if (keys[slot] == key) {
+                int previous = values[slot];
+                values[slot] = value;
+                return previous;
+            }
+            slot = (slot + 1) & mask;
+        }
+        keys[slot] = key;
+        values[slot] = value;
+        // Keep the load factor at or below 3/4
+        if (++size > keys.length / 4 * 3) {
+            rehash(keys.length * 2);
+        }
+        return MISSING;
+    }
+
+    /**
+     * Xóa một khóa.
+     *
+     * @param key Khóa cần xóa
+     * @return Giá trị cũ, hoặc MISSING nếu khóa không có
+     */
+    int remove(long key) {
+        int slot = slot(key);
+        while (keys[slot] != key) {
+            if (keys[slot] == EMPTY) {
+                return MISSING;
+            }
+            slot = (slot + 1) & mask;
+        }
+        int previous = values[slot];
+        // Shift later entries of the probe run back so lookups never stop early
+        int gap = slot;
+        int next = (gap + 1) & mask;
+        while (keys[next] != EMPTY) {
+            int home = slot(keys[next]);
+            if (((next - home) & mask) >= ((next - gap) & mask)) {
+                keys[gap] = keys[next];
+                values[gap] = values[next];
+                gap = next;
+            }
+            next = (next + 1) & mask;
+        }
+        keys[gap] = EMPTY;
+        size--;
+        return previous;
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * Lấy bản sao tất cả khóa đang có (thứ tự không xác định).
+     *
+     * @return Mảng khóa
+     */
+    long[] keys() {
+        long[] result = new long[size];
+        int count = 0;
+        for (long key : keys) {
+            if (key != EMPTY) {
+                result[count++] = key;
+            }
+        }
+        return result;
+    }
+
+    void clear() {
+        allocate(MIN_CAPACITY);
+    }
+
+    private int slot(long key) {
+        // Murmur3 finalizer: account numbers are sequential, so spread them over the table
+        long h = key;
+        h ^= h >>> 33;
+        h *= 0xFF51AFD7ED558CCDL;
+        h ^= h >>> 33;
+        h *= 0xC4CEB9FE1A85EC53L;
+        h ^= h >>> 33;
+        return (int) h & mask;
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        Arrays.fill(keys, EMPTY);
+        values = new int[capacity];
+        mask = capacity - 1;
+        size = 0;
+    }
+
+    private void rehash(int capacity) {
+        long[] oldKeys = keys;
+        int[] oldValues = values;
+        allocate(capacity);
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != EMPTY) {
+                put(oldKeys[i], oldValues[i]);
+            }
+        }
+    }
+}
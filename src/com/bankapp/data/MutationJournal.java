@@ -0,0 +1,898 @@
+package com.bankapp.data;
+
+import com.bankapp.model.Account;
+import com.bankapp.model.Transaction;
+import com.bankapp.model.User;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * MutationJournal - Nhật ký các thay đổi dữ liệu, dùng để sao chép sang nút dự phòng và để khôi phục
+ * dữ liệu khi khởi động lại.
+ * Mỗi thay đổi được cấp một số thứ tự tăng dần và giữ lại cho đến khi nút dự phòng xác nhận (ack)
+ * đã áp dụng, nên nút dự phòng kết nối muộn hoặc kết nối lại vẫn đuổi kịp từ vị trí của nó
+ * (tối đa maxBacklog bản ghi chưa xác nhận; vượt quá thì bản ghi cũ nhất bị bỏ và nút dự phòng
+ * phải đồng bộ lại từ đầu).
+ * Ở chế độ đồng bộ (sync), thao tác ghi chờ nút dự phòng xác nhận trước khi trả về. Việc xử lý khi
+ * nút dự phòng không xác nhận kịp được cấu hình bằng SyncTimeoutPolicy:
+ * <ul>
+ *   <li>DEGRADE: chờ tối đa syncTimeoutMillis; hết thời gian thì thao tác hoàn tất và nhật ký chuyển
+ *       sang trạng thái suy giảm (isDegraded) - các thao tác ghi sau không chờ nữa cho đến khi nút
+ *       dự phòng xác nhận được bản ghi đã hết thời gian chờ. Khi không có nút dự phòng nào kết nối, thao tác ghi
+ *       cũng không chờ và nhật ký được coi là suy giảm.</li>
+ *   <li>STALL: chờ không giới hạn cho đến khi nút dự phòng xác nhận (kể cả qua các lần kết nối lại);
+ *       chỉ đóng nhật ký mới giải phóng các thao tác đang chờ.</li>
+ * </ul>
+ * Ở chế độ bất đồng bộ (async), thao tác ghi không bao giờ chờ.
+ * Các bản ghi được ghi khi đang giữ khóa tài khoản (giao dịch, trạng thái giao dịch, đóng tài khoản,
+ * đặt lại bộ đếm lượt rút) không chờ ngay: người gọi nhả khóa rồi gọi awaitReplication(), để một thao tác
+ * đang chờ xác nhận không giữ khóa tài khoản mà việc chụp dữ liệu đồng bộ lại nút dự phòng cần tới.
+ * Khi có thư mục, mỗi bản ghi còn được nối vào file mutations.log để khởi động lại có thể khôi phục dữ liệu
+ * bằng cách phát lại (xem JournalReplay). Thao tác ghi chỉ hoàn tất khi bản ghi của nó đã được ép xuống đĩa
+ * (ngay khi ghi, hoặc trong awaitReplication() với các bản ghi ghi dưới khóa tài khoản); các luồng ghi
+ * cùng lúc dùng chung một lần ép (group commit): luồng đầu tiên ép mọi bản ghi đã có, các luồng khác chờ.
+ * Thư mục nhật ký còn có thể chứa một điểm kiểm tra (checkpoint.snap, xem JournalSnapshot): khi khởi động,
+ * điểm kiểm tra được nạp trước rồi mới phát lại các bản ghi chưa nằm trong nó. checkpoint() ghi một điểm
+ * kiểm tra mới rồi cắt bỏ phần đầu nhật ký đã nằm trong đó.
+ * Nhật ký tạo bằng constructor không tham số bị tắt: mọi thao tác ghi nhật ký không làm gì.
+ */
+public class MutationJournal {
+    /**
+     * Cách xử lý thao tác ghi khi nút dự phòng không xác nhận kịp ở chế độ đồng bộ.
+     */
+    public enum SyncTimeoutPolicy {
+        /** Hoàn tất thao tác sau syncTimeoutMillis và chuyển sang trạng thái suy giảm. */
+        DEGRADE,
+        /** Chờ cho đến khi nút dự phòng xác nhận. */
+        STALL
+    }
+
+    private static final int COMPACT_THRESHOLD = 1024;
+    private static final String FILE_NAME = "mutations.log";
+    private static final String CHECKPOINT_FILE_NAME = "checkpoint.snap";
+    private static final int FRAME_HEADER = 20; // [long sequence][long appendedAt][int length]
+    private final boolean enabled;
+    private final boolean replicated;
+    private FileChannel channel;       // null when the journal is not persisted; replaced by checkpoint()
+    private final Path logFile;        // null when the journal is not persisted
+    private final Path checkpointFile; // null when the journal is not persisted
+    private FileOutputStream pendingCheckpointFile;
+    private DataOutputStream pendingCheckpoint;
+    private List<JournalEntry> recovered;
+    private final boolean synchronousAck;
+    private final long syncTimeoutMillis;
+    private final SyncTimeoutPolicy syncTimeoutPolicy;
+    private final int maxBacklog;
+    private final ReentrantLock lock;
+    private final Condition appended;
+    private final Condition acknowledged;
+    private final Condition synced;
+    private final List<JournalEntry> entries; // Unacknowledged entries from index head on
+    private int head;
+    private long lastSequence;
+    private long acknowledgedSequence;
+    private long syncedSequence; // Every entry up to here has been forced to disk
+    private boolean syncing;     // A writer is forcing the log on behalf of the group
+    private boolean followerAttached;
+    private boolean degraded; // A sync write timed out and the standby has not acknowledged it since
+    private long degradedAt;  // Sequence of the write that timed out
+    private boolean closed;
+    private long syncTimeouts;
+    // Highest sequence the calling thread wrote without waiting for the standby (see awaitReplication)
+    private final ThreadLocal<long[]> unconfirmed = ThreadLocal.withInitial(() -> new long[1]);
+
+    /**
+     * Constructor tạo nhật ký bị tắt (không lưu, không sao chép).
+     */
+    public MutationJournal() {
+        this(null, false, false, 0, 0);
+    }
+
+    /**
+     * Constructor tạo nhật ký để sao chép sang nút dự phòng.
+     *
+     * @param synchronousAck true để thao tác ghi chờ nút dự phòng xác nhận
+     * @param syncTimeoutMillis Thời gian chờ xác nhận tối đa ở chế độ đồng bộ
+     * @param maxBacklog Số bản ghi chưa xác nhận tối đa được giữ lại
+     */
+    public MutationJournal(boolean synchronousAck, long syncTimeoutMillis, int maxBacklog) {
+        this(null, true, synchronousAck, syncTimeoutMillis, maxBacklog);
+    }
+
+    /**
+     * Constructor tạo nhật ký được lưu vào file và / hoặc sao chép sang nút dự phòng.
+     * Nếu thư mục đã có nhật ký, các bản ghi cũ được đọc lại (xem takeRecoveredEntries) và
+     * số thứ tự tiếp tục sau bản ghi cuối cùng; phần đuôi ghi dở do sự cố bị cắt bỏ.
+     *
+     * @param directory Thư mục chứa file nhật ký, hoặc null nếu không lưu
+     * @param replicated true nếu nhật ký được sao chép sang nút dự phòng
+     * @param synchronousAck true để thao tác ghi chờ nút dự phòng xác nhận
+     * @param syncTimeoutMillis Thời gian chờ xác nhận tối đa ở chế độ đồng bộ
+     * @param maxBacklog Số bản ghi chưa xác nhận tối đa được giữ lại
+     */
+    public MutationJournal(Path directory, boolean replicated, boolean synchronousAck,
+                           long syncTimeoutMillis, int maxBacklog) {
+        this(directory, replicated, synchronousAck, syncTimeoutMillis, SyncTimeoutPolicy.DEGRADE, maxBacklog);
+    }
+
+    /**
+     * Constructor tạo nhật ký được lưu vào file và / hoặc sao chép sang nút dự phòng, với cách xử lý
+     * khi hết thời gian chờ xác nhận tùy chọn.
+     *
+     * @param directory Thư mục chứa file nhật ký, hoặc null nếu không lưu
+     * @param replicated true nếu nhật ký được sao chép sang nút dự phòng
+     * @param synchronousAck true để thao tác ghi chờ nút dự phòng xác nhận
+     * @param syncTimeoutMillis Thời gian chờ xác nhận tối đa ở chế độ đồng bộ (chính sách DEGRADE)
+     * @param syncTimeoutPolicy Cách xử lý khi nút dự phòng không xác nhận kịp
+     * @param maxBacklog Số bản ghi chưa xác nhận tối đa được giữ lại
+     */
+    public MutationJournal(Path directory, boolean replicated, boolean synchronousAck,
+                           long syncTimeoutMillis, SyncTimeoutPolicy syncTimeoutPolicy, int maxBacklog) {
+        this.syncTimeoutPolicy = syncTimeoutPolicy;
+        this.enabled = directory != null || replicated;
+        this.replicated = replicated;
+        this.synchronousAck = synchronousAck;
+        this.syncTimeoutMillis = syncTimeoutMillis;
+        this.maxBacklog = Math.max(1, maxBacklog);
+        this.lock = new ReentrantLock();
+        this.appended = lock.newCondition();
+        this.acknowledged = lock.newCondition();
+        this.synced = lock.newCondition();
+        this.entries = new ArrayList<>();
+        this.recovered = new ArrayList<>(0);
+        if (directory == null) {
+            this.channel = null;
+            this.logFile = null;
+            this.checkpointFile = null;
+            return;
+        }
+        Path file = directory.resolve(FILE_NAME);
+        this.logFile = file;
+        this.checkpointFile = directory.resolve(CHECKPOINT_FILE_NAME);
+        try {
+            Files.createDirectories(directory);
+            this.channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                    StandardOpenOption.READ, StandardOpenOption.WRITE);
+            long validLength = readEntries();
+            channel.truncate(validLength);
+            channel.position(validLength);
+            if (Files.exists(checkpointFile)) {
+                try (DataInputStream in = new DataInputStream(Files.newInputStream(checkpointFile))) {
+                    lastSequence = in.readLong();
+                    acknowledgedSequence = lastSequence;
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot open mutation journal " + file, e);
+        }
+        if (!recovered.isEmpty()) {
+            lastSequence = Math.max(lastSequence, recovered.get(recovered.size() - 1).sequence);
+            acknowledgedSequence = lastSequence;
+            syncedSequence = lastSequence;
+            if (replicated) {
+                // Keep the recent history so a standby that was behind can still catch up
+                int from = Math.max(0, recovered.size() - this.maxBacklog);
+                entries.addAll(recovered.subList(from, recovered.size()));
+                acknowledgedSequence = entries.get(0).sequence - 1;
+            }
+        }
+    }
+
+    private long readEntries() throws IOException {
+        long position = 0;
+        DataInputStream in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel), 1 << 20));
+        try {
+            while (true) {
+                long sequence = in.readLong();
+                long appendedAt = in.readLong();
+                int length = in.readInt();
+                if (length < 0) {
+                    break;
+                }
+                byte[] payload = new byte[length];
+                in.readFully(payload);
+                recovered.add(new JournalEntry(sequence, appendedAt, payload));
+                position += FRAME_HEADER + length;
+            }
+        } catch (EOFException e) {
+            // End of the log, or a torn final record from a crash
+        }
+        return position;
+    }
+
+    /**
+     * Lấy (và giải phóng) các bản ghi đọc lại từ file nhật ký lúc khởi tạo, để phát lại vào kho.
+     *
+     * @return Các bản ghi theo thứ tự số thứ tự
+     */
+    List<JournalEntry> takeRecoveredEntries() {
+        List<JournalEntry> taken = recovered;
+        recovered = new ArrayList<>(0);
+        return taken;
+    }
+
+    /**
+     * Nạp điểm kiểm tra của nhật ký (nếu có) vào kho dữ liệu; gọi trước khi phát lại các bản ghi.
+     *
+     * @param dataStore Kho dữ liệu cần khôi phục (đang rỗng)
+     * @return Điểm kiểm tra đã nạp, dùng để bỏ qua các bản ghi đã nằm trong nó, hoặc null nếu không có
+     * @throws UncheckedIOException nếu không đọc được điểm kiểm tra
+     */
+    JournalSnapshot restoreCheckpoint(InMemoryDataStore dataStore) {
+        if (checkpointFile == null || !Files.exists(checkpointFile)) {
+            return null;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(
+                Files.newInputStream(checkpointFile), 1 << 20))) {
+            return JournalSnapshot.read(in, dataStore, null);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot read journal checkpoint " + checkpointFile, e);
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public boolean isSynchronousAck() {
+        return synchronousAck;
+    }
+
+    // ============= Recording Mutations =============
+
+    /**
+     * Ghi nhận một người dùng mới đăng ký.
+     *
+     * @param user Người dùng vừa được lưu
+     */
+    public void recordUserRegistered(User user) {
+        if (enabled) {
+            append(JournalEntry.userRegistered(user), true);
+        }
+    }
+
+    /**
+     * Ghi nhận một tài khoản mới được mở.
+     *
+     * @param ownerUserId Mã người sở hữu, hoặc null nếu tài khoản chưa gắn với người dùng
+     * @param account Tài khoản vừa được lưu
+     */
+    public void recordAccountOpened(String ownerUserId, Account account) {
+        if (enabled) {
+            append(JournalEntry.accountOpened(ownerUserId, account), true);
+        }
+    }
+
+    /**
+     * Ghi nhận các giao dịch mà một tài khoản vừa phát sinh (kèm số dư sau từng giao dịch).
+     *
+     * @param accountNumber Số tài khoản
+     * @param transactions Các giao dịch theo thứ tự ghi
+     */
+    public void recordTransactionsPosted(String accountNumber, List<Transaction> transactions) {
+        if (enabled && !transactions.isEmpty()) {
+            append(JournalEntry.transactionsPosted(accountNumber, transactions), false);
+        }
+    }
+
+    /**
+     * Ghi nhận trạng thái mới của một giao dịch đã ghi trước đó.
+     *
+     * @param accountNumber Số tài khoản chứa giao dịch
+     * @param transactionId Mã giao dịch
+     * @param status Trạng thái mới
+     */
+    public void recordStatusChanged(String accountNumber, String transactionId, String status) {
+        if (enabled) {
+            append(JournalEntry.statusChanged(accountNumber, transactionId, status), false);
+        }
+    }
+
+    /**
+     * Ghi nhận một tài khoản bị đóng.
+     *
+     * @param accountNumber Số tài khoản
+     */
+    public void recordAccountClosed(String accountNumber) {
+        if (enabled) {
+            append(JournalEntry.accountClosed(accountNumber), false);
+        }
+    }
+
+    /**
+     * Ghi nhận bộ đếm số lần rút tiền trong tháng của một tài khoản được đặt lại.
+     *
+     * @param accountNumber Số tài khoản
+     */
+    public void recordWithdrawalsReset(String accountNumber) {
+        if (enabled) {
+            append(JournalEntry.withdrawalsReset(accountNumber), false);
+        }
+    }
+
+    /**
+     * Ghi nhận một tài khoản đã đóng được chuyển sang kho lưu trữ.
+     *
+     * @param ownerUserId Mã người sở hữu
+     * @param accountNumber Số tài khoản
+     */
+    public void recordAccountArchived(String ownerUserId, String accountNumber) {
+        if (enabled) {
+            append(JournalEntry.accountArchived(ownerUserId, accountNumber), true);
+        }
+    }
+
+    /**
+     * Ghi nhận một lô giao dịch cũ đã được nén khỏi sổ cái thành bản ghi tổng hợp theo kỳ
+     * (xem TransactionRepository.compact), để phát lại và nút dự phòng nén đúng các giao dịch đó.
+     * Được gọi khi đang giữ khóa sổ cái nên không chờ đĩa hay nút dự phòng: việc nén có thể làm lại.
+     *
+     * @param throughTimestamp Thời điểm của giao dịch mới nhất trong lô
+     * @param rows Số giao dịch trong lô
+     */
+    public void recordLedgerCompacted(long throughTimestamp, int rows) {
+        if (enabled) {
+            long[] pending = unconfirmed.get();
+            long previous = pending[0];
+            append(JournalEntry.ledgerCompacted(throughTimestamp, rows), false);
+            pending[0] = previous; // Nobody waits for this entry
+        }
+    }
+
+    /**
+     * Nối một bản ghi vào nhật ký.
+     *
+     * @param awaitNow true để chờ bản ghi xuống đĩa và được xác nhận ngay (chế độ đồng bộ); false nếu người gọi
+     *                 đang giữ khóa tài khoản và sẽ chờ bằng awaitReplication() sau khi nhả khóa
+     */
+    private void append(byte[] payload, boolean awaitNow) {
+        lock.lock();
+        try {
+            long sequence = ++lastSequence;
+            JournalEntry entry = new JournalEntry(sequence, System.currentTimeMillis(), payload);
+            write(entry);
+            if (replicated) {
+                entries.add(entry);
+                if (entries.size() - head > maxBacklog) {
+                    head++; // The standby is too far behind and will have to resynchronise
+                    compact();
+                }
+                appended.signalAll();
+            } else {
+                acknowledgedSequence = sequence;
+            }
+            if (!awaitNow) {
+                unconfirmed.get()[0] = sequence;
+                return;
+            }
+            awaitDurable(sequence);
+            if (replicated && synchronousAck) {
+                awaitAcknowledgement(sequence);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Chờ các bản ghi mà luồng hiện tại vừa ghi dưới khóa tài khoản (giao dịch, trạng thái giao dịch,
+     * đóng tài khoản, đặt lại bộ đếm lượt rút) được ép xuống đĩa và, ở chế độ đồng bộ, được nút dự phòng
+     * xác nhận theo chính sách đã cấu hình. Gọi sau khi đã nhả khóa tài khoản.
+     *
+     * @throws UncheckedIOException nếu không ép được nhật ký xuống đĩa
+     */
+    public void awaitReplication() {
+        if (!enabled) {
+            return;
+        }
+        long[] pending = unconfirmed.get();
+        long sequence = pending[0];
+        if (sequence == 0) {
+            return;
+        }
+        pending[0] = 0;
+        lock.lock();
+        try {
+            awaitDurable(sequence);
+            if (replicated && synchronousAck) {
+                awaitAcknowledgement(sequence);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Chờ một bản ghi được ép xuống đĩa. Gọi khi đang giữ lock; lock được nhả trong lúc ép để các luồng khác
+     * tiếp tục ghi, và một lần ép phủ mọi bản ghi đã ghi trước đó.
+     */
+    private void awaitDurable(long sequence) {
+        while (channel != null && channel.isOpen() && syncedSequence < sequence) {
+            if (syncing) {
+                synced.awaitUninterruptibly(); // Another writer's force covers this entry or the next one will
+                continue;
+            }
+            syncing = true;
+            long target = lastSequence;
+            FileChannel forced = channel;
+            lock.unlock();
+            boolean done = false;
+            try {
+                forced.force(false);
+                done = true;
+            } catch (IOException e) {
+                throw new UncheckedIOException("Cannot sync mutation journal", e);
+            } finally {
+                lock.lock();
+                syncing = false;
+                if (done) {
+                    syncedSequence = Math.max(syncedSequence, target);
+                }
+                synced.signalAll();
+            }
+        }
+    }
+
+    /**
+     * Chờ nút dự phòng xác nhận một bản ghi theo chính sách đã cấu hình. Gọi khi đang giữ lock.
+     */
+    private void awaitAcknowledgement(long sequence) throws InterruptedException {
+        if (syncTimeoutPolicy == SyncTimeoutPolicy.STALL) {
+            while (acknowledgedSequence < sequence && !closed) {
+                acknowledged.await();
+            }
+            return;
+        }
+        if (degraded) {
+            return; // Already behind; do not make every write pay the timeout again
+        }
+        long remaining = TimeUnit.MILLISECONDS.toNanos(syncTimeoutMillis);
+        while (followerAttached && acknowledgedSequence < sequence) {
+            if (remaining <= 0) {
+                syncTimeouts++;
+                degraded = true;
+                degradedAt = sequence;
+                return;
+            }
+            remaining = acknowledged.awaitNanos(remaining);
+        }
+    }
+
+    private void write(JournalEntry entry) {
+        if (channel == null) {
+            return;
+        }
+        ByteBuffer frame = ByteBuffer.allocate(FRAME_HEADER + entry.payload.length);
+        frame.putLong(entry.sequence).putLong(entry.appendedAt).putInt(entry.payload.length).put(entry.payload);
+        frame.flip();
+        try {
+            while (frame.hasRemaining()) {
+                channel.write(frame);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot write mutation journal", e);
+        }
+    }
+
+    /**
+     * Ép các bản ghi đã ghi xuống đĩa, ví dụ trước khi một phân vùng trả lời bên điều phối của
+     * chuyển khoản hai pha hoặc trước khi nút dự phòng xác nhận. Không làm gì nếu nhật ký không lưu ra file.
+     *
+     * @throws UncheckedIOException nếu không ép được nhật ký xuống đĩa
+     */
+    public void sync() {
+        lock.lock();
+        try {
+            awaitDurable(lastSequence);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Ép nhật ký xuống đĩa và đóng file.
+     */
+    public void close() {
+        lock.lock();
+        try {
+            closed = true;
+            acknowledged.signalAll();
+            while (syncing) {
+                synced.awaitUninterruptibly();
+            }
+            if (channel != null && channel.isOpen()) {
+                channel.force(false);
+                channel.close();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot close mutation journal", e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // ============= Replication Side =============
+
+    /**
+     * Ghi lại một bản ghi mà nút dự phòng vừa áp dụng, giữ nguyên số thứ tự của nút chính, để
+     * nút dự phòng khởi động lại có thể tự khôi phục rồi theo dõi tiếp từ vị trí đó.
+     *
+     * @param entry Bản ghi nhận từ nút chính
+     */
+    void appendReplicated(JournalEntry entry) {
+        lock.lock();
+        try {
+            write(entry);
+            lastSequence = Math.max(lastSequence, entry.sequence);
+            acknowledgedSequence = lastSequence;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Mở file tạm để ghi một điểm kiểm tra (bản chụp nhận từ nút chính khi đồng bộ lại).
+     *
+     * @return Luồng ghi vào file tạm, hoặc null nếu nhật ký không lưu ra file
+     * @throws UncheckedIOException nếu không tạo được file
+     */
+    DataOutputStream openCheckpoint() {
+        if (checkpointFile == null) {
+            return null;
+        }
+        lock.lock();
+        try {
+            discardPendingCheckpoint();
+            pendingCheckpointFile = new FileOutputStream(temporaryCheckpointFile().toFile());
+            pendingCheckpoint = new DataOutputStream(new BufferedOutputStream(pendingCheckpointFile, 1 << 20));
+            return pendingCheckpoint;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot create journal checkpoint " + temporaryCheckpointFile(), e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Thay toàn bộ nhật ký bằng một bản chụp: điểm kiểm tra vừa ghi bằng openCheckpoint() (nếu có) được
+     * ép xuống đĩa và thay điểm kiểm tra cũ, file nhật ký được làm rỗng và việc đánh số tiếp tục sau
+     * số thứ tự của bản chụp.
+     *
+     * @param sequence Số thứ tự bắt đầu của bản chụp
+     * @throws UncheckedIOException nếu không ghi được điểm kiểm tra
+     */
+    void installCheckpoint(long sequence) {
+        lock.lock();
+        try {
+            if (pendingCheckpoint != null) {
+                pendingCheckpoint.flush();
+                pendingCheckpointFile.getFD().sync();
+                pendingCheckpoint.close();
+                pendingCheckpoint = null;
+                pendingCheckpointFile = null;
+                Files.move(temporaryCheckpointFile(), checkpointFile,
+                        StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                // Entries before the snapshot are superseded; a crash before this point replays them harmlessly
+                channel.truncate(0);
+                channel.position(0);
+            }
+            lastSequence = sequence;
+            acknowledgedSequence = sequence;
+            entries.clear();
+            head = 0;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot install journal checkpoint " + checkpointFile, e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Ghi một điểm kiểm tra của kho dữ liệu rồi cắt bỏ phần đầu nhật ký đã nằm trong đó, để khởi động lại
+     * không phải phát lại từ đầu và file nhật ký không lớn mãi. Việc chụp không dừng thao tác ghi (xem
+     * JournalSnapshot); các bản ghi sau vị trí bắt đầu chụp được giữ lại trong nhật ký mới. Điểm kiểm tra được
+     * thay trước, nhật ký được thay sau, mỗi bước bằng một lần đổi tên nguyên tử, nên sự cố ở bất kỳ bước nào
+     * vẫn để lại một cặp điểm kiểm tra / nhật ký khôi phục được.
+     * Các bản sao mà nút dự phòng cần vẫn được giữ trong bộ nhớ như trước.
+     *
+     * @param dataStore Kho dữ liệu ghi nhật ký này
+     * @return Số thứ tự bắt đầu của điểm kiểm tra, hoặc -1 nếu nhật ký không lưu ra file
+     * @throws UncheckedIOException nếu không ghi được điểm kiểm tra hoặc nhật ký mới
+     */
+    long checkpoint(InMemoryDataStore dataStore) {
+        if (checkpointFile == null) {
+            return -1;
+        }
+        long keepFrom;
+        lock.lock();
+        try {
+            // Taken before the snapshot starts, so the kept tail holds everything the snapshot may miss
+            keepFrom = channel.position();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot checkpoint mutation journal", e);
+        } finally {
+            lock.unlock();
+        }
+        Path temporary = temporaryCheckpointFile();
+        long sequence;
+        try (FileOutputStream file = new FileOutputStream(temporary.toFile());
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(file, 1 << 20))) {
+            sequence = JournalSnapshot.write(dataStore, out);
+            out.flush();
+            file.getFD().sync();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot write journal checkpoint " + temporary, e);
+        }
+
+        Path temporaryLog = logFile.resolveSibling(FILE_NAME + ".tmp");
+        lock.lock();
+        try {
+            while (syncing) {
+                synced.awaitUninterruptibly();
+            }
+            try (FileChannel tail = FileChannel.open(temporaryLog, StandardOpenOption.CREATE,
+                    StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+                long position = keepFrom;
+                long end = channel.position();
+                while (position < end) {
+                    position += channel.transferTo(position, end - position, tail);
+                }
+                tail.force(false);
+            }
+            Files.move(temporary, checkpointFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            Files.move(temporaryLog, logFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            channel.close();
+            channel = FileChannel.open(logFile, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            channel.position(channel.size());
+            syncedSequence = lastSequence;
+            return sequence;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot install journal checkpoint " + checkpointFile, e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void discardPendingCheckpoint() throws IOException {
+        if (pendingCheckpoint != null) {
+            pendingCheckpoint.close();
+            pendingCheckpoint = null;
+            pendingCheckpointFile = null;
+        }
+    }
+
+    private Path temporaryCheckpointFile() {
+        return checkpointFile.resolveSibling(CHECKPOINT_FILE_NAME + ".tmp");
+    }
+
+    /**
+     * Lấy các bản ghi sau một số thứ tự, chờ tối đa waitMillis nếu chưa có bản ghi mới.
+     *
+     * @param afterSequence Số thứ tự cuối cùng nút dự phòng đã nhận
+     * @param max Số bản ghi tối đa
+     * @param waitMillis Thời gian chờ tối đa
+     * @return Danh sách bản ghi (rỗng nếu chưa có), hoặc null nếu các bản ghi cần thiết đã bị bỏ
+     * @throws InterruptedException nếu luồng bị ngắt khi đang chờ
+     */
+    List<JournalEntry> readAfter(long afterSequence, int max, long waitMillis) throws InterruptedException {
+        lock.lock();
+        try {
+            long remaining = TimeUnit.MILLISECONDS.toNanos(waitMillis);
+            while (lastSequence <= afterSequence && remaining > 0) {
+                remaining = appended.awaitNanos(remaining);
+            }
+            if (lastSequence <= afterSequence) {
+                return new ArrayList<>(0);
+            }
+            long firstRetained = head < entries.size() ? entries.get(head).sequence : lastSequence + 1;
+            if (afterSequence + 1 < firstRetained) {
+                return null;
+            }
+            int from = head + (int) (afterSequence + 1 - firstRetained);
+            int to = Math.min(entries.size(), from + max);
+            return new ArrayList<>(entries.subList(from, to));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Ghi nhận nút dự phòng đã áp dụng đến một số thứ tự; các bản ghi đến đó được giải phóng.
+     *
+     * @param sequence Số thứ tự đã áp dụng
+     */
+    void acknowledge(long sequence) {
+        lock.lock();
+        try {
+            if (sequence <= acknowledgedSequence) {
+                return;
+            }
+            acknowledgedSequence = Math.min(sequence, lastSequence);
+            while (head < entries.size() && entries.get(head).sequence <= acknowledgedSequence) {
+                head++;
+            }
+            if (degraded && acknowledgedSequence >= degradedAt) {
+                degraded = false; // The standby is acknowledging again; sync writes wait again
+            }
+            compact();
+            acknowledged.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Đánh dấu có / không có nút dự phòng đang kết nối. Khi mất kết nối, các thao tác
+     * đang chờ xác nhận đồng bộ được giải phóng.
+     *
+     * @param attached true nếu nút dự phòng vừa kết nối
+     */
+    void setFollowerAttached(boolean attached) {
+        lock.lock();
+        try {
+            followerAttached = attached;
+            acknowledged.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Tiếp tục đánh số sau số thứ tự cho trước, dùng khi nút dự phòng được nâng lên làm nút chính
+     * để nút dự phòng mới của nó tiếp tục từ đúng vị trí.
+     *
+     * @param sequence Số thứ tự cuối cùng đã áp dụng
+     */
+    public void continueFrom(long sequence) {
+        lock.lock();
+        try {
+            if (sequence > lastSequence) {
+                lastSequence = sequence;
+                acknowledgedSequence = sequence;
+                entries.clear();
+                head = 0;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void compact() {
+        if (head >= COMPACT_THRESHOLD && head * 2 >= entries.size()) {
+            entries.subList(0, head).clear();
+            head = 0;
+        }
+    }
+
+    // ============= Replication Status =============
+
+    /**
+     * Lấy số thứ tự của bản ghi mới nhất.
+     *
+     * @return Số thứ tự mới nhất (0 nếu chưa ghi gì)
+     */
+    public long getLastSequence() {
+        lock.lock();
+        try {
+            return lastSequence;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Lấy số thứ tự mới nhất mà nút dự phòng đã xác nhận.
+     *
+     * @return Số thứ tự đã xác nhận
+     */
+    public long getAcknowledgedSequence() {
+        lock.lock();
+        try {
+            return acknowledgedSequence;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Lấy độ trễ sao chép tính theo số bản ghi nút dự phòng chưa xác nhận.
+     *
+     * @return Số bản ghi chưa xác nhận
+     */
+    public long getLagEntries() {
+        lock.lock();
+        try {
+            return lastSequence - acknowledgedSequence;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Lấy độ trễ sao chép tính theo thời gian: tuổi của bản ghi cũ nhất chưa được xác nhận.
+     *
+     * @return Độ trễ (mili giây), 0 nếu nút dự phòng đã theo kịp
+     */
+    public long getLagMillis() {
+        lock.lock();
+        try {
+            return head < entries.size() ? System.currentTimeMillis() - entries.get(head).appendedAt : 0;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Lấy số lần thao tác ghi ở chế độ đồng bộ hết thời gian chờ xác nhận.
+     *
+     * @return Số lần hết thời gian chờ
+     */
+    public long getSyncTimeoutCount() {
+        lock.lock();
+        try {
+            return syncTimeouts;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Lấy cách xử lý khi nút dự phòng không xác nhận kịp ở chế độ đồng bộ.
+     *
+     * @return Chính sách đã cấu hình
+     */
+    public SyncTimeoutPolicy getSyncTimeoutPolicy() {
+        return syncTimeoutPolicy;
+    }
+
+    /**
+     * Kiểm tra nhật ký đồng bộ có đang ở trạng thái suy giảm hay không: thao tác ghi hoàn tất mà không
+     * chờ nút dự phòng xác nhận, vì một lần chờ đã hết thời gian hoặc không có nút dự phòng kết nối.
+     *
+     * @return true nếu đang suy giảm (luôn false ở chế độ bất đồng bộ và với chính sách STALL)
+     */
+    public boolean isDegraded() {
+        lock.lock();
+        try {
+            return synchronousAck && syncTimeoutPolicy == SyncTimeoutPolicy.DEGRADE && (degraded || !followerAttached);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Kiểm tra có nút dự phòng đang kết nối hay không.
+     *
+     * @return true nếu có nút dự phòng đang kết nối
+     */
+    public boolean isFollowerAttached() {
+        lock.lock();
+        try {
+            return followerAttached;
+        } finally {
+            lock.unlock();
+        }
+    }
+}
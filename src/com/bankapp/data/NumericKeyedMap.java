@@ -0,0 +1,191 @@
+package com.bankapp.data;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * NumericKeyedMap - Bảng String -> V dùng khóa số nội bộ cho số tài khoản và mã người dùng.
+ * Khóa được mã hóa bằng NumericKeys thành long, tra trong LongIntHashMap ra vị trí của
+ * phần tử trong mảng giá trị. Không có đối tượng entry cho mỗi phần tử và không giữ
+ * chuỗi khóa (khóa được khôi phục từ giá trị số khi duyệt). Vị trí đã xóa được tái sử dụng.
+ * Khóa không đúng định dạng vẫn được hỗ trợ qua một HashMap phụ, nên API chuỗi giữ nguyên.
+ * Giống HashMap, lớp này không tự đồng bộ.
+ */
+public class NumericKeyedMap<V> extends AbstractMap<String, V> {
+    private final LongIntHashMap index; // encoded key -> slot
+    private final Map<String, V> fallback; // Keys that do not fit the numeric encoding
+    private Object[] slotValues;
+    private int[] freeSlots;
+    private int freeCount;
+    private int slotCount; // High-water mark of used slots
+
+    public NumericKeyedMap() {
+        this.index = new LongIntHashMap();
+        this.fallback = new HashMap<>();
+        this.slotValues = new Object[16];
+        this.freeSlots = new int[16];
+    }
+
+    @Override
+    public V get(Object key) {
+        if (!(key instanceof String)) {
+            return null;
+        }
+        long encoded = NumericKeys.encode((String) key);
+        if (encoded == NumericKeys.NOT_ENCODABLE) {
+            return fallback.get(key);
+        }
+        int slot = index.get(encoded);
+        return slot == LongIntHashMap.MISSING ? null : value(slot);
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        if (!(key instanceof String)) {
+            return false;
+        }
+        long encoded = NumericKeys.encode((String) key);
+        if (encoded == NumericKeys.NOT_ENCODABLE) {
+            return fallback.containsKey(key);
+        }
+        return index.get(encoded) != LongIntHashMap.MISSING;
+    }
+
+    @Override
+    public V put(String key, V value) {
+        long encoded = NumericKeys.encode(key);
+        if (encoded == NumericKeys.NOT_ENCODABLE) {
+            return fallback.put(key, value);
+        }
+        int slot = index.get(encoded);
+        if (slot != LongIntHashMap.MISSING) {
+            V previous = value(slot);
+            slotValues[slot] = value;
+            return previous;
+        }
+        slot = allocateSlot();
+        slotValues[slot] = value;
+        index.put(encoded, slot);
+        return null;
+    }
+
+    @Override
+    public V remove(Object key) {
+        if (!(key instanceof String)) {
+            return null;
+        }
+        long encoded = NumericKeys.encode((String) key);
+        if (encoded == NumericKeys.NOT_ENCODABLE) {
+            return fallback.remove(key);
+        }
+        int slot = index.remove(encoded);
+        if (slot == LongIntHashMap.MISSING) {
+            return null;
+        }
+        V previous = value(slot);
+        slotValues[slot] = null;
+        if (freeCount == freeSlots.length) {
+            freeSlots = Arrays.copyOf(freeSlots, freeCount * 2);
+        }
+        freeSlots[freeCount++] = slot;
+        return previous;
+    }
+
+    @Override
+    public int size() {
+        return index.size() + fallback.size();
+    }
+
+    @Override
+    public void clear() {
+        index.clear();
+        fallback.clear();
+        slotValues = new Object[16];
+        freeSlots = new int[16];
+        freeCount = 0;
+        slotCount = 0;
+    }
+
+    @Override
+    public Set<Map.Entry<String, V>> entrySet() {
+        return new AbstractSet<Map.Entry<String, V>>() {
+            @Override
+            public Iterator<Map.Entry<String, V>> iterator() {
+                return new EntryIterator();
+            }
+
+            @Override
+            public int size() {
+                return NumericKeyedMap.this.size();
+            }
+        };
+    }
+
+    @SuppressWarnings("unchecked")
+    private V value(int slot) {
+        return (V) slotValues[slot];
+    }
+
+    private int allocateSlot() {
+        if (freeCount > 0) {
+            return freeSlots[--freeCount];
+        }
+        if (slotCount == slotValues.length) {
+            slotValues = Arrays.copyOf(slotValues, slotCount * 2);
+        }
+        return slotCount++;
+    }
+
+    /**
+     * Duyệt theo bản chụp các khóa số tại thời điểm tạo iterator, sau đó tới các khóa trong bảng phụ.
+     */
+    private class EntryIterator implements Iterator<Map.Entry<String, V>> {
+        private final long[] numericKeys = index.keys();
+        private final Iterator<Map.Entry<String, V>> fallbackEntries = fallback.entrySet().iterator();
+        private int position;
+        private String lastKey;
+        private boolean lastFromFallback;
+
+        @Override
+        public boolean hasNext() {
+            return position < numericKeys.length || fallbackEntries.hasNext();
+        }
+
+        @Override
+        public Map.Entry<String, V> next() {
+            if (position < numericKeys.length) {
+                long key = numericKeys[position++];
+                lastKey = NumericKeys.decode(key);
+                lastFromFallback = false;
+                int slot = index.get(key);
+                return new SimpleImmutableEntry<>(lastKey, slot == LongIntHashMap.MISSING ? null : value(slot));
+            }
+            if (!fallbackEntries.hasNext()) {
+                throw new NoSuchElementException();
+            }
+            Map.Entry<String, V> entry = fallbackEntries.next();
+            lastKey = entry.getKey();
+            lastFromFallback = true;
+            return entry;
+        }
+
+        @Override
+        public void remove() {
+            if (lastKey == null) {
+                throw new IllegalStateException();
+            }
+            if (lastFromFallback) {
+                fallbackEntries.remove();
+            } else {
+                NumericKeyedMap.this.remove(lastKey);
+            }
+            lastKey = null;
+        }
+    }
+}
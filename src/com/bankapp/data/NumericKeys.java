@@ -0,0 +1,100 @@
+package com.bankapp.data;
+
+/**
+ * NumericKeys - Mã hóa số tài khoản và mã người dùng thành số nguyên long (và ngược lại).
+ * - Số tài khoản "ACC" + tối đa 17 chữ số (không có số 0 ở đầu): giá trị của phần số.
+ * - Mã người dùng "USER_" + tối đa 11 ký tự [A-Z0-9]: mã hóa cơ số 37 (0 là "không có ký tự"
+ *   nên độ dài được giữ nguyên), cộng thêm bit đánh dấu USER_FLAG.
+ * Hai miền giá trị không giao nhau nên mã hóa là đơn ánh; chuỗi không đúng định dạng
+ * trả về NOT_ENCODABLE và được lưu theo cách thông thường.
+ */
+class NumericKeys {
+    static final long NOT_ENCODABLE = -1L;
+    private static final String ACCOUNT_PREFIX = "ACC";
+    private static final String USER_PREFIX = "USER_";
+    private static final int MAX_ACCOUNT_DIGITS = 17; // 10^17 < 2^57, below USER_FLAG
+    private static final int MAX_USER_CHARS = 11;     // 37^11 < 2^58
+    private static final long USER_FLAG = 1L << 61;
+
+    /**
+     * Mã hóa một khóa chuỗi.
+     *
+     * @param key Số tài khoản hoặc mã người dùng
+     * @return Giá trị không âm, hoặc NOT_ENCODABLE nếu khóa không đúng định dạng
+     */
+    static long encode(String key) {
+        if (key == null) {
+            return NOT_ENCODABLE;
+        }
+        if (key.startsWith(ACCOUNT_PREFIX)) {
+            return encodeDigits(key, ACCOUNT_PREFIX.length());
+        }
+        if (key.startsWith(USER_PREFIX)) {
+            long value = encodeBase37(key, USER_PREFIX.length());
+            return value == NOT_ENCODABLE ? NOT_ENCODABLE : value | USER_FLAG;
+        }
+        return NOT_ENCODABLE;
+    }
+
+    /**
+     * Khôi phục khóa chuỗi từ giá trị đã mã hóa.
+     *
+     * @param value Giá trị do encode trả về
+     * @return Khóa chuỗi ban đầu
+     */
+    static String decode(long value) {
+        if ((value & USER_FLAG) == 0) {
+            return ACCOUNT_PREFIX + value;
+        }
+        long remaining = value & ~USER_FLAG;
+        char[] chars = new char[MAX_USER_CHARS];
+        int length = 0;
+        while (remaining != 0) {
+            int digit = (int) (remaining % 37) - 1;
+            chars[length++] = (char) (digit < 10 ? '0' + digit : 'A' + digit - 10);
+            remaining /= 37;
+        }
+        StringBuilder sb = new StringBuilder(USER_PREFIX.length() + length).append(USER_PREFIX);
+        for (int i = length - 1; i >= 0; i--) {
+            sb.append(chars[i]);
+        }
+        return sb.toString();
+    }
+
+    private static long encodeDigits(String key, int start) {
+        int digits = key.length() - start;
+        if (digits == 0 || digits > MAX_ACCOUNT_DIGITS || (digits > 1 && key.charAt(start) == '0')) {
+            return NOT_ENCODABLE;
+        }
+        long value = 0;
+        for (int i = start; i < key.length(); i++) {
+            char c = key.charAt(i);
+            if (c < '0' || c > '9') {
+                return NOT_ENCODABLE;
+            }
+            value = value * 10 + (c - '0');
+        }
+        return value;
+    }
+
+    private static long encodeBase37(String key, int start) {
+        int length = key.length() - start;
+        if (length == 0 || length > MAX_USER_CHARS) {
+            return NOT_ENCODABLE;
+        }
+        long value = 0;
+        for (int i = start; i < key.length(); i++) {
+            char c = key.charAt(i);
+            int digit;
+            if (c >= '0' && c <= '9') {
+                digit = c - '0';
+            } else if (c >= 'A' && c <= 'Z') {
+                digit = c - 'A' + 10;
+            } else {
+                return NOT_ENCODABLE;
+            }
+            value = value * 37 + digit + 1;
+        }
+        return value;
+    }
+}
@@ -0,0 +1,168 @@
+package com.bankapp.data;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.LongPredicate;
+
+/**
+ * OffHeapHashIndex - Bảng băm địa chỉ mở (dò tuyến tính) nằm ngoài heap,
+ * ánh xạ mã băm 64 bit của một khóa chuỗi sang vị trí bản ghi.
+ * Mỗi ô gồm [mã băm long][vị trí bản ghi long] trong các khối direct ByteBuffer.
+ * Hai khóa khác nhau có thể trùng mã băm, nên khi tra cứu người gọi cung cấp hàm kiểm tra
+ * bản ghi ứng viên có đúng khóa cần tìm hay không.
+ */
+class OffHeapHashIndex {
+    static final long MISSING = -1L;
+    private static final long EMPTY = 0L; // hash() never returns 0
+    private static final int ENTRY_BYTES = 16;
+    private static final int CHUNK_ENTRIES_SHIFT = 20; // 16 MB chunks
+    private List<ByteBuffer> chunks;
+    private long mask;
+    private long size;
+
+    OffHeapHashIndex() {
+        allocate(1024);
+    }
+
+    /**
+     * Tính mã băm 64 bit (khác 0) của một chuỗi.
+     *
+     * @param key Chuỗi khóa
+     * @return Mã băm
+     */
+    static long hash(String key) {
+        long h = 0xCBF29CE484222325L; // FNV-1a over UTF-8 bytes, then a Murmur3 finalizer
+        for (byte b : key.getBytes(StandardCharsets.UTF_8)) {
+            h ^= b & 0xFF;
+            h *= 0x100000001B3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xFF51AFD7ED558CCDL;
+        h ^= h >>> 33;
+        return h == EMPTY ? 1 : h;
+    }
+
+    /**
+     * Tìm bản ghi có mã băm cho trước và thỏa mãn hàm kiểm tra.
+     *
+     * @param hash    Mã băm của khóa
+     * @param matches Hàm kiểm tra một vị trí bản ghi ứng viên
+     * @return Vị trí bản ghi, hoặc MISSING nếu không có
+     */
+    long find(long hash, LongPredicate matches) {
+        long slot = hash & mask;
+        while (true) {
+            long current = hashAt(slot);
+            if (current == EMPTY) {
+                return MISSING;
+            }
+            if (current == hash && matches.test(recordAt(slot))) {
+                return recordAt(slot);
+            }
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    /**
+     * Thêm một cặp (mã băm, vị trí bản ghi). Người gọi bảo đảm khóa chưa có trong bảng.
+     */
+    void insert(long hash, long record) {
+        if (size + 1 > (mask + 1) / 4 * 3) {
+            rehash((mask + 1) * 2);
+        }
+        long slot = hash & mask;
+        while (hashAt(slot) != EMPTY) {
+            slot = (slot + 1) & mask;
+        }
+        set(slot, hash, record);
+        size++;
+    }
+
+    /**
+     * Xóa đúng cặp (mã băm, vị trí bản ghi), dịch lùi các phần tử phía sau.
+     */
+    void remove(long hash, long record) {
+        long slot = hash & mask;
+        while (hashAt(slot) != hash || recordAt(slot) != record) {
+            if (hashAt(slot) == EMPTY) {
+                return;
+            }
+            slot = (slot + 1) & mask;
+        }
+        long gap = slot;
+        long next = (gap + 1) & mask;
+        while (hashAt(next) != EMPTY) {
+            long home = hashAt(next) & mask;
+            if (((next - home) & mask) >= ((next - gap) & mask)) {
+                set(gap, hashAt(next), recordAt(next));
+                gap = next;
+            }
+            next = (next + 1) & mask;
+        }
+        set(gap, EMPTY, 0);
+        size--;
+    }
+
+    long size() {
+        return size;
+    }
+
+    void clear() {
+        allocate(1024);
+    }
+
+    // ============= Storage =============
+
+    private long hashAt(long slot) {
+        return chunk(slot).getLong(offset(slot));
+    }
+
+    private long recordAt(long slot) {
+        return chunk(slot).getLong(offset(slot) + 8);
+    }
+
+    private void set(long slot, long hash, long record) {
+        ByteBuffer chunk = chunk(slot);
+        int offset = offset(slot);
+        chunk.putLong(offset, hash);
+        chunk.putLong(offset + 8, record);
+    }
+
+    private ByteBuffer chunk(long slot) {
+        return chunks.get((int) (slot >>> CHUNK_ENTRIES_SHIFT));
+    }
+
+    private static int offset(long slot) {
+        return (int) (slot & ((1 << CHUNK_ENTRIES_SHIFT) - 1)) * ENTRY_BYTES;
+    }
+
+    private void allocate(long capacity) {
+        chunks = new ArrayList<>();
+        long chunkEntries = Math.min(capacity, 1L << CHUNK_ENTRIES_SHIFT);
+        for (long allocated = 0; allocated < capacity; allocated += chunkEntries) {
+            chunks.add(ByteBuffer.allocateDirect((int) (chunkEntries * ENTRY_BYTES)));
+        }
+        mask = capacity - 1;
+        size = 0;
+    }
+
+    private void rehash(long capacity) {
+        List<ByteBuffer> oldChunks = chunks;
+        long oldCapacity = mask + 1;
+        allocate(capacity);
+        for (long slot = 0; slot < oldCapacity; slot++) {
+            ByteBuffer chunk = oldChunks.get((int) (slot >>> CHUNK_ENTRIES_SHIFT));
+            long hash = chunk.getLong(offset(slot));
+            if (hash != EMPTY) {
+                long target = hash & mask;
+                while (hashAt(target) != EMPTY) {
+                    target = (target + 1) & mask;
+                }
+                set(target, hash, chunk.getLong(offset(slot) + 8));
+                size++;
+            }
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package com.bankapp.data;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * OffHeapStringArena - Vùng nhớ ngoài heap chỉ ghi thêm (append-only) cho các chuỗi độ dài thay đổi.
+ * Bộ nhớ được cấp theo từng khối direct ByteBuffer; mỗi chuỗi được lưu thành
+ * [độ dài int][byte UTF-8] và không bao giờ nằm vắt qua hai khối.
+ * Chuỗi được tham chiếu bằng một vị trí long toàn cục; NULL_REF biểu diễn giá trị null.
+ * Chuỗi bị thay thế không được thu hồi, chỉ được cộng vào số byte bỏ đi.
+ */
+class OffHeapStringArena {
+    static final long NULL_REF = -1L;
+    private static final int CHUNK_SHIFT = 22; // 4 MB chunks
+    private static final int CHUNK_SIZE = 1 << CHUNK_SHIFT;
+    private static final int MAX_STRING_BYTES = CHUNK_SIZE - 4;
+    private final List<ByteBuffer> chunks;
+    private long next;
+    private long wastedBytes;
+
+    OffHeapStringArena() {
+        this.chunks = new ArrayList<>();
+        this.next = 0;
+    }
+
+    /**
+     * Ghi một chuỗi vào vùng nhớ.
+     *
+     * @param value Chuỗi cần ghi (có thể null)
+     * @return Vị trí tham chiếu của chuỗi
+     */
+    long append(String value) {
+        if (value == null) {
+            return NULL_REF;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > MAX_STRING_BYTES) {
+            throw new IllegalArgumentException("String too large for the off-heap arena");
+        }
+        int offset = (int) (next & (CHUNK_SIZE - 1));
+        if ((next >>> CHUNK_SHIFT) == chunks.size() || offset + 4 + bytes.length > CHUNK_SIZE) {
+            if ((next >>> CHUNK_SHIFT) < chunks.size()) {
+                wastedBytes += CHUNK_SIZE - offset;
+            }
+            chunks.add(ByteBuffer.allocateDirect(CHUNK_SIZE));
+            next = (long) (chunks.size() - 1) << CHUNK_SHIFT;
+            offset = 0;
+        }
+        ByteBuffer chunk = chunks.get(chunks.size() - 1);
+        chunk.putInt(offset, bytes.length);
+        chunk.put(offset + 4, bytes);
+        long ref = next;
+        next += 4 + bytes.length;
+        return ref;
+    }
+
+    /**
+     * Đọc lại một chuỗi.
+     *
+     * @param ref Vị trí tham chiếu
+     * @return Chuỗi, hoặc null nếu ref là NULL_REF
+     */
+    String read(long ref) {
+        if (ref == NULL_REF) {
+            return null;
+        }
+        ByteBuffer chunk = chunks.get((int) (ref >>> CHUNK_SHIFT));
+        int offset = (int) (ref & (CHUNK_SIZE - 1));
+        byte[] bytes = new byte[chunk.getInt(offset)];
+        chunk.get(offset + 4, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * So sánh chuỗi tại một vị trí với các byte UTF-8 cho trước mà không tạo đối tượng String.
+     *
+     * @param ref   Vị trí tham chiếu
+     * @param bytes Byte UTF-8 cần so sánh
+     * @return true nếu bằng nhau
+     */
+    boolean matches(long ref, byte[] bytes) {
+        if (ref == NULL_REF) {
+            return false;
+        }
+        ByteBuffer chunk = chunks.get((int) (ref >>> CHUNK_SHIFT));
+        int offset = (int) (ref & (CHUNK_SIZE - 1));
+        if (chunk.getInt(offset) != bytes.length) {
+            return false;
+        }
+        for (int i = 0; i < bytes.length; i++) {
+            if (chunk.get(offset + 4 + i) != bytes[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Đánh dấu một chuỗi không còn được dùng (để thống kê).
+     *
+     * @param ref Vị trí tham chiếu
+     */
+    void release(long ref) {
+        if (ref != NULL_REF) {
+            ByteBuffer chunk = chunks.get((int) (ref >>> CHUNK_SHIFT));
+            wastedBytes += 4 + chunk.getInt((int) (ref & (CHUNK_SIZE - 1)));
+        }
+    }
+
+    long getAllocatedBytes() {
+        return (long) chunks.size() * CHUNK_SIZE;
+    }
+
+    long getWastedBytes() {
+        return wastedBytes;
+    }
+
+    void clear() {
+        chunks.clear();
+        next = 0;
+        wastedBytes = 0;
+    }
+}
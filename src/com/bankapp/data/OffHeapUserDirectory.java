@@ -0,0 +1,344 @@
+package com.bankapp.data;
+
+import com.bankapp.model.Account;
+import com.bankapp.model.User;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * OffHeapUserDirectory - Danh bạ người dùng nằm ngoài heap, dùng cho số lượng khách hàng rất lớn.
+ * Mỗi người dùng là một bản ghi cố định 64 byte trong các khối direct ByteBuffer, các chuỗi
+ * (mã, tên đăng nhập, mật khẩu băm, họ tên, email, danh sách số tài khoản) nằm trong
+ * OffHeapStringArena, và hai chỉ mục OffHeapHashIndex cho phép tra cứu theo mã và theo tên đăng nhập.
+ * Heap chỉ giữ vài đối tượng quản lý, không phụ thuộc số lượng khách hàng.
+ * Đối tượng User chỉ được tạo khi được đọc (get) và là bản sao: thay đổi trên User phải được
+ * ghi lại bằng put (UserRepository.update). Tài khoản của người dùng được nạp qua accountResolver.
+ * Các phương thức được đồng bộ hóa.
+ */
+public class OffHeapUserDirectory extends AbstractMap<String, User> {
+    private static final int RECORD_BYTES = 64;
+    private static final int RECORDS_PER_CHUNK_SHIFT = 16; // 4 MB chunks
+    private static final int RECORDS_PER_CHUNK = 1 << RECORDS_PER_CHUNK_SHIFT;
+    // Record layout: createdAt, then arena references for each string field, then the state word
+    private static final int CREATED_AT = 0;
+    private static final int USER_ID = 8;
+    private static final int USERNAME = 16;
+    private static final int PASSWORD_HASH = 24;
+    private static final int FULL_NAME = 32;
+    private static final int EMAIL = 40;
+    private static final int ACCOUNTS = 48;
+    private static final int STATE = 56; // LIVE, or the next free record (NO_RECORD ends the list)
+    private static final long LIVE = -2L;
+    private static final long NO_RECORD = -1L;
+    private static final char ACCOUNT_SEPARATOR = ',';
+    private final List<ByteBuffer> records;
+    private final OffHeapStringArena strings;
+    private final OffHeapHashIndex idIndex;
+    private final OffHeapHashIndex usernameIndex;
+    private Function<String, Account> accountResolver;
+    private long recordCount; // High-water mark of used records
+    private long freeHead;
+    private int size;
+
+    public OffHeapUserDirectory() {
+        this.records = new ArrayList<>();
+        this.strings = new OffHeapStringArena();
+        this.idIndex = new OffHeapHashIndex();
+        this.usernameIndex = new OffHeapHashIndex();
+        this.accountResolver = accountNumber -> null;
+        this.freeHead = NO_RECORD;
+    }
+
+    /**
+     * Đặt hàm nạp tài khoản theo số tài khoản, dùng khi dựng lại đối tượng User.
+     *
+     * @param accountResolver Hàm tra cứu tài khoản (ví dụ AccountRepository::findByAccountNumber)
+     */
+    public synchronized void setAccountResolver(Function<String, Account> accountResolver) {
+        this.accountResolver = accountResolver;
+    }
+
+    @Override
+    public synchronized User get(Object key) {
+        if (!(key instanceof String)) {
+            return null;
+        }
+        long record = findRecord(idIndex, USER_ID, (String) key);
+        return record == OffHeapHashIndex.MISSING ? null : materialize(record);
+    }
+
+    @Override
+    public synchronized boolean containsKey(Object key) {
+        return key instanceof String && findRecord(idIndex, USER_ID, (String) key) != OffHeapHashIndex.MISSING;
+    }
+
+    /**
+     * Tìm người dùng theo tên đăng nhập qua chỉ mục ngoài heap.
+     *
+     * @param username Tên đăng nhập
+     * @return Đối tượng User, hoặc null nếu không có
+     */
+    public synchronized User findByUsername(String username) {
+        if (username == null) {
+            return null;
+        }
+        long record = findRecord(usernameIndex, USERNAME, username);
+        return record == OffHeapHashIndex.MISSING ? null : materialize(record);
+    }
+
+    /**
+     * Kiểm tra tên đăng nhập đã được dùng hay chưa mà không dựng đối tượng User.
+     *
+     * @param username Tên đăng nhập
+     * @return true nếu đã tồn tại
+     */
+    public synchronized boolean containsUsername(String username) {
+        return username != null && findRecord(usernameIndex, USERNAME, username) != OffHeapHashIndex.MISSING;
+    }
+
+    @Override
+    public synchronized User put(String key, User user) {
+        if (key == null || user == null || !key.equals(user.getUserId())) {
+            throw new IllegalArgumentException("User must be stored under its own userId");
+        }
+        long record = findRecord(idIndex, USER_ID, key);
+        User previous = null;
+        if (record != OffHeapHashIndex.MISSING) {
+            previous = materialize(record);
+            String oldUsername = strings.read(longAt(record, USERNAME));
+            if (oldUsername != null) {
+                usernameIndex.remove(OffHeapHashIndex.hash(oldUsername), record);
+            }
+            releaseStrings(record, false);
+        } else {
+            record = allocateRecord();
+            setLong(record, USER_ID, strings.append(key));
+            idIndex.insert(OffHeapHashIndex.hash(key), record);
+            size++;
+        }
+        setLong(record, CREATED_AT, user.getCreatedAt());
+        setLong(record, USERNAME, strings.append(user.getUsername()));
+        setLong(record, PASSWORD_HASH, strings.append(user.getPasswordHash()));
+        setLong(record, FULL_NAME, strings.append(user.getFullName()));
+        setLong(record, EMAIL, strings.append(user.getEmail()));
+        setLong(record, ACCOUNTS, strings.append(joinAccountNumbers(user)));
+        setLong(record, STATE, LIVE);
+        if (user.getUsername() != null) {
+            usernameIndex.insert(OffHeapHashIndex.hash(user.getUsername()), record);
+        }
+        return previous;
+    }
+
+    @Override
+    public synchronized User remove(Object key) {
+        if (!(key instanceof String)) {
+            return null;
+        }
+        long record = findRecord(idIndex, USER_ID, (String) key);
+        if (record == OffHeapHashIndex.MISSING) {
+            return null;
+        }
+        User previous = materialize(record);
+        idIndex.remove(OffHeapHashIndex.hash((String) key), record);
+        String username = strings.read(longAt(record, USERNAME));
+        if (username != null) {
+            usernameIndex.remove(OffHeapHashIndex.hash(username), record);
+        }
+        releaseStrings(record, true);
+        setLong(record, STATE, freeHead);
+        freeHead = record;
+        size--;
+        return previous;
+    }
+
+    @Override
+    public synchronized int size() {
+        return size;
+    }
+
+    @Override
+    public synchronized void clear() {
+        records.clear();
+        strings.clear();
+        idIndex.clear();
+        usernameIndex.clear();
+        recordCount = 0;
+        freeHead = NO_RECORD;
+        size = 0;
+    }
+
+    /**
+     * Lấy tổng số byte ngoài heap đang được cấp cho bản ghi và chuỗi.
+     *
+     * @return Số byte
+     */
+    public synchronized long getOffHeapBytes() {
+        return (long) records.size() * RECORDS_PER_CHUNK * RECORD_BYTES + strings.getAllocatedBytes();
+    }
+
+    /**
+     * Lấy số byte chuỗi không còn được tham chiếu (do cập nhật hoặc xóa người dùng).
+     *
+     * @return Số byte bỏ đi
+     */
+    public synchronized long getWastedStringBytes() {
+        return strings.getWastedBytes();
+    }
+
+    @Override
+    public Set<Map.Entry<String, User>> entrySet() {
+        return new AbstractSet<Map.Entry<String, User>>() {
+            @Override
+            public Iterator<Map.Entry<String, User>> iterator() {
+                return new EntryIterator();
+            }
+
+            @Override
+            public int size() {
+                return OffHeapUserDirectory.this.size();
+            }
+        };
+    }
+
+    // ============= Record Access =============
+
+    private long findRecord(OffHeapHashIndex index, int field, String key) {
+        byte[] bytes = key.getBytes(StandardCharsets.UTF_8);
+        return index.find(OffHeapHashIndex.hash(key),
+                record -> strings.matches(longAt(record, field), bytes));
+    }
+
+    private User materialize(long record) {
+        User user = new User(strings.read(longAt(record, USER_ID)),
+                strings.read(longAt(record, USERNAME)),
+                strings.read(longAt(record, PASSWORD_HASH)),
+                strings.read(longAt(record, FULL_NAME)),
+                strings.read(longAt(record, EMAIL)),
+                longAt(record, CREATED_AT));
+        String accountNumbers = strings.read(longAt(record, ACCOUNTS));
+        if (accountNumbers != null && !accountNumbers.isEmpty()) {
+            int start = 0;
+            while (start <= accountNumbers.length()) {
+                int end = accountNumbers.indexOf(ACCOUNT_SEPARATOR, start);
+                if (end < 0) {
+                    end = accountNumbers.length();
+                }
+                Account account = accountResolver.apply(accountNumbers.substring(start, end));
+                if (account != null) {
+                    user.addAccount(account);
+                }
+                start = end + 1;
+            }
+        }
+        user.setAccountResolver(accountResolver);
+        return user;
+    }
+
+    private static String joinAccountNumbers(User user) {
+        StringBuilder sb = new StringBuilder();
+        for (String accountNumber : user.getAccountNumbers()) {
+            if (sb.length() > 0) {
+                sb.append(ACCOUNT_SEPARATOR);
+            }
+            sb.append(accountNumber);
+        }
+        return sb.toString();
+    }
+
+    private void releaseStrings(long record, boolean includeId) {
+        if (includeId) {
+            strings.release(longAt(record, USER_ID));
+        }
+        strings.release(longAt(record, USERNAME));
+        strings.release(longAt(record, PASSWORD_HASH));
+        strings.release(longAt(record, FULL_NAME));
+        strings.release(longAt(record, EMAIL));
+        strings.release(longAt(record, ACCOUNTS));
+    }
+
+    private long allocateRecord() {
+        if (freeHead != NO_RECORD) {
+            long record = freeHead;
+            freeHead = longAt(record, STATE);
+            return record;
+        }
+        if (recordCount == (long) records.size() * RECORDS_PER_CHUNK) {
+            records.add(ByteBuffer.allocateDirect(RECORDS_PER_CHUNK * RECORD_BYTES));
+        }
+        return recordCount++;
+    }
+
+    private long longAt(long record, int field) {
+        return chunk(record).getLong(offset(record) + field);
+    }
+
+    private void setLong(long record, int field, long value) {
+        chunk(record).putLong(offset(record) + field, value);
+    }
+
+    private ByteBuffer chunk(long record) {
+        return records.get((int) (record >>> RECORDS_PER_CHUNK_SHIFT));
+    }
+
+    private static int offset(long record) {
+        return (int) (record & (RECORDS_PER_CHUNK - 1)) * RECORD_BYTES;
+    }
+
+    /**
+     * Duyệt tuần tự các bản ghi; User chỉ được dựng khi gọi next().
+     */
+    private class EntryIterator implements Iterator<Map.Entry<String, User>> {
+        private long position = -1;
+        private long nextRecord = advance(-1);
+        private String lastKey;
+
+        private long advance(long from) {
+            synchronized (OffHeapUserDirectory.this) {
+                for (long record = from + 1; record < recordCount; record++) {
+                    if (longAt(record, STATE) == LIVE) {
+                        return record;
+                    }
+                }
+                return NO_RECORD;
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return nextRecord != NO_RECORD;
+        }
+
+        @Override
+        public Map.Entry<String, User> next() {
+            if (nextRecord == NO_RECORD) {
+                throw new NoSuchElementException();
+            }
+            position = nextRecord;
+            User user;
+            synchronized (OffHeapUserDirectory.this) {
+                user = longAt(position, STATE) == LIVE ? materialize(position) : null;
+            }
+            nextRecord = advance(position);
+            lastKey = user != null ? user.getUserId() : null;
+            return new SimpleImmutableEntry<>(lastKey, user);
+        }
+
+        @Override
+        public void remove() {
+            if (lastKey == null) {
+                throw new IllegalStateException();
+            }
+            OffHeapUserDirectory.this.remove(lastKey);
+            lastKey = null;
+        }
+    }
+}
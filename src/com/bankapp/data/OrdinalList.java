@@ -0,0 +1,62 @@
+package com.bankapp.data;
+
+import java.util.Arrays;
+
+/**
+ * OrdinalList - Danh sách số nguyên (vị trí giao dịch trong sổ cái) có thể mở rộng.
+ * Lưu trực tiếp trên mảng int để tránh chi phí boxing của List&lt;Integer&gt;.
+ */
+class OrdinalList {
+    private int[] values;
+    private int size;
+
+    OrdinalList() {
+        this.values = new int[8];
+        this.size = 0;
+    }
+
+    /**
+     * Thêm một vị trí vào cuối danh sách.
+     *
+     * @param ordinal Vị trí giao dịch
+     */
+    void add(int ordinal) {
+        if (size == values.length) {
+            values = Arrays.copyOf(values, size * 2);
+        }
+        values[size++] = ordinal;
+    }
+
+    /**
+     * Xóa mọi vị trí nhỏ hơn mốc cho trước. Danh sách phải đang tăng dần.
+     *
+     * @param ordinal Mốc vị trí
+     */
+    void removeBefore(int ordinal) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (values[mid] < ordinal) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        if (low == 0) {
+            return;
+        }
+        size -= low;
+        int[] remaining = new int[Math.max(8, size)];
+        System.arraycopy(values, low, remaining, 0, size);
+        values = remaining;
+    }
+
+    int get(int index) {
+        return values[index];
+    }
+
+    int size() {
+        return size;
+    }
+}
@@ -0,0 +1,102 @@
+package com.bankapp.data;
+
+/**
+ * PartitionedDataStore - Chia dữ liệu ngân hàng thành nhiều kho InMemoryDataStore độc lập.
+ * Mỗi phân vùng sở hữu repository riêng (người dùng, tài khoản, giao dịch) và không chia sẻ
+ * trạng thái với phân vùng khác, nên có thể được xử lý song song trên các luồng / lõi khác nhau.
+ * Tài khoản được gán vào phân vùng theo băm của số tài khoản, người dùng theo băm của tên đăng nhập
+ * (ShardedTransactionService cấp cho tài khoản của người dùng số thuộc cùng phân vùng với người dùng).
+ */
+public class PartitionedDataStore {
+    private final InMemoryDataStore[] partitions;
+
+    /**
+     * Constructor cho PartitionedDataStore.
+     *
+     * @param partitionCount Số phân vùng (ít nhất 1)
+     */
+    public PartitionedDataStore(int partitionCount) {
+        if (partitionCount < 1) {
+            throw new IllegalArgumentException("Partition count must be at least 1");
+        }
+        this.partitions = new InMemoryDataStore[partitionCount];
+        for (int i = 0; i < partitionCount; i++) {
+            partitions[i] = new InMemoryDataStore("shard-" + i);
+        }
+    }
+
+    /**
+     * Lấy số phân vùng.
+     *
+     * @return Số phân vùng
+     */
+    public int getPartitionCount() {
+        return partitions.length;
+    }
+
+    /**
+     * Lấy kho dữ liệu của một phân vùng.
+     *
+     * @param index Chỉ số phân vùng
+     * @return Kho dữ liệu của phân vùng
+     */
+    public InMemoryDataStore getPartition(int index) {
+        return partitions[index];
+    }
+
+    /**
+     * Xác định phân vùng sở hữu một khóa (số tài khoản hoặc tên đăng nhập).
+     *
+     * @param key Số tài khoản hoặc tên đăng nhập
+     * @return Chỉ số phân vùng
+     */
+    public int partitionOf(String key) {
+        return partitionOf(key, partitions.length);
+    }
+
+    /**
+     * Xác định phân vùng của một khóa khi dữ liệu được chia thành partitionCount phần.
+     * Dùng chung cho mọi cơ chế phân chia theo tài khoản (phân vùng kho, luồng sở hữu tài khoản, lock striping).
+     *
+     * @param key Số tài khoản hoặc tên đăng nhập
+     * @param partitionCount Số phần
+     * @return Chỉ số phần, từ 0 đến partitionCount - 1
+     */
+    public static int partitionOf(String key, int partitionCount) {
+        long encoded = NumericKeys.encode(key);
+        long h = encoded != NumericKeys.NOT_ENCODABLE ? encoded : (key == null ? 0 : key.hashCode());
+        // Murmur3 finalizer: sequential account numbers should not land on neighbouring partitions only
+        h ^= h >>> 33;
+        h *= 0xFF51AFD7ED558CCDL;
+        h ^= h >>> 33;
+        return (int) Math.floorMod(h, (long) partitionCount);
+    }
+
+    /**
+     * Lấy kho dữ liệu sở hữu một khóa (số tài khoản hoặc tên đăng nhập).
+     *
+     * @param key Số tài khoản hoặc tên đăng nhập
+     * @return Kho dữ liệu của phân vùng
+     */
+    public InMemoryDataStore partitionFor(String key) {
+        return partitions[partitionOf(key)];
+    }
+
+    /**
+     * Dừng các tác vụ nền của tất cả phân vùng.
+     */
+    public void shutdown() {
+        for (InMemoryDataStore partition : partitions) {
+            partition.shutdown();
+        }
+    }
+
+    /**
+     * Xóa toàn bộ dữ liệu của tất cả phân vùng.
+     */
+    public void clearAll() {
+        for (InMemoryDataStore partition : partitions) {
+            partition.clearAll();
+        }
+    }
+}
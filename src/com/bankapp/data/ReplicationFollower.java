@@ -0,0 +1,244 @@
+package com.bankapp.data;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.Socket;
+
+/**
+ * ReplicationFollower - Phía nút dự phòng (warm standby) của cơ chế sao chép nhật ký thay đổi.
+ * Kết nối tới ReplicationLeader, gửi số thứ tự cuối cùng đã áp dụng, rồi áp dụng lần lượt các bản ghi
+ * nhận được lên kho dữ liệu của chính nó trên một luồng duy nhất và gửi xác nhận (ack) mỗi khi
+ * đã áp dụng hết phần dữ liệu đang có trên kết nối (hoặc sau mỗi ACK_INTERVAL bản ghi khi tải liên tục). Mất kết nối thì tự kết nối lại và tiếp tục
+ * từ vị trí đã áp dụng.
+ * Khi nút chính không còn giữ các bản ghi cần thiết, nó gửi một bản chụp dữ liệu: nút dự phòng xóa kho của mình,
+ * nạp bản chụp (và ghi nó làm điểm kiểm tra của nhật ký nếu nhật ký được lưu ra file), rồi theo dõi tiếp;
+ * các bản ghi ngay sau bản chụp mà bản chụp đã phản ánh được bỏ qua (xem JournalSnapshot).
+ * Khi nút chính hỏng, promote() dừng việc theo dõi để nút này phục vụ thay.
+ */
+public class ReplicationFollower {
+    private static final long RECONNECT_DELAY_MILLIS = 1000;
+    private static final int ACK_INTERVAL = 256; // Entries applied between acks under continuous load
+    private final InMemoryDataStore dataStore;
+    private final String host;
+    private final int port;
+    private final Thread thread;
+    private volatile Socket socket;
+    private volatile boolean running;
+    private volatile boolean connected;
+    private volatile long appliedSequence;
+    private volatile long leaderSequence;
+    private volatile long lastAppliedAt; // Leader time of the last applied entry
+    private volatile String failure;
+    private volatile long resyncs;
+    private JournalSnapshot snapshot; // Last resync snapshot while entries it covers may still arrive
+
+    /**
+     * Constructor cho ReplicationFollower.
+     *
+     * @param dataStore Kho dữ liệu của nút dự phòng
+     * @param host Địa chỉ nút chính
+     * @param port Cổng sao chép của nút chính
+     */
+    public ReplicationFollower(InMemoryDataStore dataStore, String host, int port) {
+        this.dataStore = dataStore;
+        this.host = host;
+        this.port = port;
+        this.thread = new Thread(this::follow, "bankapp-replication-follower");
+        thread.setDaemon(true);
+    }
+
+    /**
+     * Bắt đầu theo dõi nút chính.
+     */
+    public void start() {
+        // Resume after the entries this store already recovered from its own journal file
+        appliedSequence = dataStore.getMutationJournal().getLastSequence();
+        running = true;
+        thread.start();
+    }
+
+    /**
+     * Nâng nút dự phòng lên làm nút chính: dừng nhận bản ghi, và nhật ký thay đổi của kho này
+     * tiếp tục đánh số sau bản ghi cuối cùng đã áp dụng.
+     *
+     * @return Số thứ tự của bản ghi cuối cùng đã áp dụng
+     */
+    public long promote() {
+        running = false;
+        Socket current = socket;
+        if (current != null) {
+            try {
+                current.close();
+            } catch (IOException e) {
+                // Already closed
+            }
+        }
+        thread.interrupt();
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        dataStore.getMutationJournal().continueFrom(appliedSequence);
+        return appliedSequence;
+    }
+
+    private void follow() {
+        while (running) {
+            try (Socket connection = new Socket(host, port)) {
+                socket = connection;
+                connection.setTcpNoDelay(true);
+                DataInputStream in = new DataInputStream(new BufferedInputStream(connection.getInputStream(), 64 * 1024));
+                DataOutputStream out = new DataOutputStream(new BufferedOutputStream(connection.getOutputStream()));
+                out.writeLong(appliedSequence);
+                out.flush();
+                connected = true;
+                long acknowledged = appliedSequence;
+                while (running) {
+                    long sequence = in.readLong();
+                    if (sequence == ReplicationLeader.SNAPSHOT) {
+                        resynchronise(in);
+                        out.writeLong(appliedSequence);
+                        out.flush();
+                        acknowledged = appliedSequence;
+                        continue;
+                    }
+                    if (sequence == ReplicationLeader.RESYNC_REQUIRED) {
+                        failure = "Leader no longer retains entries after " + appliedSequence
+                                + "; the standby must be rebuilt from a fresh copy";
+                        running = false;
+                        break;
+                    }
+                    long appendedAt = in.readLong();
+                    leaderSequence = in.readLong();
+                    byte[] payload = new byte[in.readInt()];
+                    in.readFully(payload);
+                    if (sequence <= appliedSequence) {
+                        continue; // Already applied before a reconnect
+                    }
+                    JournalEntry entry = new JournalEntry(sequence, appendedAt, payload);
+                    entry.decode();
+                    if (snapshot == null || !snapshot.covers(entry)) {
+                        entry.applyDecoded(dataStore);
+                    }
+                    if (snapshot != null && sequence >= snapshot.getLastCut()) {
+                        snapshot = null;
+                    }
+                    dataStore.getMutationJournal().appendReplicated(entry);
+                    lastAppliedAt = appendedAt;
+                    appliedSequence = sequence;
+                    if (in.available() == 0 || sequence - acknowledged >= ACK_INTERVAL) {
+                        // Acknowledge once per burst instead of once per entry, and only what is on disk
+                        dataStore.getMutationJournal().sync();
+                        out.writeLong(sequence);
+                        out.flush();
+                        acknowledged = sequence;
+                    }
+                }
+            } catch (IOException e) {
+                if (running) {
+                    failure = e.getMessage();
+                }
+            } finally {
+                connected = false;
+            }
+            if (running) {
+                try {
+                    Thread.sleep(RECONNECT_DELAY_MILLIS);
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Thay toàn bộ dữ liệu của kho bằng bản chụp đang đến trên kết nối.
+     */
+    private void resynchronise(DataInputStream in) throws IOException {
+        MutationJournal journal = dataStore.getMutationJournal();
+        appliedSequence = 0; // If the connection drops midway, the next attempt starts from nothing
+        dataStore.clearAll();
+        snapshot = JournalSnapshot.read(in, dataStore, journal.openCheckpoint());
+        journal.installCheckpoint(snapshot.sequence);
+        appliedSequence = snapshot.sequence;
+        resyncs++;
+    }
+
+    // ============= Replication Status =============
+
+    /**
+     * Kiểm tra nút dự phòng còn đang theo dõi nút chính (chưa được nâng cấp hoặc dừng vì lỗi).
+     *
+     * @return true nếu đang theo dõi
+     */
+    public boolean isFollowing() {
+        return running;
+    }
+
+    /**
+     * Kiểm tra đang có kết nối tới nút chính.
+     *
+     * @return true nếu đang kết nối
+     */
+    public boolean isConnected() {
+        return connected;
+    }
+
+    /**
+     * Lấy số thứ tự của bản ghi cuối cùng đã áp dụng.
+     *
+     * @return Số thứ tự đã áp dụng
+     */
+    public long getAppliedSequence() {
+        return appliedSequence;
+    }
+
+    /**
+     * Lấy số lần kho đã được đồng bộ lại từ bản chụp của nút chính.
+     *
+     * @return Số lần đồng bộ lại
+     */
+    public long getResyncCount() {
+        return resyncs;
+    }
+
+    /**
+     * Lấy số thứ tự mới nhất của nút chính (theo bản ghi nhận được gần nhất).
+     *
+     * @return Số thứ tự mới nhất đã biết của nút chính
+     */
+    public long getLeaderSequence() {
+        return leaderSequence;
+    }
+
+    /**
+     * Lấy độ trễ sao chép tính theo số bản ghi nút dự phòng chưa áp dụng.
+     *
+     * @return Số bản ghi còn thiếu
+     */
+    public long getLagEntries() {
+        return Math.max(0, leaderSequence - appliedSequence);
+    }
+
+    /**
+     * Lấy độ trễ sao chép tính theo thời gian: tuổi của bản ghi cuối cùng đã áp dụng khi còn thiếu bản ghi.
+     *
+     * @return Độ trễ (mili giây), 0 nếu đã theo kịp
+     */
+    public long getLagMillis() {
+        return getLagEntries() > 0 ? Math.max(0, System.currentTimeMillis() - lastAppliedAt) : 0;
+    }
+
+    /**
+     * Lấy lỗi gần nhất khiến kết nối bị gián đoạn.
+     *
+     * @return Thông báo lỗi, hoặc null nếu chưa có lỗi
+     */
+    public String getLastFailure() {
+        return failure;
+    }
+}
@@ -0,0 +1,201 @@
+package com.bankapp.data;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.List;
+
+/**
+ * ReplicationLeader - Phía nút chính của cơ chế sao chép nhật ký thay đổi sang nút dự phòng.
+ * Lắng nghe trên một cổng TCP cục bộ; khi nút dự phòng kết nối, nó gửi số thứ tự cuối cùng đã áp dụng
+ * và nút chính truyền liên tục các bản ghi của MutationJournal từ sau vị trí đó. Nút dự phòng gửi lại
+ * xác nhận (ack) trên cùng kết nối; một luồng riêng đọc xác nhận để việc gửi không bị chặn.
+ * Mỗi lần chỉ phục vụ một nút dự phòng; kết nối mới thay thế kết nối cũ.
+ * Khung dữ liệu: [long số thứ tự][long thời điểm ghi][long số thứ tự mới nhất][int độ dài][nội dung].
+ * Khi nút chính không còn giữ các bản ghi nút dự phòng cần (nút dự phòng mới, hoặc tụt quá maxBacklog),
+ * nút chính gửi số thứ tự -2 kèm một bản chụp dữ liệu (JournalSnapshot) rồi truyền tiếp từ vị trí của
+ * bản chụp. Nút chính tạo không có kho dữ liệu không chụp được, nên gửi số thứ tự -1 và nút dự phòng dừng.
+ */
+public class ReplicationLeader {
+    static final long RESYNC_REQUIRED = -1;
+    static final long SNAPSHOT = -2;
+    private static final int BATCH_SIZE = 256;
+    private static final long POLL_MILLIS = 200;
+    private final MutationJournal journal;
+    private final InMemoryDataStore dataStore; // Source of resync snapshots, or null
+    private final ServerSocket serverSocket;
+    private final Thread acceptThread;
+    private volatile Socket follower;
+    private volatile boolean running;
+    private volatile long snapshotsSent;
+
+    /**
+     * Constructor cho ReplicationLeader - mở cổng và bắt đầu chờ nút dự phòng kết nối.
+     *
+     * @param journal Nhật ký thay đổi cần sao chép
+     * @param port Cổng TCP (0 để hệ thống chọn cổng trống)
+     */
+    public ReplicationLeader(MutationJournal journal, int port) {
+        this(journal, null, port);
+    }
+
+    /**
+     * Constructor cho ReplicationLeader của một kho dữ liệu - nút dự phòng tụt quá xa được
+     * đồng bộ lại từ bản chụp của kho.
+     *
+     * @param dataStore Kho dữ liệu cần sao chép
+     * @param port Cổng TCP (0 để hệ thống chọn cổng trống)
+     */
+    public ReplicationLeader(InMemoryDataStore dataStore, int port) {
+        this(dataStore.getMutationJournal(), dataStore, port);
+    }
+
+    private ReplicationLeader(MutationJournal journal, InMemoryDataStore dataStore, int port) {
+        this.journal = journal;
+        this.dataStore = dataStore;
+        try {
+            this.serverSocket = new ServerSocket(port);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot listen for replication on port " + port, e);
+        }
+        this.running = true;
+        this.acceptThread = new Thread(this::acceptFollowers, "bankapp-replication-leader");
+        acceptThread.setDaemon(true);
+        acceptThread.start();
+    }
+
+    /**
+     * Lấy cổng đang lắng nghe.
+     *
+     * @return Số cổng
+     */
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    /**
+     * Lấy nhật ký thay đổi đang được sao chép.
+     *
+     * @return Đối tượng MutationJournal
+     */
+    public MutationJournal getJournal() {
+        return journal;
+    }
+
+    /**
+     * Lấy số bản chụp đã gửi để đồng bộ lại nút dự phòng.
+     *
+     * @return Số lần đồng bộ lại
+     */
+    public long getSnapshotsSent() {
+        return snapshotsSent;
+    }
+
+    /**
+     * Dừng sao chép và đóng kết nối.
+     */
+    public void shutdown() {
+        running = false;
+        closeQuietly(serverSocket);
+        Socket current = follower;
+        if (current != null) {
+            closeQuietly(current);
+        }
+        journal.setFollowerAttached(false);
+    }
+
+    private void acceptFollowers() {
+        while (running) {
+            Socket socket;
+            try {
+                socket = serverSocket.accept();
+            } catch (IOException e) {
+                return; // Server socket closed by shutdown
+            }
+            Socket previous = follower;
+            if (previous != null) {
+                closeQuietly(previous);
+            }
+            follower = socket;
+            Thread sender = new Thread(() -> serve(socket), "bankapp-replication-sender");
+            sender.setDaemon(true);
+            sender.start();
+        }
+    }
+
+    private void serve(Socket socket) {
+        try {
+            socket.setTcpNoDelay(true);
+            DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream(), 64 * 1024));
+            long sent = in.readLong();
+            journal.acknowledge(sent);
+            journal.setFollowerAttached(true);
+            Thread ackReader = new Thread(() -> readAcknowledgements(socket, in), "bankapp-replication-acks");
+            ackReader.setDaemon(true);
+            ackReader.start();
+            while (running && follower == socket) {
+                List<JournalEntry> batch = journal.readAfter(sent, BATCH_SIZE, POLL_MILLIS);
+                if (batch == null && dataStore == null) {
+                    out.writeLong(RESYNC_REQUIRED);
+                    out.flush();
+                    break;
+                }
+                if (batch == null) {
+                    // The entries the standby needs are gone; send the current state and stream on from there
+                    out.writeLong(SNAPSHOT);
+                    sent = JournalSnapshot.write(dataStore, out);
+                    out.flush();
+                    snapshotsSent++;
+                    continue;
+                }
+                if (batch.isEmpty()) {
+                    continue;
+                }
+                long leaderSequence = journal.getLastSequence();
+                for (JournalEntry entry : batch) {
+                    out.writeLong(entry.sequence);
+                    out.writeLong(entry.appendedAt);
+                    out.writeLong(leaderSequence);
+                    out.writeInt(entry.payload.length);
+                    out.write(entry.payload);
+                }
+                out.flush();
+                sent = batch.get(batch.size() - 1).sequence;
+            }
+        } catch (IOException e) {
+            // The standby went away; it resumes from its own position when it reconnects
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            closeQuietly(socket);
+            if (follower == socket) {
+                journal.setFollowerAttached(false);
+            }
+        }
+    }
+
+    private void readAcknowledgements(Socket socket, DataInputStream in) {
+        try {
+            while (true) {
+                journal.acknowledge(in.readLong());
+            }
+        } catch (IOException e) {
+            closeQuietly(socket);
+        }
+    }
+
+    private static void closeQuietly(Closeable closeable) {
+        try {
+            closeable.close();
+        } catch (IOException e) {
+            // Nothing left to release
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package com.bankapp.data;
+
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.temporal.ChronoUnit;
+
+/**
+ * RetentionPolicy - Chính sách lưu giữ chi tiết giao dịch trong sổ cái.
+ * Giao dịch cũ hơn mốc lưu giữ được nén thành bản ghi tổng hợp theo kỳ (ngày, tháng hoặc năm);
+ * nếu có thư mục xuất, chi tiết được ghi ra file segment trước khi bị nén.
+ */
+public class RetentionPolicy {
+    private final long retentionMillis;
+    private final ChronoUnit periodUnit;
+    private final ZoneId zone;
+    private final Path exportDirectory;
+
+    /**
+     * Constructor cho RetentionPolicy.
+     *
+     * @param retentionMillis Giao dịch cũ hơn khoảng thời gian này sẽ được nén
+     * @param periodUnit      Độ dài kỳ tổng hợp: DAYS, MONTHS hoặc YEARS
+     * @param exportDirectory Thư mục xuất chi tiết trước khi nén, null nếu không xuất
+     */
+    public RetentionPolicy(long retentionMillis, ChronoUnit periodUnit, Path exportDirectory) {
+        if (periodUnit != ChronoUnit.DAYS && periodUnit != ChronoUnit.MONTHS && periodUnit != ChronoUnit.YEARS) {
+            throw new IllegalArgumentException("Unsupported summary period: " + periodUnit);
+        }
+        this.retentionMillis = retentionMillis;
+        this.periodUnit = periodUnit;
+        this.zone = ZoneId.systemDefault();
+        this.exportDirectory = exportDirectory;
+    }
+
+    public long getRetentionMillis() {
+        return retentionMillis;
+    }
+
+    public ChronoUnit getPeriodUnit() {
+        return periodUnit;
+    }
+
+    public Path getExportDirectory() {
+        return exportDirectory;
+    }
+
+    /**
+     * Xác định ngày bắt đầu của kỳ tổng hợp chứa một thời điểm.
+     *
+     * @param timestamp Thời điểm (epoch millis)
+     * @return Ngày đầu kỳ
+     */
+    public LocalDate periodStart(long timestamp) {
+        LocalDate day = Instant.ofEpochMilli(timestamp).atZone(zone).toLocalDate();
+        switch (periodUnit) {
+            case YEARS:
+                return day.withDayOfYear(1);
+            case MONTHS:
+                return day.withDayOfMonth(1);
+            default:
+                return day;
+        }
+    }
+}
@@ -0,0 +1,384 @@
+package com.bankapp.data;
+
+import com.bankapp.model.Account;
+import com.bankapp.model.BalanceCheckpoint;
+import com.bankapp.model.Transaction;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * TieredTransactionStore - Lưu trữ lịch sử giao dịch theo hai tầng.
+ * - Tầng nóng: N giao dịch gần nhất, hoặc các giao dịch trong D ngày gần nhất,
+ *   của mỗi tài khoản nằm trong bộ nhớ (Account.transactions).
+ * - Tầng lạnh: các giao dịch cũ hơn được ghi thành các file segment bất biến trên đĩa,
+ *   mỗi tài khoản một thư mục, tên file là vị trí giao dịch đầu tiên của segment.
+ *   Segment được nén theo định dạng của TransactionSegmentCodec.
+ * Các segment đọc lại từ đĩa được giữ trong một bộ đệm LRU có giới hạn; việc đọc file diễn ra
+ * ngoài khóa của kho, khóa chỉ bảo vệ danh mục segment và bộ đệm.
+ * Sau khi ghi một segment, kho báo cho sổ cái (TransactionRepository) để sổ cái bỏ tham chiếu tới
+ * các giao dịch đó; sổ cái đọc lại chúng qua readTransaction khi cần.
+ * Nếu không cấu hình thư mục lưu trữ, mọi giao dịch đều ở lại trong bộ nhớ như trước.
+ */
+public class TieredTransactionStore {
+    private static final int MIN_SEGMENT_SIZE = 128; // Avoid writing many tiny segments
+    private final Path directory;
+    private final int hotTransactionLimit;
+    private final long hotRetentionMillis;
+    private final int cacheCapacity;
+    private final Map<String, List<Segment>> segments; // accountNumber -> segments in history order
+    private final LinkedHashMap<Path, List<Transaction>> segmentCache;
+    private long cacheHits;
+    private long cacheMisses;
+    private volatile TransactionRepository ledger; // Released from its rows once they are on disk
+
+    /**
+     * Constructor cho TieredTransactionStore.
+     *
+     * @param directory           Thư mục chứa segment, null để tắt tầng lạnh
+     * @param hotTransactionLimit Số giao dịch gần nhất luôn giữ trong bộ nhớ
+     * @param hotRetentionMillis  Giao dịch mới hơn khoảng thời gian này luôn giữ trong bộ nhớ
+     * @param cacheCapacity       Số segment tối đa giữ trong bộ đệm khi đọc lại
+     */
+    public TieredTransactionStore(Path directory, int hotTransactionLimit, long hotRetentionMillis,
+                                  int cacheCapacity) {
+        this.directory = directory;
+        this.hotTransactionLimit = hotTransactionLimit;
+        this.hotRetentionMillis = hotRetentionMillis;
+        this.cacheCapacity = Math.max(1, cacheCapacity);
+        this.segments = new HashMap<>();
+        this.segmentCache = new LinkedHashMap<>(16, 0.75f, true);
+    }
+
+    /**
+     * Kiểm tra tầng lạnh có được bật hay không.
+     *
+     * @return true nếu đã cấu hình thư mục lưu trữ
+     */
+    public boolean isEnabled() {
+        return directory != null;
+    }
+
+    void setLedger(TransactionRepository ledger) {
+        this.ledger = ledger;
+    }
+
+    /**
+     * Chuyển các giao dịch cũ của tài khoản ra một segment trên đĩa nếu đã đủ nhiều.
+     * Segment được ghi xong rồi mới giải phóng giao dịch khỏi bộ nhớ, nên khi ghi
+     * thất bại lịch sử vẫn còn nguyên trong bộ nhớ.
+     * Chỉ luồng đang ghi sổ cho tài khoản được gọi phương thức này; file được ghi ngoài khóa của kho.
+     *
+     * @param account Tài khoản vừa phát sinh giao dịch
+     * @return true nếu đã ghi một segment mới, false nếu không
+     */
+    public boolean spillIfNeeded(Account account) {
+        return spill(account, System.currentTimeMillis() - hotRetentionMillis);
+    }
+
+    /**
+     * Chuyển ra đĩa mọi giao dịch nằm ngoài N giao dịch gần nhất của tài khoản, bất kể tuổi của chúng.
+     * Dùng khi nhập hàng loạt, nơi các giao dịch vừa ghi đều mới nhưng không được phép tích lũy trên heap.
+     *
+     * @param account Tài khoản vừa phát sinh giao dịch
+     * @return true nếu đã ghi một segment mới, false nếu không
+     */
+    public boolean spillBeyondHotLimit(Account account) {
+        return spill(account, Long.MAX_VALUE);
+    }
+
+    private boolean spill(Account account, long cutoff) {
+        if (directory == null) {
+            return false;
+        }
+        int firstIndex;
+        int spilled;
+        // The compactor may release rows of this account concurrently; hold the account still
+        synchronized (account) {
+            int count = account.countTransactionsToArchive(hotTransactionLimit, cutoff);
+            if (count < MIN_SEGMENT_SIZE) {
+                return false;
+            }
+
+            List<Transaction> cold = account.getOldestInMemoryTransactions(count);
+            firstIndex = account.getArchivedTransactionCount();
+            Path file = directory.resolve(account.getAccountNumber()).resolve(String.format("%010d.seg", firstIndex));
+            try {
+                writeSegment(file, cold);
+            } catch (IOException e) {
+                return false;
+            }
+
+            synchronized (this) {
+                segments.computeIfAbsent(account.getAccountNumber(), k -> new ArrayList<>())
+                        .add(new Segment(file, firstIndex, cold.size(), cold.get(0).getTimestamp()));
+            }
+            account.markArchived(cold.size());
+            spilled = cold.size();
+        }
+        TransactionRepository current = ledger;
+        if (current != null) {
+            current.releaseArchived(account.getAccountNumber(), firstIndex + spilled);
+        }
+        return true;
+    }
+
+    /**
+     * Đọc một giao dịch đã lưu trữ theo vị trí của nó trong lịch sử tài khoản.
+     *
+     * @param accountNumber Số tài khoản
+     * @param historyIndex  Vị trí của giao dịch trong lịch sử tài khoản (tính từ 0)
+     * @return Giao dịch, hoặc null nếu vị trí không thuộc segment nào
+     */
+    public Transaction readTransaction(String accountNumber, int historyIndex) {
+        Segment target = null;
+        synchronized (this) {
+            List<Segment> accountSegments = segments.getOrDefault(accountNumber, new ArrayList<>());
+            int low = 0;
+            int high = accountSegments.size() - 1;
+            while (low <= high) {
+                int mid = (low + high) >>> 1;
+                if (accountSegments.get(mid).firstIndex <= historyIndex) {
+                    target = accountSegments.get(mid);
+                    low = mid + 1;
+                } else {
+                    high = mid - 1;
+                }
+            }
+        }
+        if (target == null || historyIndex >= target.firstIndex + target.count) {
+            return null;
+        }
+        return readSegment(target).get(historyIndex - target.firstIndex);
+    }
+
+    /**
+     * Lấy toàn bộ lịch sử giao dịch của tài khoản dưới dạng stream theo thứ tự thời gian.
+     * Mỗi segment chỉ được đọc từ đĩa khi stream duyệt tới nó.
+     *
+     * @param account Tài khoản cần lấy lịch sử
+     * @return Stream các giao dịch từ cũ đến mới
+     */
+    public Stream<Transaction> streamHistory(Account account) {
+        List<Segment> accountSegments;
+        List<Transaction> hot;
+        // Account before store, the same order as spill(), so a reader never deadlocks with a spill
+        synchronized (account) {
+            synchronized (this) {
+                accountSegments = new ArrayList<>(segments.getOrDefault(account.getAccountNumber(), new ArrayList<>()));
+                hot = account.getTransactions();
+            }
+        }
+        return Stream.concat(accountSegments.stream().flatMap(segment -> readSegment(segment).stream()),
+                hot.stream());
+    }
+
+    /**
+     * Lấy n giao dịch gần nhất của tài khoản, đọc thêm từ đĩa nếu phần trong bộ nhớ không đủ.
+     *
+     * @param account Tài khoản cần lấy giao dịch
+     * @param count   Số giao dịch gần nhất cần lấy
+     * @return Danh sách giao dịch từ cũ đến mới
+     */
+    public List<Transaction> getRecentTransactions(Account account, int count) {
+        List<Segment> accountSegments;
+        List<Transaction> hot;
+        int archived;
+        synchronized (account) {
+            synchronized (this) {
+                accountSegments = new ArrayList<>(segments.getOrDefault(account.getAccountNumber(), new ArrayList<>()));
+                hot = account.getTransactions();
+                archived = account.getArchivedTransactionCount();
+            }
+        }
+        int fromIndex = Math.max(0, archived + hot.size() - count);
+
+        List<Transaction> result = new ArrayList<>();
+        for (Segment segment : accountSegments) {
+            if (segment.firstIndex + segment.count <= fromIndex) {
+                continue;
+            }
+            List<Transaction> cold = readSegment(segment);
+            int start = Math.max(0, fromIndex - segment.firstIndex);
+            result.addAll(cold.subList(start, cold.size()));
+        }
+        int hotStart = Math.max(0, fromIndex - archived);
+        result.addAll(hot.subList(Math.min(hotStart, hot.size()), hot.size()));
+        return result;
+    }
+
+    /**
+     * Tra cứu số dư của tài khoản tại một thời điểm thuộc phần lịch sử đã lưu trữ.
+     * Tìm nhị phân segment chứa thời điểm đó rồi tìm nhị phân trong segment.
+     * Phần lịch sử đã bị nén (không còn chi tiết ở đâu) được trả lời bằng mốc số dư gần nhất
+     * của tài khoản, nên chỉ chính xác tới khoảng cách giữa hai mốc.
+     *
+     * @param account   Tài khoản cần tra cứu
+     * @param timestamp Thời điểm cần tra cứu (epoch millis)
+     * @return Số dư tại thời điểm đó
+     */
+    public double getBalanceAt(Account account, long timestamp) {
+        if (timestamp < account.getCreatedAt()) {
+            return 0.0;
+        }
+        Segment target = null;
+        synchronized (this) {
+            List<Segment> accountSegments = segments.getOrDefault(account.getAccountNumber(), new ArrayList<>());
+            int low = 0;
+            int high = accountSegments.size() - 1;
+            while (low <= high) {
+                int mid = (low + high) >>> 1;
+                if (accountSegments.get(mid).firstTimestamp <= timestamp) {
+                    target = accountSegments.get(mid);
+                    low = mid + 1;
+                } else {
+                    high = mid - 1;
+                }
+            }
+        }
+        BalanceCheckpoint checkpoint = lastCheckpointAt(account, timestamp);
+        if (target == null) {
+            return checkpoint != null ? checkpoint.getBalance() : account.getOpeningBalance();
+        }
+
+        // Decode only the block that covers the timestamp unless the segment is cached
+        List<Transaction> cold = cachedSegment(target);
+        if (cold == null) {
+            try {
+                cold = TransactionSegmentCodec.decodeBlockAt(Files.readAllBytes(target.file), timestamp);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Cannot read transaction segment " + target.file, e);
+            }
+        }
+        int low = 0;
+        int high = cold.size();
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (cold.get(mid).getTimestamp() <= timestamp) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        Transaction found = cold.get(Math.max(0, low - 1));
+        if (checkpoint != null && checkpoint.getTimestamp() > found.getTimestamp()) {
+            // The rows after this segment were compacted before they could be spilled
+            return checkpoint.getBalance();
+        }
+        return found.getBalanceAfter();
+    }
+
+    private static BalanceCheckpoint lastCheckpointAt(Account account, long timestamp) {
+        List<BalanceCheckpoint> checkpoints = account.getBalanceCheckpoints();
+        BalanceCheckpoint last = null;
+        int low = 0;
+        int high = checkpoints.size() - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (checkpoints.get(mid).getTimestamp() <= timestamp) {
+                last = checkpoints.get(mid);
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return last;
+    }
+
+    public synchronized long getCacheHitCount() {
+        return cacheHits;
+    }
+
+    public synchronized long getCacheMissCount() {
+        return cacheMisses;
+    }
+
+    /**
+     * Xóa toàn bộ segment đã lưu trữ và bộ đệm.
+     */
+    public synchronized void clear() {
+        for (List<Segment> accountSegments : segments.values()) {
+            for (Segment segment : accountSegments) {
+                try {
+                    Files.deleteIfExists(segment.file);
+                } catch (IOException e) {
+                    // Leftover segment files are harmless; they are never read again
+                }
+            }
+        }
+        segments.clear();
+        segmentCache.clear();
+    }
+
+    // ============= Segment I/O =============
+
+    private synchronized List<Transaction> cachedSegment(Segment segment) {
+        List<Transaction> cached = segmentCache.get(segment.file);
+        if (cached != null) {
+            cacheHits++;
+        }
+        return cached;
+    }
+
+    private List<Transaction> readSegment(Segment segment) {
+        List<Transaction> cached = cachedSegment(segment);
+        if (cached != null) {
+            return cached;
+        }
+        // Two readers may load the same segment concurrently; both results are identical
+        List<Transaction> loaded;
+        try {
+            loaded = loadSegment(segment.file);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot read transaction segment " + segment.file, e);
+        }
+        synchronized (this) {
+            cacheMisses++;
+            segmentCache.put(segment.file, loaded);
+            if (segmentCache.size() > cacheCapacity) {
+                Path eldest = segmentCache.keySet().iterator().next();
+                segmentCache.remove(eldest);
+            }
+        }
+        return loaded;
+    }
+
+    /**
+     * Ghi segment ra file tạm rồi đổi tên, để segment trên đĩa luôn đầy đủ và bất biến.
+     */
+    private static void writeSegment(Path file, List<Transaction> transactions) throws IOException {
+        Files.createDirectories(file.getParent());
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        Files.write(temp, TransactionSegmentCodec.encode(transactions));
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static List<Transaction> loadSegment(Path file) throws IOException {
+        return TransactionSegmentCodec.decode(Files.readAllBytes(file));
+    }
+
+    /**
+     * Segment - Thông tin một file segment của một tài khoản.
+     */
+    private static class Segment {
+        private final Path file;
+        private final int firstIndex;
+        private final int count;
+        private final long firstTimestamp;
+
+        Segment(Path file, int firstIndex, int count, long firstTimestamp) {
+            this.file = file;
+            this.firstIndex = firstIndex;
+            this.count = count;
+            this.firstTimestamp = firstTimestamp;
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package com.bankapp.data;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * TransactionIdIndex - Chỉ mục mã giao dịch -> vị trí (ordinal) trong sổ cái.
+ * Mã do ứng dụng sinh có dạng 3 chữ in hoa, dấu '-' và một số (ví dụ "DEP-81234567890123"), nên phần số
+ * được lưu trong một LongIntHashMap riêng cho mỗi tiền tố: mỗi giao dịch chỉ tốn một ô long và một ô int
+ * thay vì một entry HashMap cùng chuỗi mã. Mã có dạng khác (ví dụ các bước chuyển khoản "...-D")
+ * được lưu trong một HashMap thông thường.
+ * Lớp này không tự đồng bộ - TransactionRepository chịu trách nhiệm khóa khi gọi.
+ */
+class TransactionIdIndex {
+    static final int MISSING = LongIntHashMap.MISSING;
+    private static final int PREFIX_LENGTH = 4;   // "DEP-"
+    private static final int MAX_DIGITS = 18;     // Always fits in a non-negative long
+
+    private final Map<String, LongIntHashMap> numericIds; // prefix -> numeric part -> ordinal
+    private final Map<String, Integer> otherIds;
+
+    TransactionIdIndex() {
+        this.numericIds = new HashMap<>();
+        this.otherIds = new HashMap<>();
+    }
+
+    int get(String transactionId) {
+        long number = numericPart(transactionId);
+        if (number < 0) {
+            Integer ordinal = otherIds.get(transactionId);
+            return ordinal != null ? ordinal : MISSING;
+        }
+        LongIntHashMap ids = numericIds.get(transactionId.substring(0, PREFIX_LENGTH));
+        return ids != null ? ids.get(number) : MISSING;
+    }
+
+    void put(String transactionId, int ordinal) {
+        long number = numericPart(transactionId);
+        if (number < 0) {
+            otherIds.put(transactionId, ordinal);
+        } else {
+            numericIds.computeIfAbsent(transactionId.substring(0, PREFIX_LENGTH), k -> new LongIntHashMap())
+                    .put(number, ordinal);
+        }
+    }
+
+    void remove(String transactionId) {
+        long number = numericPart(transactionId);
+        if (number < 0) {
+            otherIds.remove(transactionId);
+            return;
+        }
+        LongIntHashMap ids = numericIds.get(transactionId.substring(0, PREFIX_LENGTH));
+        if (ids != null) {
+            ids.remove(number);
+        }
+    }
+
+    void clear() {
+        numericIds.clear();
+        otherIds.clear();
+    }
+
+    /**
+     * Lấy phần số của một mã dạng "ABC-123".
+     *
+     * @return Phần số, hoặc -1 nếu mã không có dạng này (kể cả khi có số 0 ở đầu)
+     */
+    private static long numericPart(String transactionId) {
+        int length = transactionId.length();
+        if (length <= PREFIX_LENGTH || length > PREFIX_LENGTH + MAX_DIGITS
+                || transactionId.charAt(PREFIX_LENGTH - 1) != '-') {
+            return -1;
+        }
+        for (int i = 0; i < PREFIX_LENGTH - 1; i++) {
+            char c = transactionId.charAt(i);
+            if (c < 'A' || c > 'Z') {
+                return -1;
+            }
+        }
+        if (transactionId.charAt(PREFIX_LENGTH) == '0' && length > PREFIX_LENGTH + 1) {
+            return -1; // "DEP-007" must not collide with "DEP-7"
+        }
+        long number = 0;
+        for (int i = PREFIX_LENGTH; i < length; i++) {
+            char c = transactionId.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            number = number * 10 + (c - '0');
+        }
+        return number;
+    }
+}
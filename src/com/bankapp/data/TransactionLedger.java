@@ -0,0 +1,162 @@
+package com.bankapp.data;
+
+import com.bankapp.model.Transaction;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * TransactionLedger - Danh sách các vị trí (ordinal) của sổ cái giao dịch, chia thành các khối cố định.
+ * Mỗi vị trí giữ giao dịch, số tài khoản sở hữu và vị trí của giao dịch trong lịch sử tài khoản đó.
+ * Khi giao dịch đã được chuyển ra tầng lạnh (TieredTransactionStore), vị trí chỉ còn giữ số tài khoản
+ * và vị trí trong lịch sử; get() đọc lại giao dịch từ segment khi cần, nên sổ cái không giữ đối tượng
+ * Transaction của phần lịch sử đã lưu trữ trên heap.
+ * Vị trí đã bị nén (xem TransactionRepository.compact) không còn gì và get() trả về null;
+ * các khối nằm trọn trong phần đã nén được bỏ hẳn (releaseBefore), nên bộ nhớ của sổ cái
+ * chỉ tỉ lệ với phần chưa nén.
+ * Lớp này không tự đồng bộ - TransactionRepository chịu trách nhiệm khóa khi gọi.
+ */
+class TransactionLedger extends AbstractList<Transaction> implements RandomAccess {
+    private static final int CHUNK_BITS = 12;
+    private static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+
+    /**
+     * Đọc một giao dịch đã lưu trữ theo tài khoản và vị trí trong lịch sử tài khoản.
+     */
+    interface ColdReader {
+        Transaction read(String accountNumber, int historyIndex);
+    }
+
+    private final List<Chunk> chunks; // chunks.get(0) holds ordinals from firstChunk * CHUNK_SIZE
+    private int firstChunk;
+    private int size;
+    private ColdReader coldReader;
+
+    TransactionLedger() {
+        this.chunks = new ArrayList<>();
+    }
+
+    void setColdReader(ColdReader coldReader) {
+        this.coldReader = coldReader;
+    }
+
+    /**
+     * Thêm một giao dịch vào cuối sổ cái.
+     *
+     * @param owner        Số tài khoản sở hữu
+     * @param historyIndex Vị trí trong lịch sử tài khoản, hoặc -1 nếu không biết
+     *                     (giao dịch khi đó không bao giờ được giải phóng khỏi bộ nhớ)
+     * @param transaction  Giao dịch
+     * @return Vị trí (ordinal) của giao dịch
+     */
+    int append(String owner, int historyIndex, Transaction transaction) {
+        int slot = size & CHUNK_MASK;
+        if (slot == 0) {
+            chunks.add(new Chunk());
+        }
+        Chunk chunk = chunks.get(chunks.size() - 1);
+        chunk.rows[slot] = transaction;
+        chunk.owners[slot] = owner;
+        chunk.historyIndexes[slot] = historyIndex;
+        return size++;
+    }
+
+    /**
+     * Lấy giao dịch tại một vị trí, đọc lại từ tầng lạnh nếu đã được giải phóng khỏi bộ nhớ.
+     *
+     * @return Giao dịch, hoặc null nếu vị trí đã bị nén
+     */
+    @Override
+    public Transaction get(int ordinal) {
+        Chunk chunk = chunk(ordinal);
+        if (chunk == null) {
+            return null;
+        }
+        int slot = ordinal & CHUNK_MASK;
+        Transaction transaction = chunk.rows[slot];
+        if (transaction == null && chunk.owners[slot] != null && coldReader != null) {
+            transaction = coldReader.read(chunk.owners[slot], chunk.historyIndexes[slot]);
+        }
+        return transaction;
+    }
+
+    String owner(int ordinal) {
+        Chunk chunk = chunk(ordinal);
+        return chunk != null ? chunk.owners[ordinal & CHUNK_MASK] : null;
+    }
+
+    int historyIndex(int ordinal) {
+        Chunk chunk = chunk(ordinal);
+        return chunk != null ? chunk.historyIndexes[ordinal & CHUNK_MASK] : -1;
+    }
+
+    /**
+     * Bỏ tham chiếu tới giao dịch đã được ghi ra tầng lạnh, chỉ giữ lại vị trí để đọc lại.
+     */
+    void release(int ordinal) {
+        Chunk chunk = chunk(ordinal);
+        int slot = ordinal & CHUNK_MASK;
+        if (chunk != null && chunk.historyIndexes[slot] >= 0) {
+            chunk.rows[slot] = null;
+        }
+    }
+
+    /**
+     * Xóa hẳn một vị trí (giao dịch đã bị nén khỏi sổ cái).
+     */
+    void compact(int ordinal) {
+        Chunk chunk = chunk(ordinal);
+        if (chunk != null) {
+            int slot = ordinal & CHUNK_MASK;
+            chunk.rows[slot] = null;
+            chunk.owners[slot] = null;
+        }
+    }
+
+    /**
+     * Bỏ hẳn các khối chỉ chứa vị trí nhỏ hơn mốc cho trước (mọi vị trí đó đã bị nén).
+     *
+     * @param ordinal Mốc vị trí
+     */
+    void releaseBefore(int ordinal) {
+        int chunk = Math.min(ordinal, size) >>> CHUNK_BITS;
+        if (chunk > firstChunk) {
+            chunks.subList(0, chunk - firstChunk).clear();
+            firstChunk = chunk;
+        }
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public void clear() {
+        chunks.clear();
+        firstChunk = 0;
+        size = 0;
+    }
+
+    /**
+     * Lấy khối chứa một vị trí, hoặc null nếu khối đã bị bỏ.
+     */
+    private Chunk chunk(int ordinal) {
+        if (ordinal < 0 || ordinal >= size) {
+            throw new IndexOutOfBoundsException("Ordinal " + ordinal + " outside ledger of size " + size);
+        }
+        int index = (ordinal >>> CHUNK_BITS) - firstChunk;
+        return index >= 0 ? chunks.get(index) : null;
+    }
+
+    /**
+     * Chunk - Một khối CHUNK_SIZE vị trí liên tiếp.
+     */
+    private static class Chunk {
+        private final Transaction[] rows = new Transaction[CHUNK_SIZE];
+        private final String[] owners = new String[CHUNK_SIZE];
+        private final int[] historyIndexes = new int[CHUNK_SIZE];
+    }
+}
@@ -0,0 +1,168 @@
+package com.bankapp.data;
+
+import com.bankapp.model.Transaction;
+
+/**
+ * TransactionQuery - Tập điều kiện tìm kiếm giao dịch theo nhiều tiêu chí.
+ * Mỗi điều kiện là tùy chọn; điều kiện chưa đặt sẽ không được áp dụng.
+ * Các phương thức thiết lập trả về chính đối tượng để có thể viết nối tiếp, ví dụ:
+ * {@code new TransactionQuery().withType("DEPOSIT").amountBetween(100, 500).limit(20)}.
+ */
+public class TransactionQuery {
+    private String type;
+    private String status;
+    private Double minAmount;
+    private Double maxAmount;
+    private String fromAccountNumber;
+    private String toAccountNumber;
+    private Long fromTimestamp;
+    private Long toTimestamp;
+    private int limit = Integer.MAX_VALUE;
+
+    // ============= Criteria =============
+
+    public TransactionQuery withType(String type) {
+        this.type = type;
+        return this;
+    }
+
+    public TransactionQuery withStatus(String status) {
+        this.status = status;
+        return this;
+    }
+
+    /**
+     * Giới hạn khoảng số tiền (bao gồm hai đầu mút).
+     *
+     * @param minAmount Số tiền nhỏ nhất
+     * @param maxAmount Số tiền lớn nhất
+     * @return Chính đối tượng truy vấn
+     */
+    public TransactionQuery amountBetween(double minAmount, double maxAmount) {
+        this.minAmount = minAmount;
+        this.maxAmount = maxAmount;
+        return this;
+    }
+
+    public TransactionQuery fromAccount(String accountNumber) {
+        this.fromAccountNumber = accountNumber;
+        return this;
+    }
+
+    public TransactionQuery toAccount(String accountNumber) {
+        this.toAccountNumber = accountNumber;
+        return this;
+    }
+
+    /**
+     * Giới hạn khoảng thời gian ghi nhận giao dịch (bao gồm hai đầu mút).
+     *
+     * @param fromTimestamp Thời điểm bắt đầu (epoch millis)
+     * @param toTimestamp   Thời điểm kết thúc (epoch millis)
+     * @return Chính đối tượng truy vấn
+     */
+    public TransactionQuery between(long fromTimestamp, long toTimestamp) {
+        this.fromTimestamp = fromTimestamp;
+        this.toTimestamp = toTimestamp;
+        return this;
+    }
+
+    /**
+     * Giới hạn số lượng kết quả trả về.
+     *
+     * @param limit Số kết quả tối đa
+     * @return Chính đối tượng truy vấn
+     */
+    public TransactionQuery limit(int limit) {
+        this.limit = Math.max(0, limit);
+        return this;
+    }
+
+    // ============= Getters =============
+
+    public String getType() {
+        return type;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    public Double getMinAmount() {
+        return minAmount;
+    }
+
+    public Double getMaxAmount() {
+        return maxAmount;
+    }
+
+    public String getFromAccountNumber() {
+        return fromAccountNumber;
+    }
+
+    public String getToAccountNumber() {
+        return toAccountNumber;
+    }
+
+    public Long getFromTimestamp() {
+        return fromTimestamp;
+    }
+
+    public Long getToTimestamp() {
+        return toTimestamp;
+    }
+
+    public int getLimit() {
+        return limit;
+    }
+
+    /**
+     * Kiểm tra một giao dịch có thỏa mãn toàn bộ điều kiện hay không.
+     *
+     * @param transaction Giao dịch cần kiểm tra
+     * @return true nếu thỏa mãn, false nếu không
+     */
+    public boolean matches(Transaction transaction) {
+        if (transaction == null) {
+            return false;
+        }
+        if (type != null && !type.equals(transaction.getType())) {
+            return false;
+        }
+        if (status != null && !status.equals(transaction.getStatus())) {
+            return false;
+        }
+        if (minAmount != null && transaction.getAmount() < minAmount) {
+            return false;
+        }
+        if (maxAmount != null && transaction.getAmount() > maxAmount) {
+            return false;
+        }
+        if (fromAccountNumber != null && !fromAccountNumber.equals(transaction.getFromAccountNumber())) {
+            return false;
+        }
+        if (toAccountNumber != null && !toAccountNumber.equals(transaction.getToAccountNumber())) {
+            return false;
+        }
+        if (fromTimestamp != null && transaction.getTimestamp() < fromTimestamp) {
+            return false;
+        }
+        if (toTimestamp != null && transaction.getTimestamp() > toTimestamp) {
+            return false;
+        }
+        return true;
+    }
+
+    @Override
+    public String toString() {
+        return "TransactionQuery{" +
+                "type=" + type +
+                ", status=" + status +
+                ", amount=[" + minAmount + ", " + maxAmount + "]" +
+                ", from=" + fromAccountNumber +
+                ", to=" + toAccountNumber +
+                ", time=[" + fromTimestamp + ", " + toTimestamp + "]" +
+                ", limit=" + limit +
+                '}';
+    }
+}
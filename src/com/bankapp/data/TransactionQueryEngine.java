@@ -0,0 +1,490 @@
+package com.bankapp.data;
+
+import com.bankapp.model.Transaction;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+/**
+ * TransactionQueryEngine - Bộ máy truy vấn giao dịch dựa trên các chỉ mục phụ.
+ * Mỗi giao dịch trong sổ cái được xác định bằng vị trí (ordinal) của nó.
+ * Các chỉ mục được duy trì:
+ * - Bitmap theo loại giao dịch và theo trạng thái
+ * - Danh sách vị trí theo tài khoản nguồn / tài khoản đích
+ * - Chỉ mục sắp xếp theo số tiền
+ * - Mảng thời điểm theo vị trí để tìm theo khoảng ngày. Mảng lưu mốc thời điểm lớn nhất tính đến
+ *   mỗi vị trí nên luôn tăng dần và tìm nhị phân được; giao dịch ghi sổ sau một giao dịch có thời điểm
+ *   mới hơn (ví dụ hai luồng ghi sổ đồng thời) được đánh chỉ mục thêm theo thời điểm thực trong một cây riêng
+ * Bộ lập kế hoạch ước lượng số bản ghi của từng điều kiện và chọn chỉ mục chọn lọc nhất
+ * làm nguồn ứng viên, các điều kiện còn lại được kiểm tra trực tiếp trên bản ghi.
+ * Lớp này không tự đồng bộ - TransactionRepository chịu trách nhiệm khóa khi gọi.
+ */
+public class TransactionQueryEngine {
+    private final List<Transaction> rows; // Shared with the owning repository
+    private final Map<String, Bitmap> typeIndex;
+    private final Map<String, Bitmap> statusIndex;
+    private final Map<String, OrdinalList> fromAccountIndex;
+    private final Map<String, OrdinalList> toAccountIndex;
+    private final TreeMap<Double, OrdinalList> amountIndex;
+    private long[] timestamps; // Running maximum timestamp per ordinal, never decreasing
+    private int timestampBase;  // Ordinal stored at timestamps[0]
+    private final TreeMap<Long, OrdinalList> lateTimestamps; // Rows older than a row posted before them
+    private long latestTimestamp;
+    private int firstLiveOrdinal; // Ordinals below this were compacted out of the ledger
+
+    /**
+     * Constructor - gắn bộ máy truy vấn với danh sách bản ghi của sổ cái.
+     *
+     * @param rows Danh sách giao dịch, vị trí trong danh sách là ordinal
+     */
+    public TransactionQueryEngine(List<Transaction> rows) {
+        this.rows = rows;
+        this.typeIndex = new HashMap<>();
+        this.statusIndex = new HashMap<>();
+        this.fromAccountIndex = new HashMap<>();
+        this.toAccountIndex = new HashMap<>();
+        this.amountIndex = new TreeMap<>();
+        this.timestamps = new long[1024];
+        this.lateTimestamps = new TreeMap<>();
+        this.latestTimestamp = Long.MIN_VALUE;
+    }
+
+    // ============= Index Maintenance =============
+
+    /**
+     * Đưa một giao dịch mới vào các chỉ mục.
+     *
+     * @param ordinal     Vị trí của giao dịch trong sổ cái
+     * @param transaction Giao dịch cần đánh chỉ mục
+     */
+    public void index(int ordinal, Transaction transaction) {
+        addBit(typeIndex, transaction.getType(), ordinal);
+        addBit(statusIndex, transaction.getStatus(), ordinal);
+        addOrdinal(fromAccountIndex, transaction.getFromAccountNumber(), ordinal);
+        addOrdinal(toAccountIndex, transaction.getToAccountNumber(), ordinal);
+        amountIndex.computeIfAbsent(transaction.getAmount(), k -> new OrdinalList()).add(ordinal);
+
+        int slot = ordinal - timestampBase;
+        if (slot >= timestamps.length) {
+            timestamps = Arrays.copyOf(timestamps, Math.max(slot + 1, timestamps.length * 2));
+        }
+        long timestamp = transaction.getTimestamp();
+        if (timestamp < latestTimestamp) {
+            // Posted after a newer row: keep the array sorted and find this row by its real time instead
+            lateTimestamps.computeIfAbsent(timestamp, k -> new OrdinalList()).add(ordinal);
+        } else {
+            latestTimestamp = timestamp;
+        }
+        timestamps[slot] = latestTimestamp;
+    }
+
+    /**
+     * Cập nhật chỉ mục trạng thái khi trạng thái một giao dịch thay đổi.
+     *
+     * @param ordinal   Vị trí của giao dịch
+     * @param oldStatus Trạng thái cũ
+     * @param newStatus Trạng thái mới
+     */
+    public void reindexStatus(int ordinal, String oldStatus, String newStatus) {
+        removeBit(statusIndex, oldStatus, ordinal);
+        addBit(statusIndex, newStatus, ordinal);
+    }
+
+    /**
+     * Loại bỏ khỏi các chỉ mục mọi vị trí nhỏ hơn mốc cho trước (các giao dịch đã bị nén
+     * khỏi sổ cái), để chỉ mục không giữ bộ nhớ cho các bản ghi không còn tồn tại.
+     *
+     * @param ordinal Mốc vị trí
+     */
+    public void trimBefore(int ordinal) {
+        for (Bitmap bitmap : typeIndex.values()) {
+            bitmap.clearBefore(ordinal);
+        }
+        for (Bitmap bitmap : statusIndex.values()) {
+            bitmap.clearBefore(ordinal);
+        }
+        trimOrdinals(fromAccountIndex.values().iterator(), ordinal);
+        trimOrdinals(toAccountIndex.values().iterator(), ordinal);
+        trimOrdinals(amountIndex.values().iterator(), ordinal);
+        trimOrdinals(lateTimestamps.values().iterator(), ordinal);
+        firstLiveOrdinal = Math.max(firstLiveOrdinal, ordinal);
+
+        // Drop the dead front of the timestamp array once it is as large as the live part
+        int dead = firstLiveOrdinal - timestampBase;
+        int live = Math.max(0, rows.size() - firstLiveOrdinal);
+        if (dead > 0 && dead >= live) {
+            timestamps = Arrays.copyOfRange(timestamps, dead, dead + Math.max(1024, live * 2));
+            timestampBase = firstLiveOrdinal;
+        }
+    }
+
+    /**
+     * Xóa toàn bộ chỉ mục.
+     */
+    public void clear() {
+        typeIndex.clear();
+        statusIndex.clear();
+        fromAccountIndex.clear();
+        toAccountIndex.clear();
+        amountIndex.clear();
+        timestamps = new long[1024];
+        timestampBase = 0;
+        lateTimestamps.clear();
+        latestTimestamp = Long.MIN_VALUE;
+        firstLiveOrdinal = 0;
+    }
+
+    // ============= Query Execution =============
+
+    /**
+     * Thực thi truy vấn và trả về các giao dịch thỏa mãn theo thứ tự ghi sổ.
+     *
+     * @param query Điều kiện truy vấn
+     * @return Danh sách giao dịch thỏa mãn (tối đa query.getLimit() phần tử)
+     */
+    public List<Transaction> execute(TransactionQuery query) {
+        List<Transaction> results = new ArrayList<>();
+        if (query.getLimit() == 0) {
+            return results;
+        }
+
+        Plan plan = choosePlan(query);
+        switch (plan.access) {
+            case TYPE:
+            case STATUS:
+                Bitmap bitmap = plan.bitmap;
+                for (int i = bitmap.nextSetBit(firstLiveOrdinal); i >= 0; i = bitmap.nextSetBit(i + 1)) {
+                    if (collect(query, i, results)) {
+                        break;
+                    }
+                }
+                break;
+            case FROM_ACCOUNT:
+            case TO_ACCOUNT:
+                for (int i = 0; i < plan.ordinals.size(); i++) {
+                    if (collect(query, plan.ordinals.get(i), results)) {
+                        break;
+                    }
+                }
+                break;
+            case AMOUNT:
+                int[] candidates = amountCandidates(query);
+                for (int ordinal : candidates) {
+                    if (collect(query, ordinal, results)) {
+                        break;
+                    }
+                }
+                break;
+            case TIME:
+                // Merge the contiguous range with the late rows outside it, in ledger order
+                int next = 0;
+                for (int i = plan.from; i < plan.to || next < plan.late.length; ) {
+                    int ordinal;
+                    if (next < plan.late.length && (i >= plan.to || plan.late[next] < i)) {
+                        ordinal = plan.late[next++];
+                    } else {
+                        ordinal = i++;
+                        if (next < plan.late.length && plan.late[next] == ordinal) {
+                            next++;
+                        }
+                    }
+                    if (collect(query, ordinal, results)) {
+                        break;
+                    }
+                }
+                break;
+            case SCAN:
+            default:
+                for (int i = plan.from; i < plan.to; i++) {
+                    if (collect(query, i, results)) {
+                        break;
+                    }
+                }
+                break;
+        }
+        return results;
+    }
+
+    /**
+     * Mô tả kế hoạch thực thi mà bộ lập kế hoạch chọn cho một truy vấn.
+     *
+     * @param query Điều kiện truy vấn
+     * @return Chuỗi mô tả chỉ mục được chọn và số bản ghi ước lượng
+     */
+    public String explain(TransactionQuery query) {
+        Plan plan = choosePlan(query);
+        return plan.access + " (estimated rows: " + plan.estimate + ")";
+    }
+
+    /**
+     * Kiểm tra một ứng viên và thêm vào kết quả nếu thỏa mãn.
+     *
+     * @return true nếu đã đủ số lượng kết quả cần lấy
+     */
+    private boolean collect(TransactionQuery query, int ordinal, List<Transaction> results) {
+        Transaction transaction = rows.get(ordinal);
+        if (transaction != null && query.matches(transaction)) {
+            results.add(transaction);
+        }
+        return results.size() >= query.getLimit();
+    }
+
+    // ============= Planner =============
+
+    private enum Access {
+        SCAN, TYPE, STATUS, FROM_ACCOUNT, TO_ACCOUNT, AMOUNT, TIME
+    }
+
+    private static class Plan {
+        private Access access;
+        private long estimate;
+        private Bitmap bitmap;
+        private OrdinalList ordinals;
+        private int from;
+        private int to;
+        private int[] late;
+    }
+
+    /**
+     * Chọn chỉ mục có số bản ghi ước lượng nhỏ nhất cho truy vấn.
+     */
+    private Plan choosePlan(TransactionQuery query) {
+        Plan plan = new Plan();
+        plan.access = Access.SCAN;
+        plan.estimate = rows.size() - firstLiveOrdinal;
+        plan.from = firstLiveOrdinal;
+        plan.to = rows.size();
+
+        if (query.getType() != null) {
+            Bitmap bitmap = typeIndex.get(query.getType());
+            long estimate = bitmap != null ? bitmap.count : 0;
+            if (estimate < plan.estimate) {
+                plan.access = Access.TYPE;
+                plan.estimate = estimate;
+                plan.bitmap = bitmap != null ? bitmap : new Bitmap();
+            }
+        }
+        if (query.getStatus() != null) {
+            Bitmap bitmap = statusIndex.get(query.getStatus());
+            long estimate = bitmap != null ? bitmap.count : 0;
+            if (estimate < plan.estimate) {
+                plan.access = Access.STATUS;
+                plan.estimate = estimate;
+                plan.bitmap = bitmap != null ? bitmap : new Bitmap();
+            }
+        }
+        if (query.getFromAccountNumber() != null) {
+            OrdinalList list = fromAccountIndex.getOrDefault(query.getFromAccountNumber(), new OrdinalList());
+            if (list.size() < plan.estimate) {
+                plan.access = Access.FROM_ACCOUNT;
+                plan.estimate = list.size();
+                plan.ordinals = list;
+            }
+        }
+        if (query.getToAccountNumber() != null) {
+            OrdinalList list = toAccountIndex.getOrDefault(query.getToAccountNumber(), new OrdinalList());
+            if (list.size() < plan.estimate) {
+                plan.access = Access.TO_ACCOUNT;
+                plan.estimate = list.size();
+                plan.ordinals = list;
+            }
+        }
+        if (query.getMinAmount() != null || query.getMaxAmount() != null) {
+            // Stop counting as soon as the range is no better than the current plan
+            long estimate = 0;
+            for (OrdinalList list : amountRange(query).values()) {
+                estimate += list.size();
+                if (estimate >= plan.estimate) {
+                    break;
+                }
+            }
+            if (estimate < plan.estimate) {
+                plan.access = Access.AMOUNT;
+                plan.estimate = estimate;
+            }
+        }
+        if (query.getFromTimestamp() != null || query.getToTimestamp() != null) {
+            int size = rows.size();
+            int from = query.getFromTimestamp() != null ? lowerBound(query.getFromTimestamp(), size) : 0;
+            from = Math.max(from, firstLiveOrdinal);
+            int to = query.getToTimestamp() != null ? upperBound(query.getToTimestamp(), size) : size;
+            long estimate = Math.max(0, to - from);
+            NavigableMap<Long, OrdinalList> late = timeRange(query);
+            for (OrdinalList list : late.values()) {
+                estimate += list.size();
+                if (estimate >= plan.estimate) {
+                    break;
+                }
+            }
+            if (estimate < plan.estimate) {
+                plan.access = Access.TIME;
+                plan.estimate = estimate;
+                plan.from = from;
+                plan.to = Math.max(from, to);
+                plan.late = sortedOrdinals(late.values());
+            }
+        }
+        return plan;
+    }
+
+    private NavigableMap<Long, OrdinalList> timeRange(TransactionQuery query) {
+        long min = query.getFromTimestamp() != null ? query.getFromTimestamp() : Long.MIN_VALUE;
+        long max = query.getToTimestamp() != null ? query.getToTimestamp() : Long.MAX_VALUE;
+        if (min > max) {
+            return new TreeMap<>();
+        }
+        return lateTimestamps.subMap(min, true, max, true);
+    }
+
+    private NavigableMap<Double, OrdinalList> amountRange(TransactionQuery query) {
+        double min = query.getMinAmount() != null ? query.getMinAmount() : Double.NEGATIVE_INFINITY;
+        double max = query.getMaxAmount() != null ? query.getMaxAmount() : Double.POSITIVE_INFINITY;
+        if (min > max) {
+            return new TreeMap<>();
+        }
+        return amountIndex.subMap(min, true, max, true);
+    }
+
+    private int[] amountCandidates(TransactionQuery query) {
+        return sortedOrdinals(amountRange(query).values());
+    }
+
+    private static int[] sortedOrdinals(Iterable<OrdinalList> lists) {
+        OrdinalList merged = new OrdinalList();
+        for (OrdinalList list : lists) {
+            for (int i = 0; i < list.size(); i++) {
+                merged.add(list.get(i));
+            }
+        }
+        int[] candidates = new int[merged.size()];
+        for (int i = 0; i < candidates.length; i++) {
+            candidates[i] = merged.get(i);
+        }
+        // Return results in ledger order, like every other access path
+        Arrays.sort(candidates);
+        return candidates;
+    }
+
+    /**
+     * Vị trí đầu tiên có thời điểm >= timestamp.
+     */
+    private int lowerBound(long timestamp, int size) {
+        int low = firstLiveOrdinal;
+        int high = size;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (timestamps[mid - timestampBase] < timestamp) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Vị trí đầu tiên có thời điểm > timestamp.
+     */
+    private int upperBound(long timestamp, int size) {
+        int low = firstLiveOrdinal;
+        int high = size;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (timestamps[mid - timestampBase] <= timestamp) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    // ============= Index Helpers =============
+
+    /**
+     * Bitmap - Tập vị trí kèm số phần tử; bit 0 ứng với vị trí base, phần đầu đã bị nén được bỏ đi.
+     */
+    private static class Bitmap {
+        private BitSet bits = new BitSet();
+        private int base;
+        private int count;
+
+        boolean get(int ordinal) {
+            return ordinal >= base && bits.get(ordinal - base);
+        }
+
+        void set(int ordinal) {
+            bits.set(ordinal - base);
+        }
+
+        void clear(int ordinal) {
+            if (ordinal >= base) {
+                bits.clear(ordinal - base);
+            }
+        }
+
+        int nextSetBit(int ordinal) {
+            int bit = bits.nextSetBit(Math.max(0, ordinal - base));
+            return bit >= 0 ? bit + base : -1;
+        }
+
+        void clearBefore(int ordinal) {
+            int dead = ordinal - base;
+            if (dead <= 0) {
+                return;
+            }
+            count -= bits.get(0, dead).cardinality();
+            bits.clear(0, dead);
+            // Shift once the cleared words make up at least half of the set
+            if (dead >= bits.length() - dead) {
+                bits = bits.get(dead, Math.max(dead, bits.length()));
+                base = ordinal;
+            }
+        }
+    }
+
+    private static void trimOrdinals(Iterator<OrdinalList> lists, int ordinal) {
+        while (lists.hasNext()) {
+            OrdinalList list = lists.next();
+            list.removeBefore(ordinal);
+            if (list.size() == 0) {
+                lists.remove();
+            }
+        }
+    }
+
+    private static void addBit(Map<String, Bitmap> index, String key, int ordinal) {
+        if (key == null) {
+            return;
+        }
+        Bitmap bitmap = index.computeIfAbsent(key, k -> new Bitmap());
+        if (!bitmap.get(ordinal)) {
+            bitmap.set(ordinal);
+            bitmap.count++;
+        }
+    }
+
+    private static void removeBit(Map<String, Bitmap> index, String key, int ordinal) {
+        if (key == null) {
+            return;
+        }
+        Bitmap bitmap = index.get(key);
+        if (bitmap != null && bitmap.get(ordinal)) {
+            bitmap.clear(ordinal);
+            bitmap.count--;
+        }
+    }
+
+    private static void addOrdinal(Map<String, OrdinalList> index, String key, int ordinal) {
+        if (key == null) {
+            return;
+        }
+        index.computeIfAbsent(key, k -> new OrdinalList()).add(ordinal);
+    }
+}
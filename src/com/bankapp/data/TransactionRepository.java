@@ -1,26 +1,84 @@
 package com.bankapp.data;
 
+import com.bankapp.model.Account;
 import com.bankapp.model.Transaction;
+import com.bankapp.model.TransactionPeriodSummary;
+import java.io.IOException;
+import java.lang.ref.WeakReference;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDate;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.TreeMap;
 
 /**
  * TransactionRepository - Đối tượng truy xuất dữ liệu cho thực thể Transaction.
  * Xử lý việc lưu trữ và truy vấn các giao dịch.
+ * Mỗi giao dịch được gán một vị trí (ordinal) trong sổ cái toàn cục và được
+ * đánh chỉ mục phụ để truy vấn nhiều tiêu chí mà không phải quét toàn bộ.
+ * Mô tả giao dịch được đưa vào chỉ mục đảo ngược để tìm kiếm toàn văn,
+ * và số liệu tổng hợp (rollup) được cộng dồn ngay khi ghi sổ.
+ * Khi có chính sách lưu giữ (RetentionPolicy), các giao dịch cũ được nén dần theo lô thành
+ * bản ghi tổng hợp theo kỳ; vị trí của chúng trong sổ cái được để trống (null), phần đầu của sổ cái
+ * và của các chỉ mục được bỏ dần, và tài khoản sở hữu cũng giải phóng các giao dịch đó khỏi bộ nhớ.
+ * Khi gắn với kho lịch sử theo tầng (setHistoryStore), giao dịch đã được chuyển ra đĩa không còn
+ * được sổ cái giữ trên heap: vị trí của nó chỉ còn số tài khoản và vị trí trong lịch sử tài khoản,
+ * và được đọc lại từ segment khi một truy vấn cần tới.
+ * Mỗi lô nén được báo cho CompactionListener (nhật ký thay đổi) để phát lại nén đúng các giao dịch đó
+ * (replayCompaction) thay vì dựng lại chi tiết đã nén.
  */
 public class TransactionRepository {
-    private Map<String, List<Transaction>> accountTransactions; // accountNumber -> List of Transactions
-    private List<Transaction> allTransactions; // Global transaction log
+    /**
+     * Nhận thông báo mỗi khi một lô giao dịch được nén khỏi sổ cái. Được gọi khi đang giữ khóa sổ cái.
+     */
+    public interface CompactionListener {
+        void compacted(long throughTimestamp, int rows);
+    }
+
+    private Map<String, AccountRows> accountTransactions; // accountNumber -> ordinals of its transactions
+    private TransactionLedger allTransactions; // Global transaction log, position = ordinal (null once compacted)
+    private TransactionIdIndex transactionOrdinals; // transactionId -> ordinal
+    private TransactionQueryEngine queryEngine;
+    private TransactionTextIndex textIndex;
+    private TransactionRollups rollups;
+    private Map<String, TreeMap<LocalDate, TransactionPeriodSummary>> periodSummaries; // account -> period -> summary
+    private volatile RetentionPolicy retentionPolicy;
+    private volatile CompactionListener compactionListener;
+    private int compactedOrdinal; // Every ordinal below this has been compacted
+    private int trimmedOrdinal;   // Indexes no longer reference ordinals below this
+    private int generation;       // Bumped by clear() so an in-flight compaction batch is dropped
+
+    private static final int INDEX_TRIM_INTERVAL = 4096; // Rows compacted between index trims
 
     public TransactionRepository() {
         this.accountTransactions = new HashMap<>();
-        this.allTransactions = new ArrayList<>();
+        this.allTransactions = new TransactionLedger();
+        this.transactionOrdinals = new TransactionIdIndex();
+        this.queryEngine = new TransactionQueryEngine(allTransactions);
+        this.textIndex = new TransactionTextIndex(allTransactions);
+        this.rollups = new TransactionRollups();
+        this.periodSummaries = new HashMap<>();
+    }
+
+    /**
+     * Gắn sổ cái với kho lịch sử theo tầng: giao dịch được kho chuyển ra đĩa sẽ được giải phóng
+     * khỏi sổ cái và đọc lại từ segment khi cần.
+     *
+     * @param historyStore Kho lịch sử theo tầng
+     */
+    public synchronized void setHistoryStore(TieredTransactionStore historyStore) {
+        allTransactions.setColdReader(historyStore::readTransaction);
+        historyStore.setLedger(this);
     }
 
     /**
      * Ghi nhận một giao dịch vào repository.
+     * Giao dịch ghi theo cách này không biết vị trí trong lịch sử tài khoản nên luôn được giữ
+     * trong bộ nhớ; dùng saveTransactions khi có thể.
      *
      * @param accountNumber Số tài khoản liên quan tới giao dịch
      * @param transaction Đối tượng Transaction cần lưu
@@ -30,19 +88,90 @@ public class TransactionRepository {
         if (accountNumber == null || transaction == null) {
             return false;
         }
-        accountTransactions.computeIfAbsent(accountNumber, k -> new ArrayList<>()).add(transaction);
-        allTransactions.add(transaction);
+        synchronized (this) {
+            append(accountNumber, -1, transaction);
+        }
+        // The rollup counters are contention-free on their own; keep them out of the ledger lock
+        rollups.record(accountNumber, transaction);
         return true;
     }
 
+    /**
+     * Ghi nhận các giao dịch vừa phát sinh của một tài khoản (một lần khóa cho cả lô).
+     * Repository giữ tham chiếu yếu tới tài khoản để khi nén sổ cái có thể giải phóng
+     * các giao dịch đã nén khỏi lịch sử trong bộ nhớ của tài khoản.
+     *
+     * @param account Tài khoản sở hữu các giao dịch
+     * @param firstHistoryIndex Vị trí của giao dịch đầu tiên trong lịch sử tài khoản
+     * @param transactions Các giao dịch theo thứ tự ghi
+     * @return true nếu lưu thành công
+     */
+    public boolean saveTransactions(Account account, int firstHistoryIndex, List<Transaction> transactions) {
+        if (account == null || transactions == null) {
+            return false;
+        }
+        String accountNumber = account.getAccountNumber();
+        int compactedHistory = 0;
+        synchronized (this) {
+            for (int i = 0; i < transactions.size(); i++) {
+                append(accountNumber, firstHistoryIndex + i, transactions.get(i));
+            }
+            AccountRows rows = accountTransactions.get(accountNumber);
+            if (rows != null && rows.account.get() != account) {
+                // A fresh instance (e.g. reloaded from disk) may still carry rows compacted meanwhile
+                rows.account = new WeakReference<>(account);
+                compactedHistory = rows.compactedHistory;
+            }
+        }
+        if (compactedHistory > 0) {
+            account.releaseHistoryBefore(compactedHistory);
+        }
+        for (Transaction transaction : transactions) {
+            rollups.record(accountNumber, transaction);
+        }
+        return true;
+    }
+
+    private void append(String accountNumber, int historyIndex, Transaction transaction) {
+        int ordinal = allTransactions.append(accountNumber, historyIndex, transaction);
+        accountTransactions.computeIfAbsent(accountNumber, k -> new AccountRows()).ordinals.add(ordinal);
+        transactionOrdinals.put(transaction.getTransactionId(), ordinal);
+        queryEngine.index(ordinal, transaction);
+        textIndex.index(ordinal, transaction);
+    }
+
+    /**
+     * Giải phóng khỏi sổ cái các giao dịch của tài khoản đã được ghi ra tầng lạnh
+     * (gọi bởi TieredTransactionStore sau khi ghi một segment).
+     *
+     * @param accountNumber Số tài khoản
+     * @param archivedCount Số giao dịch đầu lịch sử của tài khoản đã nằm trong segment
+     */
+    synchronized void releaseArchived(String accountNumber, int archivedCount) {
+        AccountRows rows = accountTransactions.get(accountNumber);
+        if (rows == null) {
+            return;
+        }
+        while (rows.released < rows.ordinals.size()) {
+            int ordinal = rows.ordinals.get(rows.released);
+            int historyIndex = allTransactions.historyIndex(ordinal);
+            if (historyIndex < 0 || historyIndex >= archivedCount) {
+                break;
+            }
+            allTransactions.release(ordinal);
+            rows.released++;
+        }
+    }
+
     /**
      * Lấy tất cả giao dịch của một tài khoản.
      *
      * @param accountNumber Số tài khoản cần lấy danh sách giao dịch
      * @return Danh sách giao dịch của tài khoản
      */
-    public List<Transaction> getTransactionsByAccount(String accountNumber) {
-        return new ArrayList<>(accountTransactions.getOrDefault(accountNumber, new ArrayList<>()));
+    public synchronized List<Transaction> getTransactionsByAccount(String accountNumber) {
+        AccountRows rows = accountTransactions.get(accountNumber);
+        return rows != null ? toTransactions(rows.ordinals, 0) : new ArrayList<>();
     }
 
     /**
@@ -52,11 +181,12 @@ public class TransactionRepository {
      * @param count Số lượng giao dịch gần nhất cần lấy
      * @return Danh sách các giao dịch gần đây
      */
-    public List<Transaction> getRecentTransactions(String accountNumber, int count) {
-        List<Transaction> transactions = getTransactionsByAccount(accountNumber);
-        int size = transactions.size();
-        int startIndex = Math.max(0, size - count);
-        return new ArrayList<>(transactions.subList(startIndex, size));
+    public synchronized List<Transaction> getRecentTransactions(String accountNumber, int count) {
+        AccountRows rows = accountTransactions.get(accountNumber);
+        if (rows == null) {
+            return new ArrayList<>();
+        }
+        return toTransactions(rows.ordinals, Math.max(0, rows.ordinals.size() - count));
     }
 
     /**
@@ -65,37 +195,394 @@ public class TransactionRepository {
      * @param transactionId ID giao dịch cần tìm
      * @return Đối tượng Transaction nếu tìm thấy, null nếu không
      */
-    public Transaction findById(String transactionId) {
-        return allTransactions.stream()
-                .filter(txn -> txn.getTransactionId().equals(transactionId))
-                .findFirst()
-                .orElse(null);
+    public synchronized Transaction findById(String transactionId) {
+        if (transactionId == null) {
+            return null;
+        }
+        int ordinal = transactionOrdinals.get(transactionId);
+        return ordinal != TransactionIdIndex.MISSING ? allTransactions.get(ordinal) : null;
+    }
+
+    /**
+     * Cập nhật trạng thái của một giao dịch và chỉ mục trạng thái tương ứng.
+     * Luôn dùng phương thức này thay vì gọi trực tiếp Transaction.setStatus
+     * với giao dịch đã lưu, để chỉ mục không bị lệch.
+     *
+     * @param transactionId ID giao dịch cần cập nhật
+     * @param status Trạng thái mới (SUCCESS, PENDING, FAILED)
+     * @return true nếu cập nhật thành công, false nếu không tìm thấy giao dịch
+     */
+    public synchronized boolean updateStatus(String transactionId, String status) {
+        if (transactionId == null || status == null) {
+            return false;
+        }
+        int ordinal = transactionOrdinals.get(transactionId);
+        if (ordinal == TransactionIdIndex.MISSING) {
+            return false;
+        }
+        Transaction transaction = allTransactions.get(ordinal);
+        queryEngine.reindexStatus(ordinal, transaction.getStatus(), status);
+        transaction.setStatus(status);
+        return true;
+    }
+
+    /**
+     * Tìm kiếm giao dịch theo nhiều tiêu chí, sử dụng chỉ mục chọn lọc nhất.
+     *
+     * @param query Điều kiện tìm kiếm
+     * @return Danh sách giao dịch thỏa mãn theo thứ tự ghi sổ
+     */
+    public synchronized List<Transaction> query(TransactionQuery query) {
+        return queryEngine.execute(query);
+    }
+
+    /**
+     * Mô tả kế hoạch thực thi của một truy vấn (chỉ mục được chọn và số bản ghi ước lượng).
+     *
+     * @param query Điều kiện tìm kiếm
+     * @return Chuỗi mô tả kế hoạch
+     */
+    public synchronized String explain(TransactionQuery query) {
+        return queryEngine.explain(query);
     }
 
     /**
-     * Lấy số lượng giao dịch của một tài khoản.
+     * Tìm các giao dịch có mô tả chứa một từ (không phân biệt hoa thường).
+     *
+     * @param term Từ cần tìm
+     * @return Danh sách giao dịch theo thứ tự ghi sổ
+     */
+    public synchronized List<Transaction> searchByTerm(String term) {
+        return toTransactions(textIndex.searchTerm(term));
+    }
+
+    /**
+     * Tìm các giao dịch có mô tả chứa một từ bắt đầu bằng tiền tố cho trước.
+     *
+     * @param prefix Tiền tố cần tìm
+     * @return Danh sách giao dịch theo thứ tự ghi sổ
+     */
+    public synchronized List<Transaction> searchByPrefix(String prefix) {
+        return toTransactions(textIndex.searchPrefix(prefix));
+    }
+
+    /**
+     * Tìm các giao dịch có mô tả chứa một cụm từ liên tiếp, ví dụ "invoice 4411".
+     *
+     * @param phrase Cụm từ cần tìm
+     * @return Danh sách giao dịch theo thứ tự ghi sổ
+     */
+    public synchronized List<Transaction> searchByPhrase(String phrase) {
+        return toTransactions(textIndex.searchPhrase(phrase));
+    }
+
+    /**
+     * Lấy số liệu tổng hợp giao dịch. Có thể đọc mà không cần khóa repository.
+     *
+     * @return Đối tượng TransactionRollups
+     */
+    public TransactionRollups getRollups() {
+        return rollups;
+    }
+
+    // ============= Retention & Compaction =============
+
+    /**
+     * Đặt chính sách lưu giữ dùng cho việc nén lịch sử.
+     *
+     * @param retentionPolicy Chính sách lưu giữ, null để tắt việc nén
+     */
+    public void setRetentionPolicy(RetentionPolicy retentionPolicy) {
+        this.retentionPolicy = retentionPolicy;
+    }
+
+    public RetentionPolicy getRetentionPolicy() {
+        return retentionPolicy;
+    }
+
+    /**
+     * Đặt đối tượng nhận thông báo các lô đã nén.
+     *
+     * @param compactionListener Đối tượng nhận thông báo, null để bỏ
+     */
+    public void setCompactionListener(CompactionListener compactionListener) {
+        this.compactionListener = compactionListener;
+    }
+
+    /**
+     * Nén một lô giao dịch cũ hơn mốc lưu giữ thành bản ghi tổng hợp theo kỳ.
+     * Sổ cái chỉ bị khóa trong lúc chọn lô và lúc áp dụng lô; việc xuất chi tiết ra file
+     * diễn ra ngoài khóa nên không chặn việc ghi sổ giao dịch mới.
+     *
+     * @param maxRows Số giao dịch tối đa trong lô
+     * @return Số giao dịch đã được nén, 0 nếu không còn gì để nén hoặc xuất thất bại
+     */
+    public int compact(int maxRows) {
+        RetentionPolicy policy = retentionPolicy;
+        if (policy == null || maxRows <= 0) {
+            return 0;
+        }
+        long horizon = System.currentTimeMillis() - policy.getRetentionMillis();
+
+        List<Transaction> batch = new ArrayList<>();
+        int from;
+        int to;
+        int batchGeneration;
+        synchronized (this) {
+            batchGeneration = generation;
+            from = compactedOrdinal;
+            to = from;
+            // The ledger is written in time order, so stop at the first row inside the horizon
+            while (to < allTransactions.size() && batch.size() < maxRows) {
+                Transaction transaction = allTransactions.get(to);
+                if (transaction.getTimestamp() >= horizon) {
+                    break;
+                }
+                batch.add(transaction);
+                to++;
+            }
+        }
+        if (batch.isEmpty()) {
+            return 0;
+        }
+        if (policy.getExportDirectory() != null && !export(policy.getExportDirectory(), from, batch)) {
+            return 0;
+        }
+
+        Map<Account, Integer> releasedAccounts = new HashMap<>();
+        synchronized (this) {
+            if (batchGeneration != generation) {
+                return 0;
+            }
+            applyCompaction(policy, from, batch, releasedAccounts);
+            CompactionListener listener = compactionListener;
+            if (listener != null) {
+                long through = Long.MIN_VALUE;
+                for (Transaction transaction : batch) {
+                    through = Math.max(through, transaction.getTimestamp());
+                }
+                // Under the ledger lock so the journal sees batches in compaction order
+                listener.compacted(through, batch.size());
+            }
+        }
+        releaseHistory(releasedAccounts);
+        return batch.size();
+    }
+
+    /**
+     * Nén lại một lô đã được ghi trong nhật ký thay đổi, khi phát lại hoặc trên nút dự phòng: tối đa rows
+     * giao dịch đầu sổ cái có thời điểm không muộn hơn throughTimestamp. Chi tiết không được xuất lại.
+     * Giao dịch ghi đồng thời có thể nằm trong sổ cái dựng lại theo thứ tự hơi khác, nên ở rìa lô một giao dịch
+     * cũ tương đương có thể được nén thay cho giao dịch gốc; số lượng nén luôn giữ nguyên.
+     *
+     * @param throughTimestamp Thời điểm của giao dịch mới nhất trong lô
+     * @param rows Số giao dịch trong lô
+     * @return Số giao dịch đã được nén (0 nếu không có chính sách lưu giữ)
+     */
+    public int replayCompaction(long throughTimestamp, int rows) {
+        RetentionPolicy policy = retentionPolicy;
+        if (policy == null || rows <= 0) {
+            return 0;
+        }
+        List<Transaction> batch = new ArrayList<>(rows);
+        Map<Account, Integer> releasedAccounts = new HashMap<>();
+        synchronized (this) {
+            int to = compactedOrdinal;
+            while (to < allTransactions.size() && batch.size() < rows) {
+                Transaction transaction = allTransactions.get(to);
+                if (transaction.getTimestamp() > throughTimestamp) {
+                    break;
+                }
+                batch.add(transaction);
+                to++;
+            }
+            if (batch.isEmpty()) {
+                return 0;
+            }
+            applyCompaction(policy, compactedOrdinal, batch, releasedAccounts);
+        }
+        releaseHistory(releasedAccounts);
+        return batch.size();
+    }
+
+    /**
+     * Thay các giao dịch [from, from + batch.size()) của sổ cái bằng bản ghi tổng hợp theo kỳ. Gọi khi đang giữ
+     * khóa sổ cái; tài khoản cần giải phóng lịch sử được đưa vào releasedAccounts để làm sau khi nhả khóa.
+     */
+    private void applyCompaction(RetentionPolicy policy, int from, List<Transaction> batch,
+                                 Map<Account, Integer> releasedAccounts) {
+        int to = from + batch.size();
+        Map<String, Integer> removedPerAccount = new HashMap<>();
+        long through = Long.MIN_VALUE;
+        for (int ordinal = from; ordinal < to; ordinal++) {
+            Transaction transaction = batch.get(ordinal - from);
+            through = Math.max(through, transaction.getTimestamp());
+            String owner = allTransactions.owner(ordinal);
+            periodSummaries.computeIfAbsent(owner, k -> new TreeMap<>())
+                    .computeIfAbsent(policy.periodStart(transaction.getTimestamp()),
+                            period -> new TransactionPeriodSummary(owner, period))
+                    .add(transaction);
+            allTransactions.compact(ordinal);
+            transactionOrdinals.remove(transaction.getTransactionId());
+            removedPerAccount.merge(owner, 1, Integer::sum);
+        }
+        // Compaction runs in ledger order, so the rows are at the front of each account list
+        for (Map.Entry<String, Integer> entry : removedPerAccount.entrySet()) {
+            AccountRows rows = accountTransactions.get(entry.getKey());
+            Account account = rows.account.get();
+            int lastHistoryIndex = allTransactions.historyIndex(rows.ordinals.get(entry.getValue() - 1));
+            if (lastHistoryIndex >= 0) {
+                rows.compactedHistory = lastHistoryIndex + 1;
+                if (account != null) {
+                    releasedAccounts.put(account, rows.compactedHistory);
+                }
+            }
+            rows.ordinals.removeBefore(to);
+            rows.released = Math.max(0, rows.released - entry.getValue());
+        }
+        compactedOrdinal = to;
+        // Every earlier row is compacted too, so the rollup cells of the periods before it are summarized
+        rollups.evictBefore(through);
+        if (compactedOrdinal - trimmedOrdinal >= INDEX_TRIM_INTERVAL) {
+            queryEngine.trimBefore(compactedOrdinal);
+            textIndex.trimBefore(compactedOrdinal);
+            allTransactions.releaseBefore(compactedOrdinal);
+            trimmedOrdinal = compactedOrdinal;
+        }
+    }
+
+    private static void releaseHistory(Map<Account, Integer> releasedAccounts) {
+        // The accounts still hold the detail rows in their in-memory history; let them go too
+        for (Map.Entry<Account, Integer> entry : releasedAccounts.entrySet()) {
+            entry.getKey().releaseHistoryBefore(entry.getValue());
+        }
+    }
+
+    /**
+     * Lấy các bản ghi tổng hợp theo kỳ của một tài khoản (phần lịch sử đã được nén).
+     *
+     * @param accountNumber Số tài khoản
+     * @return Danh sách bản ghi tổng hợp theo thứ tự thời gian
+     */
+    public synchronized List<TransactionPeriodSummary> getPeriodSummaries(String accountNumber) {
+        return new ArrayList<>(periodSummaries.getOrDefault(accountNumber, new TreeMap<>()).values());
+    }
+
+    /**
+     * Lấy mọi bản ghi tổng hợp theo kỳ (dùng khi chụp kho dữ liệu). Các bản ghi là bản đang dùng, nên
+     * người gọi phải giữ khóa sổ cái trong lúc đọc chúng.
+     *
+     * @return Danh sách bản ghi tổng hợp của mọi tài khoản
+     */
+    synchronized List<TransactionPeriodSummary> getAllPeriodSummaries() {
+        List<TransactionPeriodSummary> summaries = new ArrayList<>();
+        for (TreeMap<LocalDate, TransactionPeriodSummary> periods : periodSummaries.values()) {
+            summaries.addAll(periods.values());
+        }
+        return summaries;
+    }
+
+    /**
+     * Đưa lại một bản ghi tổng hợp theo kỳ khi nạp bản chụp kho dữ liệu.
+     *
+     * @param summary Bản ghi tổng hợp
+     */
+    synchronized void restorePeriodSummary(TransactionPeriodSummary summary) {
+        periodSummaries.computeIfAbsent(summary.getAccountNumber(), k -> new TreeMap<>())
+                .put(summary.getPeriodStart(), summary);
+    }
+
+    /**
+     * Lấy số giao dịch đã được nén khỏi sổ cái.
+     *
+     * @return Số giao dịch đã nén
+     */
+    public synchronized int getCompactedTransactionCount() {
+        return compactedOrdinal;
+    }
+
+    /**
+     * Ghi chi tiết một lô giao dịch ra file segment (định dạng TransactionSegmentCodec),
+     * tên file là vị trí giao dịch đầu tiên của lô trong sổ cái.
+     */
+    private static boolean export(Path directory, int firstOrdinal, List<Transaction> batch) {
+        try {
+            Files.createDirectories(directory);
+            Path file = directory.resolve(String.format("ledger-%010d.seg", firstOrdinal));
+            Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+            Files.write(temp, TransactionSegmentCodec.encode(batch));
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            return true;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Lấy số lượng giao dịch chi tiết (chưa bị nén) của một tài khoản.
      *
      * @param accountNumber Số tài khoản
      * @return Số lượng giao dịch của tài khoản
      */
-    public int getTransactionCount(String accountNumber) {
-        return accountTransactions.getOrDefault(accountNumber, new ArrayList<>()).size();
+    public synchronized int getTransactionCount(String accountNumber) {
+        AccountRows rows = accountTransactions.get(accountNumber);
+        return rows != null ? rows.ordinals.size() : 0;
     }
 
     /**
-     * Lấy tổng số lượng giao dịch trên tất cả tài khoản.
+     * Lấy tổng số lượng giao dịch đã ghi sổ trên tất cả tài khoản, kể cả giao dịch đã nén.
      *
      * @return Tổng số giao dịch
      */
-    public int getTotalTransactionCount() {
+    public synchronized int getTotalTransactionCount() {
         return allTransactions.size();
     }
 
     /**
      * Xóa toàn bộ giao dịch.
      */
-    public void clear() {
+    public synchronized void clear() {
         accountTransactions.clear();
         allTransactions.clear();
+        transactionOrdinals.clear();
+        queryEngine.clear();
+        textIndex.clear();
+        rollups.clear();
+        periodSummaries.clear();
+        compactedOrdinal = 0;
+        trimmedOrdinal = 0;
+        generation++;
+    }
+
+    private List<Transaction> toTransactions(int[] ordinals) {
+        List<Transaction> transactions = new ArrayList<>(ordinals.length);
+        for (int ordinal : ordinals) {
+            Transaction transaction = allTransactions.get(ordinal);
+            if (transaction != null) {
+                transactions.add(transaction);
+            }
+        }
+        return transactions;
+    }
+
+    private List<Transaction> toTransactions(OrdinalList ordinals, int fromIndex) {
+        List<Transaction> transactions = new ArrayList<>(ordinals.size() - fromIndex);
+        for (int i = fromIndex; i < ordinals.size(); i++) {
+            Transaction transaction = allTransactions.get(ordinals.get(i));
+            if (transaction != null) {
+                transactions.add(transaction);
+            }
+        }
+        return transactions;
+    }
+
+    /**
+     * AccountRows - Các vị trí trong sổ cái của giao dịch thuộc một tài khoản.
+     */
+    private static class AccountRows {
+        private final OrdinalList ordinals = new OrdinalList();
+        private int released; // Leading ordinals whose transactions now live only in the cold tier
+        private WeakReference<Account> account = new WeakReference<>(null); // Instance that last posted
+        private int compactedHistory; // Leading history rows of the account that were compacted
     }
 }
@@ -0,0 +1,247 @@
+package com.bankapp.data;
+
+import com.bankapp.model.Transaction;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.ZoneId;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * TransactionRollups - Số liệu tổng hợp giao dịch được cập nhật dần theo thời gian thực.
+ * Với mỗi giao dịch được ghi sổ, cộng dồn số lượng và tổng tiền theo:
+ * - tài khoản / loại giao dịch / ngày
+ * - tài khoản / loại giao dịch / tháng
+ * - loại giao dịch trên toàn ngân hàng
+ * Các bộ đếm dùng LongAdder / DoubleAdder (các ô đếm phân tán) nên việc ghi từ nhiều luồng
+ * không tranh chấp, và việc đọc cho dashboard là O(1), không cần quét repository.
+ * Khi sổ cái nén phần lịch sử cũ (xem TransactionRepository.compact), các ô theo ngày / tháng của những kỳ
+ * đã nén hết bị loại bỏ (evictBefore) để số ô không tăng mãi; số liệu của các kỳ đó nằm trong bản ghi
+ * tổng hợp theo kỳ (TransactionPeriodSummary). Số liệu toàn ngân hàng được giữ nguyên.
+ */
+public class TransactionRollups {
+    private final ZoneId zone;
+    private final ConcurrentHashMap<String, Cell> accountCells; // account|type|D:day or M:month -> Cell
+    private final ConcurrentHashMap<String, Cell> bankCells;    // type -> Cell
+    private final ConcurrentSkipListMap<LocalDate, Set<String>> dayKeys;   // day -> account cell keys of that day
+    private final ConcurrentSkipListMap<YearMonth, Set<String>> monthKeys; // month -> account cell keys of that month
+    private final LongAdder totalCount;
+    private final DoubleAdder totalVolume;
+
+    public TransactionRollups() {
+        this(ZoneId.systemDefault());
+    }
+
+    /**
+     * Constructor với múi giờ dùng để xác định ngày / tháng của giao dịch.
+     *
+     * @param zone Múi giờ tính kỳ tổng hợp
+     */
+    public TransactionRollups(ZoneId zone) {
+        this.zone = zone;
+        this.accountCells = new ConcurrentHashMap<>();
+        this.bankCells = new ConcurrentHashMap<>();
+        this.dayKeys = new ConcurrentSkipListMap<>();
+        this.monthKeys = new ConcurrentSkipListMap<>();
+        this.totalCount = new LongAdder();
+        this.totalVolume = new DoubleAdder();
+    }
+
+    /**
+     * Cộng dồn một giao dịch vừa ghi sổ vào các số liệu tổng hợp.
+     *
+     * @param accountNumber Số tài khoản sở hữu giao dịch
+     * @param transaction   Giao dịch vừa ghi sổ
+     */
+    public void record(String accountNumber, Transaction transaction) {
+        String type = transaction.getType();
+        double amount = transaction.getAmount();
+        LocalDate day = Instant.ofEpochMilli(transaction.getTimestamp()).atZone(zone).toLocalDate();
+
+        YearMonth month = YearMonth.from(day);
+        accountCell(dayKey(accountNumber, type, day), dayKeys, day).add(amount);
+        accountCell(monthKey(accountNumber, type, month), monthKeys, month).add(amount);
+        cell(bankCells, type).add(amount);
+
+        totalCount.increment();
+        // A transfer posts TRANSFER_OUT and TRANSFER_IN; count the money once
+        if (!"TRANSFER_IN".equals(type)) {
+            totalVolume.add(amount);
+        }
+    }
+
+    /**
+     * Loại bỏ các ô theo ngày và theo tháng của những kỳ kết thúc trước ngày / tháng chứa thời điểm cho trước.
+     * Gọi khi sổ cái đã nén mọi giao dịch đến thời điểm đó.
+     *
+     * @param timestamp Thời điểm của giao dịch mới nhất đã được nén (epoch millis)
+     * @return Số ô đã loại bỏ
+     */
+    public int evictBefore(long timestamp) {
+        LocalDate day = Instant.ofEpochMilli(timestamp).atZone(zone).toLocalDate();
+        return evict(dayKeys.headMap(day)) + evict(monthKeys.headMap(YearMonth.from(day)));
+    }
+
+    /**
+     * Lấy số ô theo tài khoản (ngày và tháng) đang được giữ.
+     *
+     * @return Số ô
+     */
+    public int getAccountCellCount() {
+        return accountCells.size();
+    }
+
+    // ============= Queries =============
+
+    /**
+     * Lấy số liệu của một tài khoản theo loại giao dịch trong một ngày.
+     *
+     * @param accountNumber Số tài khoản
+     * @param type          Loại giao dịch
+     * @param day           Ngày cần lấy
+     * @return Số lượng và tổng tiền
+     */
+    public Totals getDailyTotals(String accountNumber, String type, LocalDate day) {
+        return snapshot(accountCells.get(dayKey(accountNumber, type, day)));
+    }
+
+    /**
+     * Lấy số liệu của một tài khoản theo loại giao dịch trong một tháng.
+     *
+     * @param accountNumber Số tài khoản
+     * @param type          Loại giao dịch
+     * @param month         Tháng cần lấy
+     * @return Số lượng và tổng tiền
+     */
+    public Totals getMonthlyTotals(String accountNumber, String type, YearMonth month) {
+        return snapshot(accountCells.get(monthKey(accountNumber, type, month)));
+    }
+
+    /**
+     * Lấy số liệu toàn ngân hàng theo loại giao dịch.
+     *
+     * @param type Loại giao dịch
+     * @return Số lượng và tổng tiền
+     */
+    public Totals getBankTotals(String type) {
+        return snapshot(bankCells.get(type));
+    }
+
+    /**
+     * Lấy các loại giao dịch đã từng phát sinh (sắp xếp theo tên).
+     *
+     * @return Tập loại giao dịch
+     */
+    public Set<String> getTransactionTypes() {
+        return new TreeSet<>(bankCells.keySet());
+    }
+
+    public long getTotalTransactionCount() {
+        return totalCount.sum();
+    }
+
+    /**
+     * Tổng số tiền đã luân chuyển. Chuyển khoản chỉ được tính một lần (phía chuyển đi).
+     *
+     * @return Tổng số tiền
+     */
+    public double getTotalVolume() {
+        return totalVolume.sum();
+    }
+
+    /**
+     * Xóa toàn bộ số liệu tổng hợp.
+     */
+    public void clear() {
+        accountCells.clear();
+        bankCells.clear();
+        dayKeys.clear();
+        monthKeys.clear();
+        totalCount.reset();
+        totalVolume.reset();
+    }
+
+    // ============= Helpers =============
+
+    private static String dayKey(String accountNumber, String type, LocalDate day) {
+        return accountNumber + '|' + type + "|D:" + day;
+    }
+
+    private static String monthKey(String accountNumber, String type, YearMonth month) {
+        return accountNumber + '|' + type + "|M:" + month;
+    }
+
+    private <P> Cell accountCell(String key, ConcurrentSkipListMap<P, Set<String>> keysByPeriod, P period) {
+        Cell cell = accountCells.get(key);
+        if (cell != null) {
+            return cell;
+        }
+        // New cells belong to recent periods, well after the compaction horizon, so eviction never races this
+        keysByPeriod.computeIfAbsent(period, p -> ConcurrentHashMap.newKeySet()).add(key);
+        return accountCells.computeIfAbsent(key, k -> new Cell());
+    }
+
+    private int evict(Map<?, Set<String>> periods) {
+        int evicted = 0;
+        for (Set<String> keys : periods.values()) {
+            for (String key : keys) {
+                if (accountCells.remove(key) != null) {
+                    evicted++;
+                }
+            }
+        }
+        periods.clear(); // A head-map view, so this drops the periods from the index
+        return evicted;
+    }
+
+    private static Cell cell(ConcurrentHashMap<String, Cell> cells, String key) {
+        Cell cell = cells.get(key);
+        return cell != null ? cell : cells.computeIfAbsent(key, k -> new Cell());
+    }
+
+    private static Totals snapshot(Cell cell) {
+        return cell != null ? new Totals(cell.count.sum(), cell.sum.sum()) : new Totals(0, 0.0);
+    }
+
+    private static class Cell {
+        private final LongAdder count = new LongAdder();
+        private final DoubleAdder sum = new DoubleAdder();
+
+        void add(double amount) {
+            count.increment();
+            sum.add(amount);
+        }
+    }
+
+    /**
+     * Totals - Ảnh chụp số lượng và tổng tiền của một nhóm tổng hợp.
+     */
+    public static class Totals {
+        private final long count;
+        private final double sum;
+
+        public Totals(long count, double sum) {
+            this.count = count;
+            this.sum = sum;
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        public double getSum() {
+            return sum;
+        }
+
+        @Override
+        public String toString() {
+            return "Totals{count=" + count + ", sum=" + sum + '}';
+        }
+    }
+}
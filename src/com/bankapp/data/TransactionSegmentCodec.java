@@ -0,0 +1,503 @@
+package com.bankapp.data;
+
+import com.bankapp.model.Transaction;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * TransactionSegmentCodec - Định dạng nén cho segment lưu trữ giao dịch.
+ * Bố cục một segment:
+ * <pre>
+ *   MAGIC | số bản ghi | từ điển chuỗi | số khối | chỉ mục khối | dữ liệu các khối
+ * </pre>
+ * - Bản ghi được chia thành các khối BLOCK_SIZE phần tử; mỗi khối tự mã hóa độc lập
+ *   nên có thể giải mã riêng một khối (chỉ mục khối lưu độ dài và thời điểm đầu khối).
+ * - Thời điểm: khối lưu giá trị đầu, các bản ghi sau lưu chênh lệch (varint zigzag).
+ * - Số tiền: lưu theo đơn vị cent dạng varint; giá trị không biểu diễn chính xác bằng cent
+ *   (ví dụ tiền lãi) được lưu nguyên 8 byte để giải mã không sai lệch.
+ * - Số dư sau giao dịch: nếu đúng bằng số dư bản ghi trước cộng/trừ số tiền (đúng phép tính
+ *   Account đã dùng) thì không cần lưu gì; nếu không thì lưu chênh lệch cent, hoặc 8 byte.
+ * - Loại và trạng thái: mã hóa bằng bảng từ vựng cố định, gộp chung một byte cờ.
+ * - Tài khoản, mô tả, tiền tố mã giao dịch: mã hóa bằng chỉ số trong từ điển của segment;
+ *   phần số ở cuối mã giao dịch lưu chênh lệch so với bản ghi trước (bit thấp của tham chiếu
+ *   tiền tố cho biết mã có phần số hay không).
+ * - Tham chiếu từ điển 0 nghĩa là null, nên mọi trường chuỗi (kể cả mã giao dịch, loại và trạng thái
+ *   ngoài bảng từ vựng) giải mã lại đúng null. Segment định dạng cũ (TXS1) không phân biệt mã
+ *   giao dịch null với chuỗi rỗng và vẫn đọc được.
+ */
+public class TransactionSegmentCodec {
+    private static final int MAGIC = 0x54585332; // "TXS2"
+    private static final int MAGIC_V1 = 0x54585331; // "TXS1": id prefix is never null, escapes are plain indexes
+    private static final int BLOCK_SIZE = 64;
+    private static final String[] TYPES = {
+            "DEPOSIT", "WITHDRAWAL", "TRANSFER_IN", "TRANSFER_OUT", "INTEREST", "WITHDRAWAL_PENALTY"
+    };
+    private static final int TYPE_ESCAPE = 7;
+    private static final String[] STATUSES = {"SUCCESS", "PENDING", "FAILED"};
+    private static final int STATUS_ESCAPE = 3;
+    private static final double MAX_CENTS_VALUE = 9.0e13; // Keep cents well inside exact double range
+
+    // Flag byte layout: [type:3][status:2][amountCents:1][balanceMode:2]
+    private static final int BALANCE_RAW = 0;
+    private static final int BALANCE_CENTS = 1;
+    private static final int BALANCE_PREDICTED = 2;
+    private static final int BALANCE_MODE_MASK = 0x3;
+    private static final int FLAG_AMOUNT_CENTS = 1 << 2;
+    private static final int STATUS_SHIFT = 3;
+    private static final int TYPE_SHIFT = 5;
+
+    /**
+     * Mã hóa danh sách giao dịch thành một segment nén.
+     *
+     * @param transactions Danh sách giao dịch theo thứ tự ghi sổ
+     * @return Mảng byte của segment
+     */
+    public static byte[] encode(List<Transaction> transactions) {
+        Map<String, Integer> dictionary = new LinkedHashMap<>();
+        for (Transaction transaction : transactions) {
+            String[] id = splitId(transaction.getTransactionId());
+            intern(dictionary, id[0]);
+            intern(dictionary, transaction.getFromAccountNumber());
+            intern(dictionary, transaction.getToAccountNumber());
+            intern(dictionary, transaction.getDescription());
+            if (code(TYPES, transaction.getType()) < 0) {
+                intern(dictionary, transaction.getType());
+            }
+            if (code(STATUSES, transaction.getStatus()) < 0) {
+                intern(dictionary, transaction.getStatus());
+            }
+        }
+
+        List<byte[]> blocks = new ArrayList<>();
+        List<Long> blockTimestamps = new ArrayList<>();
+        for (int start = 0; start < transactions.size(); start += BLOCK_SIZE) {
+            int end = Math.min(start + BLOCK_SIZE, transactions.size());
+            blocks.add(encodeBlock(transactions.subList(start, end), dictionary));
+            blockTimestamps.add(transactions.get(start).getTimestamp());
+        }
+
+        Writer out = new Writer();
+        out.writeInt(MAGIC);
+        out.writeVarLong(transactions.size());
+        out.writeVarLong(dictionary.size());
+        for (String value : dictionary.keySet()) {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            out.writeVarLong(bytes.length);
+            out.write(bytes);
+        }
+        out.writeVarLong(blocks.size());
+        for (int i = 0; i < blocks.size(); i++) {
+            out.writeVarLong(blocks.get(i).length);
+            out.writeVarLong(blockTimestamps.get(i));
+        }
+        for (byte[] block : blocks) {
+            out.write(block);
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * Giải mã toàn bộ segment.
+     *
+     * @param data Mảng byte của segment
+     * @return Danh sách giao dịch theo thứ tự ghi sổ
+     * @throws IOException nếu dữ liệu không đúng định dạng
+     */
+    public static List<Transaction> decode(byte[] data) throws IOException {
+        Header header = readHeader(data);
+        List<Transaction> transactions = new ArrayList<>(header.recordCount);
+        for (int block = 0; block < header.blockOffsets.length; block++) {
+            decodeBlock(data, header, block, transactions);
+        }
+        return transactions;
+    }
+
+    /**
+     * Giải mã riêng khối chứa thời điểm cho trước (khối cuối cùng bắt đầu không muộn hơn
+     * thời điểm đó), dùng để tra cứu mà không phải giải mã cả segment.
+     *
+     * @param data      Mảng byte của segment
+     * @param timestamp Thời điểm cần tìm (epoch millis)
+     * @return Các giao dịch của khối tìm được, rỗng nếu segment bắt đầu sau thời điểm đó
+     * @throws IOException nếu dữ liệu không đúng định dạng
+     */
+    public static List<Transaction> decodeBlockAt(byte[] data, long timestamp) throws IOException {
+        Header header = readHeader(data);
+        int low = 0;
+        int high = header.blockTimestamps.length - 1;
+        int found = -1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (header.blockTimestamps[mid] <= timestamp) {
+                found = mid;
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+        List<Transaction> transactions = new ArrayList<>();
+        if (found >= 0) {
+            decodeBlock(data, header, found, transactions);
+        }
+        return transactions;
+    }
+
+    // ============= Block Encoding =============
+
+    private static byte[] encodeBlock(List<Transaction> transactions, Map<String, Integer> dictionary) {
+        Writer out = new Writer();
+        long previousTimestamp = 0;
+        long previousIdNumber = 0;
+        long previousBalanceCents = 0;
+        double previousBalance = Double.NaN;
+        for (Transaction transaction : transactions) {
+            String[] id = splitId(transaction.getTransactionId());
+            int typeCode = code(TYPES, transaction.getType());
+            int statusCode = code(STATUSES, transaction.getStatus());
+            long amountCents = toCents(transaction.getAmount());
+            double balanceAfter = transaction.getBalanceAfter();
+            long balanceCents = toCents(balanceAfter);
+
+            double predicted = predictBalance(previousBalance, transaction.getType(), transaction.getAmount());
+            int balanceMode;
+            if (!Double.isNaN(predicted)
+                    && Double.doubleToRawLongBits(predicted) == Double.doubleToRawLongBits(balanceAfter)) {
+                balanceMode = BALANCE_PREDICTED;
+            } else if (balanceCents != Long.MIN_VALUE) {
+                balanceMode = BALANCE_CENTS;
+            } else {
+                balanceMode = BALANCE_RAW;
+            }
+            int flags = ((typeCode >= 0 ? typeCode : TYPE_ESCAPE) << TYPE_SHIFT)
+                    | ((statusCode >= 0 ? statusCode : STATUS_ESCAPE) << STATUS_SHIFT)
+                    | balanceMode;
+            if (amountCents != Long.MIN_VALUE) {
+                flags |= FLAG_AMOUNT_CENTS;
+            }
+            out.writeByte(flags);
+
+            out.writeVarLong(zigzag(transaction.getTimestamp() - previousTimestamp));
+            previousTimestamp = transaction.getTimestamp();
+
+            out.writeVarLong((reference(dictionary, id[0]) << 1) | (id[1] != null ? 1 : 0));
+            if (id[1] != null) {
+                long number = Long.parseLong(id[1]);
+                out.writeVarLong(zigzag(number - previousIdNumber));
+                previousIdNumber = number;
+            }
+            if (typeCode < 0) {
+                out.writeVarLong(reference(dictionary, transaction.getType()));
+            }
+            if (statusCode < 0) {
+                out.writeVarLong(reference(dictionary, transaction.getStatus()));
+            }
+            out.writeVarLong(reference(dictionary, transaction.getFromAccountNumber()));
+            out.writeVarLong(reference(dictionary, transaction.getToAccountNumber()));
+            out.writeVarLong(reference(dictionary, transaction.getDescription()));
+
+            if (amountCents != Long.MIN_VALUE) {
+                out.writeVarLong(zigzag(amountCents));
+            } else {
+                out.writeLong(Double.doubleToRawLongBits(transaction.getAmount()));
+            }
+            if (balanceMode == BALANCE_CENTS) {
+                out.writeVarLong(zigzag(balanceCents - previousBalanceCents));
+            } else if (balanceMode == BALANCE_RAW) {
+                out.writeLong(Double.doubleToRawLongBits(balanceAfter));
+            }
+            if (balanceCents != Long.MIN_VALUE) {
+                previousBalanceCents = balanceCents;
+            }
+            previousBalance = balanceAfter;
+        }
+        return out.toByteArray();
+    }
+
+    private static void decodeBlock(byte[] data, Header header, int block, List<Transaction> target)
+            throws IOException {
+        Reader in = new Reader(data, header.blockOffsets[block]);
+        int end = header.blockOffsets[block] + header.blockLengths[block];
+        long previousTimestamp = 0;
+        long previousIdNumber = 0;
+        long previousBalanceCents = 0;
+        double previousBalance = Double.NaN;
+        while (in.position < end) {
+            int flags = in.readByte();
+            long timestamp = previousTimestamp + unzigzag(in.readVarLong());
+            previousTimestamp = timestamp;
+
+            long prefix = in.readVarLong();
+            String transactionId = escaped(header, prefix >>> 1);
+            if ((prefix & 1) != 0) {
+                long number = previousIdNumber + unzigzag(in.readVarLong());
+                previousIdNumber = number;
+                transactionId = transactionId + number;
+            }
+            int typeCode = (flags >>> TYPE_SHIFT) & 0x7;
+            int statusCode = (flags >>> STATUS_SHIFT) & 0x3;
+            String type = typeCode == TYPE_ESCAPE ? escaped(header, in.readVarLong()) : TYPES[typeCode];
+            String status = statusCode == STATUS_ESCAPE ? escaped(header, in.readVarLong()) : STATUSES[statusCode];
+            String fromAccountNumber = dereference(header, in.readVarLong());
+            String toAccountNumber = dereference(header, in.readVarLong());
+            String description = dereference(header, in.readVarLong());
+
+            double amount = (flags & FLAG_AMOUNT_CENTS) != 0
+                    ? unzigzag(in.readVarLong()) / 100.0
+                    : Double.longBitsToDouble(in.readLong());
+            double balanceAfter;
+            switch (flags & BALANCE_MODE_MASK) {
+                case BALANCE_PREDICTED:
+                    balanceAfter = predictBalance(previousBalance, type, amount);
+                    break;
+                case BALANCE_CENTS:
+                    balanceAfter = (previousBalanceCents + unzigzag(in.readVarLong())) / 100.0;
+                    break;
+                case BALANCE_RAW:
+                    balanceAfter = Double.longBitsToDouble(in.readLong());
+                    break;
+                default:
+                    throw new IOException("Unknown balance encoding in transaction segment");
+            }
+            long balanceCents = toCents(balanceAfter);
+            if (balanceCents != Long.MIN_VALUE) {
+                previousBalanceCents = balanceCents;
+            }
+            previousBalance = balanceAfter;
+
+            target.add(new Transaction(transactionId, fromAccountNumber, toAccountNumber,
+                    amount, type, description, timestamp, status, balanceAfter));
+        }
+    }
+
+    /**
+     * Dự đoán số dư sau giao dịch từ số dư trước đó, theo đúng phép cộng/trừ mà Account
+     * thực hiện cho từng loại giao dịch. Trả về NaN nếu không dự đoán được.
+     */
+    private static double predictBalance(double previousBalance, String type, double amount) {
+        if (type == null) {
+            return Double.NaN;
+        }
+        switch (type) {
+            case "DEPOSIT":
+            case "TRANSFER_IN":
+            case "INTEREST":
+                return previousBalance + amount;
+            case "WITHDRAWAL":
+            case "TRANSFER_OUT":
+            case "WITHDRAWAL_PENALTY":
+                return previousBalance - amount;
+            default:
+                return Double.NaN;
+        }
+    }
+
+    // ============= Header =============
+
+    private static class Header {
+        private boolean legacy;
+        private int recordCount;
+        private String[] dictionary;
+        private int[] blockOffsets;
+        private int[] blockLengths;
+        private long[] blockTimestamps;
+    }
+
+    private static Header readHeader(byte[] data) throws IOException {
+        Reader in = new Reader(data, 0);
+        int magic = data.length < 4 ? 0 : in.readInt();
+        if (magic != MAGIC && magic != MAGIC_V1) {
+            throw new IOException("Not a transaction segment");
+        }
+        Header header = new Header();
+        header.legacy = magic == MAGIC_V1;
+        header.recordCount = (int) in.readVarLong();
+        header.dictionary = new String[(int) in.readVarLong()];
+        for (int i = 0; i < header.dictionary.length; i++) {
+            int length = (int) in.readVarLong();
+            header.dictionary[i] = new String(data, in.skip(length), length, StandardCharsets.UTF_8);
+        }
+        int blockCount = (int) in.readVarLong();
+        header.blockLengths = new int[blockCount];
+        header.blockTimestamps = new long[blockCount];
+        for (int i = 0; i < blockCount; i++) {
+            header.blockLengths[i] = (int) in.readVarLong();
+            header.blockTimestamps[i] = in.readVarLong();
+        }
+        header.blockOffsets = new int[blockCount];
+        int offset = in.position;
+        for (int i = 0; i < blockCount; i++) {
+            header.blockOffsets[i] = offset;
+            offset += header.blockLengths[i];
+        }
+        if (offset > data.length) {
+            throw new IOException("Truncated transaction segment");
+        }
+        return header;
+    }
+
+    // ============= Helpers =============
+
+    /**
+     * Tách mã giao dịch thành tiền tố và phần số ở cuối, ví dụ "DEP-123" -> {"DEP-", "123"}.
+     * Phần số chỉ được tách khi có thể khôi phục đúng nguyên văn (không có số 0 ở đầu).
+     */
+    private static String[] splitId(String id) {
+        if (id == null) {
+            return new String[]{null, null};
+        }
+        int start = id.length();
+        while (start > 0 && Character.isDigit(id.charAt(start - 1)) && id.charAt(start - 1) < 128) {
+            start--;
+        }
+        int digits = id.length() - start;
+        if (digits == 0 || digits > 18 || (digits > 1 && id.charAt(start) == '0')) {
+            return new String[]{id, null};
+        }
+        return new String[]{id.substring(0, start), id.substring(start)};
+    }
+
+    private static long toCents(double value) {
+        // -0.0 would come back as 0.0 through cents
+        if (Double.isNaN(value) || Math.abs(value) >= MAX_CENTS_VALUE
+                || Double.doubleToRawLongBits(value) == Double.doubleToRawLongBits(-0.0)) {
+            return Long.MIN_VALUE;
+        }
+        long cents = Math.round(value * 100);
+        return cents / 100.0 == value ? cents : Long.MIN_VALUE;
+    }
+
+    private static int code(String[] vocabulary, String value) {
+        for (int i = 0; i < vocabulary.length; i++) {
+            if (vocabulary[i].equals(value)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static void intern(Map<String, Integer> dictionary, String value) {
+        if (value != null) {
+            dictionary.putIfAbsent(value, dictionary.size());
+        }
+    }
+
+    private static long reference(Map<String, Integer> dictionary, String value) {
+        return value != null ? dictionary.get(value) + 1 : 0;
+    }
+
+    private static String dereference(Header header, long reference) throws IOException {
+        if (reference < 0 || reference > header.dictionary.length) {
+            throw new IOException("Dictionary reference out of range in transaction segment");
+        }
+        return reference == 0 ? null : header.dictionary[(int) reference - 1];
+    }
+
+    /**
+     * Giải mã tiền tố mã giao dịch hoặc loại / trạng thái ngoài bảng từ vựng. Định dạng cũ lưu
+     * chỉ số từ điển trực tiếp (không có null), định dạng mới lưu tham chiếu như các trường chuỗi khác.
+     */
+    private static String escaped(Header header, long value) throws IOException {
+        return header.legacy ? dereference(header, value + 1) : dereference(header, value);
+    }
+
+    private static long zigzag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long unzigzag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private static class Writer extends ByteArrayOutputStream {
+        void writeByte(int value) {
+            write(value);
+        }
+
+        void writeInt(int value) {
+            for (int shift = 24; shift >= 0; shift -= 8) {
+                write(value >>> shift);
+            }
+        }
+
+        void writeLong(long value) {
+            for (int shift = 56; shift >= 0; shift -= 8) {
+                write((int) (value >>> shift));
+            }
+        }
+
+        void writeVarLong(long value) {
+            while ((value & ~0x7FL) != 0) {
+                write((int) ((value & 0x7F) | 0x80));
+                value >>>= 7;
+            }
+            write((int) value);
+        }
+
+        @Override
+        public void write(byte[] bytes) {
+            write(bytes, 0, bytes.length);
+        }
+    }
+
+    private static class Reader {
+        private final byte[] data;
+        private int position;
+
+        Reader(byte[] data, int position) {
+            this.data = data;
+            this.position = position;
+        }
+
+        int readByte() throws IOException {
+            if (position >= data.length) {
+                throw new IOException("Truncated transaction segment");
+            }
+            return data[position++] & 0xFF;
+        }
+
+        int readInt() throws IOException {
+            int value = 0;
+            for (int i = 0; i < 4; i++) {
+                value = (value << 8) | readByte();
+            }
+            return value;
+        }
+
+        long readLong() throws IOException {
+            long value = 0;
+            for (int i = 0; i < 8; i++) {
+                value = (value << 8) | readByte();
+            }
+            return value;
+        }
+
+        long readVarLong() throws IOException {
+            long value = 0;
+            int shift = 0;
+            int b;
+            do {
+                if (shift > 63) {
+                    throw new IOException("Malformed varint in transaction segment");
+                }
+                b = readByte();
+                value |= (long) (b & 0x7F) << shift;
+                shift += 7;
+            } while ((b & 0x80) != 0);
+            return value;
+        }
+
+        int skip(int length) throws IOException {
+            if (length < 0 || position + length > data.length) {
+                throw new IOException("Truncated transaction segment");
+            }
+            int start = position;
+            position += length;
+            return start;
+        }
+    }
+}
@@ -0,0 +1,295 @@
+package com.bankapp.data;
+
+import com.bankapp.model.Transaction;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * TransactionTextIndex - Chỉ mục đảo ngược (inverted index) trên mô tả giao dịch.
+ * Mỗi từ (term) sau khi tách và chuyển về chữ thường được ánh xạ tới danh sách
+ * vị trí (ordinal) các giao dịch chứa từ đó. Danh sách vị trí được nén bằng
+ * mã hóa chênh lệch (delta) và varint nên chỉ tốn khoảng 1-2 byte mỗi phần tử.
+ * Chỉ mục được cập nhật dần khi giao dịch mới được ghi sổ, không cần quét lại lịch sử.
+ * Hỗ trợ tìm theo từ, theo tiền tố và theo cụm từ.
+ * Lớp này không tự đồng bộ - TransactionRepository chịu trách nhiệm khóa khi gọi.
+ */
+public class TransactionTextIndex {
+    private final List<Transaction> rows; // Shared with the owning repository
+    private final TreeMap<String, PostingList> dictionary; // Sorted for prefix lookups
+
+    /**
+     * Constructor - gắn chỉ mục với danh sách bản ghi của sổ cái.
+     *
+     * @param rows Danh sách giao dịch, vị trí trong danh sách là ordinal
+     */
+    public TransactionTextIndex(List<Transaction> rows) {
+        this.rows = rows;
+        this.dictionary = new TreeMap<>();
+    }
+
+    /**
+     * Đưa mô tả của một giao dịch mới vào chỉ mục.
+     * Ordinal phải tăng dần theo thứ tự gọi.
+     *
+     * @param ordinal     Vị trí của giao dịch trong sổ cái
+     * @param transaction Giao dịch cần đánh chỉ mục
+     */
+    public void index(int ordinal, Transaction transaction) {
+        for (String term : tokenize(transaction.getDescription())) {
+            dictionary.computeIfAbsent(term, k -> new PostingList()).add(ordinal);
+        }
+    }
+
+    /**
+     * Tìm các giao dịch có chứa một từ.
+     *
+     * @param term Từ cần tìm
+     * @return Mảng ordinal tăng dần
+     */
+    public int[] searchTerm(String term) {
+        List<String> terms = tokenize(term);
+        if (terms.size() != 1) {
+            return terms.isEmpty() ? new int[0] : searchPhrase(term);
+        }
+        PostingList postings = dictionary.get(terms.get(0));
+        return postings != null ? postings.decode() : new int[0];
+    }
+
+    /**
+     * Tìm các giao dịch có chứa một từ bắt đầu bằng tiền tố cho trước.
+     *
+     * @param prefix Tiền tố cần tìm
+     * @return Mảng ordinal tăng dần
+     */
+    public int[] searchPrefix(String prefix) {
+        List<String> terms = tokenize(prefix);
+        if (terms.size() != 1) {
+            return new int[0];
+        }
+        String start = terms.get(0);
+        Map<String, PostingList> matches = dictionary.subMap(start, true, start + Character.MAX_VALUE, false);
+
+        int total = 0;
+        for (PostingList postings : matches.values()) {
+            total += postings.size();
+        }
+        int[] merged = new int[total];
+        int size = 0;
+        for (PostingList postings : matches.values()) {
+            int[] decoded = postings.decode();
+            System.arraycopy(decoded, 0, merged, size, decoded.length);
+            size += decoded.length;
+        }
+        Arrays.sort(merged);
+        return distinct(merged);
+    }
+
+    /**
+     * Tìm các giao dịch có chứa một cụm từ (các từ liên tiếp, đúng thứ tự).
+     * Giao các danh sách vị trí bắt đầu từ danh sách ngắn nhất, sau đó
+     * kiểm tra lại thứ tự từ trên mô tả của các ứng viên.
+     *
+     * @param phrase Cụm từ cần tìm
+     * @return Mảng ordinal tăng dần
+     */
+    public int[] searchPhrase(String phrase) {
+        List<String> terms = tokenize(phrase);
+        if (terms.isEmpty()) {
+            return new int[0];
+        }
+
+        List<PostingList> lists = new ArrayList<>();
+        for (String term : terms) {
+            PostingList postings = dictionary.get(term);
+            if (postings == null) {
+                return new int[0];
+            }
+            lists.add(postings);
+        }
+        lists.sort((a, b) -> Integer.compare(a.size(), b.size()));
+
+        int[] candidates = lists.get(0).decode();
+        for (int i = 1; i < lists.size() && candidates.length > 0; i++) {
+            candidates = intersect(candidates, lists.get(i).decode());
+        }
+        if (terms.size() == 1) {
+            return candidates;
+        }
+
+        int[] matches = new int[candidates.length];
+        int size = 0;
+        for (int ordinal : candidates) {
+            Transaction transaction = rows.get(ordinal);
+            if (transaction != null && containsSequence(tokenize(transaction.getDescription()), terms)) {
+                matches[size++] = ordinal;
+            }
+        }
+        return Arrays.copyOf(matches, size);
+    }
+
+    /**
+     * Lấy số lượng từ phân biệt trong chỉ mục.
+     *
+     * @return Số từ phân biệt
+     */
+    public int getTermCount() {
+        return dictionary.size();
+    }
+
+    /**
+     * Loại bỏ khỏi chỉ mục mọi vị trí nhỏ hơn mốc cho trước (các giao dịch đã bị nén khỏi sổ cái).
+     * Từ không còn vị trí nào bị xóa khỏi từ điển.
+     *
+     * @param ordinal Mốc vị trí
+     */
+    public void trimBefore(int ordinal) {
+        Iterator<Map.Entry<String, PostingList>> entries = dictionary.entrySet().iterator();
+        while (entries.hasNext()) {
+            Map.Entry<String, PostingList> entry = entries.next();
+            if (entry.getValue().lastOrdinal < ordinal) {
+                entries.remove();
+                continue;
+            }
+            int[] ordinals = entry.getValue().decode();
+            if (ordinals[0] >= ordinal) {
+                continue;
+            }
+            PostingList trimmed = new PostingList();
+            for (int value : ordinals) {
+                if (value >= ordinal) {
+                    trimmed.add(value);
+                }
+            }
+            entry.setValue(trimmed);
+        }
+    }
+
+    /**
+     * Xóa toàn bộ chỉ mục.
+     */
+    public void clear() {
+        dictionary.clear();
+    }
+
+    // ============= Tokenizer =============
+
+    /**
+     * Tách văn bản thành các từ chữ thường, phân cách bởi ký tự không phải chữ hoặc số.
+     *
+     * @param text Văn bản cần tách
+     * @return Danh sách từ theo thứ tự xuất hiện
+     */
+    static List<String> tokenize(String text) {
+        List<String> terms = new ArrayList<>();
+        if (text == null) {
+            return terms;
+        }
+        int start = -1;
+        for (int i = 0; i <= text.length(); i++) {
+            boolean wordChar = i < text.length() && Character.isLetterOrDigit(text.charAt(i));
+            if (wordChar && start < 0) {
+                start = i;
+            } else if (!wordChar && start >= 0) {
+                terms.add(text.substring(start, i).toLowerCase(Locale.ROOT));
+                start = -1;
+            }
+        }
+        return terms;
+    }
+
+    private static boolean containsSequence(List<String> tokens, List<String> sequence) {
+        for (int i = 0; i + sequence.size() <= tokens.size(); i++) {
+            if (tokens.subList(i, i + sequence.size()).equals(sequence)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static int[] intersect(int[] a, int[] b) {
+        int[] result = new int[Math.min(a.length, b.length)];
+        int i = 0;
+        int j = 0;
+        int size = 0;
+        while (i < a.length && j < b.length) {
+            if (a[i] < b[j]) {
+                i++;
+            } else if (a[i] > b[j]) {
+                j++;
+            } else {
+                result[size++] = a[i];
+                i++;
+                j++;
+            }
+        }
+        return Arrays.copyOf(result, size);
+    }
+
+    private static int[] distinct(int[] sorted) {
+        int size = 0;
+        for (int i = 0; i < sorted.length; i++) {
+            if (size == 0 || sorted[size - 1] != sorted[i]) {
+                sorted[size++] = sorted[i];
+            }
+        }
+        return Arrays.copyOf(sorted, size);
+    }
+
+    // ============= Compressed Postings =============
+
+    /**
+     * Danh sách vị trí nén: lưu chênh lệch giữa các ordinal liên tiếp dưới dạng varint
+     * (7 bit dữ liệu mỗi byte, bit cao báo còn byte tiếp theo).
+     */
+    private static class PostingList {
+        private byte[] data = new byte[4];
+        private int length;
+        private int count;
+        private int lastOrdinal = -1;
+
+        void add(int ordinal) {
+            if (ordinal == lastOrdinal) {
+                return; // Term repeated within the same description
+            }
+            int delta = ordinal - lastOrdinal;
+            if (length + 5 > data.length) {
+                data = Arrays.copyOf(data, data.length * 2);
+            }
+            while ((delta & ~0x7F) != 0) {
+                data[length++] = (byte) ((delta & 0x7F) | 0x80);
+                delta >>>= 7;
+            }
+            data[length++] = (byte) delta;
+            lastOrdinal = ordinal;
+            count++;
+        }
+
+        int[] decode() {
+            int[] ordinals = new int[count];
+            int position = 0;
+            int previous = -1;
+            for (int i = 0; i < count; i++) {
+                int delta = 0;
+                int shift = 0;
+                byte b;
+                do {
+                    b = data[position++];
+                    delta |= (b & 0x7F) << shift;
+                    shift += 7;
+                } while ((b & 0x80) != 0);
+                previous += delta;
+                ordinals[i] = previous;
+            }
+            return ordinals;
+        }
+
+        int size() {
+            return count;
+        }
+    }
+}
@@ -0,0 +1,245 @@
+package com.bankapp.data;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * TransferLog - Nhật ký của bên điều phối chuyển khoản hai pha (two-phase commit) giữa các phân vùng.
+ * Mỗi chuyển khoản đi qua các bản ghi BEGIN (trước khi giữ chỗ tiền), COMMIT hoặc ABORT
+ * (quyết định cuối cùng) và END (khi mọi phân vùng đã áp dụng quyết định).
+ * Khi có thư mục, mỗi bản ghi được nối vào file và ép xuống đĩa trước khi trả về, nên sau khi
+ * khởi động lại có thể tìm ra các chuyển khoản còn dang dở (chưa có END) để xử lý tiếp.
+ * Bản ghi BEGIN mang cả mô tả của chuyển khoản (mã hóa URL để không chứa khoảng trắng hay xuống dòng),
+ * nên các bước được xử lý tiếp khi khôi phục vẫn ghi đúng mô tả người chuyển đã nhập.
+ * Không có thư mục thì nhật ký chỉ nằm trong bộ nhớ.
+ */
+public class TransferLog {
+    private static final String FILE_NAME = "transfers.log";
+    private final Map<String, Entry> unfinished; // transferId -> entry, in BEGIN order
+    private final AtomicLong sequence;
+    private final FileChannel channel; // null when the log is memory-only
+
+    /**
+     * Một chuyển khoản chưa kết thúc.
+     */
+    public static class Entry {
+        private final String transferId;
+        private final String fromAccountNumber;
+        private final String toAccountNumber;
+        private final double amount;
+        private final String description;
+        private String decision; // null while in doubt, otherwise COMMIT or ABORT
+
+        Entry(String transferId, String fromAccountNumber, String toAccountNumber, double amount, String description) {
+            this.transferId = transferId;
+            this.fromAccountNumber = fromAccountNumber;
+            this.toAccountNumber = toAccountNumber;
+            this.amount = amount;
+            this.description = description;
+        }
+
+        public String getTransferId() {
+            return transferId;
+        }
+
+        public String getFromAccountNumber() {
+            return fromAccountNumber;
+        }
+
+        public String getToAccountNumber() {
+            return toAccountNumber;
+        }
+
+        public double getAmount() {
+            return amount;
+        }
+
+        /**
+         * Lấy mô tả của chuyển khoản.
+         *
+         * @return Mô tả, hoặc null nếu người chuyển không nhập
+         */
+        public String getDescription() {
+            return description;
+        }
+
+        /**
+         * Lấy quyết định đã ghi cho chuyển khoản.
+         *
+         * @return "COMMIT", "ABORT", hoặc null nếu chưa có quyết định (in-doubt)
+         */
+        public String getDecision() {
+            return decision;
+        }
+    }
+
+    /**
+     * Constructor cho TransferLog. Nếu thư mục đã có nhật ký, các chuyển khoản chưa kết thúc được nạp lại.
+     *
+     * @param directory Thư mục chứa nhật ký, hoặc null để chỉ giữ trong bộ nhớ
+     */
+    public TransferLog(Path directory) {
+        this.unfinished = new LinkedHashMap<>();
+        long lastSequence = 0;
+        if (directory == null) {
+            this.channel = null;
+        } else {
+            Path file = directory.resolve(FILE_NAME);
+            try {
+                Files.createDirectories(directory);
+                if (Files.exists(file)) {
+                    for (String line : Files.readAllLines(file, StandardCharsets.UTF_8)) {
+                        lastSequence = Math.max(lastSequence, replay(line));
+                    }
+                }
+                this.channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                        StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Cannot open transfer log " + file, e);
+            }
+        }
+        this.sequence = new AtomicLong(lastSequence);
+    }
+
+    /**
+     * Ghi bắt đầu một chuyển khoản và cấp mã chuyển khoản.
+     *
+     * @param fromAccountNumber Số tài khoản nguồn
+     * @param toAccountNumber Số tài khoản đích
+     * @param amount Số tiền chuyển
+     * @return Mã chuyển khoản
+     */
+    public String begin(String fromAccountNumber, String toAccountNumber, double amount) {
+        return begin(fromAccountNumber, toAccountNumber, amount, null);
+    }
+
+    /**
+     * Ghi bắt đầu một chuyển khoản kèm mô tả và cấp mã chuyển khoản.
+     *
+     * @param fromAccountNumber Số tài khoản nguồn
+     * @param toAccountNumber Số tài khoản đích
+     * @param amount Số tiền chuyển
+     * @param description Mô tả giao dịch, hoặc null
+     * @return Mã chuyển khoản
+     */
+    public synchronized String begin(String fromAccountNumber, String toAccountNumber, double amount,
+                                     String description) {
+        String transferId = "XFR-" + System.currentTimeMillis() + "-" + sequence.incrementAndGet();
+        append("BEGIN " + transferId + " " + fromAccountNumber + " " + toAccountNumber + " " + amount
+                + (description != null ? " " + URLEncoder.encode(description, StandardCharsets.UTF_8) : ""));
+        unfinished.put(transferId, new Entry(transferId, fromAccountNumber, toAccountNumber, amount, description));
+        return transferId;
+    }
+
+    /**
+     * Ghi quyết định cuối cùng của một chuyển khoản.
+     *
+     * @param transferId Mã chuyển khoản
+     * @param commit true để xác nhận, false để hủy
+     */
+    public synchronized void decide(String transferId, boolean commit) {
+        Entry entry = unfinished.get(transferId);
+        if (entry == null || entry.decision != null) {
+            return;
+        }
+        entry.decision = commit ? "COMMIT" : "ABORT";
+        append(entry.decision + " " + transferId);
+    }
+
+    /**
+     * Ghi nhận mọi phân vùng đã áp dụng quyết định của chuyển khoản.
+     *
+     * @param transferId Mã chuyển khoản
+     */
+    public synchronized void end(String transferId) {
+        if (unfinished.remove(transferId) != null) {
+            append("END " + transferId);
+        }
+    }
+
+    /**
+     * Lấy các chuyển khoản chưa kết thúc (chưa quyết định, hoặc đã quyết định nhưng chưa áp dụng xong).
+     *
+     * @return Danh sách chuyển khoản theo thứ tự bắt đầu
+     */
+    public synchronized List<Entry> getUnfinished() {
+        return new ArrayList<>(unfinished.values());
+    }
+
+    /**
+     * Đóng file nhật ký.
+     */
+    public synchronized void close() {
+        if (channel != null) {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                // Every record was already forced to disk
+            }
+        }
+    }
+
+    private void append(String record) {
+        if (channel == null) {
+            return;
+        }
+        try {
+            ByteBuffer bytes = ByteBuffer.wrap((record + "\n").getBytes(StandardCharsets.UTF_8));
+            while (bytes.hasRemaining()) {
+                channel.write(bytes);
+            }
+            channel.force(false);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot write transfer log", e);
+        }
+    }
+
+    private long replay(String line) {
+        String[] parts = line.trim().split(" ");
+        if (parts.length < 2) {
+            return 0; // A torn final record from a crash
+        }
+        String transferId = parts[1];
+        switch (parts[0]) {
+            case "BEGIN":
+                if (parts.length == 5 || parts.length == 6) {
+                    // Records written before descriptions were logged have five fields
+                    String description = parts.length == 6 ? URLDecoder.decode(parts[5], StandardCharsets.UTF_8) : null;
+                    unfinished.put(transferId, new Entry(transferId, parts[2], parts[3],
+                            Double.parseDouble(parts[4]), description));
+                }
+                break;
+            case "COMMIT":
+            case "ABORT":
+                Entry entry = unfinished.get(transferId);
+                if (entry != null) {
+                    entry.decision = parts[0];
+                }
+                break;
+            case "END":
+                unfinished.remove(transferId);
+                break;
+            default:
+                break;
+        }
+        int dash = transferId.lastIndexOf('-');
+        try {
+            return dash >= 0 ? Long.parseLong(transferId.substring(dash + 1)) : 0;
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+}
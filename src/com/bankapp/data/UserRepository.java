@@ -1,42 +1,108 @@
 package com.bankapp.data;
 
+import com.bankapp.model.Account;
 import com.bankapp.model.User;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
 
 /**
  * UserRepository - Đối tượng truy xuất dữ liệu cho thực thể User.
  * Xử lý việc lưu trữ và truy vấn người dùng.
+ * Người dùng được lưu trong NumericKeyedMap: mã người dùng được mã hóa thành khóa số.
+ * Với số lượng khách hàng rất lớn, có thể dùng OffHeapUserDirectory để giữ người dùng ngoài heap;
+ * khi đó tra cứu theo tên đăng nhập đi qua chỉ mục của danh bạ thay vì duyệt toàn bộ.
+ * Khi người dùng nằm trên heap, một chỉ mục tên đăng nhập -> mã người dùng được duy trì song song
+ * để việc kiểm tra trùng tên không phải duyệt toàn bộ người dùng.
+ * Người dùng chỉ giữ số tài khoản; repository gắn hàm tra cứu tài khoản (setAccountResolver)
+ * vào mỗi người dùng được lưu hoặc trả về.
+ * Mọi thao tác đều đồng bộ trên repository: bảng người dùng và chỉ mục tên đăng nhập không an toàn
+ * khi dùng đồng thời, và save kiểm tra trùng mã người dùng lẫn tên đăng nhập rồi thêm trong cùng
+ * một bước, nên hai lần đăng ký cùng tên chạy song song không thể cùng thành công.
  */
 public class UserRepository {
     private Map<String, User> users; // userId -> User
+    private final OffHeapUserDirectory directory; // null when users stay on the heap
+    private final Map<String, String> usernameIndex; // username -> userId; null when the directory indexes it
+    private Function<String, Account> accountResolver;
 
     public UserRepository() {
-        this.users = new HashMap<>();
+        this.users = new NumericKeyedMap<>();
+        this.directory = null;
+        this.usernameIndex = new HashMap<>();
+    }
+
+    /**
+     * Constructor dùng danh bạ người dùng ngoài heap.
+     *
+     * @param directory Danh bạ lưu trữ người dùng
+     */
+    public UserRepository(OffHeapUserDirectory directory) {
+        this.users = directory;
+        this.directory = directory;
+        this.usernameIndex = null;
+    }
+
+    /**
+     * Đặt hàm tra cứu tài khoản cho người dùng (ví dụ AccountRepository::findByAccountNumber).
+     *
+     * @param accountResolver Hàm tra cứu tài khoản theo số tài khoản
+     */
+    public synchronized void setAccountResolver(Function<String, Account> accountResolver) {
+        this.accountResolver = accountResolver;
+        if (directory != null) {
+            directory.setAccountResolver(accountResolver);
+        }
     }
 
     /**
      * Lưu một người dùng vào repository.
      *
      * @param user Đối tượng User cần lưu
-     * @return true nếu lưu thành công, false nếu người dùng đã tồn tại
+     * @return true nếu lưu thành công, false nếu mã người dùng hoặc tên đăng nhập đã tồn tại
      */
-    public boolean save(User user) {
-        if (user == null || users.containsKey(user.getUserId())) {
+    public synchronized boolean save(User user) {
+        if (user == null || users.containsKey(user.getUserId()) || usernameExists(user.getUsername())) {
             return false;
         }
+        user.setAccountResolver(accountResolver);
         users.put(user.getUserId(), user);
+        if (usernameIndex != null) {
+            usernameIndex.put(user.getUsername(), user.getUserId());
+        }
         return true;
     }
 
+    /**
+     * Lưu nhiều người dùng trong một lần gọi (dùng khi đăng ký hàng loạt).
+     * Người dùng null, trùng mã người dùng hoặc trùng tên đăng nhập bị bỏ qua.
+     *
+     * @param batch Danh sách người dùng cần lưu
+     * @return Danh sách người dùng đã được lưu, theo thứ tự đầu vào
+     */
+    public synchronized List<User> saveAll(List<User> batch) {
+        List<User> saved = new ArrayList<>(batch.size());
+        for (User user : batch) {
+            if (save(user)) {
+                saved.add(user);
+            }
+        }
+        return saved;
+    }
+
     /**
      * Tìm người dùng theo ID.
      *
      * @param userId ID người dùng cần tìm
      * @return Đối tượng User nếu tìm thấy, null nếu không
      */
-    public User findById(String userId) {
-        return users.get(userId);
+    public synchronized User findById(String userId) {
+        return withResolver(users.get(userId));
     }
 
     /**
@@ -45,11 +111,12 @@ public class UserRepository {
      * @param username Tên đăng nhập cần tìm
      * @return Đối tượng User nếu tìm thấy, null nếu không
      */
-    public User findByUsername(String username) {
-        return users.values().stream()
-                .filter(user -> user.getUsername().equals(username))
-                .findFirst()
-                .orElse(null);
+    public synchronized User findByUsername(String username) {
+        if (directory != null) {
+            return directory.findByUsername(username);
+        }
+        String userId = usernameIndex.get(username);
+        return userId != null ? withResolver(users.get(userId)) : null;
     }
 
     /**
@@ -58,10 +125,11 @@ public class UserRepository {
      * @param user Đối tượng User cần cập nhật
      * @return true nếu cập nhật thành công, false nếu không tìm thấy người dùng
      */
-    public boolean update(User user) {
+    public synchronized boolean update(User user) {
         if (user == null || !users.containsKey(user.getUserId())) {
             return false;
         }
+        user.setAccountResolver(accountResolver);
         users.put(user.getUserId(), user);
         return true;
     }
@@ -72,8 +140,12 @@ public class UserRepository {
      * @param userId ID người dùng cần xóa
      * @return true nếu xóa thành công, false nếu không tìm thấy
      */
-    public boolean delete(String userId) {
-        return users.remove(userId) != null;
+    public synchronized boolean delete(String userId) {
+        User removed = users.remove(userId);
+        if (removed != null && usernameIndex != null) {
+            usernameIndex.remove(removed.getUsername(), userId);
+        }
+        return removed != null;
     }
 
     /**
@@ -82,7 +154,7 @@ public class UserRepository {
      * @param userId ID người dùng cần kiểm tra
      * @return true nếu tồn tại, false nếu không
      */
-    public boolean exists(String userId) {
+    public synchronized boolean exists(String userId) {
         return users.containsKey(userId);
     }
 
@@ -92,9 +164,40 @@ public class UserRepository {
      * @param username Tên đăng nhập cần kiểm tra
      * @return true nếu đã tồn tại, false nếu chưa
      */
-    public boolean usernameExists(String username) {
-        return users.values().stream()
-                .anyMatch(user -> user.getUsername().equals(username));
+    public synchronized boolean usernameExists(String username) {
+        if (directory != null) {
+            return directory.containsUsername(username);
+        }
+        return usernameIndex.containsKey(username);
+    }
+
+    /**
+     * Kiểm tra cùng lúc nhiều tên đăng nhập (dùng khi đăng ký hàng loạt).
+     *
+     * @param usernames Các tên đăng nhập cần kiểm tra
+     * @return Tập các tên trong đầu vào đã được sử dụng
+     */
+    public synchronized Set<String> findExistingUsernames(Collection<String> usernames) {
+        Set<String> existing = new HashSet<>();
+        for (String username : usernames) {
+            if (usernameExists(username)) {
+                existing.add(username);
+            }
+        }
+        return existing;
+    }
+
+    /**
+     * Lấy danh sách tất cả người dùng.
+     *
+     * @return Danh sách người dùng
+     */
+    public synchronized List<User> findAll() {
+        List<User> all = new ArrayList<>(users.values());
+        for (User user : all) {
+            user.setAccountResolver(accountResolver);
+        }
+        return all;
     }
 
     /**
@@ -102,14 +205,24 @@ public class UserRepository {
      *
      * @return Số lượng người dùng
      */
-    public int getUserCount() {
+    public synchronized int getUserCount() {
         return users.size();
     }
 
+    private User withResolver(User user) {
+        if (user != null) {
+            user.setAccountResolver(accountResolver);
+        }
+        return user;
+    }
+
     /**
      * Xóa toàn bộ người dùng khỏi repository.
      */
-    public void clear() {
+    public synchronized void clear() {
         users.clear();
+        if (usernameIndex != null) {
+            usernameIndex.clear();
+        }
     }
 }
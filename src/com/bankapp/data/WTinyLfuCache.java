@@ -0,0 +1,198 @@
+package com.bankapp.data;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.BiConsumer;
+
+/**
+ * WTinyLfuCache - Bộ đệm có giới hạn với chính sách W-TinyLFU.
+ * - Cửa sổ (window, khoảng 1% dung lượng) là một LRU nhỏ nhận mọi phần tử mới.
+ * - Vùng chính là SLRU gồm đoạn thử việc (probation) và đoạn bảo vệ (protected, 80%).
+ * - Phần tử bị đẩy khỏi cửa sổ chỉ được nhận vào vùng chính nếu tần suất truy cập ước lượng
+ *   (count-min sketch 4 bit, giảm một nửa định kỳ) lớn hơn phần tử sắp bị loại của vùng chính.
+ * Nhờ vậy một đợt quét qua nhiều khóa chỉ dùng một lần không đẩy được các khóa nóng ra ngoài.
+ * Phần tử bị loại (không được nhận vào vùng chính, hoặc bị thay thế) được báo qua evictionListener.
+ * Lớp không tự đồng bộ; lớp sử dụng chịu trách nhiệm khóa.
+ */
+class WTinyLfuCache<K, V> {
+    private final int windowCapacity;
+    private final int protectedCapacity;
+    private final int mainCapacity;
+    private final LinkedHashMap<K, V> window;
+    private final LinkedHashMap<K, V> probation;
+    private final LinkedHashMap<K, V> protectedSegment;
+    private final FrequencySketch sketch;
+    private final BiConsumer<K, V> evictionListener;
+
+    WTinyLfuCache(int capacity) {
+        this(capacity, (key, value) -> { });
+    }
+
+    WTinyLfuCache(int capacity, BiConsumer<K, V> evictionListener) {
+        this.evictionListener = evictionListener;
+        int total = Math.max(2, capacity);
+        this.windowCapacity = Math.max(1, total / 100);
+        this.mainCapacity = total - windowCapacity;
+        this.protectedCapacity = Math.max(1, mainCapacity * 8 / 10);
+        this.window = new LinkedHashMap<>(16, 0.75f, true);
+        this.probation = new LinkedHashMap<>(16, 0.75f, true);
+        this.protectedSegment = new LinkedHashMap<>(16, 0.75f, true);
+        this.sketch = new FrequencySketch(total);
+    }
+
+    V get(K key) {
+        sketch.increment(key);
+        V value = window.get(key);
+        if (value != null) {
+            return value;
+        }
+        value = protectedSegment.get(key);
+        if (value != null) {
+            return value;
+        }
+        value = probation.remove(key);
+        if (value != null) {
+            // Second hit: promote to protected, demoting its LRU entry back to probation
+            protectedSegment.put(key, value);
+            if (protectedSegment.size() > protectedCapacity) {
+                Map.Entry<K, V> demoted = eldest(protectedSegment);
+                protectedSegment.remove(demoted.getKey());
+                probation.put(demoted.getKey(), demoted.getValue());
+            }
+        }
+        return value;
+    }
+
+    /**
+     * Thêm hoặc thay giá trị. Khóa đã có trong bộ đệm giữ nguyên vị trí hiện tại.
+     *
+     * @return Giá trị cũ nếu khóa đã có trong bộ đệm, null nếu không
+     */
+    V put(K key, V value) {
+        if (window.containsKey(key)) {
+            return window.put(key, value);
+        }
+        if (protectedSegment.containsKey(key)) {
+            return protectedSegment.put(key, value);
+        }
+        if (probation.containsKey(key)) {
+            return probation.put(key, value);
+        }
+        sketch.increment(key);
+        window.put(key, value);
+        if (window.size() > windowCapacity) {
+            Map.Entry<K, V> candidate = eldest(window);
+            window.remove(candidate.getKey());
+            admit(candidate.getKey(), candidate.getValue());
+        }
+        return null;
+    }
+
+    V remove(K key) {
+        V value = window.remove(key);
+        if (value == null) {
+            value = probation.remove(key);
+        }
+        if (value == null) {
+            value = protectedSegment.remove(key);
+        }
+        return value;
+    }
+
+    int size() {
+        return window.size() + probation.size() + protectedSegment.size();
+    }
+
+    void clear() {
+        window.clear();
+        probation.clear();
+        protectedSegment.clear();
+    }
+
+    private void admit(K key, V value) {
+        if (probation.size() + protectedSegment.size() < mainCapacity) {
+            probation.put(key, value);
+            return;
+        }
+        LinkedHashMap<K, V> victimSegment = probation.isEmpty() ? protectedSegment : probation;
+        K victim = eldest(victimSegment).getKey();
+        if (sketch.frequency(key) > sketch.frequency(victim)) {
+            V evicted = victimSegment.remove(victim);
+            probation.put(key, value);
+            evictionListener.accept(victim, evicted);
+        } else {
+            // The candidate is dropped and the main segment keeps its entry
+            evictionListener.accept(key, value);
+        }
+    }
+
+    private static <K, V> Map.Entry<K, V> eldest(LinkedHashMap<K, V> segment) {
+        Iterator<Map.Entry<K, V>> iterator = segment.entrySet().iterator();
+        return iterator.next();
+    }
+
+    /**
+     * FrequencySketch - Count-min sketch 4 hàng, bộ đếm tối đa 15.
+     * Sau mỗi (10 x dung lượng) lần tăng, mọi bộ đếm giảm một nửa để quên dần lịch sử cũ.
+     */
+    private static class FrequencySketch {
+        private static final int DEPTH = 4;
+        private static final int MAX_COUNT = 15;
+        private static final int[] SEEDS = {0x9E3779B9, 0x85EBCA6B, 0xC2B2AE35, 0x27D4EB2F};
+        private final byte[][] table;
+        private final int mask;
+        private final int sampleSize;
+        private int additions;
+
+        FrequencySketch(int capacity) {
+            int width = Integer.highestOneBit(Math.max(16, capacity) - 1) << 1;
+            this.table = new byte[DEPTH][width];
+            this.mask = width - 1;
+            this.sampleSize = 10 * Math.max(16, capacity);
+        }
+
+        void increment(Object key) {
+            int hash = spread(key.hashCode());
+            boolean added = false;
+            for (int row = 0; row < DEPTH; row++) {
+                int index = index(hash, row);
+                if (table[row][index] < MAX_COUNT) {
+                    table[row][index]++;
+                    added = true;
+                }
+            }
+            if (added && ++additions >= sampleSize) {
+                reset();
+            }
+        }
+
+        int frequency(Object key) {
+            int hash = spread(key.hashCode());
+            int frequency = MAX_COUNT;
+            for (int row = 0; row < DEPTH; row++) {
+                frequency = Math.min(frequency, table[row][index(hash, row)]);
+            }
+            return frequency;
+        }
+
+        private void reset() {
+            for (byte[] row : table) {
+                for (int i = 0; i < row.length; i++) {
+                    row[i] = (byte) (row[i] >>> 1);
+                }
+            }
+            additions /= 2;
+        }
+
+        private int index(int hash, int row) {
+            int h = hash * SEEDS[row];
+            return (h ^ (h >>> 16)) & mask;
+        }
+
+        private static int spread(int hash) {
+            int h = hash ^ (hash >>> 16);
+            return h * 0x45D9F3B;
+        }
+    }
+}
@@ -1,21 +1,34 @@
 package com.bankapp.model;
 
+import java.io.IOException;
+import java.io.ObjectOutputStream;
 import java.io.Serializable;
+import java.lang.ref.WeakReference;
 import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
 
 /**
  * Lớp trừu tượng cơ sở cho tất cả các loại tài khoản.
  * Thể hiện nguyên lý Trừu tượng - định nghĩa giao diện chung cho mọi tài khoản.
  * Sử dụng Bao đóng (Encapsulation) - che giấu chi tiết triển khai bên trong.
+ * Phần lịch sử trong bộ nhớ được đồng bộ trên chính đối tượng tài khoản, vì tác vụ nén sổ cái
+ * (LedgerCompactor) giải phóng giao dịch cũ từ một luồng nền.
  */
 public abstract class Account implements Serializable {
     private static final long serialVersionUID = 1L;
+    private static final int CHECKPOINT_INTERVAL = 64; // Record a balance checkpoint every N transactions
     protected String accountNumber;
     protected double balance;
+    protected double openingBalance;
     protected long createdAt;
-    protected List<Transaction> transactions;
+    protected List<Transaction> transactions; // In-memory (hot) tail of the history
+    protected int archivedTransactionCount;   // Older transactions moved to the history store
+    protected List<BalanceCheckpoint> balanceCheckpoints;
     protected boolean isActive;
+    protected String ownerUserId; // Lets a reloaded instance be re-attached to its owner
+    // Listeners are held weakly so that discarded User views do not keep receiving events
+    private transient List<WeakReference<AccountBalanceListener>> balanceListeners;
 
     /**
      * Constructor cho Account.
@@ -26,8 +39,11 @@ public abstract class Account implements Serializable {
     public Account(String accountNumber, double initialBalance) {
         this.accountNumber = accountNumber;
         this.balance = initialBalance;
+        this.openingBalance = initialBalance;
         this.createdAt = System.currentTimeMillis();
         this.transactions = new ArrayList<>();
+        this.archivedTransactionCount = 0;
+        this.balanceCheckpoints = new ArrayList<>();
         this.isActive = true;
     }
 
@@ -45,10 +61,60 @@ public abstract class Account implements Serializable {
         return createdAt;
     }
 
-    public List<Transaction> getTransactions() {
+    public synchronized String getOwnerUserId() {
+        return ownerUserId;
+    }
+
+    public synchronized void setOwnerUserId(String ownerUserId) {
+        this.ownerUserId = ownerUserId;
+    }
+
+    public double getOpeningBalance() {
+        return openingBalance;
+    }
+
+    /**
+     * Lấy các giao dịch còn nằm trong bộ nhớ (phần gần đây của lịch sử).
+     * Các giao dịch cũ hơn đã được chuyển ra kho lưu trữ thì không có ở đây;
+     * dùng TransactionService.getTransactionHistory để lấy toàn bộ lịch sử.
+     *
+     * @return Danh sách giao dịch trong bộ nhớ
+     */
+    public synchronized List<Transaction> getTransactions() {
         return new ArrayList<>(transactions);
     }
 
+    /**
+     * Lấy tổng số giao dịch của tài khoản, kể cả các giao dịch đã lưu trữ.
+     *
+     * @return Tổng số giao dịch
+     */
+    public synchronized int getTransactionCount() {
+        return archivedTransactionCount + transactions.size();
+    }
+
+    public synchronized int getArchivedTransactionCount() {
+        return archivedTransactionCount;
+    }
+
+    /**
+     * Lấy các giao dịch kể từ một vị trí trong lịch sử tài khoản.
+     * Dùng để lấy ra các giao dịch vừa phát sinh sau một thao tác.
+     * Vị trí tính trên toàn bộ lịch sử; phần đã lưu trữ không được trả về.
+     *
+     * @param fromIndex Vị trí bắt đầu (tính từ 0)
+     * @return Danh sách giao dịch từ vị trí đó đến cuối
+     */
+    public synchronized List<Transaction> getTransactionsFrom(int fromIndex) {
+        int size = transactions.size();
+        int startIndex = Math.min(Math.max(0, fromIndex - archivedTransactionCount), size);
+        return new ArrayList<>(transactions.subList(startIndex, size));
+    }
+
+    public synchronized List<BalanceCheckpoint> getBalanceCheckpoints() {
+        return new ArrayList<>(balanceCheckpoints);
+    }
+
     public boolean isActive() {
         return isActive;
     }
@@ -88,10 +154,10 @@ public abstract class Account implements Serializable {
      * @return true nếu nạp thành công, false nếu thất bại
      */
     public boolean deposit(double amount, String description) {
-        if (amount <= 0) {
+        if (!Double.isFinite(amount) || amount <= 0) {
             return false;
         }
-        this.balance += amount;
+        adjustBalance(amount);
         Transaction transaction = new Transaction(
                 "DEP-" + System.nanoTime(),
                 this.accountNumber,
@@ -100,7 +166,7 @@ public abstract class Account implements Serializable {
                 "DEPOSIT",
                 description
         );
-        this.transactions.add(transaction);
+        recordTransaction(transaction);
         return true;
     }
 
@@ -112,10 +178,10 @@ public abstract class Account implements Serializable {
      * @return true nếu rút thành công, false nếu thất bại
      */
     public boolean withdraw(double amount, String description) {
-        if (amount <= 0 || !canWithdraw(amount) || this.balance < amount) {
+        if (!Double.isFinite(amount) || amount <= 0 || !canWithdraw(amount) || this.balance < amount) {
             return false;
         }
-        this.balance -= amount;
+        adjustBalance(-amount);
         Transaction transaction = new Transaction(
                 "WTH-" + System.nanoTime(),
                 this.accountNumber,
@@ -124,7 +190,7 @@ public abstract class Account implements Serializable {
                 "WITHDRAWAL",
                 description
         );
-        this.transactions.add(transaction);
+        recordTransaction(transaction);
         applyAccountSpecificRules();
         return true;
     }
@@ -137,19 +203,31 @@ public abstract class Account implements Serializable {
      * @return true nếu ghi nhận thành công, false nếu thất bại
      */
     public boolean transfer(double amount, String toAccountNumber) {
-        if (amount <= 0 || !canWithdraw(amount) || this.balance < amount) {
+        return transfer(amount, toAccountNumber, null);
+    }
+
+    /**
+     * Ghi nhận giao dịch chuyển tiền đi với mô tả do người chuyển nhập.
+     *
+     * @param amount  Số tiền cần chuyển
+     * @param toAccountNumber Số tài khoản nhận
+     * @param description Mô tả giao dịch, hoặc null để dùng "Transfer to &lt;số tài khoản&gt;"
+     * @return true nếu ghi nhận thành công, false nếu thất bại
+     */
+    public boolean transfer(double amount, String toAccountNumber, String description) {
+        if (!Double.isFinite(amount) || amount <= 0 || !canWithdraw(amount) || this.balance < amount) {
             return false;
         }
-        this.balance -= amount;
+        adjustBalance(-amount);
         Transaction transaction = new Transaction(
                 "TRF-" + System.nanoTime(),
                 this.accountNumber,
                 toAccountNumber,
                 amount,
                 "TRANSFER_OUT",
-                "Transfer to " + toAccountNumber
+                description != null ? description : "Transfer to " + toAccountNumber
         );
-        this.transactions.add(transaction);
+        recordTransaction(transaction);
         applyAccountSpecificRules();
         return true;
     }
@@ -161,16 +239,270 @@ public abstract class Account implements Serializable {
      * @param fromAccountNumber Số tài khoản gửi
      */
     public void receiveTransfer(double amount, String fromAccountNumber) {
-        this.balance += amount;
+        receiveTransfer(amount, fromAccountNumber, null);
+    }
+
+    /**
+     * Ghi nhận giao dịch nhận tiền với mô tả do người chuyển nhập.
+     *
+     * @param amount  Số tiền nhận được
+     * @param fromAccountNumber Số tài khoản gửi
+     * @param description Mô tả giao dịch, hoặc null để dùng "Transfer from &lt;số tài khoản&gt;"
+     */
+    public void receiveTransfer(double amount, String fromAccountNumber, String description) {
+        receiveTransfer("TRF-" + System.nanoTime(), amount, fromAccountNumber,
+                description != null ? description : "Transfer from " + fromAccountNumber, "SUCCESS");
+    }
+
+    /**
+     * Ghi nhận một khoản tiền nhận được với mã giao dịch và trạng thái cho trước.
+     * Dùng cho chuyển khoản giữa các phân vùng (bước cộng tiền ở trạng thái PENDING)
+     * và cho bút toán hoàn tiền khi hủy chuyển khoản.
+     *
+     * @param transactionId Mã giao dịch
+     * @param amount  Số tiền nhận được
+     * @param fromAccountNumber Số tài khoản đối ứng
+     * @param description Mô tả giao dịch
+     * @param status Trạng thái giao dịch (SUCCESS, PENDING, FAILED)
+     * @throws IllegalArgumentException nếu số tiền không dương hoặc không hữu hạn
+     */
+    public void receiveTransfer(String transactionId, double amount, String fromAccountNumber,
+                                String description, String status) {
+        if (!Double.isFinite(amount) || amount <= 0) {
+            throw new IllegalArgumentException("Transfer amount must be a positive finite number: " + amount);
+        }
+        adjustBalance(amount);
         Transaction transaction = new Transaction(
-                "TRF-" + System.nanoTime(),
+                transactionId,
                 this.accountNumber,
                 fromAccountNumber,
                 amount,
                 "TRANSFER_IN",
-                "Transfer from " + fromAccountNumber
+                description
+        );
+        transaction.setStatus(status);
+        recordTransaction(transaction);
+    }
+
+    /**
+     * Giữ chỗ (trừ trước) số tiền của một giao dịch chuyển khoản chưa được xác nhận.
+     * Giao dịch TRANSFER_OUT được ghi với trạng thái PENDING; khi chuyển khoản bị hủy,
+     * số tiền được hoàn lại bằng một giao dịch TRANSFER_IN riêng.
+     *
+     * @param transactionId Mã giao dịch
+     * @param amount  Số tiền cần chuyển
+     * @param toAccountNumber Số tài khoản nhận
+     * @return true nếu giữ chỗ thành công, false nếu không đủ điều kiện rút
+     */
+    public boolean reserveTransfer(String transactionId, double amount, String toAccountNumber) {
+        return reserveTransfer(transactionId, amount, toAccountNumber, null);
+    }
+
+    /**
+     * Giữ chỗ số tiền của một giao dịch chuyển khoản chưa được xác nhận, với mô tả do người chuyển nhập.
+     *
+     * @param transactionId Mã giao dịch
+     * @param amount  Số tiền cần chuyển
+     * @param toAccountNumber Số tài khoản nhận
+     * @param description Mô tả giao dịch, hoặc null để dùng "Transfer to &lt;số tài khoản&gt;"
+     * @return true nếu giữ chỗ thành công, false nếu không đủ điều kiện rút
+     */
+    public boolean reserveTransfer(String transactionId, double amount, String toAccountNumber, String description) {
+        if (!Double.isFinite(amount) || amount <= 0 || !canWithdraw(amount) || this.balance < amount) {
+            return false;
+        }
+        adjustBalance(-amount);
+        Transaction transaction = new Transaction(
+                transactionId,
+                this.accountNumber,
+                toAccountNumber,
+                amount,
+                "TRANSFER_OUT",
+                description != null ? description : "Transfer to " + toAccountNumber
         );
+        transaction.setStatus("PENDING");
+        recordTransaction(transaction);
+        applyAccountSpecificRules();
+        return true;
+    }
+
+    /**
+     * Tìm một giao dịch theo mã trong phần lịch sử còn trong bộ nhớ (tìm từ mới đến cũ).
+     *
+     * @param transactionId Mã giao dịch
+     * @return Giao dịch, hoặc null nếu không có trong bộ nhớ
+     */
+    public synchronized Transaction findTransaction(String transactionId) {
+        for (int i = transactions.size() - 1; i >= 0; i--) {
+            if (transactions.get(i).getTransactionId().equals(transactionId)) {
+                return transactions.get(i);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Áp dụng một giao dịch đã được ghi ở nơi khác (ví dụ trên nút chính khi sao chép nhật ký thay đổi):
+     * số dư được đặt theo số dư lũy kế của giao dịch, giao dịch được ghi vào lịch sử như bản gốc
+     * và bộ đếm lượt rút được cập nhật, nhưng không áp dụng lại phí (phí đã là giao dịch riêng).
+     *
+     * @param transaction Giao dịch đã ghi, kèm số dư sau giao dịch
+     */
+    public void applyRecordedTransaction(Transaction transaction) {
+        adjustBalance(transaction.getBalanceAfter() - this.balance);
+        recordTransaction(transaction);
+        if ("WITHDRAWAL".equals(transaction.getType()) || "TRANSFER_OUT".equals(transaction.getType())) {
+            countWithdrawal();
+        }
+    }
+
+    /**
+     * Đếm một lượt rút tiền theo quy tắc riêng của loại tài khoản (mặc định không đếm).
+     */
+    protected void countWithdrawal() {
+    }
+
+    /**
+     * Đặt lại bộ đếm số lần rút tiền trong tháng (mặc định không có bộ đếm).
+     */
+    public void resetMonthlyWithdrawals() {
+    }
+
+    // ============= Balance Listeners =============
+
+    /**
+     * Đăng ký nhận thông báo khi số dư thay đổi. Listener được giữ bằng tham chiếu yếu
+     * và không được lưu khi tuần tự hóa tài khoản.
+     *
+     * @param listener Listener cần đăng ký
+     */
+    public synchronized void addBalanceListener(AccountBalanceListener listener) {
+        if (listener == null) {
+            return;
+        }
+        if (balanceListeners == null) {
+            balanceListeners = new ArrayList<>(1);
+        }
+        for (WeakReference<AccountBalanceListener> ref : balanceListeners) {
+            if (ref.get() == listener) {
+                return;
+            }
+        }
+        balanceListeners.add(new WeakReference<>(listener));
+    }
+
+    /**
+     * Hủy đăng ký một listener.
+     *
+     * @param listener Listener cần hủy
+     */
+    public synchronized void removeBalanceListener(AccountBalanceListener listener) {
+        if (balanceListeners != null) {
+            balanceListeners.removeIf(ref -> ref.get() == null || ref.get() == listener);
+        }
+    }
+
+    /**
+     * Thay đổi số dư và thông báo cho các listener.
+     * Mọi thay đổi số dư của tài khoản (kể cả ở lớp con) đều phải đi qua phương thức này.
+     *
+     * @param delta Số tiền cộng vào (âm nếu trừ đi)
+     */
+    protected void adjustBalance(double delta) {
+        double previousBalance = this.balance;
+        this.balance += delta;
+        if (balanceListeners != null) {
+            for (AccountBalanceListener listener : liveListeners()) {
+                listener.onBalanceChanged(this, previousBalance, this.balance);
+            }
+        }
+    }
+
+    private synchronized List<AccountBalanceListener> liveListeners() {
+        List<AccountBalanceListener> live = new ArrayList<>(balanceListeners.size());
+        Iterator<WeakReference<AccountBalanceListener>> it = balanceListeners.iterator();
+        while (it.hasNext()) {
+            AccountBalanceListener listener = it.next().get();
+            if (listener == null) {
+                it.remove();
+            } else {
+                live.add(listener);
+            }
+        }
+        return live;
+    }
+
+    /**
+     * Ghi một giao dịch vào lịch sử tài khoản kèm số dư lũy kế sau giao dịch.
+     * Cứ mỗi CHECKPOINT_INTERVAL giao dịch sẽ ghi thêm một mốc số dư.
+     * Phải được gọi sau khi số dư đã được cập nhật cho giao dịch đó.
+     *
+     * @param transaction Giao dịch cần ghi nhận
+     */
+    protected synchronized void recordTransaction(Transaction transaction) {
+        transaction.setBalanceAfter(this.balance);
         this.transactions.add(transaction);
+        int count = getTransactionCount();
+        if (count % CHECKPOINT_INTERVAL == 0) {
+            this.balanceCheckpoints.add(new BalanceCheckpoint(
+                    transaction.getTimestamp(), count - 1, this.balance));
+        }
+    }
+
+    /**
+     * Lấy số dư của tài khoản tại một thời điểm trong quá khứ.
+     * Tìm nhị phân trên các mốc số dư để khoanh vùng, sau đó tìm nhị phân
+     * trong vùng giao dịch giữa hai mốc liên tiếp - độ phức tạp O(log n).
+     * Giả định thời điểm ghi nhận giao dịch tăng dần theo thứ tự ghi.
+     * Chỉ tra cứu được trên phần lịch sử còn trong bộ nhớ; nếu thời điểm cần tra
+     * thuộc phần đã lưu trữ thì trả về NaN để tầng service tra trong kho lưu trữ.
+     *
+     * @param timestamp Thời điểm cần tra cứu (epoch millis)
+     * @return Số dư tại thời điểm đó, 0 nếu tài khoản chưa được mở,
+     *         NaN nếu thời điểm thuộc phần lịch sử đã lưu trữ
+     */
+    public synchronized double getBalanceAt(long timestamp) {
+        if (timestamp < createdAt) {
+            return 0.0;
+        }
+        if (archivedTransactionCount > 0
+                && (transactions.isEmpty() || timestamp < transactions.get(0).getTimestamp())) {
+            return Double.NaN;
+        }
+
+        // Narrow the search window using the checkpoints
+        int low = 0;
+        int high = getTransactionCount();
+        int cpLow = 0;
+        int cpHigh = balanceCheckpoints.size() - 1;
+        while (cpLow <= cpHigh) {
+            int mid = (cpLow + cpHigh) >>> 1;
+            BalanceCheckpoint checkpoint = balanceCheckpoints.get(mid);
+            if (checkpoint.getTimestamp() <= timestamp) {
+                low = checkpoint.getTransactionIndex();
+                cpLow = mid + 1;
+            } else {
+                high = checkpoint.getTransactionIndex();
+                cpHigh = mid - 1;
+            }
+        }
+
+        // Checkpoint indexes cover the whole history; map them onto the in-memory tail
+        low = Math.max(0, low - archivedTransactionCount);
+        high = Math.max(low, Math.min(transactions.size(), high - archivedTransactionCount));
+
+        // Find the last transaction at or before the timestamp inside the window
+        int found = -1;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (transactions.get(mid).getTimestamp() <= timestamp) {
+                found = mid;
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return found >= 0 ? transactions.get(found).getBalanceAfter() : openingBalance;
     }
 
     /**
@@ -180,25 +512,83 @@ public abstract class Account implements Serializable {
         this.isActive = false;
     }
 
+    /**
+     * Đếm số giao dịch cũ nhất có thể chuyển ra kho lưu trữ: nằm ngoài count giao dịch
+     * gần nhất và đồng thời cũ hơn mốc thời gian cho trước.
+     *
+     * @param keepCount Số giao dịch gần nhất luôn giữ trong bộ nhớ
+     * @param cutoffTimestamp Giao dịch từ mốc này trở đi luôn giữ trong bộ nhớ
+     * @return Số giao dịch có thể lưu trữ (tính từ đầu phần trong bộ nhớ)
+     */
+    public synchronized int countTransactionsToArchive(int keepCount, long cutoffTimestamp) {
+        int limit = transactions.size() - Math.max(0, keepCount);
+        int count = 0;
+        while (count < limit && transactions.get(count).getTimestamp() < cutoffTimestamp) {
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * Lấy các giao dịch cũ nhất còn trong bộ nhớ.
+     *
+     * @param count Số giao dịch cần lấy
+     * @return Danh sách giao dịch cũ nhất trong bộ nhớ
+     */
+    public synchronized List<Transaction> getOldestInMemoryTransactions(int count) {
+        int endIndex = Math.min(Math.max(0, count), transactions.size());
+        return new ArrayList<>(transactions.subList(0, endIndex));
+    }
+
+    /**
+     * Giải phóng các giao dịch cũ nhất khỏi bộ nhớ sau khi đã được ghi ra kho lưu trữ.
+     *
+     * @param count Số giao dịch đã được lưu trữ
+     */
+    public synchronized void markArchived(int count) {
+        int removed = Math.min(Math.max(0, count), transactions.size());
+        transactions.subList(0, removed).clear();
+        archivedTransactionCount += removed;
+    }
+
+    /**
+     * Giải phóng khỏi bộ nhớ các giao dịch đứng trước một vị trí trong lịch sử
+     * (phần đã được nén thành bản ghi tổng hợp theo kỳ, xem TransactionRepository.compact).
+     * Các giao dịch đó được tính như đã lưu trữ.
+     *
+     * @param historyIndex Vị trí đầu tiên (trong toàn bộ lịch sử) còn được giữ lại
+     * @return Số giao dịch đã giải phóng
+     */
+    public synchronized int releaseHistoryBefore(int historyIndex) {
+        int removed = Math.min(Math.max(0, historyIndex - archivedTransactionCount), transactions.size());
+        markArchived(removed);
+        return removed;
+    }
+
     /**
      * Lấy các giao dịch gần đây (n giao dịch cuối cùng).
+     * Chỉ lấy từ phần lịch sử còn trong bộ nhớ.
      *
      * @param count Số lượng giao dịch gần nhất cần lấy
      * @return Danh sách các giao dịch gần đây
      */
-    public List<Transaction> getRecentTransactions(int count) {
+    public synchronized List<Transaction> getRecentTransactions(int count) {
         int size = transactions.size();
         int startIndex = Math.max(0, size - count);
         return new ArrayList<>(transactions.subList(startIndex, size));
     }
 
+    private synchronized void writeObject(ObjectOutputStream out) throws IOException {
+        out.defaultWriteObject();
+    }
+
     @Override
     public String toString() {
         return getAccountType() + "{" +
                 "accountNumber='" + accountNumber + '\'' +
                 ", balance=" + balance +
                 ", isActive=" + isActive +
-                ", transactionCount=" + transactions.size() +
+                ", transactionCount=" + getTransactionCount() +
                 '}';
     }
 }
@@ -0,0 +1,18 @@
+package com.bankapp.model;
+
+/**
+ * AccountBalanceListener - Nhận thông báo mỗi khi số dư của một tài khoản thay đổi.
+ * Dùng để cập nhật dần các số liệu tổng hợp (ví dụ tổng số dư của User)
+ * thay vì cộng lại toàn bộ tài khoản mỗi lần cần.
+ */
+public interface AccountBalanceListener {
+
+    /**
+     * Được gọi ngay sau khi số dư của tài khoản thay đổi.
+     *
+     * @param account         Tài khoản có số dư thay đổi
+     * @param previousBalance Số dư trước khi thay đổi
+     * @param newBalance      Số dư sau khi thay đổi
+     */
+    void onBalanceChanged(Account account, double previousBalance, double newBalance);
+}
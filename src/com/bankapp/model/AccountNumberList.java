@@ -0,0 +1,78 @@
+package com.bankapp.model;
+
+import java.io.Serializable;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.RandomAccess;
+
+/**
+ * AccountNumberList - Danh sách số tài khoản bất biến, dùng làm bản chụp copy-on-write của User.
+ * Thêm vào cuối không sao chép: bản mới dùng chung mảng với bản cũ và chỉ ghi vào các ô nằm sau
+ * kích thước của bản cũ, nên mọi bản chụp đã phát hành vẫn không đổi. Mảng chỉ được cấp lại
+ * (gấp đôi) khi đầy, nên N lần thêm tốn O(N) thay vì O(N^2). Gỡ bỏ thì sao chép như thường.
+ * Các bản mới phải được tạo tuần tự (User giữ khóa khi thêm) và phát hành an toàn
+ * (qua trường volatile hoặc ConcurrentHashMap).
+ */
+final class AccountNumberList extends AbstractList<String> implements RandomAccess, Serializable {
+    private static final long serialVersionUID = 1L;
+    static final AccountNumberList EMPTY = new AccountNumberList(new String[0], 0);
+
+    private final String[] items; // Slots from size onwards belong to whichever snapshot fills them first
+    private final int size;
+
+    private AccountNumberList(String[] items, int size) {
+        this.items = items;
+        this.size = size;
+    }
+
+    @Override
+    public String get(int index) {
+        Objects.checkIndex(index, size);
+        return items[index];
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Tạo bản chụp có thêm một số tài khoản ở cuối.
+     */
+    AccountNumberList append(String accountNumber) {
+        return appendAll(List.of(accountNumber));
+    }
+
+    /**
+     * Tạo bản chụp có thêm các số tài khoản ở cuối, theo thứ tự.
+     */
+    AccountNumberList appendAll(List<String> accountNumbers) {
+        int newSize = size + accountNumbers.size();
+        String[] target = items;
+        // A filled slot at size means a later snapshot already extended this array
+        if (newSize > items.length || (size < items.length && items[size] != null)) {
+            target = Arrays.copyOf(items, Math.max(newSize, Math.max(4, size * 2)));
+            Arrays.fill(target, size, target.length, null);
+        }
+        for (int i = 0; i < accountNumbers.size(); i++) {
+            target[size + i] = accountNumbers.get(i);
+        }
+        return new AccountNumberList(target, newSize);
+    }
+
+    /**
+     * Tạo bản chụp đã bỏ một số tài khoản.
+     */
+    AccountNumberList without(String accountNumber) {
+        int index = indexOf(accountNumber);
+        if (index < 0) {
+            return this;
+        }
+        String[] copy = new String[Math.max(4, size - 1)];
+        System.arraycopy(items, 0, copy, 0, index);
+        System.arraycopy(items, index + 1, copy, index, size - index - 1);
+        return new AccountNumberList(copy, size - 1);
+    }
+}
@@ -0,0 +1,59 @@
+package com.bankapp.model;
+
+import java.io.Serializable;
+
+/**
+ * AccountTombstone - Dấu vết nhỏ còn lại trong bộ nhớ của một tài khoản đã đóng và đã lưu trữ.
+ * Chỉ giữ các thông tin cần để nhận biết tài khoản; toàn bộ trạng thái và lịch sử giao dịch
+ * nằm trong kho lưu trữ lạnh và được nạp lại khi cần.
+ */
+public class AccountTombstone implements Serializable {
+    private static final long serialVersionUID = 1L;
+    private final String accountNumber;
+    private final String accountType;
+    private final double finalBalance;
+    private final long archivedAt;
+
+    /**
+     * Constructor cho AccountTombstone.
+     *
+     * @param accountNumber Số tài khoản
+     * @param accountType   Loại tài khoản (CHECKING, SAVINGS)
+     * @param finalBalance  Số dư tại thời điểm lưu trữ
+     * @param archivedAt    Thời điểm lưu trữ (epoch millis)
+     */
+    public AccountTombstone(String accountNumber, String accountType, double finalBalance, long archivedAt) {
+        this.accountNumber = accountNumber;
+        this.accountType = accountType;
+        this.finalBalance = finalBalance;
+        this.archivedAt = archivedAt;
+    }
+
+    // ============= Getters =============
+
+    public String getAccountNumber() {
+        return accountNumber;
+    }
+
+    public String getAccountType() {
+        return accountType;
+    }
+
+    public double getFinalBalance() {
+        return finalBalance;
+    }
+
+    public long getArchivedAt() {
+        return archivedAt;
+    }
+
+    @Override
+    public String toString() {
+        return "AccountTombstone{" +
+                "accountNumber='" + accountNumber + '\'' +
+                ", accountType='" + accountType + '\'' +
+                ", finalBalance=" + finalBalance +
+                ", archivedAt=" + archivedAt +
+                '}';
+    }
+}
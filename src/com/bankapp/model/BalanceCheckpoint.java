@@ -0,0 +1,51 @@
+package com.bankapp.model;
+
+import java.io.Serializable;
+
+/**
+ * BalanceCheckpoint - Điểm mốc số dư được ghi định kỳ trong sổ giao dịch của tài khoản.
+ * Mỗi mốc lưu thời điểm, vị trí giao dịch và số dư ngay sau giao dịch đó,
+ * giúp tra cứu số dư tại một thời điểm bất kỳ mà không phải cộng dồn lại từ đầu.
+ */
+public class BalanceCheckpoint implements Serializable {
+    private static final long serialVersionUID = 1L;
+    private final long timestamp;
+    private final int transactionIndex;
+    private final double balance;
+
+    /**
+     * Constructor cho BalanceCheckpoint.
+     *
+     * @param timestamp        Thời điểm của giao dịch tại mốc
+     * @param transactionIndex Vị trí của giao dịch trong lịch sử tài khoản
+     * @param balance          Số dư ngay sau giao dịch tại mốc
+     */
+    public BalanceCheckpoint(long timestamp, int transactionIndex, double balance) {
+        this.timestamp = timestamp;
+        this.transactionIndex = transactionIndex;
+        this.balance = balance;
+    }
+
+    // ============= Getters =============
+
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    public int getTransactionIndex() {
+        return transactionIndex;
+    }
+
+    public double getBalance() {
+        return balance;
+    }
+
+    @Override
+    public String toString() {
+        return "BalanceCheckpoint{" +
+                "timestamp=" + timestamp +
+                ", transactionIndex=" + transactionIndex +
+                ", balance=" + balance +
+                '}';
+    }
+}
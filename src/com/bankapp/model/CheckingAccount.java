@@ -82,7 +82,7 @@ public class CheckingAccount extends Account {
      */
     @Override
     public void applyAccountSpecificRules() {
-        monthlyWithdrawals++;
+        countWithdrawal();
         // Could add overdraft fee logic here if balance goes negative
         if (this.balance < 0) {
             // Apply overdraft fee (example)
@@ -90,9 +90,15 @@ public class CheckingAccount extends Account {
         }
     }
 
+    @Override
+    protected void countWithdrawal() {
+        monthlyWithdrawals++;
+    }
+
     /**
      * Đặt lại bộ đếm số lần rút tiền trong tháng (nên gọi mỗi tháng).
      */
+    @Override
     public void resetMonthlyWithdrawals() {
         this.monthlyWithdrawals = 0;
     }
@@ -104,7 +110,7 @@ public class CheckingAccount extends Account {
                 ", balance=" + balance +
                 ", overdraftLimit=" + overdraftLimit +
                 ", isActive=" + isActive +
-                ", transactionCount=" + transactions.size() +
+                ", transactionCount=" + getTransactionCount() +
                 '}';
     }
 }
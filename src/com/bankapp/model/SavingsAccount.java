@@ -104,11 +104,11 @@ public class SavingsAccount extends Account {
      */
     @Override
     public void applyAccountSpecificRules() {
-        withdrawalsThisMonth++;
+        countWithdrawal();
 
         // If withdrawal limit is exceeded, apply penalty
         if (withdrawalsThisMonth > MAX_MONTHLY_WITHDRAWALS) {
-            this.balance -= withdrawalPenalty;
+            adjustBalance(-withdrawalPenalty);
             // Log penalty transaction
             Transaction penaltyTxn = new Transaction(
                     "PEN-" + System.nanoTime(),
@@ -118,10 +118,15 @@ public class SavingsAccount extends Account {
                     "WITHDRAWAL_PENALTY",
                     "Excess withdrawal penalty"
             );
-            this.transactions.add(penaltyTxn);
+            recordTransaction(penaltyTxn);
         }
     }
 
+    @Override
+    protected void countWithdrawal() {
+        withdrawalsThisMonth++;
+    }
+
     /**
      * Áp dụng lãi suất lên số dư tài khoản.
      * Nên được gọi theo tháng hoặc theo chu kỳ.
@@ -132,7 +137,7 @@ public class SavingsAccount extends Account {
     public double applyMonthlyInterest() {
         double monthlyRate = interestRate / 12.0;
         double interest = this.balance * monthlyRate;
-        this.balance += interest;
+        adjustBalance(interest);
 
         // Record interest transaction
         Transaction interestTxn = new Transaction(
@@ -143,7 +148,7 @@ public class SavingsAccount extends Account {
                 "INTEREST",
                 "Monthly interest credit"
         );
-        this.transactions.add(interestTxn);
+        recordTransaction(interestTxn);
 
         return interest;
     }
@@ -152,6 +157,7 @@ public class SavingsAccount extends Account {
      * Đặt lại bộ đếm số lần rút tiền trong tháng.
      * Nên được gọi vào đầu mỗi tháng.
      */
+    @Override
     public void resetMonthlyWithdrawals() {
         this.withdrawalsThisMonth = 0;
     }
@@ -173,7 +179,7 @@ public class SavingsAccount extends Account {
                 ", interestRate=" + (interestRate * 100) + "%" +
                 ", withdrawalsThisMonth=" + withdrawalsThisMonth +
                 ", isActive=" + isActive +
-                ", transactionCount=" + transactions.size() +
+                ", transactionCount=" + getTransactionCount() +
                 '}';
     }
 }
@@ -18,6 +18,7 @@ public class Transaction implements Serializable {
     private String description;
     private long timestamp;
     private String status; // SUCCESS, PENDING, FAILED
+    private double balanceAfter; // Running balance of the owning account right after this transaction
 
     /**
      * Constructor for Transaction.
@@ -41,6 +42,33 @@ public class Transaction implements Serializable {
         this.status = "SUCCESS";
     }
 
+    /**
+     * Constructor for restoring a previously recorded Transaction (e.g. from an archive segment).
+     *
+     * @param transactionId   Unique transaction identifier
+     * @param fromAccountNumber Source account (null for deposits)
+     * @param toAccountNumber Destination account (null for withdrawals)
+     * @param amount          Transaction amount
+     * @param type            Type of transaction
+     * @param description     Transaction description
+     * @param timestamp       Original transaction time (epoch millis)
+     * @param status          Transaction status
+     * @param balanceAfter    Running balance of the owning account after this transaction
+     */
+    public Transaction(String transactionId, String fromAccountNumber, String toAccountNumber,
+                       double amount, String type, String description,
+                       long timestamp, String status, double balanceAfter) {
+        this.transactionId = transactionId;
+        this.fromAccountNumber = fromAccountNumber;
+        this.toAccountNumber = toAccountNumber;
+        this.amount = amount;
+        this.type = type;
+        this.description = description;
+        this.timestamp = timestamp;
+        this.status = status;
+        this.balanceAfter = balanceAfter;
+    }
+
     // ============= Getters =============
 
     public String getTransactionId() {
@@ -79,8 +107,45 @@ public class Transaction implements Serializable {
         this.status = status;
     }
 
+    public double getBalanceAfter() {
+        return balanceAfter;
+    }
+
+    /**
+     * Set the running balance of the owning account after this transaction.
+     * Only the owning account records this value when the transaction is posted.
+     *
+     * @param balanceAfter Account balance right after this transaction
+     */
+    void setBalanceAfter(double balanceAfter) {
+        this.balanceAfter = balanceAfter;
+    }
+
     // ============= Utility Methods =============
 
+    /**
+     * Returns the signed effect of this transaction on the owning account's balance.
+     *
+     * @return +amount for credits, -amount for debits, 0 for unknown types
+     */
+    public double getBalanceEffect() {
+        if (type == null) {
+            return 0.0;
+        }
+        switch (type) {
+            case "DEPOSIT":
+            case "TRANSFER_IN":
+            case "INTEREST":
+                return amount;
+            case "WITHDRAWAL":
+            case "TRANSFER_OUT":
+            case "WITHDRAWAL_PENALTY":
+                return -amount;
+            default:
+                return 0.0;
+        }
+    }
+
     /**
      * Returns formatted date string for the transaction timestamp.
      *
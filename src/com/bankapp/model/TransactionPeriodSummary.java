@@ -0,0 +1,99 @@
+package com.bankapp.model;
+
+import java.io.Serializable;
+import java.time.LocalDate;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * TransactionPeriodSummary - Bản ghi tổng hợp thay thế các giao dịch chi tiết của một tài khoản
+ * trong một kỳ (ngày / tháng / năm) sau khi lịch sử cũ được nén gọn.
+ * Lưu số lượng và tổng tiền theo loại giao dịch, cùng số dư đầu kỳ và cuối kỳ.
+ * Có thể cộng dồn nhiều lần vì việc nén diễn ra dần dần theo từng lô.
+ */
+public class TransactionPeriodSummary implements Serializable {
+    private static final long serialVersionUID = 1L;
+    private final String accountNumber;
+    private final LocalDate periodStart;
+    private final Map<String, Long> countByType;
+    private final Map<String, Double> sumByType;
+    private long transactionCount;
+    private double openingBalance;
+    private double closingBalance;
+    private long firstTimestamp;
+    private long lastTimestamp;
+
+    /**
+     * Constructor cho TransactionPeriodSummary.
+     *
+     * @param accountNumber Số tài khoản
+     * @param periodStart   Ngày bắt đầu kỳ tổng hợp
+     */
+    public TransactionPeriodSummary(String accountNumber, LocalDate periodStart) {
+        this.accountNumber = accountNumber;
+        this.periodStart = periodStart;
+        this.countByType = new TreeMap<>();
+        this.sumByType = new TreeMap<>();
+    }
+
+    /**
+     * Cộng dồn một giao dịch vào bản tổng hợp. Các giao dịch phải được đưa vào theo thứ tự ghi sổ.
+     *
+     * @param transaction Giao dịch cần cộng dồn
+     */
+    public void add(Transaction transaction) {
+        if (transactionCount == 0) {
+            openingBalance = transaction.getBalanceAfter() - transaction.getBalanceEffect();
+            firstTimestamp = transaction.getTimestamp();
+        }
+        transactionCount++;
+        closingBalance = transaction.getBalanceAfter();
+        lastTimestamp = transaction.getTimestamp();
+        countByType.merge(transaction.getType(), 1L, Long::sum);
+        sumByType.merge(transaction.getType(), transaction.getAmount(), Double::sum);
+    }
+
+    // ============= Getters =============
+
+    public String getAccountNumber() {
+        return accountNumber;
+    }
+
+    public LocalDate getPeriodStart() {
+        return periodStart;
+    }
+
+    public long getTransactionCount() {
+        return transactionCount;
+    }
+
+    public Map<String, Long> getCountByType() {
+        return new TreeMap<>(countByType);
+    }
+
+    public Map<String, Double> getSumByType() {
+        return new TreeMap<>(sumByType);
+    }
+
+    public double getOpeningBalance() {
+        return openingBalance;
+    }
+
+    public double getClosingBalance() {
+        return closingBalance;
+    }
+
+    public long getFirstTimestamp() {
+        return firstTimestamp;
+    }
+
+    public long getLastTimestamp() {
+        return lastTimestamp;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("[%s] %s: %d transactions, opening $%.2f, closing $%.2f, %s",
+                periodStart, accountNumber, transactionCount, openingBalance, closingBalance, sumByType);
+    }
+}
@@ -2,21 +2,43 @@ package com.bankapp.model;
 
 import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
 
 /**
  * Lớp User đại diện cho một khách hàng ngân hàng.
  * Bao đóng thông tin người dùng và quản lý các tài khoản liên kết.
+ * Người dùng chỉ giữ số tài khoản (đánh chỉ mục theo loại), không giữ đối tượng Account: tài khoản
+ * được tra lại qua accountResolver (do UserRepository gắn vào) mỗi khi cần, nên bộ đệm tài khoản
+ * có giới hạn (DiskBackedAccountMap) vẫn giải phóng được tài khoản của người dùng đang nằm trong bộ nhớ.
+ * Tổng số dư, số lượng và tổng số dư theo từng loại được cập nhật dần qua sự kiện thay đổi số dư
+ * của tài khoản (AccountBalanceListener), nên các truy vấn tổng hợp có độ phức tạp O(1); khi tài khoản
+ * được nạp lại thành đối tượng mới, attachAccount đăng ký lại listener và đối chiếu số dư đã biết.
+ * Quan hệ người dùng - tài khoản an toàn khi dùng đồng thời: kiểm tra thành viên qua
+ * ConcurrentHashMap, còn danh sách để duyệt là bản chụp bất biến được thay mới (AccountNumberList)
+ * mỗi lần thêm hoặc gỡ tài khoản, nên việc đọc không cần khóa và không bao giờ thấy danh sách dở dang;
+ * thêm vào cuối dùng chung mảng với bản chụp trước nên không phải sao chép cả danh sách.
  */
-public class User implements Serializable {
+public class User implements Serializable, AccountBalanceListener {
     private static final long serialVersionUID = 1L;
     private String userId;
     private String username;
     private String passwordHash;
     private String fullName;
     private String email;
-    private List<Account> accounts;
+    private Map<String, String> accounts; // accountNumber -> accountType
+    private volatile AccountNumberList accountSnapshot; // Account numbers, in the order added
+    private Map<String, AccountNumberList> accountsByType; // accountType -> snapshot of numbers
+    private Map<String, Double> accountBalances; // accountNumber -> balance last folded into the totals
+    private Map<String, Double> balanceByType;
+    private double totalBalance; // Guarded by this
     private long createdAt;
+    private transient volatile Function<String, Account> accountResolver;
 
     /**
      * Constructor tạo một User mới.
@@ -33,10 +55,40 @@ public class User implements Serializable {
         this.passwordHash = passwordHash;
         this.fullName = fullName;
         this.email = email;
-        this.accounts = new ArrayList<>();
+        this.accounts = new ConcurrentHashMap<>();
+        this.accountSnapshot = AccountNumberList.EMPTY;
+        this.accountsByType = new ConcurrentHashMap<>();
+        this.accountBalances = new ConcurrentHashMap<>();
+        this.balanceByType = new ConcurrentHashMap<>();
+        this.totalBalance = 0.0;
         this.createdAt = System.currentTimeMillis();
     }
 
+    /**
+     * Constructor dựng lại một User đã lưu trữ, giữ nguyên thời điểm tạo.
+     *
+     * @param userId       Mã định danh duy nhất cho người dùng
+     * @param username     Tên đăng nhập
+     * @param passwordHash Mật khẩu đã được băm
+     * @param fullName     Họ tên đầy đủ của người dùng
+     * @param email        Địa chỉ email của người dùng
+     * @param createdAt    Thời điểm tạo ban đầu
+     */
+    public User(String userId, String username, String passwordHash, String fullName, String email, long createdAt) {
+        this(userId, username, passwordHash, fullName, email);
+        this.createdAt = createdAt;
+    }
+
+    /**
+     * Đặt hàm tra cứu tài khoản theo số tài khoản (ví dụ AccountRepository::findByAccountNumber).
+     * Khi chưa đặt, các phương thức trả về đối tượng Account không tìm thấy tài khoản nào.
+     *
+     * @param accountResolver Hàm tra cứu tài khoản
+     */
+    public void setAccountResolver(Function<String, Account> accountResolver) {
+        this.accountResolver = accountResolver;
+    }
+
     // ============= Getters and Setters =============
 
     public String getUserId() {
@@ -68,7 +120,16 @@ public class User implements Serializable {
     }
 
     public List<Account> getAccounts() {
-        return new ArrayList<>(accounts);
+        return resolveAll(accountSnapshot);
+    }
+
+    /**
+     * Lấy số tài khoản của mọi tài khoản thuộc người dùng, theo thứ tự thêm vào.
+     *
+     * @return Danh sách số tài khoản
+     */
+    public List<String> getAccountNumbers() {
+        return accountSnapshot;
     }
 
     public long getCreatedAt() {
@@ -85,10 +146,123 @@ public class User implements Serializable {
      * @return true nếu thêm thành công, false nếu không
      */
     public boolean addAccount(Account account) {
-        if (account != null && !accounts.contains(account)) {
-            return accounts.add(account);
+        if (account == null || accounts.containsKey(account.getAccountNumber())) {
+            return false;
+        }
+        synchronized (this) {
+            if (accounts.putIfAbsent(account.getAccountNumber(), account.getAccountType()) != null) {
+                return false;
+            }
+            accountSnapshot = accountSnapshot.append(account.getAccountNumber());
+            accountsByType.put(account.getAccountType(), accountsByType
+                    .getOrDefault(account.getAccountType(), AccountNumberList.EMPTY).append(account.getAccountNumber()));
+            link(account);
+        }
+        return true;
+    }
+
+    /**
+     * Thêm nhiều tài khoản trong một bước: hoặc thêm tất cả, hoặc không thêm tài khoản nào.
+     * Bản chụp danh sách chỉ được mở rộng một lần cho cả lô thay vì một lần cho mỗi tài khoản.
+     *
+     * @param batch Các tài khoản cần thêm
+     * @return true nếu thêm thành công, false nếu có tài khoản null, trùng nhau hoặc đã thuộc người dùng
+     */
+    public synchronized boolean addAccounts(List<? extends Account> batch) {
+        Set<String> numbers = new HashSet<>(batch.size() * 2);
+        for (Account account : batch) {
+            if (account == null || accounts.containsKey(account.getAccountNumber())
+                    || !numbers.add(account.getAccountNumber())) {
+                return false;
+            }
+        }
+        Map<String, List<String>> addedByType = new HashMap<>();
+        List<String> added = new ArrayList<>(batch.size());
+        for (Account account : batch) {
+            accounts.put(account.getAccountNumber(), account.getAccountType());
+            added.add(account.getAccountNumber());
+            addedByType.computeIfAbsent(account.getAccountType(), type -> new ArrayList<>())
+                    .add(account.getAccountNumber());
+            link(account);
+        }
+        accountSnapshot = accountSnapshot.appendAll(added);
+        for (Map.Entry<String, List<String>> entry : addedByType.entrySet()) {
+            accountsByType.put(entry.getKey(),
+                    accountsByType.getOrDefault(entry.getKey(), AccountNumberList.EMPTY).appendAll(entry.getValue()));
+        }
+        return true;
+    }
+
+    /**
+     * Gỡ một tài khoản khỏi danh sách tài khoản của người dùng.
+     *
+     * @param accountNumber Số tài khoản cần gỡ
+     * @return true nếu gỡ thành công, false nếu người dùng không có tài khoản này
+     */
+    public synchronized boolean removeAccount(String accountNumber) {
+        String accountType = accountNumber == null ? null : accounts.remove(accountNumber);
+        if (accountType == null) {
+            return false;
+        }
+        double balance = accountBalances.remove(accountNumber);
+        accountSnapshot = accountSnapshot.without(accountNumber);
+        AccountNumberList sameType = accountsByType.get(accountType).without(accountNumber);
+        if (sameType.isEmpty()) {
+            accountsByType.remove(accountType);
+            balanceByType.remove(accountType);
+        } else {
+            accountsByType.put(accountType, sameType);
+            addToTotals(accountType, -balance);
+        }
+        // Re-sum after a removal so rounding drift from incremental updates does not accumulate
+        totalBalance = 0.0;
+        for (double typeBalance : balanceByType.values()) {
+            totalBalance += typeBalance;
+        }
+        // The listener itself is held weakly and ignores accounts that are no longer members
+        return true;
+    }
+
+    /**
+     * Gắn một đối tượng tài khoản thuộc người dùng, ví dụ khi tài khoản vừa được nạp lại từ đĩa
+     * thành một đối tượng mới: đăng ký listener trên đối tượng đó và đưa vào tổng số dư
+     * phần chênh lệch so với số dư đã biết. Tài khoản không thuộc người dùng bị bỏ qua.
+     *
+     * @param account Tài khoản vừa được nạp
+     */
+    public void attachAccount(Account account) {
+        if (account == null || !accounts.containsKey(account.getAccountNumber())) {
+            return;
+        }
+        account.addBalanceListener(this);
+        onBalanceChanged(account, account.getBalance(), account.getBalance());
+    }
+
+    private void link(Account account) {
+        account.setOwnerUserId(userId);
+        accountBalances.put(account.getAccountNumber(), account.getBalance());
+        addToTotals(account.getAccountType(), account.getBalance());
+        account.addBalanceListener(this);
+    }
+
+    /**
+     * Cập nhật tổng số dư khi số dư của một tài khoản thuộc người dùng thay đổi.
+     * Chênh lệch được tính so với số dư đã biết của tài khoản, nên một thay đổi bị bỏ lỡ
+     * (khi tài khoản chưa được gắn lại) được bù ở lần thông báo kế tiếp.
+     */
+    @Override
+    public synchronized void onBalanceChanged(Account account, double previousBalance, double newBalance) {
+        String accountType = accounts.get(account.getAccountNumber());
+        Double known = accountBalances.get(account.getAccountNumber());
+        if (accountType != null && known != null && known != newBalance) {
+            accountBalances.put(account.getAccountNumber(), newBalance);
+            addToTotals(accountType, newBalance - known);
         }
-        return false;
+    }
+
+    private void addToTotals(String accountType, double delta) {
+        balanceByType.merge(accountType, delta, Double::sum);
+        totalBalance += delta;
     }
 
     /**
@@ -98,10 +272,37 @@ public class User implements Serializable {
      * @return Đối tượng Account nếu tìm thấy, null nếu không
      */
     public Account getAccountByNumber(String accountNumber) {
-        return accounts.stream()
-                .filter(acc -> acc.getAccountNumber().equals(accountNumber))
-                .findFirst()
-                .orElse(null);
+        return accountNumber != null && accounts.containsKey(accountNumber) ? resolve(accountNumber) : null;
+    }
+
+    /**
+     * Kiểm tra một tài khoản có thuộc người dùng hay không mà không cần nạp tài khoản.
+     *
+     * @param accountNumber Số tài khoản
+     * @return true nếu tài khoản thuộc người dùng
+     */
+    public boolean ownsAccount(String accountNumber) {
+        return accountNumber != null && accounts.containsKey(accountNumber);
+    }
+
+    private Account resolve(String accountNumber) {
+        Function<String, Account> resolver = accountResolver;
+        Account account = resolver != null ? resolver.apply(accountNumber) : null;
+        if (account != null) {
+            attachAccount(account);
+        }
+        return account;
+    }
+
+    private List<Account> resolveAll(List<String> accountNumbers) {
+        List<Account> resolved = new ArrayList<>(accountNumbers.size());
+        for (String accountNumber : accountNumbers) {
+            Account account = resolve(accountNumber);
+            if (account != null) {
+                resolved.add(account);
+            }
+        }
+        return resolved;
     }
 
     /**
@@ -110,13 +311,7 @@ public class User implements Serializable {
      * @return Danh sách các đối tượng CheckingAccount
      */
     public List<Account> getCheckingAccounts() {
-        List<Account> checkingAccounts = new ArrayList<>();
-        for (Account account : accounts) {
-            if (account instanceof CheckingAccount) {
-                checkingAccounts.add(account);
-            }
-        }
-        return checkingAccounts;
+        return getAccountsByType("CHECKING");
     }
 
     /**
@@ -125,13 +320,46 @@ public class User implements Serializable {
      * @return Danh sách các đối tượng SavingsAccount
      */
     public List<Account> getSavingsAccounts() {
-        List<Account> savingsAccounts = new ArrayList<>();
-        for (Account account : accounts) {
-            if (account instanceof SavingsAccount) {
-                savingsAccounts.add(account);
-            }
-        }
-        return savingsAccounts;
+        return getAccountsByType("SAVINGS");
+    }
+
+    /**
+     * Lấy các tài khoản theo loại.
+     *
+     * @param accountType Loại tài khoản (ví dụ "CHECKING", "SAVINGS")
+     * @return Danh sách tài khoản thuộc loại đó
+     */
+    public List<Account> getAccountsByType(String accountType) {
+        return resolveAll(accountsByType.getOrDefault(accountType, AccountNumberList.EMPTY));
+    }
+
+    /**
+     * Lấy số lượng tài khoản của người dùng.
+     *
+     * @return Số lượng tài khoản
+     */
+    public int getAccountCount() {
+        return accounts.size();
+    }
+
+    /**
+     * Lấy số lượng tài khoản theo loại.
+     *
+     * @param accountType Loại tài khoản
+     * @return Số lượng tài khoản thuộc loại đó
+     */
+    public int getAccountCount(String accountType) {
+        return accountsByType.getOrDefault(accountType, AccountNumberList.EMPTY).size();
+    }
+
+    /**
+     * Lấy tổng số dư của các tài khoản thuộc một loại.
+     *
+     * @param accountType Loại tài khoản
+     * @return Tổng số dư của loại đó
+     */
+    public double getBalanceByType(String accountType) {
+        return balanceByType.getOrDefault(accountType, 0.0);
     }
 
     /**
@@ -139,10 +367,8 @@ public class User implements Serializable {
      *
      * @return Tổng số dư
      */
-    public double getTotalBalance() {
-        return accounts.stream()
-                .mapToDouble(Account::getBalance)
-                .sum();
+    public synchronized double getTotalBalance() {
+        return totalBalance;
     }
 
     @Override
@@ -1,25 +1,107 @@
 package com.bankapp.services;
 
 import com.bankapp.data.InMemoryDataStore;
+import com.bankapp.data.AccountBalanceIndex;
 import com.bankapp.data.AccountRepository;
+import com.bankapp.data.MutationJournal;
+import com.bankapp.data.UserRepository;
 import com.bankapp.model.Account;
 import com.bankapp.model.User;
 import com.bankapp.model.CheckingAccount;
 import com.bankapp.model.SavingsAccount;
 import com.bankapp.utils.IDGenerator;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Predicate;
 
 /**
  * AccountService - Xử lý các thao tác tài khoản (tạo, truy vấn, đóng tài khoản).
  * Tuân theo nguyên lý Trách nhiệm đơn (SRP) - chỉ tập trung vào quản lý tài khoản.
  */
 public class AccountService {
+    private static final int MAX_BLOCK_ATTEMPTS = 8; // Fresh blocks to try if numbers from a previous run collide
+
     private final AccountRepository accountRepository;
+    private final UserRepository userRepository;
+    private final MutationJournal journal;
+    private final Predicate<String> ownsAccountNumber; // Only numbers this store may hold, e.g. one partition
+
+    /**
+     * Mô tả một tài khoản cần mở trong openAccountsBatch.
+     */
+    public static class AccountSpec {
+        private final boolean checking;
+        private final double initialBalance;
+        private final double rateOrLimit;
+
+        private AccountSpec(boolean checking, double initialBalance, double rateOrLimit) {
+            this.checking = checking;
+            this.initialBalance = initialBalance;
+            this.rateOrLimit = rateOrLimit;
+        }
+
+        /**
+         * Tài khoản thanh toán (checking).
+         *
+         * @param initialBalance Số dư ban đầu
+         * @param overdraftLimit Hạn mức thấu chi tối đa
+         * @return Mô tả tài khoản
+         */
+        public static AccountSpec checking(double initialBalance, double overdraftLimit) {
+            return new AccountSpec(true, initialBalance, overdraftLimit);
+        }
+
+        /**
+         * Tài khoản tiết kiệm (savings).
+         *
+         * @param initialBalance Số dư ban đầu
+         * @param interestRate Lãi suất hằng năm
+         * @return Mô tả tài khoản
+         */
+        public static AccountSpec savings(double initialBalance, double interestRate) {
+            return new AccountSpec(false, initialBalance, interestRate);
+        }
+
+        private boolean isValid() {
+            return Double.isFinite(initialBalance) && initialBalance >= 0
+                    && Double.isFinite(rateOrLimit) && rateOrLimit >= 0;
+        }
+
+        private Account build(String accountNumber) {
+            return checking
+                    ? new CheckingAccount(accountNumber, initialBalance, rateOrLimit)
+                    : new SavingsAccount(accountNumber, initialBalance, rateOrLimit);
+        }
+    }
 
     /**
-     * Constructor - khởi tạo với kho dữ liệu.
+     * Constructor - khởi tạo với kho dữ liệu dùng chung.
      */
     public AccountService() {
-        this.accountRepository = InMemoryDataStore.getInstance().getAccountRepository();
+        this(InMemoryDataStore.getInstance());
+    }
+
+    /**
+     * Constructor - khởi tạo với một kho dữ liệu cụ thể (ví dụ một phân vùng).
+     *
+     * @param dataStore Kho dữ liệu
+     */
+    public AccountService(InMemoryDataStore dataStore) {
+        this(dataStore, accountNumber -> true);
+    }
+
+    /**
+     * Constructor cho một phân vùng: chỉ cấp các số tài khoản mà phân vùng sở hữu, để tài khoản mới
+     * nằm cùng phân vùng với người sở hữu (xem ShardedTransactionService).
+     *
+     * @param dataStore Kho dữ liệu của phân vùng
+     * @param ownsAccountNumber Kiểm tra một số tài khoản có thuộc phân vùng hay không
+     */
+    AccountService(InMemoryDataStore dataStore, Predicate<String> ownsAccountNumber) {
+        this.accountRepository = dataStore.getAccountRepository();
+        this.userRepository = dataStore.getUserRepository();
+        this.journal = dataStore.getMutationJournal();
+        this.ownsAccountNumber = ownsAccountNumber;
     }
 
     /**
@@ -31,17 +113,20 @@ public class AccountService {
      * @return Đối tượng CheckingAccount nếu thành công, null nếu thất bại
      */
     public CheckingAccount createCheckingAccount(User user, double initialBalance, double overdraftLimit) {
-        if (user == null || initialBalance < 0 || overdraftLimit < 0) {
+        if (user == null || !Double.isFinite(initialBalance) || initialBalance < 0
+                || !Double.isFinite(overdraftLimit) || overdraftLimit < 0) {
             return null;
         }
 
-        String accountNumber = IDGenerator.generateAccountNumber();
+        String accountNumber = nextAccountNumber();
         CheckingAccount account = new CheckingAccount(accountNumber, initialBalance, overdraftLimit);
 
         // Save account to repository
         if (accountRepository.save(account)) {
             // Add account to user
             if (user.addAccount(account)) {
+                userRepository.update(user);
+                journal.recordAccountOpened(user.getUserId(), account);
                 return account;
             }
         }
@@ -57,23 +142,78 @@ public class AccountService {
      * @return Đối tượng SavingsAccount nếu thành công, null nếu thất bại
      */
     public SavingsAccount createSavingsAccount(User user, double initialBalance, double interestRate) {
-        if (user == null || initialBalance < 0 || interestRate < 0) {
+        if (user == null || !Double.isFinite(initialBalance) || initialBalance < 0
+                || !Double.isFinite(interestRate) || interestRate < 0) {
             return null;
         }
 
-        String accountNumber = IDGenerator.generateAccountNumber();
+        String accountNumber = nextAccountNumber();
         SavingsAccount account = new SavingsAccount(accountNumber, initialBalance, interestRate);
 
         // Save account to repository
         if (accountRepository.save(account)) {
             // Add account to user
             if (user.addAccount(account)) {
+                userRepository.update(user);
+                journal.recordAccountOpened(user.getUserId(), account);
                 return account;
             }
         }
         return null;
     }
 
+    /**
+     * Mở nhiều tài khoản cho một người dùng trong một lần gọi (ví dụ các tài khoản con khi
+     * tiếp nhận khách hàng doanh nghiệp).
+     * Một khối số tài khoản liên tiếp được đặt trước một lần, các tài khoản được lưu vào repository
+     * và gắn vào người dùng theo lô: hoặc mở tất cả, hoặc không mở tài khoản nào.
+     *
+     * @param user Người dùng sở hữu các tài khoản
+     * @param specs Mô tả các tài khoản cần mở
+     * @return Danh sách tài khoản đã mở theo thứ tự của specs, null nếu thất bại
+     */
+    public List<Account> openAccountsBatch(User user, List<AccountSpec> specs) {
+        if (user == null || specs == null || specs.isEmpty()) {
+            return null;
+        }
+        for (AccountSpec spec : specs) {
+            if (spec == null || !spec.isValid()) {
+                return null;
+            }
+        }
+
+        List<Account> opened = new ArrayList<>(specs.size());
+        boolean saved = false;
+        for (int attempt = 0; attempt < MAX_BLOCK_ATTEMPTS && !saved; attempt++) {
+            String[] numbers = IDGenerator.reserveAccountNumbers(specs.size());
+            for (int i = 0; i < numbers.length; i++) {
+                if (!ownsAccountNumber.test(numbers[i])) {
+                    numbers[i] = nextAccountNumber(); // The block spans partitions; pick owned numbers one by one
+                }
+            }
+            opened.clear();
+            for (int i = 0; i < numbers.length; i++) {
+                opened.add(specs.get(i).build(numbers[i]));
+            }
+            saved = accountRepository.saveAll(opened);
+        }
+        if (!saved) {
+            return null;
+        }
+
+        if (!user.addAccounts(opened)) {
+            for (Account account : opened) {
+                accountRepository.delete(account.getAccountNumber());
+            }
+            return null;
+        }
+        userRepository.update(user);
+        for (Account account : opened) {
+            journal.recordAccountOpened(user.getUserId(), account);
+        }
+        return opened;
+    }
+
     /**
      * Lấy thông tin tài khoản theo số tài khoản.
      *
@@ -93,13 +233,74 @@ public class AccountService {
     public boolean closeAccount(String accountNumber) {
         Account account = accountRepository.findByAccountNumber(accountNumber);
         if (account != null) {
-            account.closeAccount();
+            // Journal under the account's lock, like TransactionService, so the close is ordered with its posts
+            synchronized (account) {
+                account.closeAccount();
+                journal.recordAccountClosed(accountNumber);
+            }
             accountRepository.update(account);
+            journal.awaitReplication();
             return true;
         }
         return false;
     }
 
+    /**
+     * Đặt lại bộ đếm số lần rút tiền trong tháng của mọi tài khoản đang hoạt động (gọi vào đầu mỗi tháng).
+     * Mỗi lần đặt lại được ghi vào nhật ký thay đổi để nút dự phòng và lần khởi động lại có cùng giới hạn rút.
+     *
+     * @return Số tài khoản đã được đặt lại
+     */
+    public int resetMonthlyWithdrawals() {
+        int reset = 0;
+        for (User user : userRepository.findAll()) {
+            for (Account account : user.getAccounts()) {
+                if (!account.isActive()) {
+                    continue;
+                }
+                synchronized (account) {
+                    account.resetMonthlyWithdrawals();
+                    journal.recordWithdrawalsReset(account.getAccountNumber());
+                }
+                accountRepository.update(account);
+                journal.awaitReplication();
+                reset++;
+            }
+        }
+        return reset;
+    }
+
+    /**
+     * Chuyển toàn bộ tài khoản đã đóng sang kho lưu trữ lạnh để giải phóng bộ nhớ.
+     * Tài khoản được gỡ khỏi danh sách tài khoản của người sở hữu và chỉ để lại tombstone
+     * trong repository; tra cứu theo số tài khoản vẫn nạp lại được tài khoản khi cần.
+     *
+     * @return Số tài khoản đã được lưu trữ
+     */
+    public int archiveClosedAccounts() {
+        int archived = 0;
+        for (User user : userRepository.findAll()) {
+            for (Account account : user.getAccounts()) {
+                if (!account.isActive() && accountRepository.archive(account.getAccountNumber())) {
+                    user.removeAccount(account.getAccountNumber());
+                    userRepository.update(user);
+                    journal.recordAccountArchived(user.getUserId(), account.getAccountNumber());
+                    archived++;
+                }
+            }
+        }
+        return archived;
+    }
+
+    /**
+     * Lấy số lượng tài khoản đang nằm trong kho lưu trữ lạnh.
+     *
+     * @return Số lượng tài khoản đã lưu trữ
+     */
+    public int getArchivedAccountCount() {
+        return accountRepository.getArchivedAccountCount();
+    }
+
     /**
      * Kiểm tra một tài khoản có tồn tại hay không.
      *
@@ -131,4 +332,64 @@ public class AccountService {
         Account account = getAccount(accountNumber);
         return account != null ? account.getAccountType() : null;
     }
+
+    /**
+     * Lấy tổng số tài khoản trong hệ thống.
+     *
+     * @return Số lượng tài khoản
+     */
+    public int getAccountCount() {
+        return accountRepository.getAccountCount();
+    }
+
+    /**
+     * Lấy N tài khoản có số dư lớn nhất.
+     *
+     * @param count Số lượng tài khoản cần lấy
+     * @return Danh sách tài khoản theo số dư giảm dần
+     */
+    public List<AccountBalanceIndex.Entry> getTopAccountsByBalance(int count) {
+        return accountRepository.getBalanceIndex().top(count);
+    }
+
+    /**
+     * Lấy N tài khoản có số dư nhỏ nhất.
+     *
+     * @param count Số lượng tài khoản cần lấy
+     * @return Danh sách tài khoản theo số dư tăng dần
+     */
+    public List<AccountBalanceIndex.Entry> getBottomAccountsByBalance(int count) {
+        return accountRepository.getBalanceIndex().bottom(count);
+    }
+
+    /**
+     * Lấy N tài khoản thanh toán đang thấu chi nhiều nhất.
+     *
+     * @param count Số lượng tài khoản cần lấy
+     * @return Danh sách tài khoản theo số dư tăng dần (âm nhiều nhất trước)
+     */
+    public List<AccountBalanceIndex.Entry> getMostOverdrawnCheckingAccounts(int count) {
+        return accountRepository.getBalanceIndex().mostOverdrawn(count);
+    }
+
+    /**
+     * Lấy thứ hạng của một tài khoản theo số dư (1 là số dư lớn nhất).
+     *
+     * @param accountNumber Số tài khoản
+     * @return Thứ hạng, hoặc -1 nếu không tìm thấy
+     */
+    public int getBalanceRank(String accountNumber) {
+        return accountRepository.getBalanceIndex().rank(accountNumber);
+    }
+
+    /**
+     * Lấy số tài khoản kế tiếp chưa được dùng (bỏ qua các số đã cấp ở lần chạy trước).
+     */
+    private String nextAccountNumber() {
+        String accountNumber;
+        do {
+            accountNumber = IDGenerator.generateAccountNumber();
+        } while (!ownsAccountNumber.test(accountNumber) || accountRepository.exists(accountNumber));
+        return accountNumber;
+    }
 }
@@ -0,0 +1,299 @@
+package com.bankapp.services;
+
+import com.bankapp.data.InMemoryDataStore;
+import com.bankapp.data.PartitionedDataStore;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * ActorTransactionService - Chế độ thực thi theo mô hình actor: mỗi tài khoản thuộc về đúng một worker.
+ * Mỗi worker là một luồng với hộp thư (mailbox) riêng; nạp / rút tiền là thông điệp gửi tới worker
+ * sở hữu tài khoản, nên mọi thay đổi trên một tài khoản chỉ diễn ra trên một luồng.
+ * Thông điệp vẫn được áp dụng qua TransactionService, tức là vẫn lấy khóa của tài khoản: JournalSnapshot
+ * chụp mỗi tài khoản dưới khóa đó để có mốc cắt nhất quán với nhật ký thay đổi, và các luồng đọc (API,
+ * điểm kiểm tra, bản sao) cũng đồng bộ trên nó, nên bỏ khóa ở worker sẽ làm hỏng bản chụp. Vì chỉ worker
+ * sở hữu ghi vào tài khoản, khóa này hầu như không bị tranh chấp; chế độ actor thực chất là hộp thư cộng
+ * khóa không tranh chấp, và ExecutionModeBenchmark in rõ điều đó.
+ * Chuyển khoản là chuỗi thông điệp: worker nguồn giữ chỗ tiền (PENDING), worker đích cộng tiền
+ * và xác nhận ngay, rồi worker nguồn nhận thông điệp hoàn tất - xác nhận bước trừ tiền, hoặc
+ * chạy nhánh bù trừ (hoàn tiền, đánh dấu FAILED) nếu tài khoản đích không nhận được.
+ * Các bước dùng chung với chuyển khoản giữa phân vùng của TransactionService.
+ */
+public class ActorTransactionService {
+    private final TransactionService transactionService;
+    private final Worker[] workers;
+    private final AtomicLong transferSequence;
+
+    /**
+     * Constructor cho ActorTransactionService.
+     *
+     * @param dataStore Kho dữ liệu chứa các tài khoản
+     * @param workerCount Số worker (thường bằng số lõi CPU)
+     */
+    public ActorTransactionService(InMemoryDataStore dataStore, int workerCount) {
+        this.transactionService = new TransactionService(dataStore);
+        this.workers = new Worker[Math.max(1, workerCount)];
+        for (int i = 0; i < workers.length; i++) {
+            workers[i] = new Worker("bankapp-actor-" + i);
+            workers[i].start();
+        }
+        this.transferSequence = new AtomicLong();
+    }
+
+    /**
+     * Nạp tiền vào một tài khoản (gửi thông điệp tới worker sở hữu).
+     *
+     * @param accountNumber Số tài khoản cần nạp
+     * @param amount Số tiền cần nạp
+     * @param description Mô tả giao dịch
+     * @return Kết quả: true nếu nạp thành công
+     */
+    public CompletableFuture<Boolean> depositAsync(String accountNumber, double amount, String description) {
+        return ownerOf(accountNumber).ask(() -> transactionService.deposit(accountNumber, amount, description));
+    }
+
+    /**
+     * Rút tiền từ một tài khoản (gửi thông điệp tới worker sở hữu).
+     *
+     * @param accountNumber Số tài khoản cần rút
+     * @param amount Số tiền cần rút
+     * @param description Mô tả giao dịch
+     * @return Kết quả: true nếu rút thành công
+     */
+    public CompletableFuture<Boolean> withdrawAsync(String accountNumber, double amount, String description) {
+        return ownerOf(accountNumber).ask(() -> transactionService.withdraw(accountNumber, amount, description));
+    }
+
+    /**
+     * Chuyển tiền giữa hai tài khoản bằng chuỗi thông điệp giữa hai worker sở hữu.
+     *
+     * @param fromAccountNumber Số tài khoản nguồn
+     * @param toAccountNumber Số tài khoản đích
+     * @param amount Số tiền cần chuyển
+     * @param description Mô tả giao dịch
+     * @return Kết quả: true nếu chuyển thành công
+     */
+    public CompletableFuture<Boolean> transferAsync(String fromAccountNumber, String toAccountNumber,
+                                                    double amount, String description) {
+        Worker source = ownerOf(fromAccountNumber);
+        Worker target = ownerOf(toAccountNumber);
+        if (source == target) {
+            return source.ask(() -> transactionService.transfer(fromAccountNumber, toAccountNumber, amount, description));
+        }
+        String transferId = "ACT-" + System.currentTimeMillis() + "-" + transferSequence.incrementAndGet();
+        CompletableFuture<Boolean> result = new CompletableFuture<>();
+        source.tell(() -> {
+            if (!transactionService.prepareTransferDebit(transferId, fromAccountNumber, toAccountNumber, amount,
+                    description)) {
+                result.complete(false);
+                return;
+            }
+            target.tell(() -> {
+                boolean credited = transactionService.applyTransferCredit(transferId, toAccountNumber, fromAccountNumber,
+                        amount, description);
+                if (credited) {
+                    transactionService.commitTransfer(transferId, toAccountNumber);
+                }
+                source.tell(() -> {
+                    if (credited) {
+                        transactionService.commitTransfer(transferId, fromAccountNumber);
+                    } else {
+                        // Compensation: the target could not take the money, give it back
+                        transactionService.abortTransferDebit(transferId, fromAccountNumber);
+                    }
+                    result.complete(credited);
+                }, result);
+            }, result);
+        }, result);
+        return result;
+    }
+
+    /**
+     * Nạp tiền và chờ kết quả.
+     *
+     * @return true nếu nạp thành công, false nếu thất bại
+     */
+    public boolean deposit(String accountNumber, double amount, String description) {
+        return await(depositAsync(accountNumber, amount, description));
+    }
+
+    /**
+     * Rút tiền và chờ kết quả.
+     *
+     * @return true nếu rút thành công, false nếu thất bại
+     */
+    public boolean withdraw(String accountNumber, double amount, String description) {
+        return await(withdrawAsync(accountNumber, amount, description));
+    }
+
+    /**
+     * Chuyển tiền và chờ kết quả (kể cả nhánh bù trừ nếu có).
+     *
+     * @return true nếu chuyển thành công, false nếu thất bại
+     */
+    public boolean transfer(String fromAccountNumber, String toAccountNumber, double amount, String description) {
+        return await(transferAsync(fromAccountNumber, toAccountNumber, amount, description));
+    }
+
+    /**
+     * Lấy số thông điệp đang chờ trong hộp thư của từng worker.
+     *
+     * @return Danh sách độ dài hộp thư theo thứ tự worker
+     */
+    public List<Integer> getMailboxSizes() {
+        List<Integer> sizes = new ArrayList<>(workers.length);
+        for (Worker worker : workers) {
+            sizes.add(worker.mailbox.size());
+        }
+        return sizes;
+    }
+
+    /**
+     * Dừng các worker sau khi xử lý hết thông điệp đã gửi trước đó. Thông điệp đến sau tín hiệu dừng
+     * (kể cả bước tiếp theo của một chuyển khoản đang dở) không được xử lý; kết quả của chúng hoàn tất
+     * với IllegalStateException.
+     */
+    public void shutdown() {
+        for (Worker worker : workers) {
+            worker.tell(worker::finish, null);
+        }
+        for (Worker worker : workers) {
+            try {
+                worker.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    private Worker ownerOf(String accountNumber) {
+        return workers[PartitionedDataStore.partitionOf(accountNumber, workers.length)];
+    }
+
+    private static boolean await(CompletableFuture<Boolean> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Một worker: luồng xử lý tuần tự các thông điệp trong hộp thư của nó.
+     */
+    private static class Worker extends Thread {
+        private static final int DRAIN_BATCH = 64;
+        private final BlockingQueue<Message> mailbox;
+        private volatile boolean running;
+        private boolean closed; // Guarded by mailbox
+
+        Worker(String name) {
+            super(name);
+            setDaemon(true);
+            this.mailbox = new LinkedBlockingQueue<>();
+            this.running = true;
+        }
+
+        /**
+         * Gửi thông điệp không chờ kết quả; lỗi khi xử lý được chuyển vào failure (nếu có).
+         * Nếu worker đã dừng, failure hoàn tất ngay với IllegalStateException.
+         */
+        void tell(Runnable body, CompletableFuture<?> failure) {
+            synchronized (mailbox) {
+                if (!closed) {
+                    mailbox.add(new Message(body, failure));
+                    return;
+                }
+            }
+            new Message(body, failure).reject();
+        }
+
+        /**
+         * Gửi thông điệp và nhận kết quả qua CompletableFuture.
+         */
+        <T> CompletableFuture<T> ask(Supplier<T> message) {
+            CompletableFuture<T> reply = new CompletableFuture<>();
+            tell(() -> reply.complete(message.get()), reply);
+            return reply;
+        }
+
+        void finish() {
+            running = false;
+        }
+
+        @Override
+        public void run() {
+            List<Message> batch = new ArrayList<>(DRAIN_BATCH);
+            try {
+                while (running) {
+                    try {
+                        batch.add(mailbox.take());
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                    // Drain a batch per wake-up to amortise the queue hand-off
+                    mailbox.drainTo(batch, DRAIN_BATCH - 1);
+                    for (Message message : batch) {
+                        message.run();
+                    }
+                    batch.clear();
+                }
+            } finally {
+                close();
+            }
+        }
+
+        /**
+         * Đóng hộp thư và hoàn tất với lỗi mọi thông điệp còn lại, để không ai chờ mãi một kết quả.
+         */
+        private void close() {
+            List<Message> left = new ArrayList<>();
+            synchronized (mailbox) {
+                closed = true;
+                mailbox.drainTo(left);
+            }
+            for (Message message : left) {
+                message.reject();
+            }
+        }
+    }
+
+    /**
+     * Một thông điệp trong hộp thư: việc cần làm và kết quả nhận lỗi của nó.
+     */
+    private static final class Message {
+        private final Runnable body;
+        private final CompletableFuture<?> failure;
+
+        Message(Runnable body, CompletableFuture<?> failure) {
+            this.body = body;
+            this.failure = failure;
+        }
+
+        void run() {
+            try {
+                body.run();
+            } catch (RuntimeException e) {
+                if (failure != null) {
+                    failure.completeExceptionally(e);
+                }
+            }
+        }
+
+        void reject() {
+            if (failure != null) {
+                failure.completeExceptionally(new IllegalStateException("Actor worker stopped"));
+            }
+        }
+    }
+}
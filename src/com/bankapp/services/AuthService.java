@@ -1,6 +1,7 @@
 package com.bankapp.services;
 
 import com.bankapp.data.InMemoryDataStore;
+import com.bankapp.data.MutationJournal;
 import com.bankapp.data.UserRepository;
 import com.bankapp.model.User;
 import com.bankapp.utils.IDGenerator;
@@ -13,12 +14,23 @@ import com.bankapp.utils.PasswordHasher;
  */
 public class AuthService {
     private final UserRepository userRepository;
+    private final MutationJournal journal;
 
     /**
-     * Constructor - khởi tạo với kho dữ liệu.
+     * Constructor - khởi tạo với kho dữ liệu dùng chung.
      */
     public AuthService() {
-        this.userRepository = InMemoryDataStore.getInstance().getUserRepository();
+        this(InMemoryDataStore.getInstance());
+    }
+
+    /**
+     * Constructor - khởi tạo với một kho dữ liệu cụ thể (ví dụ một phân vùng).
+     *
+     * @param dataStore Kho dữ liệu
+     */
+    public AuthService(InMemoryDataStore dataStore) {
+        this.userRepository = dataStore.getUserRepository();
+        this.journal = dataStore.getMutationJournal();
     }
 
     /**
@@ -58,6 +70,7 @@ public class AuthService {
 
         // Save user
         if (userRepository.save(newUser)) {
+            journal.recordUserRegistered(newUser);
             return newUser;
         }
         return null;
@@ -106,4 +119,13 @@ public class AuthService {
     public User getUserByUsername(String username) {
         return userRepository.findByUsername(username);
     }
+
+    /**
+     * Lấy tổng số người dùng đã đăng ký.
+     *
+     * @return Số lượng người dùng
+     */
+    public int getUserCount() {
+        return userRepository.getUserCount();
+    }
 }
@@ -1,5 +1,7 @@
 package com.bankapp.services;
 
+import com.bankapp.data.InMemoryDataStore;
+import com.bankapp.data.TransactionRollups;
 import com.bankapp.model.SavingsAccount;
 import java.util.HashMap;
 import java.util.Map;
@@ -16,12 +18,21 @@ public class BankService {
     private final Map<String, SavingsAccount> interestRates; // For demonstration
 
     /**
-     * Constructor - khởi tạo tất cả các service con.
+     * Constructor - khởi tạo tất cả các service con trên kho dữ liệu dùng chung.
      */
     public BankService() {
-        this.authService = new AuthService();
-        this.accountService = new AccountService();
-        this.transactionService = new TransactionService();
+        this(InMemoryDataStore.getInstance());
+    }
+
+    /**
+     * Constructor - khởi tạo tất cả các service con trên một kho dữ liệu cụ thể.
+     *
+     * @param dataStore Kho dữ liệu
+     */
+    public BankService(InMemoryDataStore dataStore) {
+        this.authService = new AuthService(dataStore);
+        this.accountService = new AccountService(dataStore);
+        this.transactionService = new TransactionService(dataStore);
         this.interestRates = new HashMap<>();
     }
 
@@ -43,6 +54,27 @@ public class BankService {
         return accountService;
     }
 
+    /**
+     * Chạy các tác vụ bảo trì định kỳ: lưu trữ các tài khoản đã đóng và nén lịch sử
+     * giao dịch đã quá hạn lưu giữ.
+     *
+     * @return Chuỗi tóm tắt kết quả
+     */
+    public String runMaintenance() {
+        int archived = accountService.archiveClosedAccounts();
+        int compacted = transactionService.compactHistory();
+        return String.format("Archived accounts: %d, compacted transactions: %d", archived, compacted);
+    }
+
+    /**
+     * Bắt đầu tháng mới: đặt lại bộ đếm số lần rút tiền trong tháng của mọi tài khoản.
+     *
+     * @return Số tài khoản đã được đặt lại
+     */
+    public int startNewMonth() {
+        return accountService.resetMonthlyWithdrawals();
+    }
+
     /**
      * Lấy TransactionService.
      *
@@ -58,11 +90,18 @@ public class BankService {
      * @return Chuỗi tóm tắt thống kê
      */
     public String getSystemStats() {
+        TransactionRollups rollups = transactionService.getTransactionRollups();
         StringBuilder stats = new StringBuilder();
         stats.append("=== BANK SYSTEM STATISTICS ===\n");
-        stats.append(String.format("Total Users: %d%n",
-                authService.getUserById("USER_001") != null ? "N/A" : 0));
-        stats.append(String.format("Total Accounts: %d%n", accountService.accountExists("ACC_001") ? "N/A" : 0));
+        stats.append(String.format("Total Users: %d%n", authService.getUserCount()));
+        stats.append(String.format("Total Accounts: %d (archived: %d)%n",
+                accountService.getAccountCount(), accountService.getArchivedAccountCount()));
+        stats.append(String.format("Total Transactions: %d%n", rollups.getTotalTransactionCount()));
+        stats.append(String.format("Total Money Moved: $%.2f%n", rollups.getTotalVolume()));
+        for (String type : rollups.getTransactionTypes()) {
+            TransactionRollups.Totals totals = rollups.getBankTotals(type);
+            stats.append(String.format("  %-20s %8d  $%.2f%n", type + ":", totals.getCount(), totals.getSum()));
+        }
         return stats.toString();
     }
 }
@@ -0,0 +1,581 @@
+package com.bankapp.services;
+
+import com.bankapp.data.PartitionedDataStore;
+import com.bankapp.data.TransactionQuery;
+import com.bankapp.data.TransactionRollups;
+import com.bankapp.data.TransferLog;
+import com.bankapp.model.Account;
+import com.bankapp.model.CheckingAccount;
+import com.bankapp.model.SavingsAccount;
+import com.bankapp.model.Transaction;
+import com.bankapp.model.TransactionPeriodSummary;
+import com.bankapp.model.User;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntFunction;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+/**
+ * ShardedTransactionService - Bộ định tuyến cung cấp cùng API với TransactionService
+ * trên một PartitionedDataStore.
+ * Mỗi phân vùng có một TransactionService riêng và một luồng xử lý riêng; mọi thao tác trên
+ * một phân vùng đều chạy tuần tự trên luồng của phân vùng đó, nên các phân vùng không cần khóa
+ * chung và thông lượng tăng theo số phân vùng với các thao tác nằm gọn trong một phân vùng.
+ * Các phương thức *Async trả về CompletableFuture để người gọi có thể gửi nhiều thao tác liên tiếp.
+ * Người dùng được đặt ở phân vùng của tên đăng nhập, và tài khoản mở cho người dùng được cấp số tài khoản
+ * thuộc cùng phân vùng đó, nên người dùng và các tài khoản của họ luôn nằm chung một kho; tra cứu theo tên
+ * đăng nhập đi thẳng tới một phân vùng, tra cứu theo mã người dùng hỏi lần lượt các phân vùng.
+ * Chuyển khoản giữa hai phân vùng dùng giao thức hai pha (two-phase commit), service này là bên điều phối:
+ * <ol>
+ *   <li>Ghi BEGIN vào TransferLog, giữ chỗ số tiền ở phân vùng nguồn (TRANSFER_OUT trạng thái PENDING).</li>
+ *   <li>Cộng tiền ở phân vùng đích (TRANSFER_IN trạng thái PENDING).</li>
+ *   <li>Ghi quyết định COMMIT (nếu bước cộng thành công) hoặc ABORT, rồi áp dụng: COMMIT chuyển
+ *       cả hai bước sang SUCCESS; ABORT hoàn tiền cho tài khoản nguồn và đánh dấu bước trừ là FAILED.</li>
+ *   <li>Ghi END khi cả hai phân vùng đã áp dụng quyết định.</li>
+ * </ol>
+ * Khi khởi tạo, các chuyển khoản dang dở trong nhật ký được xử lý tiếp: chưa có quyết định thì hỏi
+ * phân vùng đích đã cộng tiền hay chưa để xác nhận hoặc hủy; đã có quyết định thì áp dụng lại
+ * (mọi bước đều idempotent theo mã chuyển khoản). Việc khôi phục chỉ chạy trong constructor, trước khi
+ * service nhận chuyển khoản nào: một chuyển khoản đang chạy cũng chưa có quyết định và chưa cộng tiền ở
+ * phân vùng đích, nên nếu bị khôi phục giữa chừng nó sẽ vừa được hoàn tiền vừa được cộng tiền.
+ * Để khôi phục đúng sau sự cố, TransferLog phải có thư mục và các phân vùng phải lưu nhật ký thay đổi ra
+ * file (bankapp.journal.dir); mỗi phân vùng ép nhật ký xuống đĩa trước khi trả lời bên điều phối.
+ */
+public class ShardedTransactionService implements TransactionOperations {
+    private final PartitionedDataStore dataStore;
+    private final TransactionService[] shards;
+    private final AuthService[] authServices;
+    private final AccountService[] accountServices;
+    private final ExecutorService[] executors;
+    private final Thread[] shardThreads;
+    private final TransferLog transferLog;
+    private final int recoveredTransfers;
+
+    /**
+     * Constructor cho ShardedTransactionService với nhật ký chuyển khoản chỉ nằm trong bộ nhớ.
+     *
+     * @param dataStore Kho dữ liệu đã được phân vùng
+     */
+    public ShardedTransactionService(PartitionedDataStore dataStore) {
+        this(dataStore, new TransferLog(null));
+    }
+
+    /**
+     * Constructor cho ShardedTransactionService. Các chuyển khoản dang dở trong nhật ký
+     * được khôi phục trước khi trả về.
+     *
+     * @param dataStore Kho dữ liệu đã được phân vùng
+     * @param transferLog Nhật ký chuyển khoản giữa các phân vùng
+     */
+    public ShardedTransactionService(PartitionedDataStore dataStore, TransferLog transferLog) {
+        this.dataStore = dataStore;
+        this.transferLog = transferLog;
+        int count = dataStore.getPartitionCount();
+        this.shards = new TransactionService[count];
+        this.authServices = new AuthService[count];
+        this.accountServices = new AccountService[count];
+        this.executors = new ExecutorService[count];
+        this.shardThreads = new Thread[count];
+        for (int i = 0; i < count; i++) {
+            final int shard = i;
+            shards[i] = new TransactionService(dataStore.getPartition(i));
+            authServices[i] = new AuthService(dataStore.getPartition(i));
+            accountServices[i] = new AccountService(dataStore.getPartition(i),
+                    accountNumber -> dataStore.partitionOf(accountNumber) == shard);
+            executors[i] = Executors.newSingleThreadExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "bankapp-shard-" + shard);
+                thread.setDaemon(true);
+                shardThreads[shard] = thread;
+                return thread;
+            });
+        }
+        this.recoveredTransfers = recoverTransfers();
+    }
+
+    /**
+     * Lấy kho dữ liệu phân vùng mà service này định tuyến tới.
+     *
+     * @return Đối tượng PartitionedDataStore
+     */
+    public PartitionedDataStore getDataStore() {
+        return dataStore;
+    }
+
+    // ============= Users & Accounts =============
+
+    /**
+     * Đăng ký người dùng mới ở phân vùng của tên đăng nhập.
+     *
+     * @param username Tên đăng nhập
+     * @param password Mật khẩu
+     * @param fullName Họ tên đầy đủ
+     * @param email Địa chỉ email
+     * @return Người dùng vừa đăng ký, hoặc null nếu thông tin không hợp lệ hoặc tên đăng nhập đã tồn tại
+     */
+    public User registerUser(String username, String password, String fullName, String email) {
+        if (username == null) {
+            return null;
+        }
+        int shard = dataStore.partitionOf(username);
+        return call(shard, () -> authServices[shard].register(username, password, fullName, email));
+    }
+
+    /**
+     * Xác thực người dùng ở phân vùng của tên đăng nhập.
+     *
+     * @param username Tên đăng nhập
+     * @param password Mật khẩu
+     * @return Người dùng nếu đăng nhập thành công, null nếu thất bại
+     */
+    public User login(String username, String password) {
+        if (username == null) {
+            return null;
+        }
+        int shard = dataStore.partitionOf(username);
+        return call(shard, () -> authServices[shard].login(username, password));
+    }
+
+    /**
+     * Tìm người dùng theo tên đăng nhập.
+     *
+     * @param username Tên đăng nhập
+     * @return Người dùng, hoặc null nếu không tìm thấy
+     */
+    public User getUserByUsername(String username) {
+        if (username == null) {
+            return null;
+        }
+        int shard = dataStore.partitionOf(username);
+        return call(shard, () -> authServices[shard].getUserByUsername(username));
+    }
+
+    /**
+     * Tìm người dùng theo mã người dùng; mã không cho biết phân vùng nên các phân vùng được hỏi lần lượt.
+     *
+     * @param userId Mã người dùng
+     * @return Người dùng, hoặc null nếu không tìm thấy
+     */
+    public User getUserById(String userId) {
+        for (int shard = 0; shard < shards.length; shard++) {
+            int index = shard;
+            User user = call(shard, () -> authServices[index].getUserById(userId));
+            if (user != null) {
+                return user;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Mở tài khoản thanh toán cho người dùng, ở phân vùng của người dùng.
+     *
+     * @param user Người dùng (đã đăng ký qua service này)
+     * @param initialBalance Số dư ban đầu
+     * @param overdraftLimit Hạn mức thấu chi tối đa
+     * @return Tài khoản vừa mở, hoặc null nếu thất bại
+     */
+    public CheckingAccount createCheckingAccount(User user, double initialBalance, double overdraftLimit) {
+        if (user == null) {
+            return null;
+        }
+        int shard = dataStore.partitionOf(user.getUsername());
+        return call(shard, () -> accountServices[shard].createCheckingAccount(user, initialBalance, overdraftLimit));
+    }
+
+    /**
+     * Mở tài khoản tiết kiệm cho người dùng, ở phân vùng của người dùng.
+     *
+     * @param user Người dùng (đã đăng ký qua service này)
+     * @param initialBalance Số dư ban đầu
+     * @param interestRate Lãi suất hằng năm
+     * @return Tài khoản vừa mở, hoặc null nếu thất bại
+     */
+    public SavingsAccount createSavingsAccount(User user, double initialBalance, double interestRate) {
+        if (user == null) {
+            return null;
+        }
+        int shard = dataStore.partitionOf(user.getUsername());
+        return call(shard, () -> accountServices[shard].createSavingsAccount(user, initialBalance, interestRate));
+    }
+
+    /**
+     * Lưu một tài khoản đã tạo sẵn (không gắn với người dùng) vào phân vùng sở hữu số tài khoản của nó,
+     * ví dụ khi nạp dữ liệu có sẵn số tài khoản. Tài khoản của người dùng được mở bằng
+     * createCheckingAccount / createSavingsAccount.
+     *
+     * @param account Tài khoản cần lưu
+     * @return true nếu lưu thành công, false nếu thất bại
+     */
+    public boolean openAccount(Account account) {
+        if (account == null) {
+            return false;
+        }
+        int shard = dataStore.partitionOf(account.getAccountNumber());
+        return call(shard, () -> shards[shard].saveAccount(account));
+    }
+
+    // ============= Transactions =============
+
+    /**
+     * Nạp tiền vào một tài khoản (bất đồng bộ).
+     *
+     * @param accountNumber Số tài khoản cần nạp
+     * @param amount Số tiền cần nạp
+     * @param description Mô tả giao dịch
+     * @return Kết quả: true nếu nạp thành công
+     */
+    public CompletableFuture<Boolean> depositAsync(String accountNumber, double amount, String description) {
+        int shard = dataStore.partitionOf(accountNumber);
+        return submit(shard, () -> shards[shard].deposit(accountNumber, amount, description));
+    }
+
+    /**
+     * Nạp tiền vào một tài khoản.
+     *
+     * @param accountNumber Số tài khoản cần nạp
+     * @param amount Số tiền cần nạp
+     * @param description Mô tả giao dịch
+     * @return true nếu nạp thành công, false nếu thất bại
+     */
+    @Override
+    public boolean deposit(String accountNumber, double amount, String description) {
+        return await(depositAsync(accountNumber, amount, description));
+    }
+
+    /**
+     * Rút tiền từ một tài khoản (bất đồng bộ).
+     *
+     * @param accountNumber Số tài khoản cần rút
+     * @param amount Số tiền cần rút
+     * @param description Mô tả giao dịch
+     * @return Kết quả: true nếu rút thành công
+     */
+    public CompletableFuture<Boolean> withdrawAsync(String accountNumber, double amount, String description) {
+        int shard = dataStore.partitionOf(accountNumber);
+        return submit(shard, () -> shards[shard].withdraw(accountNumber, amount, description));
+    }
+
+    /**
+     * Rút tiền từ một tài khoản.
+     *
+     * @param accountNumber Số tài khoản cần rút
+     * @param amount Số tiền cần rút
+     * @param description Mô tả giao dịch
+     * @return true nếu rút thành công, false nếu thất bại
+     */
+    @Override
+    public boolean withdraw(String accountNumber, double amount, String description) {
+        return await(withdrawAsync(accountNumber, amount, description));
+    }
+
+    /**
+     * Chuyển tiền giữa hai tài khoản (bất đồng bộ).
+     *
+     * @param fromAccountNumber Số tài khoản nguồn
+     * @param toAccountNumber Số tài khoản đích
+     * @param amount Số tiền cần chuyển
+     * @param description Mô tả giao dịch
+     * @return Kết quả: true nếu chuyển thành công
+     */
+    public CompletableFuture<Boolean> transferAsync(String fromAccountNumber, String toAccountNumber,
+                                                    double amount, String description) {
+        int source = dataStore.partitionOf(fromAccountNumber);
+        int target = dataStore.partitionOf(toAccountNumber);
+        if (source == target) {
+            return submit(source, () -> shards[source].transfer(fromAccountNumber, toAccountNumber, amount, description));
+        }
+        if (!Double.isFinite(amount) || amount <= 0) {
+            return CompletableFuture.completedFuture(false);
+        }
+        String transferId = transferLog.begin(fromAccountNumber, toAccountNumber, amount, description);
+        return submit(source, () -> shards[source].prepareTransferDebit(transferId, fromAccountNumber, toAccountNumber,
+                        amount, description))
+                .thenCompose(reserved -> !reserved ? CompletableFuture.completedFuture(false)
+                        : submit(target, () -> shards[target].applyTransferCredit(transferId, toAccountNumber,
+                                fromAccountNumber, amount, description)))
+                .thenCompose(credited -> {
+                    transferLog.decide(transferId, credited);
+                    return finishTransfer(transferId, fromAccountNumber, toAccountNumber, credited);
+                });
+    }
+
+    /**
+     * Pha 2: áp dụng quyết định trên cả hai phân vùng rồi ghi END.
+     */
+    private CompletableFuture<Boolean> finishTransfer(String transferId, String fromAccountNumber,
+                                                      String toAccountNumber, boolean commit) {
+        int source = dataStore.partitionOf(fromAccountNumber);
+        int target = dataStore.partitionOf(toAccountNumber);
+        CompletableFuture<Void> applied;
+        if (commit) {
+            applied = CompletableFuture.allOf(
+                    submit(source, () -> run(() -> shards[source].commitTransfer(transferId, fromAccountNumber))),
+                    submit(target, () -> run(() -> shards[target].commitTransfer(transferId, toAccountNumber))));
+        } else {
+            applied = submit(source, () -> run(() -> shards[source].abortTransferDebit(transferId, fromAccountNumber)))
+                    .thenApply(ignored -> null);
+        }
+        return applied.thenApply(ignored -> {
+            transferLog.end(transferId);
+            return commit;
+        });
+    }
+
+    /**
+     * Xử lý tiếp các chuyển khoản giữa phân vùng còn dang dở trong nhật ký (ví dụ sau khi tiến trình bị dừng đột ngột).
+     * Chỉ gọi từ constructor, khi chưa có chuyển khoản nào đang chạy.
+     *
+     * @return Số chuyển khoản đã được xử lý
+     */
+    private int recoverTransfers() {
+        int recovered = 0;
+        for (TransferLog.Entry entry : transferLog.getUnfinished()) {
+            String transferId = entry.getTransferId();
+            boolean commit;
+            if (entry.getDecision() == null) {
+                // In doubt: the credit leg on the target is the only proof that phase 1 completed
+                int target = dataStore.partitionOf(entry.getToAccountNumber());
+                commit = call(target, () -> shards[target].hasTransferCredit(transferId, entry.getToAccountNumber()));
+                transferLog.decide(transferId, commit);
+            } else {
+                commit = "COMMIT".equals(entry.getDecision());
+            }
+            await(finishTransfer(transferId, entry.getFromAccountNumber(), entry.getToAccountNumber(), commit));
+            recovered++;
+        }
+        return recovered;
+    }
+
+    /**
+     * Lấy số chuyển khoản dang dở đã được xử lý tiếp khi khởi tạo.
+     *
+     * @return Số chuyển khoản đã khôi phục
+     */
+    public int getRecoveredTransferCount() {
+        return recoveredTransfers;
+    }
+
+    /**
+     * Lấy nhật ký chuyển khoản giữa các phân vùng.
+     *
+     * @return Đối tượng TransferLog
+     */
+    public TransferLog getTransferLog() {
+        return transferLog;
+    }
+
+    /**
+     * Chuyển tiền giữa hai tài khoản.
+     *
+     * @param fromAccountNumber Số tài khoản nguồn
+     * @param toAccountNumber Số tài khoản đích
+     * @param amount Số tiền cần chuyển
+     * @param description Mô tả giao dịch
+     * @return true nếu chuyển thành công, false nếu thất bại
+     */
+    @Override
+    public boolean transfer(String fromAccountNumber, String toAccountNumber, double amount, String description) {
+        return await(transferAsync(fromAccountNumber, toAccountNumber, amount, description));
+    }
+
+    // ============= Queries =============
+
+    /**
+     * Lấy lịch sử giao dịch của một tài khoản.
+     *
+     * @param accountNumber Số tài khoản cần lấy lịch sử
+     * @return Danh sách giao dịch
+     */
+    @Override
+    public List<Transaction> getTransactionHistory(String accountNumber) {
+        int shard = dataStore.partitionOf(accountNumber);
+        return call(shard, () -> shards[shard].getTransactionHistory(accountNumber));
+    }
+
+    /**
+     * Lấy toàn bộ lịch sử giao dịch của một tài khoản dưới dạng stream.
+     * Lịch sử được đọc hết trên luồng của phân vùng trước khi trả về.
+     *
+     * @param accountNumber Số tài khoản cần lấy lịch sử
+     * @return Stream giao dịch từ cũ đến mới
+     */
+    @Override
+    public Stream<Transaction> streamTransactionHistory(String accountNumber) {
+        return getTransactionHistory(accountNumber).stream();
+    }
+
+    /**
+     * Lấy các giao dịch gần đây của một tài khoản.
+     *
+     * @param accountNumber Số tài khoản cần lấy lịch sử
+     * @param count Số lượng giao dịch gần nhất cần lấy
+     * @return Danh sách các giao dịch gần đây
+     */
+    @Override
+    public List<Transaction> getRecentTransactions(String accountNumber, int count) {
+        int shard = dataStore.partitionOf(accountNumber);
+        return call(shard, () -> shards[shard].getRecentTransactions(accountNumber, count));
+    }
+
+    /**
+     * Lấy số dư của một tài khoản tại một thời điểm trong quá khứ.
+     *
+     * @param accountNumber Số tài khoản cần tra cứu
+     * @param timestamp Thời điểm cần tra cứu (epoch millis)
+     * @return Số dư tại thời điểm đó, hoặc -1 nếu không tìm thấy tài khoản
+     */
+    @Override
+    public double getBalanceAt(String accountNumber, long timestamp) {
+        int shard = dataStore.partitionOf(accountNumber);
+        return call(shard, () -> shards[shard].getBalanceAt(accountNumber, timestamp));
+    }
+
+    /**
+     * Tìm kiếm giao dịch trên tất cả phân vùng; kết quả được gộp theo thời gian.
+     *
+     * @param query Điều kiện tìm kiếm
+     * @return Danh sách giao dịch thỏa mãn
+     */
+    @Override
+    public List<Transaction> searchTransactions(TransactionQuery query) {
+        if (query == null) {
+            return List.of();
+        }
+        List<Transaction> merged = gather(shard -> shards[shard].searchTransactions(query));
+        return merged.size() > query.getLimit() ? new ArrayList<>(merged.subList(0, query.getLimit())) : merged;
+    }
+
+    /**
+     * Tìm kiếm giao dịch theo nội dung mô tả trên tất cả phân vùng.
+     *
+     * @param text Nội dung cần tìm
+     * @return Danh sách giao dịch thỏa mãn
+     */
+    @Override
+    public List<Transaction> searchByDescription(String text) {
+        return gather(shard -> shards[shard].searchByDescription(text));
+    }
+
+    /**
+     * Lấy số liệu tổng hợp giao dịch của một phân vùng.
+     *
+     * @param partition Chỉ số phân vùng
+     * @return Đối tượng TransactionRollups
+     */
+    public TransactionRollups getTransactionRollups(int partition) {
+        return call(partition, () -> shards[partition].getTransactionRollups());
+    }
+
+    /**
+     * Lấy các bản ghi tổng hợp theo kỳ của phần lịch sử đã được nén của một tài khoản.
+     *
+     * @param accountNumber Số tài khoản
+     * @return Danh sách bản ghi tổng hợp theo thứ tự thời gian
+     */
+    @Override
+    public List<TransactionPeriodSummary> getPeriodSummaries(String accountNumber) {
+        int shard = dataStore.partitionOf(accountNumber);
+        return call(shard, () -> shards[shard].getPeriodSummaries(accountNumber));
+    }
+
+    /**
+     * Nén lịch sử giao dịch đã quá hạn lưu giữ trên tất cả phân vùng.
+     *
+     * @return Tổng số giao dịch đã được nén
+     */
+    @Override
+    public int compactHistory() {
+        int total = 0;
+        for (int shard = 0; shard < shards.length; shard++) {
+            final int index = shard;
+            total += call(shard, () -> shards[index].compactHistory());
+        }
+        return total;
+    }
+
+    /**
+     * Lấy thông tin một giao dịch cụ thể theo ID (tìm trên tất cả phân vùng).
+     *
+     * @param transactionId ID giao dịch cần tìm
+     * @return Đối tượng Transaction nếu tìm thấy, null nếu không
+     */
+    @Override
+    public Transaction getTransaction(String transactionId) {
+        for (int shard = 0; shard < shards.length; shard++) {
+            final int index = shard;
+            Transaction transaction = call(shard, () -> shards[index].getTransaction(transactionId));
+            if (transaction != null) {
+                return transaction;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Dừng các luồng xử lý của phân vùng sau khi các thao tác đã gửi hoàn tất, rồi đóng nhật ký chuyển khoản.
+     */
+    public void shutdown() {
+        for (ExecutorService executor : executors) {
+            executor.shutdown();
+        }
+        try {
+            for (ExecutorService executor : executors) {
+                executor.awaitTermination(10, TimeUnit.SECONDS);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        transferLog.close();
+    }
+
+    // ============= Shard Dispatch =============
+
+    private <T> CompletableFuture<T> submit(int shard, Supplier<T> task) {
+        if (Thread.currentThread() == shardThreads[shard]) {
+            // Already on the owning thread: queueing would deadlock a caller that waits for the result
+            return CompletableFuture.completedFuture(task.get());
+        }
+        return CompletableFuture.supplyAsync(task, executors[shard]);
+    }
+
+    private static Boolean run(Runnable task) {
+        task.run();
+        return Boolean.TRUE;
+    }
+
+    private <T> T call(int shard, Supplier<T> task) {
+        return await(submit(shard, task));
+    }
+
+    private static <T> T await(CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    private List<Transaction> gather(IntFunction<List<Transaction>> perShard) {
+        List<CompletableFuture<List<Transaction>>> futures = new ArrayList<>(shards.length);
+        for (int shard = 0; shard < shards.length; shard++) {
+            final int index = shard;
+            futures.add(submit(shard, () -> perShard.apply(index)));
+        }
+        List<Transaction> merged = new ArrayList<>();
+        for (CompletableFuture<List<Transaction>> future : futures) {
+            merged.addAll(await(future));
+        }
+        merged.sort(Comparator.comparingLong(Transaction::getTimestamp));
+        return merged;
+    }
+}
@@ -0,0 +1,167 @@
+package com.bankapp.services;
+
+import com.bankapp.data.InMemoryDataStore;
+import com.bankapp.data.PartitionedDataStore;
+import com.bankapp.data.TransactionQuery;
+import com.bankapp.model.Transaction;
+import com.bankapp.model.TransactionPeriodSummary;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+
+/**
+ * StripedLockTransactionService - Chế độ thực thi dùng khóa phân dải (lock striping) để so sánh
+ * với ActorTransactionService.
+ * Mỗi tài khoản được ánh xạ vào một trong số các khóa cố định; luồng gọi tự thực hiện thao tác
+ * sau khi giữ khóa của tài khoản. Chuyển khoản giữ hai khóa theo thứ tự chỉ số tăng dần
+ * để không bị deadlock.
+ * Các truy vấn không thay đổi dữ liệu (trừ giao dịch gần đây) đi thẳng tới TransactionService mà không giữ khóa.
+ */
+public class StripedLockTransactionService implements TransactionOperations {
+    private final TransactionService transactionService;
+    private final ReentrantLock[] stripes;
+
+    /**
+     * Constructor cho StripedLockTransactionService.
+     *
+     * @param dataStore Kho dữ liệu chứa các tài khoản
+     * @param stripeCount Số khóa
+     */
+    public StripedLockTransactionService(InMemoryDataStore dataStore, int stripeCount) {
+        this.transactionService = new TransactionService(dataStore);
+        this.stripes = new ReentrantLock[Math.max(1, stripeCount)];
+        for (int i = 0; i < stripes.length; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+    }
+
+    /**
+     * Nạp tiền vào một tài khoản.
+     *
+     * @return true nếu nạp thành công, false nếu thất bại
+     */
+    @Override
+    public boolean deposit(String accountNumber, double amount, String description) {
+        ReentrantLock lock = stripeOf(accountNumber);
+        lock.lock();
+        try {
+            return transactionService.deposit(accountNumber, amount, description);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Rút tiền từ một tài khoản.
+     *
+     * @return true nếu rút thành công, false nếu thất bại
+     */
+    @Override
+    public boolean withdraw(String accountNumber, double amount, String description) {
+        ReentrantLock lock = stripeOf(accountNumber);
+        lock.lock();
+        try {
+            return transactionService.withdraw(accountNumber, amount, description);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Chuyển tiền giữa hai tài khoản.
+     *
+     * @return true nếu chuyển thành công, false nếu thất bại
+     */
+    @Override
+    public boolean transfer(String fromAccountNumber, String toAccountNumber, double amount, String description) {
+        int first = PartitionedDataStore.partitionOf(fromAccountNumber, stripes.length);
+        int second = PartitionedDataStore.partitionOf(toAccountNumber, stripes.length);
+        ReentrantLock lower = stripes[Math.min(first, second)];
+        ReentrantLock upper = stripes[Math.max(first, second)];
+        lower.lock();
+        try {
+            upper.lock(); // Same lock when both accounts share a stripe; ReentrantLock allows it
+            try {
+                return transactionService.transfer(fromAccountNumber, toAccountNumber, amount, description);
+            } finally {
+                upper.unlock();
+            }
+        } finally {
+            lower.unlock();
+        }
+    }
+
+    /**
+     * Lấy các giao dịch gần đây của một tài khoản trong khi giữ khóa của tài khoản,
+     * để không đọc lịch sử đang được ghi dở.
+     *
+     * @return Danh sách các giao dịch gần đây
+     */
+    @Override
+    public List<Transaction> getRecentTransactions(String accountNumber, int count) {
+        ReentrantLock lock = stripeOf(accountNumber);
+        lock.lock();
+        try {
+            return transactionService.getRecentTransactions(accountNumber, count);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public List<Transaction> getTransactionHistory(String accountNumber) {
+        return transactionService.getTransactionHistory(accountNumber);
+    }
+
+    @Override
+    public Stream<Transaction> streamTransactionHistory(String accountNumber) {
+        return transactionService.streamTransactionHistory(accountNumber);
+    }
+
+    @Override
+    public double getBalanceAt(String accountNumber, long timestamp) {
+        return transactionService.getBalanceAt(accountNumber, timestamp);
+    }
+
+    @Override
+    public List<Transaction> searchTransactions(TransactionQuery query) {
+        return transactionService.searchTransactions(query);
+    }
+
+    @Override
+    public List<Transaction> searchByDescription(String text) {
+        return transactionService.searchByDescription(text);
+    }
+
+    @Override
+    public List<TransactionPeriodSummary> getPeriodSummaries(String accountNumber) {
+        return transactionService.getPeriodSummaries(accountNumber);
+    }
+
+    @Override
+    public int compactHistory() {
+        return transactionService.compactHistory();
+    }
+
+    @Override
+    public Transaction getTransaction(String transactionId) {
+        return transactionService.getTransaction(transactionId);
+    }
+
+    /**
+     * Chuyển ra đĩa phần lịch sử ngoài giới hạn tầng nóng của một tài khoản trong khi giữ khóa của nó.
+     */
+    void spillHistory(String accountNumber) {
+        ReentrantLock lock = stripeOf(accountNumber);
+        lock.lock();
+        try {
+            transactionService.spillHistory(accountNumber);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private ReentrantLock stripeOf(String accountNumber) {
+        return stripes[PartitionedDataStore.partitionOf(accountNumber, stripes.length)];
+    }
+}
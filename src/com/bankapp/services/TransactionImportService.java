@@ -0,0 +1,478 @@
+package com.bankapp.services;
+
+import com.bankapp.data.InMemoryDataStore;
+import com.bankapp.data.PartitionedDataStore;
+import com.bankapp.utils.InputValidator;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * TransactionImportService - Nhập hàng loạt giao dịch nạp / rút từ tệp của các chi nhánh.
+ * Tệp được đọc tuần tự qua FileChannel với một buffer cố định, không nạp cả tệp vào bộ nhớ.
+ * Mỗi dòng được kiểm tra theo các quy tắc của InputValidator rồi chuyển cho luồng xử lý sở hữu
+ * tài khoản đó (theo PartitionedDataStore.partitionOf), nên các giao dịch của một tài khoản được áp dụng
+ * đúng thứ tự trong tệp còn các tài khoản khác nhau được áp dụng song song. Hàng đợi của mỗi luồng
+ * có giới hạn, nên phần đọc và phân tích tệp dùng bộ nhớ cố định.
+ * Các giao dịch đã áp dụng vẫn được ghi vào sổ cái: khi tầng lạnh được bật (bankapp.history.dir),
+ * sau mỗi lô mọi giao dịch ngoài giới hạn tầng nóng của tài khoản được chuyển ra đĩa ngay, bất kể tuổi,
+ * nên đối tượng giao dịch không tích lũy trên heap. Sổ cái vẫn giữ vài chục byte chỉ mục cho mỗi dòng
+ * (vị trí, mã giao dịch, chỉ mục phụ), nên bộ nhớ vẫn tăng tuyến tính theo số dòng, chỉ với hệ số nhỏ;
+ * nếu không bật tầng lạnh, toàn bộ giao dịch đã nhập nằm lại trong bộ nhớ.
+ * Dòng không hợp lệ hoặc bị từ chối khi áp dụng được ghi vào tệp rejects dạng "dòng,lý do,bản ghi gốc".
+ * <pre>
+ *   CSV:         accountNumber,type,amount[,description]   (type: DEPOSIT/WITHDRAWAL hoặc D/W,
+ *                                                            description có thể đặt trong dấu nháy kép)
+ *   FIXED_WIDTH: cột 1-16 số tài khoản, cột 17 loại (D/W), cột 18-32 số tiền, cột 33 trở đi mô tả
+ * </pre>
+ * Dòng đầu tiên của tệp CSV được bỏ qua nếu là dòng tiêu đề (bắt đầu bằng "account").
+ */
+public class TransactionImportService {
+    /**
+     * Định dạng tệp nhập.
+     */
+    public enum Format { CSV, FIXED_WIDTH }
+
+    private static final int READ_BUFFER_BYTES = 1 << 20;
+    private static final int CHUNK_ROWS = 512;         // Rows handed to a worker at a time
+    private static final int QUEUED_CHUNKS = 16;       // Per worker; bounds memory to threads * 16 * 512 rows
+    private static final int FIXED_ACCOUNT_END = 16;
+    private static final int FIXED_TYPE_END = 17;
+    private static final int FIXED_AMOUNT_END = 32;
+    private static final String DEFAULT_DESCRIPTION = "Bulk import";
+    private static final List<Row> END_OF_INPUT = new ArrayList<>();
+
+    private final AccountService accountService;
+    private final StripedLockTransactionService transactionService;
+    private final int threads;
+
+    /**
+     * Kết quả của một lần nhập.
+     */
+    public static class Result {
+        private final long rows;
+        private final long applied;
+        private final long rejected;
+        private final long bytes;
+        private final long elapsedMillis;
+
+        Result(long rows, long applied, long rejected, long bytes, long elapsedMillis) {
+            this.rows = rows;
+            this.applied = applied;
+            this.rejected = rejected;
+            this.bytes = bytes;
+            this.elapsedMillis = elapsedMillis;
+        }
+
+        /**
+         * Lấy số dòng dữ liệu đã đọc (không tính dòng trống và dòng tiêu đề).
+         *
+         * @return Số dòng
+         */
+        public long getRows() {
+            return rows;
+        }
+
+        /**
+         * Lấy số giao dịch đã áp dụng.
+         *
+         * @return Số giao dịch
+         */
+        public long getApplied() {
+            return applied;
+        }
+
+        /**
+         * Lấy số dòng bị từ chối (đã ghi vào tệp rejects).
+         *
+         * @return Số dòng bị từ chối
+         */
+        public long getRejected() {
+            return rejected;
+        }
+
+        /**
+         * Lấy số byte đã đọc từ tệp nguồn.
+         *
+         * @return Số byte
+         */
+        public long getBytes() {
+            return bytes;
+        }
+
+        /**
+         * Lấy thời gian nhập.
+         *
+         * @return Thời gian (mili giây)
+         */
+        public long getElapsedMillis() {
+            return elapsedMillis;
+        }
+
+        @Override
+        public String toString() {
+            return "Imported " + applied + " of " + rows + " rows (" + rejected + " rejected, "
+                    + bytes / (1024 * 1024) + " MB) in " + elapsedMillis + " ms";
+        }
+    }
+
+    /**
+     * Một dòng hợp lệ chờ áp dụng.
+     */
+    private static final class Row {
+        final long lineNumber;
+        final String line;
+        final String accountNumber;
+        final boolean deposit;
+        final double amount;
+        final String description;
+
+        Row(long lineNumber, String line, String accountNumber, boolean deposit, double amount, String description) {
+            this.lineNumber = lineNumber;
+            this.line = line;
+            this.accountNumber = accountNumber;
+            this.deposit = deposit;
+            this.amount = amount;
+            this.description = description;
+        }
+    }
+
+    /**
+     * Constructor cho TransactionImportService.
+     *
+     * @param dataStore Kho dữ liệu chứa các tài khoản
+     * @param threads Số luồng áp dụng giao dịch
+     */
+    public TransactionImportService(InMemoryDataStore dataStore, int threads) {
+        this.threads = Math.max(1, threads);
+        this.accountService = new AccountService(dataStore);
+        // One stripe per worker: a worker only ever takes its own, uncontended lock
+        this.transactionService = new StripedLockTransactionService(dataStore, this.threads);
+    }
+
+    /**
+     * Nhập một tệp giao dịch.
+     *
+     * @param source Tệp cần nhập
+     * @param format Định dạng tệp
+     * @param rejectsFile Tệp ghi các dòng bị từ chối (ghi đè nếu đã có)
+     * @return Kết quả nhập
+     * @throws UncheckedIOException nếu không đọc được tệp nguồn hoặc không ghi được tệp rejects
+     */
+    public Result importFile(Path source, Format format, Path rejectsFile) {
+        long start = System.nanoTime();
+        AtomicLong applied = new AtomicLong();
+        AtomicLong rejected = new AtomicLong();
+        AtomicReference<RuntimeException> failure = new AtomicReference<>();
+        long rows = 0;
+        long bytes = 0;
+        try (FileChannel channel = FileChannel.open(source, StandardOpenOption.READ);
+             BufferedWriter rejects = Files.newBufferedWriter(rejectsFile, StandardCharsets.UTF_8)) {
+            rejects.write("line,reason,record\n");
+            List<BlockingQueue<List<Row>>> queues = new ArrayList<>(threads);
+            List<Thread> workers = new ArrayList<>(threads);
+            List<List<Row>> pending = new ArrayList<>(threads);
+            for (int i = 0; i < threads; i++) {
+                BlockingQueue<List<Row>> queue = new ArrayBlockingQueue<>(QUEUED_CHUNKS);
+                queues.add(queue);
+                pending.add(new ArrayList<>(CHUNK_ROWS));
+                Thread worker = new Thread(() -> apply(queue, rejects, applied, rejected, failure), "bankapp-import-" + i);
+                worker.start();
+                workers.add(worker);
+            }
+
+            boolean completed = false;
+            try {
+                ByteBuffer buffer = ByteBuffer.allocate(READ_BUFFER_BYTES);
+                byte[] data = buffer.array();
+                long lineNumber = 0;
+                boolean skippingLongLine = false;
+                boolean eof = false;
+                while (!eof && failure.get() == null) {
+                    int read = channel.read(buffer);
+                    if (read < 0) {
+                        eof = true;
+                    } else {
+                        bytes += read;
+                    }
+                    int end = buffer.position();
+                    int lineStart = 0;
+                    for (int i = 0; i <= end; i++) {
+                        // A line ends at '\n', or at end of file when the last line has no newline
+                        boolean lineEnds = i < end ? data[i] == '\n' : eof && i > lineStart;
+                        if (!lineEnds) {
+                            continue;
+                        }
+                        if (skippingLongLine) {
+                            skippingLongLine = false; // Tail of a line already rejected as too long
+                        } else {
+                            lineNumber++;
+                            int lineEnd = i > lineStart && data[i - 1] == '\r' ? i - 1 : i;
+                            String line = new String(data, lineStart, lineEnd - lineStart, StandardCharsets.UTF_8);
+                            if (!line.isBlank() && !(lineNumber == 1 && isHeader(line, format))) {
+                                rows++;
+                                Row row = parse(lineNumber, line, format, rejects, rejected);
+                                if (row != null) {
+                                    int owner = PartitionedDataStore.partitionOf(row.accountNumber, threads);
+                                    List<Row> chunk = pending.get(owner);
+                                    chunk.add(row);
+                                    if (chunk.size() == CHUNK_ROWS) {
+                                        queues.get(owner).put(chunk);
+                                        pending.set(owner, new ArrayList<>(CHUNK_ROWS));
+                                    }
+                                }
+                            }
+                        }
+                        lineStart = i + 1;
+                    }
+                    if (lineStart == 0 && end == data.length) {
+                        // A single line fills the whole buffer: reject it once and skip to its end
+                        if (!skippingLongLine) {
+                            lineNumber++;
+                            rows++;
+                            reject(rejects, rejected, lineNumber, "line too long", "");
+                            skippingLongLine = true;
+                        }
+                        buffer.clear();
+                    } else {
+                        buffer.position(Math.min(lineStart, end)).limit(end);
+                        buffer.compact();
+                    }
+                }
+                for (int i = 0; i < threads; i++) {
+                    if (!pending.get(i).isEmpty()) {
+                        queues.get(i).put(pending.get(i));
+                    }
+                }
+                completed = true;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                for (BlockingQueue<List<Row>> queue : queues) {
+                    if (!completed) {
+                        queue.clear(); // Abandon queued rows so the workers stop promptly
+                    }
+                    putUninterruptibly(queue, END_OF_INPUT);
+                }
+                for (Thread worker : workers) {
+                    joinUninterruptibly(worker);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot import " + source, e);
+        }
+        if (failure.get() != null) {
+            throw failure.get();
+        }
+        return new Result(rows, applied.get(), rejected.get(), bytes, (System.nanoTime() - start) / 1_000_000);
+    }
+
+    // ============= Parsing =============
+
+    /**
+     * Phân tích và kiểm tra một dòng.
+     *
+     * @return Dòng hợp lệ, hoặc null nếu dòng đã bị ghi vào rejects
+     */
+    private Row parse(long lineNumber, String line, Format format, BufferedWriter rejects, AtomicLong rejected) {
+        String accountNumber;
+        String type;
+        String amountText;
+        String description;
+        if (format == Format.CSV) {
+            List<String> fields = splitCsv(line);
+            if (fields == null) {
+                reject(rejects, rejected, lineNumber, "unterminated quote", line);
+                return null;
+            }
+            if (fields.size() < 3 || fields.size() > 4) {
+                reject(rejects, rejected, lineNumber, "expected 3 or 4 fields", line);
+                return null;
+            }
+            accountNumber = fields.get(0).trim();
+            type = fields.get(1).trim();
+            amountText = fields.get(2).trim();
+            description = fields.size() == 4 ? fields.get(3).trim() : "";
+        } else {
+            if (line.length() < FIXED_AMOUNT_END) {
+                reject(rejects, rejected, lineNumber, "record shorter than " + FIXED_AMOUNT_END + " columns", line);
+                return null;
+            }
+            accountNumber = line.substring(0, FIXED_ACCOUNT_END).trim();
+            type = line.substring(FIXED_ACCOUNT_END, FIXED_TYPE_END);
+            amountText = line.substring(FIXED_TYPE_END, FIXED_AMOUNT_END).trim();
+            description = line.substring(FIXED_AMOUNT_END).trim();
+        }
+
+        if (!InputValidator.isValidAccountNumber(accountNumber)) {
+            reject(rejects, rejected, lineNumber, "invalid account number", line);
+            return null;
+        }
+        boolean deposit;
+        if (type.equalsIgnoreCase("DEPOSIT") || type.equalsIgnoreCase("D")) {
+            deposit = true;
+        } else if (type.equalsIgnoreCase("WITHDRAWAL") || type.equalsIgnoreCase("W")) {
+            deposit = false;
+        } else {
+            reject(rejects, rejected, lineNumber, "unknown transaction type", line);
+            return null;
+        }
+        double amount = InputValidator.parseAmount(amountText);
+        if (amount == -1) {
+            reject(rejects, rejected, lineNumber, "invalid amount", line);
+            return null;
+        }
+        return new Row(lineNumber, line, accountNumber, deposit, amount,
+                description.isEmpty() ? DEFAULT_DESCRIPTION : description);
+    }
+
+    private static boolean isHeader(String line, Format format) {
+        return format == Format.CSV && line.regionMatches(true, 0, "account", 0, 7);
+    }
+
+    /**
+     * Tách một dòng CSV thành các trường; trường có thể đặt trong dấu nháy kép, "" là một dấu nháy.
+     *
+     * @return Các trường, hoặc null nếu thiếu dấu nháy đóng
+     */
+    static List<String> splitCsv(String line) {
+        List<String> fields = new ArrayList<>(4);
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    field.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        if (quoted) {
+            return null;
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+
+    // ============= Application =============
+
+    private void apply(BlockingQueue<List<Row>> queue, BufferedWriter rejects, AtomicLong applied,
+                       AtomicLong rejected, AtomicReference<RuntimeException> failure) {
+        long appliedHere = 0;
+        try {
+            while (true) {
+                List<Row> chunk = queue.take();
+                if (chunk == END_OF_INPUT) {
+                    break;
+                }
+                if (failure.get() != null) {
+                    continue; // Keep draining so the reader never blocks on a full queue
+                }
+                try {
+                    appliedHere += applyChunk(chunk, rejects, rejected);
+                } catch (RuntimeException e) {
+                    failure.compareAndSet(null, e);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            applied.addAndGet(appliedHere);
+        }
+    }
+
+    private long applyChunk(List<Row> chunk, BufferedWriter rejects, AtomicLong rejected) {
+        long appliedHere = 0;
+        Set<String> touched = new HashSet<>();
+        for (Row row : chunk) {
+            boolean success = row.deposit
+                    ? transactionService.deposit(row.accountNumber, row.amount, row.description)
+                    : transactionService.withdraw(row.accountNumber, row.amount, row.description);
+            if (success) {
+                appliedHere++;
+                touched.add(row.accountNumber);
+            } else {
+                reject(rejects, rejected, row.lineNumber, accountService.accountExists(row.accountNumber)
+                        ? (row.deposit ? "deposit rejected" : "insufficient funds or withdrawal limit")
+                        : "account not found", row.line);
+            }
+        }
+        // Imported rows are all recent, so the age-based spill would keep every one of them on the heap
+        for (String accountNumber : touched) {
+            transactionService.spillHistory(accountNumber);
+        }
+        return appliedHere;
+    }
+
+    private static void reject(BufferedWriter rejects, AtomicLong rejected, long lineNumber, String reason, String line) {
+        rejected.incrementAndGet();
+        synchronized (rejects) {
+            try {
+                rejects.write(Long.toString(lineNumber));
+                rejects.write(',');
+                rejects.write(reason);
+                rejects.write(',');
+                rejects.write(line);
+                rejects.write('\n');
+            } catch (IOException e) {
+                throw new UncheckedIOException("Cannot write rejects file", e);
+            }
+        }
+    }
+
+    private static void putUninterruptibly(BlockingQueue<List<Row>> queue, List<Row> chunk) {
+        boolean interrupted = false;
+        while (true) {
+            try {
+                queue.put(chunk);
+                break;
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void joinUninterruptibly(Thread thread) {
+        boolean interrupted = false;
+        while (true) {
+            try {
+                thread.join();
+                break;
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
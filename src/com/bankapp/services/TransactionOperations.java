@@ -0,0 +1,122 @@
+package com.bankapp.services;
+
+import com.bankapp.data.TransactionQuery;
+import com.bankapp.model.Transaction;
+import com.bankapp.model.TransactionPeriodSummary;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * TransactionOperations - Các thao tác giao dịch chung của mọi chế độ thực thi: TransactionService
+ * (một kho dữ liệu), StripedLockTransactionService (khóa phân dải) và ShardedTransactionService
+ * (định tuyến theo phân vùng).
+ * Các front end (ApiController, GatewayController, BatchController, TransactionController) chỉ phụ thuộc
+ * vào interface này nên có thể chạy trên bất kỳ chế độ nào.
+ * Theo quy ước của các service: thao tác thất bại trả về false, danh sách rỗng, null hoặc -1 thay vì ném lỗi.
+ */
+public interface TransactionOperations {
+
+    /**
+     * Nạp tiền vào một tài khoản.
+     *
+     * @param accountNumber Số tài khoản cần nạp
+     * @param amount Số tiền cần nạp
+     * @param description Mô tả giao dịch
+     * @return true nếu nạp thành công, false nếu thất bại
+     */
+    boolean deposit(String accountNumber, double amount, String description);
+
+    /**
+     * Rút tiền từ một tài khoản.
+     *
+     * @param accountNumber Số tài khoản cần rút
+     * @param amount Số tiền cần rút
+     * @param description Mô tả giao dịch
+     * @return true nếu rút thành công, false nếu thất bại
+     */
+    boolean withdraw(String accountNumber, double amount, String description);
+
+    /**
+     * Chuyển tiền giữa hai tài khoản.
+     *
+     * @param fromAccountNumber Số tài khoản nguồn
+     * @param toAccountNumber Số tài khoản đích
+     * @param amount Số tiền cần chuyển
+     * @param description Mô tả giao dịch
+     * @return true nếu chuyển thành công, false nếu thất bại
+     */
+    boolean transfer(String fromAccountNumber, String toAccountNumber, double amount, String description);
+
+    /**
+     * Lấy lịch sử giao dịch của một tài khoản.
+     *
+     * @param accountNumber Số tài khoản cần lấy lịch sử
+     * @return Danh sách giao dịch
+     */
+    List<Transaction> getTransactionHistory(String accountNumber);
+
+    /**
+     * Lấy toàn bộ lịch sử giao dịch của một tài khoản dưới dạng stream.
+     *
+     * @param accountNumber Số tài khoản cần lấy lịch sử
+     * @return Stream giao dịch từ cũ đến mới
+     */
+    Stream<Transaction> streamTransactionHistory(String accountNumber);
+
+    /**
+     * Lấy các giao dịch gần đây của một tài khoản.
+     *
+     * @param accountNumber Số tài khoản cần lấy lịch sử
+     * @param count Số lượng giao dịch gần nhất cần lấy
+     * @return Danh sách các giao dịch gần đây
+     */
+    List<Transaction> getRecentTransactions(String accountNumber, int count);
+
+    /**
+     * Lấy số dư của một tài khoản tại một thời điểm trong quá khứ.
+     *
+     * @param accountNumber Số tài khoản cần tra cứu
+     * @param timestamp Thời điểm cần tra cứu (epoch millis)
+     * @return Số dư tại thời điểm đó, hoặc -1 nếu không tìm thấy tài khoản
+     */
+    double getBalanceAt(String accountNumber, long timestamp);
+
+    /**
+     * Tìm kiếm giao dịch theo nhiều tiêu chí.
+     *
+     * @param query Điều kiện tìm kiếm
+     * @return Danh sách giao dịch thỏa mãn
+     */
+    List<Transaction> searchTransactions(TransactionQuery query);
+
+    /**
+     * Tìm kiếm giao dịch theo nội dung mô tả.
+     *
+     * @param text Nội dung cần tìm
+     * @return Danh sách giao dịch thỏa mãn
+     */
+    List<Transaction> searchByDescription(String text);
+
+    /**
+     * Lấy các bản ghi tổng hợp theo kỳ của phần lịch sử đã được nén của một tài khoản.
+     *
+     * @param accountNumber Số tài khoản
+     * @return Danh sách bản ghi tổng hợp theo thứ tự thời gian
+     */
+    List<TransactionPeriodSummary> getPeriodSummaries(String accountNumber);
+
+    /**
+     * Nén ngay phần lịch sử giao dịch đã quá hạn lưu giữ.
+     *
+     * @return Số giao dịch đã được nén
+     */
+    int compactHistory();
+
+    /**
+     * Lấy thông tin một giao dịch cụ thể theo ID.
+     *
+     * @param transactionId ID giao dịch cần tìm
+     * @return Đối tượng Transaction nếu tìm thấy, null nếu không
+     */
+    Transaction getTransaction(String transactionId);
+}
@@ -2,25 +2,55 @@ package com.bankapp.services;
 
 import com.bankapp.data.InMemoryDataStore;
 import com.bankapp.data.AccountRepository;
+import com.bankapp.data.LedgerCompactor;
+import com.bankapp.data.MutationJournal;
+import com.bankapp.data.TieredTransactionStore;
+import com.bankapp.data.TransactionQuery;
 import com.bankapp.data.TransactionRepository;
+import com.bankapp.data.TransactionRollups;
 import com.bankapp.model.Account;
 import com.bankapp.model.Transaction;
+import com.bankapp.model.TransactionPeriodSummary;
 import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 /**
  * TransactionService - Xử lý các thao tác giao dịch (nạp, rút, chuyển khoản).
  * Tuân theo nguyên lý Trách nhiệm đơn (SRP) - chỉ tập trung vào logic giao dịch.
+ * Mỗi thay đổi trên một tài khoản được áp dụng, ghi sổ cái và ghi nhật ký thay đổi trong cùng
+ * một lần giữ khóa của tài khoản đó, nên nhật ký (và nút dự phòng) thấy các giao dịch của
+ * một tài khoản đúng theo thứ tự chúng được áp dụng. Việc cập nhật repository diễn ra sau khi
+ * nhả khóa vì nó có thể ghi ra đĩa các tài khoản khác bị đẩy khỏi cache.
  */
-public class TransactionService {
+public class TransactionService implements TransactionOperations {
+    private static final String DEBIT_LEG = "-D";   // Suffixes of cross-partition transfer legs
+    private static final String CREDIT_LEG = "-C";
+    private static final String REFUND_LEG = "-R";
     private final AccountRepository accountRepository;
     private final TransactionRepository transactionRepository;
+    private final TieredTransactionStore historyStore;
+    private final LedgerCompactor ledgerCompactor;
+    private final MutationJournal journal;
 
     /**
-     * Constructor - khởi tạo với kho dữ liệu.
+     * Constructor - khởi tạo với kho dữ liệu dùng chung.
      */
     public TransactionService() {
-        this.accountRepository = InMemoryDataStore.getInstance().getAccountRepository();
-        this.transactionRepository = InMemoryDataStore.getInstance().getTransactionRepository();
+        this(InMemoryDataStore.getInstance());
+    }
+
+    /**
+     * Constructor - khởi tạo với một kho dữ liệu cụ thể (ví dụ một phân vùng).
+     *
+     * @param dataStore Kho dữ liệu
+     */
+    public TransactionService(InMemoryDataStore dataStore) {
+        this.accountRepository = dataStore.getAccountRepository();
+        this.transactionRepository = dataStore.getTransactionRepository();
+        this.historyStore = dataStore.getTransactionHistoryStore();
+        this.ledgerCompactor = dataStore.getLedgerCompactor();
+        this.journal = dataStore.getMutationJournal();
     }
 
     /**
@@ -31,8 +61,9 @@ public class TransactionService {
      * @param description Mô tả giao dịch
      * @return true nếu nạp thành công, false nếu thất bại
      */
+    @Override
     public boolean deposit(String accountNumber, double amount, String description) {
-        if (amount <= 0) {
+        if (!Double.isFinite(amount) || amount <= 0) {
             return false;
         }
 
@@ -41,12 +72,16 @@ public class TransactionService {
             return false;
         }
 
-        if (account.deposit(amount, description)) {
-            accountRepository.update(account);
+        synchronized (account) {
+            int postedBefore = account.getTransactionCount();
+            if (!account.deposit(amount, description)) {
+                return false;
+            }
             // Record transaction (the account already created the transaction internally)
-            return true;
+            postTransactions(account, postedBefore);
         }
-        return false;
+        persist(account);
+        return true;
     }
 
     /**
@@ -57,8 +92,9 @@ public class TransactionService {
      * @param description Mô tả giao dịch
      * @return true nếu rút thành công, false nếu thất bại
      */
+    @Override
     public boolean withdraw(String accountNumber, double amount, String description) {
-        if (amount <= 0) {
+        if (!Double.isFinite(amount) || amount <= 0) {
             return false;
         }
 
@@ -67,11 +103,15 @@ public class TransactionService {
             return false;
         }
 
-        if (account.withdraw(amount, description)) {
-            accountRepository.update(account);
-            return true;
+        synchronized (account) {
+            int postedBefore = account.getTransactionCount();
+            if (!account.withdraw(amount, description)) {
+                return false;
+            }
+            postTransactions(account, postedBefore);
         }
-        return false;
+        persist(account);
+        return true;
     }
 
     /**
@@ -83,8 +123,9 @@ public class TransactionService {
      * @param description Mô tả giao dịch
      * @return true nếu chuyển thành công, false nếu thất bại
      */
+    @Override
     public boolean transfer(String fromAccountNumber, String toAccountNumber, double amount, String description) {
-        if (amount <= 0) {
+        if (!Double.isFinite(amount) || amount <= 0) {
             return false;
         }
 
@@ -102,13 +143,192 @@ public class TransactionService {
             return false;
         }
 
-        // Perform transfer
-        if (fromAccount.transfer(amount, toAccountNumber)) {
-            toAccount.receiveTransfer(amount, fromAccountNumber);
+        // Perform transfer; lock both accounts in account number order so opposite transfers cannot deadlock
+        boolean fromFirst = fromAccountNumber.compareTo(toAccountNumber) <= 0;
+        synchronized (fromFirst ? fromAccount : toAccount) {
+            synchronized (fromFirst ? toAccount : fromAccount) {
+                int fromPostedBefore = fromAccount.getTransactionCount();
+                int toPostedBefore = toAccount.getTransactionCount();
+                if (!fromAccount.transfer(amount, toAccountNumber, description)) {
+                    return false;
+                }
+                toAccount.receiveTransfer(amount, fromAccountNumber, description);
+                postTransactions(fromAccount, fromPostedBefore);
+                if (toAccount != fromAccount) {
+                    postTransactions(toAccount, toPostedBefore);
+                }
+            }
+        }
 
-            // Update both accounts
-            accountRepository.update(fromAccount);
-            accountRepository.update(toAccount);
+        // Update both accounts
+        persist(fromAccount);
+        if (toAccount != fromAccount) {
+            persist(toAccount);
+        }
+        return true;
+    }
+
+    // ============= Cross-Partition Transfers (Two-Phase Commit Participant) =============
+    // Each leg has an id derived from the transfer id, so every step is idempotent and can be
+    // re-driven by the coordinator after a crash. Every step forces the journal before answering, so
+    // a vote or an applied decision the coordinator has seen survives a crash of this partition.
+
+    /**
+     * Pha 1 ở phân vùng nguồn: giữ chỗ số tiền chuyển (TRANSFER_OUT ở trạng thái PENDING).
+     *
+     * @param transferId Mã chuyển khoản do bên điều phối cấp
+     * @param fromAccountNumber Số tài khoản nguồn (thuộc kho của service này)
+     * @param toAccountNumber Số tài khoản đích
+     * @param amount Số tiền chuyển
+     * @param description Mô tả giao dịch, hoặc null để dùng mô tả mặc định
+     * @return true nếu đã giữ chỗ (kể cả từ lần gọi trước), false nếu không đủ điều kiện
+     */
+    boolean prepareTransferDebit(String transferId, String fromAccountNumber, String toAccountNumber, double amount,
+                                 String description) {
+        Account fromAccount = accountRepository.findByAccountNumber(fromAccountNumber);
+        if (!Double.isFinite(amount) || amount <= 0 || fromAccount == null) {
+            return false;
+        }
+        Transaction existing = findTransferLeg(fromAccount, transferId + DEBIT_LEG);
+        if (existing != null) {
+            return !"FAILED".equals(existing.getStatus());
+        }
+        if (!fromAccount.isActive()) {
+            return false;
+        }
+        synchronized (fromAccount) {
+            int postedBefore = fromAccount.getTransactionCount();
+            if (!fromAccount.reserveTransfer(transferId + DEBIT_LEG, amount, toAccountNumber, description)) {
+                return false;
+            }
+            postTransactions(fromAccount, postedBefore);
+        }
+        persist(fromAccount);
+        journal.sync();
+        return true;
+    }
+
+    /**
+     * Pha 1 ở phân vùng đích: cộng tiền chuyển đến (TRANSFER_IN ở trạng thái PENDING).
+     *
+     * @param transferId Mã chuyển khoản do bên điều phối cấp
+     * @param toAccountNumber Số tài khoản đích (thuộc kho của service này)
+     * @param fromAccountNumber Số tài khoản nguồn
+     * @param amount Số tiền chuyển
+     * @param description Mô tả giao dịch, hoặc null để dùng mô tả mặc định
+     * @return true nếu đã cộng tiền (kể cả từ lần gọi trước), false nếu tài khoản không nhận được
+     */
+    boolean applyTransferCredit(String transferId, String toAccountNumber, String fromAccountNumber, double amount,
+                                String description) {
+        Account toAccount = accountRepository.findByAccountNumber(toAccountNumber);
+        if (!Double.isFinite(amount) || amount <= 0 || toAccount == null) {
+            return false;
+        }
+        if (findTransferLeg(toAccount, transferId + CREDIT_LEG) != null) {
+            return true;
+        }
+        if (!toAccount.isActive()) {
+            return false;
+        }
+        synchronized (toAccount) {
+            int postedBefore = toAccount.getTransactionCount();
+            toAccount.receiveTransfer(transferId + CREDIT_LEG, amount, fromAccountNumber,
+                    description != null ? description : "Transfer from " + fromAccountNumber, "PENDING");
+            postTransactions(toAccount, postedBefore);
+        }
+        persist(toAccount);
+        journal.sync();
+        return true;
+    }
+
+    /**
+     * Kiểm tra phân vùng đích đã cộng tiền cho một chuyển khoản hay chưa (dùng khi khôi phục).
+     *
+     * @param transferId Mã chuyển khoản
+     * @param toAccountNumber Số tài khoản đích
+     * @return true nếu bước cộng tiền đã được ghi
+     */
+    boolean hasTransferCredit(String transferId, String toAccountNumber) {
+        Account toAccount = accountRepository.findByAccountNumber(toAccountNumber);
+        return toAccount != null && findTransferLeg(toAccount, transferId + CREDIT_LEG) != null;
+    }
+
+    /**
+     * Pha 2 - xác nhận: chuyển các bước PENDING của chuyển khoản trên tài khoản sang SUCCESS.
+     *
+     * @param transferId Mã chuyển khoản
+     * @param accountNumber Tài khoản nguồn hoặc đích thuộc kho của service này
+     */
+    void commitTransfer(String transferId, String accountNumber) {
+        Account account = accountRepository.findByAccountNumber(accountNumber);
+        if (account == null) {
+            return;
+        }
+        for (String leg : new String[] {DEBIT_LEG, CREDIT_LEG}) {
+            Transaction transaction = findTransferLeg(account, transferId + leg);
+            if (transaction != null && "PENDING".equals(transaction.getStatus())) {
+                setTransferLegStatus(account, transaction, "SUCCESS");
+            }
+        }
+        journal.sync();
+    }
+
+    /**
+     * Pha 2 - hủy ở phân vùng nguồn: hoàn lại số tiền đã giữ chỗ bằng một giao dịch TRANSFER_IN
+     * và đánh dấu bước trừ tiền là FAILED. Không làm gì nếu chưa từng giữ chỗ.
+     *
+     * @param transferId Mã chuyển khoản
+     * @param fromAccountNumber Số tài khoản nguồn (thuộc kho của service này)
+     */
+    void abortTransferDebit(String transferId, String fromAccountNumber) {
+        Account fromAccount = accountRepository.findByAccountNumber(fromAccountNumber);
+        if (fromAccount == null) {
+            return;
+        }
+        Transaction debit = findTransferLeg(fromAccount, transferId + DEBIT_LEG);
+        if (debit == null || !"PENDING".equals(debit.getStatus())) {
+            return;
+        }
+        if (findTransferLeg(fromAccount, transferId + REFUND_LEG) == null) {
+            synchronized (fromAccount) {
+                int postedBefore = fromAccount.getTransactionCount();
+                fromAccount.receiveTransfer(transferId + REFUND_LEG, debit.getAmount(), debit.getToAccountNumber(),
+                        "Refund of failed transfer to " + debit.getToAccountNumber(), "SUCCESS");
+                postTransactions(fromAccount, postedBefore);
+            }
+            persist(fromAccount);
+        }
+        setTransferLegStatus(fromAccount, debit, "FAILED");
+        journal.sync();
+    }
+
+    private Transaction findTransferLeg(Account account, String legId) {
+        Transaction transaction = transactionRepository.findById(legId);
+        return transaction != null ? transaction : account.findTransaction(legId);
+    }
+
+    private void setTransferLegStatus(Account account, Transaction transaction, String status) {
+        synchronized (account) {
+            // The ledger and the account share the Transaction instance; fall back to the account's
+            // copy when the ledger was rebuilt after a restart
+            if (!transactionRepository.updateStatus(transaction.getTransactionId(), status)) {
+                transaction.setStatus(status);
+            }
+            journal.recordStatusChanged(account.getAccountNumber(), transaction.getTransactionId(), status);
+        }
+        accountRepository.update(account);
+        journal.awaitReplication();
+    }
+
+    /**
+     * Lưu một tài khoản mới vào kho của service này.
+     *
+     * @param account Tài khoản cần lưu
+     * @return true nếu lưu thành công
+     */
+    boolean saveAccount(Account account) {
+        if (accountRepository.save(account)) {
+            journal.recordAccountOpened(null, account);
             return true;
         }
         return false;
@@ -120,12 +340,25 @@ public class TransactionService {
      * @param accountNumber Số tài khoản cần lấy lịch sử
      * @return Danh sách giao dịch
      */
+    @Override
     public List<Transaction> getTransactionHistory(String accountNumber) {
+        return streamTransactionHistory(accountNumber).collect(Collectors.toList());
+    }
+
+    /**
+     * Lấy toàn bộ lịch sử giao dịch của một tài khoản dưới dạng stream,
+     * phần đã lưu trữ được đọc dần từ đĩa.
+     *
+     * @param accountNumber Số tài khoản cần lấy lịch sử
+     * @return Stream giao dịch từ cũ đến mới
+     */
+    @Override
+    public Stream<Transaction> streamTransactionHistory(String accountNumber) {
         Account account = accountRepository.findByAccountNumber(accountNumber);
         if (account != null) {
-            return account.getTransactions();
+            return historyStore.streamHistory(account);
         }
-        return List.of();
+        return Stream.empty();
     }
 
     /**
@@ -135,21 +368,149 @@ public class TransactionService {
      * @param count Số lượng giao dịch gần nhất cần lấy
      * @return Danh sách các giao dịch gần đây
      */
+    @Override
     public List<Transaction> getRecentTransactions(String accountNumber, int count) {
         Account account = accountRepository.findByAccountNumber(accountNumber);
         if (account != null) {
+            if (count > account.getTransactionCount() - account.getArchivedTransactionCount()) {
+                return historyStore.getRecentTransactions(account, count);
+            }
             return account.getRecentTransactions(count);
         }
         return List.of();
     }
 
+    /**
+     * Lấy số dư của một tài khoản tại một thời điểm trong quá khứ.
+     *
+     * @param accountNumber Số tài khoản cần tra cứu
+     * @param timestamp Thời điểm cần tra cứu (epoch millis)
+     * @return Số dư tại thời điểm đó, hoặc -1 nếu không tìm thấy tài khoản
+     */
+    @Override
+    public double getBalanceAt(String accountNumber, long timestamp) {
+        Account account = accountRepository.findByAccountNumber(accountNumber);
+        if (account == null) {
+            return -1;
+        }
+        double balance = account.getBalanceAt(timestamp);
+        return Double.isNaN(balance) ? historyStore.getBalanceAt(account, timestamp) : balance;
+    }
+
+    /**
+     * Tìm kiếm giao dịch trên toàn hệ thống theo nhiều tiêu chí
+     * (loại, khoảng số tiền, tài khoản đối ứng, trạng thái, khoảng thời gian).
+     *
+     * @param query Điều kiện tìm kiếm
+     * @return Danh sách giao dịch thỏa mãn
+     */
+    @Override
+    public List<Transaction> searchTransactions(TransactionQuery query) {
+        if (query == null) {
+            return List.of();
+        }
+        return transactionRepository.query(query);
+    }
+
+    /**
+     * Tìm kiếm giao dịch theo nội dung mô tả.
+     * Một từ kết thúc bằng '*' được tìm theo tiền tố (ví dụ "inv*"),
+     * nhiều từ được tìm theo cụm từ liên tiếp (ví dụ "invoice 4411").
+     *
+     * @param text Nội dung cần tìm
+     * @return Danh sách giao dịch thỏa mãn
+     */
+    @Override
+    public List<Transaction> searchByDescription(String text) {
+        if (text == null || text.trim().isEmpty()) {
+            return List.of();
+        }
+        String trimmed = text.trim();
+        if (trimmed.endsWith("*")) {
+            return transactionRepository.searchByPrefix(trimmed.substring(0, trimmed.length() - 1));
+        }
+        return transactionRepository.searchByPhrase(trimmed);
+    }
+
+    /**
+     * Lấy số liệu tổng hợp giao dịch (theo tài khoản, theo ngày/tháng và toàn ngân hàng).
+     *
+     * @return Đối tượng TransactionRollups
+     */
+    public TransactionRollups getTransactionRollups() {
+        return transactionRepository.getRollups();
+    }
+
+    /**
+     * Lấy các bản ghi tổng hợp theo kỳ của phần lịch sử đã được nén của một tài khoản.
+     *
+     * @param accountNumber Số tài khoản
+     * @return Danh sách bản ghi tổng hợp theo thứ tự thời gian
+     */
+    @Override
+    public List<TransactionPeriodSummary> getPeriodSummaries(String accountNumber) {
+        return transactionRepository.getPeriodSummaries(accountNumber);
+    }
+
+    /**
+     * Nén ngay phần lịch sử giao dịch đã quá hạn lưu giữ (nếu có chính sách lưu giữ).
+     *
+     * @return Số giao dịch đã được nén
+     */
+    @Override
+    public int compactHistory() {
+        return ledgerCompactor.runOnce();
+    }
+
     /**
      * Lấy thông tin một giao dịch cụ thể theo ID.
      *
      * @param transactionId ID giao dịch cần tìm
      * @return Đối tượng Transaction nếu tìm thấy, null nếu không
      */
+    @Override
     public Transaction getTransaction(String transactionId) {
         return transactionRepository.findById(transactionId);
     }
+
+    /**
+     * Chuyển ra đĩa phần lịch sử của tài khoản nằm ngoài giới hạn tầng nóng, bất kể tuổi giao dịch
+     * (dùng khi nhập hàng loạt). Không làm gì nếu tầng lạnh chưa được bật.
+     *
+     * @param accountNumber Số tài khoản
+     */
+    void spillHistory(String accountNumber) {
+        Account account = accountRepository.findByAccountNumber(accountNumber);
+        if (account != null && historyStore.spillBeyondHotLimit(account)) {
+            accountRepository.update(account);
+        }
+    }
+
+    /**
+     * Ghi các giao dịch mà tài khoản vừa phát sinh vào sổ cái toàn cục và nhật ký sao chép.
+     * Phải được gọi khi đang giữ khóa của tài khoản, ngay sau khi áp dụng thay đổi.
+     *
+     * @param account Tài khoản vừa thực hiện thao tác
+     * @param fromIndex Số giao dịch của tài khoản trước khi thực hiện thao tác
+     */
+    private void postTransactions(Account account, int fromIndex) {
+        List<Transaction> posted = account.getTransactionsFrom(fromIndex);
+        transactionRepository.saveTransactions(account, fromIndex, posted);
+        journal.recordTransactionsPosted(account.getAccountNumber(), posted);
+    }
+
+    /**
+     * Lưu tài khoản vừa thay đổi vào repository và chuyển phần lịch sử cũ ra tầng lạnh nếu cần,
+     * rồi chờ nút dự phòng xác nhận nếu sao chép đồng bộ. Gọi sau khi đã nhả khóa của tài khoản.
+     *
+     * @param account Tài khoản vừa thực hiện thao tác
+     */
+    private void persist(Account account) {
+        accountRepository.update(account);
+        if (historyStore.spillIfNeeded(account)) {
+            // Persist the trimmed hot tail when accounts are stored outside the heap
+            accountRepository.update(account);
+        }
+        journal.awaitReplication();
+    }
 }
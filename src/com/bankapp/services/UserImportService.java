@@ -0,0 +1,366 @@
+package com.bankapp.services;
+
+import com.bankapp.data.InMemoryDataStore;
+import com.bankapp.data.MutationJournal;
+import com.bankapp.data.UserRepository;
+import com.bankapp.model.User;
+import com.bankapp.utils.IDGenerator;
+import com.bankapp.utils.InputValidator;
+import com.bankapp.utils.PasswordHasher;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * UserImportService - Đăng ký hàng loạt khách hàng từ tệp CSV (ví dụ khi sáp nhập ngân hàng).
+ * Tệp được xử lý theo từng lô: mỗi dòng được kiểm tra như AuthService.register, tên trùng trong lô
+ * bị loại, phần còn lại được đối chiếu một lần với chỉ mục tên đăng nhập của UserRepository,
+ * mật khẩu được băm song song trên một pool có giới hạn, rồi cả lô được lưu và ghi nhật ký.
+ * Trong khi một lô đang được băm, lô kế tiếp được đọc và kiểm tra, nên việc đọc tệp không phải chờ băm.
+ * <pre>
+ *   CSV: username,password,email,fullName   (các trường có thể đặt trong dấu nháy kép)
+ * </pre>
+ * Dòng đầu tiên được bỏ qua nếu là dòng tiêu đề (bắt đầu bằng "username").
+ * Dòng bị từ chối được ghi vào tệp lỗi dạng "dòng,tên đăng nhập,lý do"; bản ghi gốc không được ghi lại
+ * vì chứa mật khẩu.
+ * Repository không được đồng bộ hóa, nên không chạy song song với các thao tác đăng ký khác.
+ */
+public class UserImportService {
+    private static final int BATCH_ROWS = 2048;
+
+    private final UserRepository userRepository;
+    private final MutationJournal journal;
+    private final int threads;
+
+    /**
+     * Nhận thông báo tiến độ sau mỗi lô.
+     */
+    public interface ProgressListener {
+        /**
+         * Gọi sau khi một lô đã được lưu.
+         *
+         * @param rows Số dòng dữ liệu đã đọc
+         * @param registered Số người dùng đã đăng ký
+         * @param rejected Số dòng bị từ chối
+         */
+        void onProgress(long rows, long registered, long rejected);
+    }
+
+    /**
+     * Kết quả của một lần nhập.
+     */
+    public static class Result {
+        private final long rows;
+        private final long registered;
+        private final long rejected;
+        private final long elapsedMillis;
+
+        Result(long rows, long registered, long rejected, long elapsedMillis) {
+            this.rows = rows;
+            this.registered = registered;
+            this.rejected = rejected;
+            this.elapsedMillis = elapsedMillis;
+        }
+
+        /**
+         * Lấy số dòng dữ liệu đã đọc (không tính dòng trống và dòng tiêu đề).
+         *
+         * @return Số dòng
+         */
+        public long getRows() {
+            return rows;
+        }
+
+        /**
+         * Lấy số người dùng đã đăng ký.
+         *
+         * @return Số người dùng
+         */
+        public long getRegistered() {
+            return registered;
+        }
+
+        /**
+         * Lấy số dòng bị từ chối (đã ghi vào tệp lỗi).
+         *
+         * @return Số dòng bị từ chối
+         */
+        public long getRejected() {
+            return rejected;
+        }
+
+        /**
+         * Lấy thời gian nhập.
+         *
+         * @return Thời gian (mili giây)
+         */
+        public long getElapsedMillis() {
+            return elapsedMillis;
+        }
+
+        @Override
+        public String toString() {
+            return "Registered " + registered + " of " + rows + " users (" + rejected + " rejected) in "
+                    + elapsedMillis + " ms";
+        }
+    }
+
+    /**
+     * Một dòng hợp lệ chờ đăng ký.
+     */
+    private static final class Row {
+        final long lineNumber;
+        final String username;
+        final String password;
+        final String email;
+        final String fullName;
+        String passwordHash;
+
+        Row(long lineNumber, String username, String password, String email, String fullName) {
+            this.lineNumber = lineNumber;
+            this.username = username;
+            this.password = password;
+            this.email = email;
+            this.fullName = fullName;
+        }
+    }
+
+    /**
+     * Constructor cho UserImportService.
+     *
+     * @param dataStore Kho dữ liệu chứa người dùng
+     * @param threads Số luồng băm mật khẩu
+     */
+    public UserImportService(InMemoryDataStore dataStore, int threads) {
+        this.userRepository = dataStore.getUserRepository();
+        this.journal = dataStore.getMutationJournal();
+        this.threads = Math.max(1, threads);
+    }
+
+    /**
+     * Đăng ký các khách hàng trong một tệp CSV.
+     *
+     * @param source Tệp cần nhập
+     * @param errorsFile Tệp ghi các dòng bị từ chối (ghi đè nếu đã có)
+     * @param listener Nhận tiến độ sau mỗi lô, hoặc null
+     * @return Kết quả nhập
+     * @throws UncheckedIOException nếu không đọc được tệp nguồn hoặc không ghi được tệp lỗi
+     */
+    public Result importFile(Path source, Path errorsFile, ProgressListener listener) {
+        long start = System.nanoTime();
+        long rows = 0;
+        long registered = 0;
+        long[] rejected = new long[1];
+        AtomicInteger threadNumber = new AtomicInteger();
+        // At most one task per thread is ever queued (one slice per thread per batch)
+        ThreadPoolExecutor hashers = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(threads), task -> {
+                    Thread thread = new Thread(task, "bankapp-user-import-" + threadNumber.getAndIncrement());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        try (BufferedReader reader = Files.newBufferedReader(source, StandardCharsets.UTF_8);
+             BufferedWriter errors = Files.newBufferedWriter(errorsFile, StandardCharsets.UTF_8)) {
+            errors.write("line,username,reason\n");
+            long lineNumber = 0;
+            List<Row> hashing = null;
+            List<Future<?>> hashed = List.of();
+            while (true) {
+                // Read and validate the next batch while the previous one is being hashed
+                List<Row> batch = new ArrayList<>(BATCH_ROWS);
+                String line = null;
+                while (batch.size() < BATCH_ROWS && (line = reader.readLine()) != null) {
+                    lineNumber++;
+                    if (line.isBlank() || (lineNumber == 1 && line.regionMatches(true, 0, "username", 0, 8))) {
+                        continue;
+                    }
+                    rows++;
+                    Row row = parse(lineNumber, line, errors, rejected);
+                    if (row != null) {
+                        batch.add(row);
+                    }
+                }
+
+                if (hashing != null) {
+                    await(hashed);
+                    registered += insert(hashing, errors, rejected);
+                    if (listener != null) {
+                        listener.onProgress(rows, registered, rejected[0]);
+                    }
+                    hashing = null;
+                }
+                if (batch.isEmpty() && line == null) {
+                    break;
+                }
+
+                // The previous batch is in the index now, so one lookup covers the whole file so far
+                batch = removeDuplicates(batch, errors, rejected);
+                hashed = submitHashing(hashers, batch);
+                hashing = batch;
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot import users from " + source, e);
+        } finally {
+            hashers.shutdownNow();
+        }
+        return new Result(rows, registered, rejected[0], (System.nanoTime() - start) / 1_000_000);
+    }
+
+    // ============= Pipeline Stages =============
+
+    /**
+     * Phân tích và kiểm tra một dòng theo cùng quy tắc với AuthService.register.
+     *
+     * @return Dòng hợp lệ, hoặc null nếu dòng đã bị ghi vào tệp lỗi
+     */
+    private static Row parse(long lineNumber, String line, BufferedWriter errors, long[] rejected) throws IOException {
+        List<String> fields = TransactionImportService.splitCsv(line);
+        if (fields == null) {
+            reject(errors, rejected, lineNumber, "", "unterminated quote");
+            return null;
+        }
+        String username = fields.get(0).trim();
+        if (fields.size() != 4) {
+            reject(errors, rejected, lineNumber, username, "expected 4 fields");
+            return null;
+        }
+        String password = fields.get(1);
+        String email = fields.get(2).trim();
+        String fullName = fields.get(3).trim();
+        String reason = null;
+        if (!InputValidator.isValidUsername(username)) {
+            reason = "invalid username";
+        } else if (!InputValidator.isValidPassword(password)) {
+            reason = "invalid password";
+        } else if (!InputValidator.isValidEmail(email)) {
+            reason = "invalid email";
+        } else if (!InputValidator.isValidFullName(fullName)) {
+            reason = "invalid full name";
+        }
+        if (reason != null) {
+            reject(errors, rejected, lineNumber, username, reason);
+            return null;
+        }
+        return new Row(lineNumber, username, password, email, fullName);
+    }
+
+    /**
+     * Loại các tên trùng trong lô và các tên đã có trong repository.
+     *
+     * @return Các dòng còn lại, theo thứ tự trong tệp
+     */
+    private List<Row> removeDuplicates(List<Row> batch, BufferedWriter errors, long[] rejected) throws IOException {
+        Set<String> usernames = new HashSet<>(batch.size() * 2);
+        for (Row row : batch) {
+            usernames.add(row.username);
+        }
+        Set<String> existing = userRepository.findExistingUsernames(usernames);
+        Set<String> seen = new HashSet<>(batch.size() * 2);
+        List<Row> unique = new ArrayList<>(batch.size());
+        for (Row row : batch) {
+            if (existing.contains(row.username)) {
+                reject(errors, rejected, row.lineNumber, row.username, "username already exists");
+            } else if (!seen.add(row.username)) {
+                reject(errors, rejected, row.lineNumber, row.username, "duplicate username in file");
+            } else {
+                unique.add(row);
+            }
+        }
+        return unique;
+    }
+
+    /**
+     * Chia lô thành một phần cho mỗi luồng và băm mật khẩu song song.
+     */
+    private List<Future<?>> submitHashing(ThreadPoolExecutor hashers, List<Row> batch) {
+        int slices = Math.min(threads, batch.size());
+        List<Future<?>> futures = new ArrayList<>(slices);
+        for (int i = 0; i < slices; i++) {
+            List<Row> slice = batch.subList(batch.size() * i / slices, batch.size() * (i + 1) / slices);
+            futures.add(hashers.submit(() -> {
+                for (Row row : slice) {
+                    row.passwordHash = PasswordHasher.hashPassword(row.password);
+                }
+            }));
+        }
+        return futures;
+    }
+
+    private static void await(List<Future<?>> futures) {
+        try {
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("User import interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Password hashing failed", e.getCause());
+        }
+    }
+
+    /**
+     * Lưu một lô đã băm và ghi nhật ký cho từng người dùng.
+     * Tên đăng nhập bị người khác đăng ký sau lần kiểm tra trùng (ví dụ qua AuthService) được ghi vào tệp lỗi.
+     *
+     * @return Số người dùng đã lưu
+     */
+    private int insert(List<Row> batch, BufferedWriter errors, long[] rejected) throws IOException {
+        List<User> users = new ArrayList<>(batch.size());
+        for (Row row : batch) {
+            users.add(new User(IDGenerator.generateUserId(), row.username, row.passwordHash, row.fullName, row.email));
+        }
+        List<User> saved = userRepository.saveAll(users);
+        if (saved.size() < users.size()) {
+            Set<User> savedSet = new HashSet<>(saved);
+            for (int i = 0; i < users.size(); i++) {
+                User user = users.get(i);
+                if (savedSet.contains(user)) {
+                    continue;
+                }
+                // Either a random user ID collided, or the username was taken since the duplicate check
+                boolean stored = false;
+                while (!stored && !userRepository.usernameExists(user.getUsername())) {
+                    User retry = new User(IDGenerator.generateUserId(), user.getUsername(), user.getPasswordHash(),
+                            user.getFullName(), user.getEmail());
+                    if (userRepository.save(retry)) {
+                        saved.add(retry);
+                        stored = true;
+                    }
+                }
+                if (!stored) {
+                    reject(errors, rejected, batch.get(i).lineNumber, user.getUsername(), "username already exists");
+                }
+            }
+        }
+        for (User user : saved) {
+            journal.recordUserRegistered(user);
+        }
+        return saved.size();
+    }
+
+    private static void reject(BufferedWriter errors, long[] rejected, long lineNumber, String username,
+                               String reason) throws IOException {
+        rejected[0]++;
+        errors.write(Long.toString(lineNumber));
+        errors.write(',');
+        errors.write(username);
+        errors.write(',');
+        errors.write(reason);
+        errors.write('\n');
+    }
+}
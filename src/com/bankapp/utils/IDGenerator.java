@@ -1,6 +1,7 @@
 package com.bankapp.utils;
 
 import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * IDGenerator - Lớp tiện ích dùng để sinh các mã định danh duy nhất.
@@ -9,6 +10,9 @@ import java.util.Random;
 public class IDGenerator {
     private static final Random random = new Random();
     private static final String CHARACTERS = "ABCDEFGHIJKLMNOPQRSTUVWXYZ0123456789";
+    private static final String ACCOUNT_PREFIX = "ACC";
+    // Seeded from the clock and advanced past restored accounts (advanceAccountSequencePast); 13 digits until 2286
+    private static final AtomicLong nextAccountSequence = new AtomicLong(System.currentTimeMillis());
 
     /**
      * Sinh ID người dùng duy nhất.
@@ -21,13 +25,57 @@ public class IDGenerator {
     }
 
     /**
-     * Sinh số tài khoản duy nhất.
-     * Định dạng: ACC_XXXXXXXX (ví dụ: ACC_12ABC345).
+     * Sinh số tài khoản duy nhất từ một bộ đếm tăng dần, nên hai tài khoản mở trong cùng một
+     * mili giây không bao giờ trùng số.
+     * Định dạng: ACC + 13 chữ số (ví dụ: ACC1760745600000).
      *
      * @return Số tài khoản được sinh ra
      */
     public static String generateAccountNumber() {
-        return "ACC" + System.currentTimeMillis() % 1000000;
+        return ACCOUNT_PREFIX + nextAccountSequence.getAndIncrement();
+    }
+
+    /**
+     * Đặt trước một khối số tài khoản liên tiếp trong một thao tác duy nhất.
+     *
+     * @param count Số lượng số tài khoản cần đặt trước
+     * @return Các số tài khoản theo thứ tự tăng dần
+     * @throws IllegalArgumentException nếu count âm
+     */
+    public static String[] reserveAccountNumbers(int count) {
+        if (count < 0) {
+            throw new IllegalArgumentException("count must not be negative");
+        }
+        long first = nextAccountSequence.getAndAdd(count);
+        String[] numbers = new String[count];
+        for (int i = 0; i < count; i++) {
+            numbers[i] = ACCOUNT_PREFIX + (first + i);
+        }
+        return numbers;
+    }
+
+    /**
+     * Đẩy bộ đếm số tài khoản vượt qua một số tài khoản đã tồn tại (ví dụ tài khoản được khôi phục khi khởi
+     * động), để số mới không trùng với nó kể cả khi đồng hồ hệ thống bị lùi giữa hai lần chạy.
+     * Số tài khoản không theo định dạng ACC + chữ số được bỏ qua.
+     *
+     * @param accountNumber Số tài khoản đã tồn tại
+     */
+    public static void advanceAccountSequencePast(String accountNumber) {
+        if (accountNumber == null || !accountNumber.startsWith(ACCOUNT_PREFIX)
+                || accountNumber.length() == ACCOUNT_PREFIX.length()
+                || accountNumber.length() > ACCOUNT_PREFIX.length() + 18) {
+            return;
+        }
+        long sequence = 0;
+        for (int i = ACCOUNT_PREFIX.length(); i < accountNumber.length(); i++) {
+            char c = accountNumber.charAt(i);
+            if (c < '0' || c > '9') {
+                return;
+            }
+            sequence = sequence * 10 + (c - '0');
+        }
+        nextAccountSequence.accumulateAndGet(sequence + 1, Math::max);
     }
 
     /**
@@ -1,10 +1,16 @@
 package com.bankapp.utils;
 
+import java.util.regex.Pattern;
+
 /**
  * InputValidator - Lớp tiện ích để kiểm tra tính hợp lệ của dữ liệu đầu vào.
  * Cung cấp các phương thức xác thực input của người dùng nhằm đảm bảo an toàn và đúng định dạng.
  */
 public class InputValidator {
+    // Compiled once; String.matches compiles the pattern again on every call
+    private static final Pattern USERNAME = Pattern.compile("^[a-zA-Z0-9_]+$");
+    private static final Pattern EMAIL = Pattern.compile("^[A-Za-z0-9+_.-]+@[A-Za-z0-9.-]+$");
+    private static final Pattern FULL_NAME = Pattern.compile("^[a-zA-Z\\s]+$");
 
     /**
      * Kiểm tra tính hợp lệ của tên đăng nhập.
@@ -20,7 +26,7 @@ public class InputValidator {
         if (username.length() < 4 || username.length() > 20) {
             return false;
         }
-        return username.matches("^[a-zA-Z0-9_]+$");
+        return USERNAME.matcher(username).matches();
     }
 
     /**
@@ -48,7 +54,7 @@ public class InputValidator {
         if (email == null || email.isEmpty()) {
             return false;
         }
-        return email.matches("^[A-Za-z0-9+_.-]+@[A-Za-z0-9.-]+$");
+        return EMAIL.matcher(email).matches();
     }
 
     /**
@@ -65,7 +71,7 @@ public class InputValidator {
         if (fullName.length() < 2 || fullName.length() > 50) {
             return false;
         }
-        return fullName.matches("^[a-zA-Z\\s]+$");
+        return FULL_NAME.matcher(fullName).matches();
     }
 
     /**
@@ -108,7 +114,14 @@ public class InputValidator {
         if (accountNumber.length() < 8 || accountNumber.length() > 16) {
             return false;
         }
-        return accountNumber.matches("^[a-zA-Z0-9]+$");
+        // Character loop instead of String.matches, which compiles a regex on every call (bulk imports)
+        for (int i = 0; i < accountNumber.length(); i++) {
+            char c = accountNumber.charAt(i);
+            if (!((c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9'))) {
+                return false;
+            }
+        }
+        return true;
     }
 
     /**
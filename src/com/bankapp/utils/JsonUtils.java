@@ -0,0 +1,214 @@
+package com.bankapp.utils;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * JsonUtils - Lớp tiện ích đọc / ghi JSON tối giản cho API HTTP (không dùng thư viện ngoài).
+ * Chỉ đọc đối tượng phẳng (giá trị là chuỗi, số, true / false hoặc null), đủ cho thân request của API;
+ * phần ghi cung cấp các hàm định dạng giá trị để ghép phản hồi bằng StringBuilder.
+ */
+public class JsonUtils {
+
+    /**
+     * Định dạng một chuỗi thành chuỗi JSON (có dấu nháy và ký tự thoát).
+     *
+     * @param value Chuỗi cần định dạng
+     * @return Chuỗi JSON, hoặc null nếu giá trị null
+     */
+    public static String quote(String value) {
+        if (value == null) {
+            return "null";
+        }
+        StringBuilder sb = new StringBuilder(value.length() + 2);
+        sb.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"':
+                    sb.append("\\\"");
+                    break;
+                case '\\':
+                    sb.append("\\\\");
+                    break;
+                case '\n':
+                    sb.append("\\n");
+                    break;
+                case '\r':
+                    sb.append("\\r");
+                    break;
+                case '\t':
+                    sb.append("\\t");
+                    break;
+                default:
+                    if (c < 0x20) {
+                        sb.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        sb.append(c);
+                    }
+            }
+        }
+        return sb.append('"').toString();
+    }
+
+    /**
+     * Định dạng một số thành số JSON.
+     *
+     * @param value Số cần định dạng
+     * @return Số JSON, hoặc null nếu giá trị không hữu hạn (NaN, vô cực)
+     */
+    public static String number(double value) {
+        if (!Double.isFinite(value)) {
+            return "null";
+        }
+        if (value == Math.rint(value) && Math.abs(value) < 1e15) {
+            return Long.toString((long) value);
+        }
+        return Double.toString(value);
+    }
+
+    /**
+     * Đọc một đối tượng JSON phẳng.
+     *
+     * @param json Chuỗi JSON
+     * @return Các trường theo thứ tự xuất hiện; số và true / false được giữ dạng chuỗi, null thành null
+     * @throws IllegalArgumentException nếu JSON không hợp lệ hoặc có đối tượng / mảng lồng nhau
+     */
+    public static Map<String, String> parseObject(String json) {
+        Parser parser = new Parser(json == null ? "" : json);
+        Map<String, String> fields = new LinkedHashMap<>();
+        parser.skipWhitespace();
+        if (parser.atEnd()) {
+            return fields;
+        }
+        parser.expect('{');
+        parser.skipWhitespace();
+        if (parser.peek() == '}') {
+            parser.pos++;
+        } else {
+            while (true) {
+                parser.skipWhitespace();
+                String key = parser.readString();
+                parser.skipWhitespace();
+                parser.expect(':');
+                parser.skipWhitespace();
+                fields.put(key, parser.readValue());
+                parser.skipWhitespace();
+                if (parser.peek() == ',') {
+                    parser.pos++;
+                    continue;
+                }
+                parser.expect('}');
+                break;
+            }
+        }
+        parser.skipWhitespace();
+        if (!parser.atEnd()) {
+            throw new IllegalArgumentException("Unexpected content after JSON object");
+        }
+        return fields;
+    }
+
+    private static class Parser {
+        private final String text;
+        private int pos;
+
+        Parser(String text) {
+            this.text = text;
+        }
+
+        boolean atEnd() {
+            return pos >= text.length();
+        }
+
+        char peek() {
+            if (atEnd()) {
+                throw new IllegalArgumentException("Unexpected end of JSON");
+            }
+            return text.charAt(pos);
+        }
+
+        void expect(char c) {
+            if (peek() != c) {
+                throw new IllegalArgumentException("Expected '" + c + "' at position " + pos);
+            }
+            pos++;
+        }
+
+        void skipWhitespace() {
+            while (!atEnd() && Character.isWhitespace(text.charAt(pos))) {
+                pos++;
+            }
+        }
+
+        String readValue() {
+            char c = peek();
+            if (c == '"') {
+                return readString();
+            }
+            if (c == '{' || c == '[') {
+                throw new IllegalArgumentException("Nested JSON values are not supported");
+            }
+            int start = pos;
+            while (!atEnd() && ",} \t\r\n".indexOf(text.charAt(pos)) < 0) {
+                pos++;
+            }
+            String literal = text.substring(start, pos);
+            if (literal.equals("null")) {
+                return null;
+            }
+            if (!literal.equals("true") && !literal.equals("false")) {
+                try {
+                    Double.parseDouble(literal);
+                } catch (NumberFormatException e) {
+                    throw new IllegalArgumentException("Invalid JSON value: " + literal);
+                }
+            }
+            return literal;
+        }
+
+        String readString() {
+            expect('"');
+            StringBuilder sb = new StringBuilder();
+            while (true) {
+                char c = peek();
+                pos++;
+                if (c == '"') {
+                    return sb.toString();
+                }
+                if (c != '\\') {
+                    sb.append(c);
+                    continue;
+                }
+                char escaped = peek();
+                pos++;
+                switch (escaped) {
+                    case 'n':
+                        sb.append('\n');
+                        break;
+                    case 'r':
+                        sb.append('\r');
+                        break;
+                    case 't':
+                        sb.append('\t');
+                        break;
+                    case 'b':
+                        sb.append('\b');
+                        break;
+                    case 'f':
+                        sb.append('\f');
+                        break;
+                    case 'u':
+                        if (pos + 4 > text.length()) {
+                            throw new IllegalArgumentException("Invalid unicode escape");
+                        }
+                        sb.append((char) Integer.parseInt(text.substring(pos, pos + 4), 16));
+                        pos += 4;
+                        break;
+                    default:
+                        sb.append(escaped); // \" \\ \/
+                }
+            }
+        }
+    }
+}
@@ -10,6 +10,14 @@ import java.util.Base64;
  * Lưu ý: Trong môi trường thực tế nên dùng bcrypt hoặc Argon2.
  */
 public class PasswordHasher {
+    // MessageDigest is not thread-safe; one instance per thread avoids a provider lookup per hash
+    private static final ThreadLocal<MessageDigest> SHA_256 = ThreadLocal.withInitial(() -> {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException("SHA-256 algorithm not available", e);
+        }
+    });
 
     /**
      * Băm mật khẩu sử dụng thuật toán SHA-256.
@@ -18,13 +26,8 @@ public class PasswordHasher {
      * @return Mật khẩu đã băm (mã hóa Base64)
      */
     public static String hashPassword(String password) {
-        try {
-            MessageDigest digest = MessageDigest.getInstance("SHA-256");
-            byte[] hashedBytes = digest.digest(password.getBytes());
-            return Base64.getEncoder().encodeToString(hashedBytes);
-        } catch (NoSuchAlgorithmException e) {
-            throw new RuntimeException("SHA-256 algorithm not available", e);
-        }
+        byte[] hashedBytes = SHA_256.get().digest(password.getBytes());
+        return Base64.getEncoder().encodeToString(hashedBytes);
     }
 
     /**
@@ -0,0 +1,124 @@
+package com.bankapp;
+
+import com.bankapp.controllers.BatchController;
+import com.bankapp.data.InMemoryDataStore;
+import com.bankapp.services.BankService;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Kiểm thử chế độ chạy kịch bản (--batch): mỗi lệnh lỗi được báo trên đúng dòng của nó và không dừng
+ * kịch bản, và mã thoát của tiến trình là 0 khi mọi lệnh thành công, 1 khi có lệnh thất bại,
+ * 2 khi không đọc được tệp lệnh, để tác vụ ban đêm phát hiện được lỗi mà không phải đọc kết quả.
+ */
+public class BatchModeTest {
+    private static final String SETUP = String.join("\n",
+            "# setup",
+            "register alice Passw0rd! alice@example.com Alice Smith",
+            "open checking alice 100 as a1",
+            "open savings alice 500 0.02 as s1",
+            "");
+    private static int failures;
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        failedLinesAreReportedAndCounted();
+        Path directory = Files.createTempDirectory("bankapp-batch-test");
+        try {
+            exitCodesReflectFailures(directory);
+        } finally {
+            try (Stream<Path> files = Files.list(directory)) {
+                files.forEach(path -> path.toFile().delete());
+            }
+            Files.delete(directory);
+        }
+        if (failures > 0) {
+            System.out.println(failures + " check(s) failed");
+            System.exit(1);
+        }
+        System.out.println("BatchModeTest OK");
+    }
+
+    private static void failedLinesAreReportedAndCounted() throws IOException {
+        BankService bankService = new BankService(new InMemoryDataStore());
+        BatchController batch = new BatchController(bankService.getAuthService(),
+                bankService.getAccountService(), bankService.getTransactionService());
+        String script = SETUP + String.join("\n",
+                "deposit $a1 50 salary",
+                "withdraw $a1 1000",       // 6: more than the balance
+                "deposit $a1 NaN",         // 7
+                "transfer $a1 $s1 -5",     // 8
+                "balance NO-SUCH-ACCOUNT", // 9
+                "fly $a1",                 // 10
+                "",
+                "transfer $a1 $s1 25 rent",
+                "history $a1 abc");        // 13
+        StringWriter out = new StringWriter();
+        long failed = batch.run(new BufferedReader(new StringReader(script)), out);
+
+        List<String> lines = List.of(out.toString().split("\n"));
+        List<String> errors = new ArrayList<>();
+        for (String line : lines) {
+            if (line.startsWith("ERR ")) {
+                errors.add(line);
+            }
+        }
+        check(failed == 6 && batch.getFailureCount() == 6, "six failed commands, got " + failed);
+        check(batch.getCommandCount() == 11, "blank and comment lines are not commands");
+        check(errors.size() == 6
+                && errors.get(0).equals("ERR 6 withdraw: rejected")
+                && errors.get(1).equals("ERR 7 deposit: invalid amount")
+                && errors.get(2).equals("ERR 8 transfer: invalid amount")
+                && errors.get(3).equals("ERR 9 balance: account not found")
+                && errors.get(4).equals("ERR 10 fly: unknown command")
+                && errors.get(5).equals("ERR 13 history: invalid number"),
+                "errors carry the script line number: " + errors);
+        check(lines.stream().filter(line -> line.startsWith("OK transfer")).count() == 1,
+                "commands after a failure still run");
+
+        check(batch.run(new BufferedReader(new StringReader("balance $a1\n")), new StringWriter()) == 0,
+                "a later run reports only its own failures");
+        check(batch.getFailureCount() == 6, "total failures kept across runs");
+    }
+
+    private static void exitCodesReflectFailures(Path directory) throws IOException, InterruptedException {
+        Path clean = directory.resolve("clean.txt");
+        Files.write(clean, (SETUP + "deposit $a1 10\nbalance $a1\n").getBytes(StandardCharsets.UTF_8));
+        Path failing = directory.resolve("failing.txt");
+        Files.write(failing, (SETUP + "withdraw $a1 1000\nbalance $a1\n").getBytes(StandardCharsets.UTF_8));
+
+        check(runBatch(clean.toString()) == 0, "clean script exits 0");
+        check(runBatch(failing.toString()) == 1, "script with a failed command exits 1");
+        check(runBatch(directory.resolve("missing.txt").toString()) == 2, "unreadable script exits 2");
+    }
+
+    private static int runBatch(String script) throws IOException, InterruptedException {
+        String java = System.getProperty("java.home") + File.separator + "bin" + File.separator + "java";
+        Process process = new ProcessBuilder(java, "-cp", System.getProperty("java.class.path"),
+                BankApplication.class.getName(), "--batch", script)
+                .redirectOutput(ProcessBuilder.Redirect.DISCARD)
+                .redirectError(ProcessBuilder.Redirect.DISCARD)
+                .start();
+        if (!process.waitFor(60, TimeUnit.SECONDS)) {
+            process.destroyForcibly();
+            return -1;
+        }
+        return process.exitValue();
+    }
+
+    private static void check(boolean condition, String message) {
+        if (!condition) {
+            failures++;
+            System.out.println("FAIL: " + message);
+        }
+    }
+}
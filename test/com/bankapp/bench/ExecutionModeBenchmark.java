@@ -0,0 +1,179 @@
+package com.bankapp.bench;
+
+import com.bankapp.data.InMemoryDataStore;
+import com.bankapp.model.Account;
+import com.bankapp.model.User;
+import com.bankapp.services.AccountService;
+import com.bankapp.services.ActorTransactionService;
+import com.bankapp.services.StripedLockTransactionService;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Benchmark so sánh chế độ actor (ActorTransactionService) với chế độ khóa phân dải
+ * (StripedLockTransactionService) trên tải phân bố đều và tải lệch Zipf.
+ * Mỗi lượt chạy trên một kho dữ liệu mới, in số thao tác mỗi giây và kiểm tra tổng số dư được bảo toàn.
+ * Không phải kiểm thử (tên lớp không kết thúc bằng Test) nên run_tests.sh không chạy; chạy tay:
+ * <pre>
+ *   java -cp build/test-classes com.bankapp.bench.ExecutionModeBenchmark [accounts] [operations] [threads] [zipfS]
+ * </pre>
+ */
+public class ExecutionModeBenchmark {
+    private static final double INITIAL_BALANCE = 1000;
+    private static final int DEPOSIT_PERCENT = 25; // The rest are transfers
+    private static final int WARMUP_ROUNDS = 1;
+
+    public static void main(String[] args) throws Exception {
+        int accounts = args.length > 0 ? Integer.parseInt(args[0]) : 2000;
+        int operations = args.length > 1 ? Integer.parseInt(args[1]) : 100_000;
+        int threads = args.length > 2 ? Integer.parseInt(args[2]) : 4;
+        double zipfS = args.length > 3 ? Double.parseDouble(args[3]) : 1.1;
+
+        System.out.printf("accounts=%d operations=%d threads=%d zipf s=%.2f cpus=%d%n",
+                accounts, operations, threads, zipfS, Runtime.getRuntime().availableProcessors());
+        System.out.println("actor: mailbox per owner, applied through TransactionService (uncontended account monitor)");
+        for (String workload : new String[] {"uniform", "zipf"}) {
+            int[][] ops = workload(accounts, operations, "zipf".equals(workload) ? zipfS : 0, 42);
+            for (int round = 0; round <= WARMUP_ROUNDS; round++) {
+                boolean measured = round == WARMUP_ROUNDS;
+                report(workload, "actor", measured, runActor(accounts, ops, threads));
+                report(workload, "striped", measured, runStriped(accounts, ops, threads));
+            }
+        }
+    }
+
+    private static void report(String workload, String mode, boolean measured, double opsPerSecond) {
+        if (measured) {
+            System.out.printf("%-8s %-8s %,12.0f ops/s%n", workload, mode, opsPerSecond);
+        }
+    }
+
+    /**
+     * Sinh trước các thao tác: {0, account} là nạp tiền, {1, from, to} là chuyển khoản.
+     *
+     * @param zipfS Số mũ Zipf, hoặc 0 cho phân bố đều
+     */
+    private static int[][] workload(int accounts, int operations, double zipfS, long seed) {
+        Random random = new Random(seed);
+        double[] cdf = zipfS > 0 ? zipfCdf(accounts, zipfS) : null;
+        int[][] ops = new int[operations][];
+        for (int i = 0; i < operations; i++) {
+            int from = pick(random, accounts, cdf);
+            if (random.nextInt(100) < DEPOSIT_PERCENT) {
+                ops[i] = new int[] {0, from};
+            } else {
+                int to;
+                do {
+                    to = pick(random, accounts, cdf);
+                } while (to == from);
+                ops[i] = new int[] {1, from, to};
+            }
+        }
+        return ops;
+    }
+
+    private static double[] zipfCdf(int n, double s) {
+        double[] cdf = new double[n];
+        double sum = 0;
+        for (int rank = 0; rank < n; rank++) {
+            sum += 1.0 / Math.pow(rank + 1, s);
+            cdf[rank] = sum;
+        }
+        for (int rank = 0; rank < n; rank++) {
+            cdf[rank] /= sum;
+        }
+        return cdf;
+    }
+
+    private static int pick(Random random, int accounts, double[] cdf) {
+        if (cdf == null) {
+            return random.nextInt(accounts);
+        }
+        int index = Arrays.binarySearch(cdf, random.nextDouble());
+        return Math.min(accounts - 1, index >= 0 ? index : -index - 1);
+    }
+
+    private static String[] openAccounts(InMemoryDataStore dataStore, int accounts) {
+        User user = new User("BENCH", "bench", "hash", "Bench", "bench@example.com");
+        dataStore.getUserRepository().save(user);
+        AccountService accountService = new AccountService(dataStore);
+        String[] numbers = new String[accounts];
+        for (int i = 0; i < accounts; i++) {
+            numbers[i] = accountService.createCheckingAccount(user, INITIAL_BALANCE, 0).getAccountNumber();
+        }
+        return numbers;
+    }
+
+    private static double runActor(int accounts, int[][] ops, int workers) {
+        InMemoryDataStore dataStore = new InMemoryDataStore();
+        String[] numbers = openAccounts(dataStore, accounts);
+        ActorTransactionService service = new ActorTransactionService(dataStore, workers);
+        List<CompletableFuture<Boolean>> results = new ArrayList<>(ops.length);
+        long start = System.nanoTime();
+        for (int[] op : ops) {
+            results.add(op[0] == 0
+                    ? service.depositAsync(numbers[op[1]], 1, "bench")
+                    : service.transferAsync(numbers[op[1]], numbers[op[2]], 1, "bench"));
+        }
+        CompletableFuture.allOf(results.toArray(new CompletableFuture<?>[0])).join();
+        long elapsed = System.nanoTime() - start;
+        service.shutdown();
+        boolean[] succeeded = new boolean[ops.length];
+        for (int i = 0; i < ops.length; i++) {
+            succeeded[i] = results.get(i).join();
+        }
+        verify(dataStore, numbers, succeeded, ops, "actor");
+        return ops.length * 1e9 / elapsed;
+    }
+
+    private static double runStriped(int accounts, int[][] ops, int threads) throws InterruptedException {
+        InMemoryDataStore dataStore = new InMemoryDataStore();
+        String[] numbers = openAccounts(dataStore, accounts);
+        StripedLockTransactionService service = new StripedLockTransactionService(dataStore, Math.max(16, threads * 16));
+        boolean[] succeeded = new boolean[ops.length];
+        Thread[] workers = new Thread[threads];
+        long start = System.nanoTime();
+        for (int t = 0; t < threads; t++) {
+            int first = t;
+            workers[t] = new Thread(() -> {
+                for (int i = first; i < ops.length; i += threads) {
+                    int[] op = ops[i];
+                    succeeded[i] = op[0] == 0
+                            ? service.deposit(numbers[op[1]], 1, "bench")
+                            : service.transfer(numbers[op[1]], numbers[op[2]], 1, "bench");
+                }
+            });
+            workers[t].start();
+        }
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        long elapsed = System.nanoTime() - start;
+        verify(dataStore, numbers, succeeded, ops, "striped");
+        return ops.length * 1e9 / elapsed;
+    }
+
+    /**
+     * Kiểm tra tổng số dư: ban đầu cộng số lần nạp thành công. Chuyển khoản (kể cả bị từ chối do
+     * không đủ số dư hay vượt hạn mức) không được làm đổi tổng.
+     */
+    private static void verify(InMemoryDataStore dataStore, String[] numbers, boolean[] succeeded, int[][] ops,
+                               String mode) {
+        long deposits = 0;
+        for (int i = 0; i < ops.length; i++) {
+            deposits += ops[i][0] == 0 && succeeded[i] ? 1 : 0;
+        }
+        double total = 0;
+        for (String number : numbers) {
+            Account account = dataStore.getAccountRepository().findByAccountNumber(number);
+            total += account.getBalance();
+        }
+        double expected = numbers.length * INITIAL_BALANCE + deposits;
+        if (total != expected) {
+            throw new IllegalStateException(mode + ": total " + total + ", expected " + expected);
+        }
+    }
+}
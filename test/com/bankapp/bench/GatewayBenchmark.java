@@ -0,0 +1,206 @@
+package com.bankapp.bench;
+
+import com.bankapp.controllers.ApiController;
+import com.bankapp.controllers.GatewayClient;
+import com.bankapp.controllers.GatewayController;
+import com.bankapp.data.InMemoryDataStore;
+import com.bankapp.model.Account;
+import com.bankapp.model.User;
+import com.bankapp.services.AccountService;
+import com.bankapp.services.AuthService;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Benchmark thông lượng của gateway nhị phân (GatewayController) so với API HTTP/JSON (ApiController)
+ * trên cùng một kho dữ liệu, qua loopback: truy vấn số dư và nạp tiền, với HTTP keep-alive,
+ * gateway không pipelining và gateway pipelining theo độ sâu cho trước.
+ * Sau các lượt nạp tiền, số dư cuối được đối chiếu với số lần nạp thành công.
+ * Không phải kiểm thử nên run_tests.sh không chạy; chạy tay:
+ * <pre>
+ *   java -cp build/test-classes com.bankapp.bench.GatewayBenchmark [connections] [requests] [depth]
+ * </pre>
+ */
+public class GatewayBenchmark {
+    private static final String KEY = "bench-key";
+    private static final Pattern TOKEN = Pattern.compile("\"token\":\"([^\"]+)\"");
+
+    private interface Client {
+        /**
+         * Gửi một lượt gồm "count" request và chờ tất cả phản hồi.
+         *
+         * @return Số request thành công
+         */
+        int send(int count) throws Exception;
+    }
+
+    private interface ClientFactory {
+        Client open(int connection) throws Exception;
+    }
+
+    public static void main(String[] args) throws Exception {
+        int connections = args.length > 0 ? Integer.parseInt(args[0]) : 8;
+        int requests = args.length > 1 ? Integer.parseInt(args[1]) : 40_000;
+        int depth = args.length > 2 ? Integer.parseInt(args[2]) : 64;
+
+        InMemoryDataStore dataStore = new InMemoryDataStore();
+        AuthService authService = new AuthService(dataStore);
+        User user = authService.register("benchuser", "Passw0rd!", "Bench User", "bench@example.com");
+        Account account = new AccountService(dataStore).createCheckingAccount(user, 0, 0);
+        String number = account.getAccountNumber();
+
+        System.setProperty("sun.net.httpserver.nodelay", "true"); // As BankApplication does for --server
+        ApiController api = new ApiController(dataStore, 0, connections, 1024);
+        GatewayController gateway = new GatewayController(dataStore, 0, connections, 65536, KEY);
+        api.start();
+        gateway.start();
+        try {
+            String base = "http://127.0.0.1:" + api.getPort() + "/api";
+            String token = login(base);
+            System.out.printf("connections=%d requests=%d depth=%d cpus=%d%n",
+                    connections, requests, depth, Runtime.getRuntime().availableProcessors());
+
+            AtomicLong deposited = new AtomicLong();
+            run("http     balance", connections, requests, c -> http(base, token, number, false, deposited));
+            run("gateway  balance", connections, requests, c -> gateway(gateway.getPort(), number, false, 1, deposited));
+            run("gateway  balance depth " + depth, connections, requests,
+                    c -> gateway(gateway.getPort(), number, false, depth, deposited));
+            run("http     deposit", connections, requests, c -> http(base, token, number, true, deposited));
+            run("gateway  deposit", connections, requests, c -> gateway(gateway.getPort(), number, true, 1, deposited));
+            run("gateway  deposit depth " + depth, connections, requests,
+                    c -> gateway(gateway.getPort(), number, true, depth, deposited));
+
+            if (account.getBalance() != deposited.get()) {
+                throw new IllegalStateException("balance " + account.getBalance() + ", deposited " + deposited.get());
+            }
+        } finally {
+            api.stop(0);
+            gateway.stop();
+        }
+    }
+
+    private static String login(String base) throws Exception {
+        HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+        HttpResponse<String> response = client.send(HttpRequest.newBuilder(URI.create(base + "/login"))
+                .POST(HttpRequest.BodyPublishers.ofString("{\"username\":\"benchuser\",\"password\":\"Passw0rd!\"}"))
+                .build(), HttpResponse.BodyHandlers.ofString());
+        Matcher matcher = TOKEN.matcher(response.body());
+        if (!matcher.find()) {
+            throw new IllegalStateException("Login failed: " + response.body());
+        }
+        return matcher.group(1);
+    }
+
+    /**
+     * Chạy một kịch bản: mỗi kết nối một luồng, lượt khởi động rồi lượt đo, in số request mỗi giây.
+     */
+    private static void run(String label, int connections, int requests, ClientFactory factory) throws Exception {
+        List<Client> clients = new ArrayList<>();
+        for (int c = 0; c < connections; c++) {
+            clients.add(factory.open(c));
+        }
+        int perConnection = Math.max(1, requests / connections);
+        drive(clients, Math.max(1, perConnection / 10)); // Warm-up
+        long start = System.nanoTime();
+        int succeeded = drive(clients, perConnection);
+        long elapsed = System.nanoTime() - start;
+        for (Client client : clients) {
+            if (client instanceof AutoCloseable) {
+                ((AutoCloseable) client).close();
+            }
+        }
+        System.out.printf("%-28s %,12.0f req/s  (%d/%d ok)%n", label,
+                (double) perConnection * connections * 1e9 / elapsed, succeeded, perConnection * connections);
+    }
+
+    private static int drive(List<Client> clients, int perConnection) throws Exception {
+        List<CompletableFuture<Integer>> results = new ArrayList<>();
+        for (Client client : clients) {
+            CompletableFuture<Integer> result = new CompletableFuture<>();
+            Thread thread = new Thread(() -> {
+                try {
+                    result.complete(client.send(perConnection));
+                } catch (Exception e) {
+                    result.completeExceptionally(e);
+                }
+            });
+            thread.start();
+            results.add(result);
+        }
+        int succeeded = 0;
+        for (CompletableFuture<Integer> result : results) {
+            succeeded += result.join();
+        }
+        return succeeded;
+    }
+
+    private static Client http(String base, String token, String number, boolean deposit, AtomicLong deposited) {
+        // One client per connection so each thread keeps its own keep-alive socket
+        HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+        HttpRequest request = deposit
+                ? HttpRequest.newBuilder(URI.create(base + "/accounts/" + number + "/deposit"))
+                        .header("Authorization", "Bearer " + token)
+                        .POST(HttpRequest.BodyPublishers.ofString("{\"amount\":1,\"description\":\"bench\"}")).build()
+                : HttpRequest.newBuilder(URI.create(base + "/accounts/" + number + "/balance"))
+                        .header("Authorization", "Bearer " + token).GET().build();
+        return count -> {
+            int ok = 0;
+            for (int i = 0; i < count; i++) {
+                if (client.send(request, HttpResponse.BodyHandlers.ofString()).statusCode() == 200) {
+                    ok++;
+                }
+            }
+            if (deposit) {
+                deposited.addAndGet(ok);
+            }
+            return ok;
+        };
+    }
+
+    private static Client gateway(int port, String number, boolean deposit, int depth, AtomicLong deposited) {
+        GatewayClient client = new GatewayClient("localhost", port);
+        if (!client.authenticate(KEY).join().isOk()) {
+            throw new IllegalStateException("Gateway rejected the key");
+        }
+        client.setAutoFlush(depth == 1);
+        class PipelinedClient implements Client, AutoCloseable {
+            @Override
+            public int send(int count) {
+                int ok = 0;
+                List<CompletableFuture<GatewayClient.Response>> window = new ArrayList<>(depth);
+                for (int sent = 0; sent < count; ) {
+                    int batch = Math.min(depth, count - sent);
+                    for (int i = 0; i < batch; i++) {
+                        window.add(deposit ? client.deposit(number, 1, "bench") : client.balance(number));
+                    }
+                    if (depth > 1) {
+                        client.flush();
+                    }
+                    for (CompletableFuture<GatewayClient.Response> response : window) {
+                        ok += response.join().isOk() ? 1 : 0;
+                    }
+                    window.clear();
+                    sent += batch;
+                }
+                if (deposit) {
+                    deposited.addAndGet(ok);
+                }
+                return ok;
+            }
+
+            @Override
+            public void close() {
+                client.close();
+            }
+        }
+        return new PipelinedClient();
+    }
+}
@@ -0,0 +1,256 @@
+package com.bankapp.controllers;
+
+import com.bankapp.data.InMemoryDataStore;
+import com.bankapp.model.Account;
+import com.bankapp.model.User;
+import com.bankapp.services.AccountService;
+import com.bankapp.services.AuthService;
+import com.bankapp.services.TransactionService;
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Kiểm thử gateway nhị phân: khi pipelining, phản hồi trả về theo thứ tự hoàn thành và được khớp theo
+ * request ID (lệnh nhanh không phải chờ lệnh chậm gửi trước nó); khung có tham số sai trả về BAD_REQUEST
+ * mà không làm hỏng các khung kế tiếp trên cùng kết nối; khung bị chia làm nhiều lần gửi vẫn được ghép đúng;
+ * còn trường độ dài không hợp lệ thì kết nối bị đóng.
+ */
+public class GatewayControllerTest {
+    private static final String KEY = "test-key";
+    private static int failures;
+
+    /**
+     * Service giữ các lệnh nạp tiền lại cho đến khi được thả, để một lệnh gửi trước chắc chắn xong sau.
+     */
+    private static class HeldDeposits extends TransactionService {
+        private volatile CountDownLatch release = new CountDownLatch(0);
+        private final CountDownLatch entered = new CountDownLatch(1);
+
+        HeldDeposits(InMemoryDataStore dataStore) {
+            super(dataStore);
+        }
+
+        @Override
+        public boolean deposit(String accountNumber, double amount, String description) {
+            entered.countDown();
+            try {
+                release.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return super.deposit(accountNumber, amount, description);
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        InMemoryDataStore dataStore = new InMemoryDataStore();
+        User user = new AuthService(dataStore).register("gatewayuser", "Passw0rd!", "Gateway User", "gw@example.com");
+        Account account = new AccountService(dataStore).createCheckingAccount(user, 100, 0);
+        HeldDeposits service = new HeldDeposits(dataStore);
+        GatewayController gateway = new GatewayController(dataStore, service, 0, 2, 64, KEY);
+        gateway.start();
+        try {
+            responsesFollowCompletionOrder(gateway.getPort(), service, account.getAccountNumber());
+            clientMatchesResponsesById(gateway.getPort(), service, account.getAccountNumber());
+            malformedFramesAreRejectedPerFrame(gateway.getPort(), account.getAccountNumber());
+            corruptLengthClosesTheConnection(gateway.getPort());
+        } finally {
+            gateway.stop();
+        }
+        if (failures > 0) {
+            System.out.println(failures + " check(s) failed");
+            System.exit(1);
+        }
+        System.out.println("GatewayControllerTest OK");
+    }
+
+    private static void responsesFollowCompletionOrder(int port, HeldDeposits service, String number)
+            throws IOException, InterruptedException {
+        try (Socket socket = connect(port)) {
+            OutputStream out = socket.getOutputStream();
+            DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            out.write(frame(1, GatewayProtocol.OP_AUTH, string(KEY)));
+            check(readResponse(in).status == GatewayProtocol.STATUS_OK, "authenticated");
+
+            service.release = new CountDownLatch(1);
+            // Both frames in one write: the deposit goes to a worker and is held, the balance is answered inline
+            ByteArrayOutputStream pipelined = new ByteArrayOutputStream();
+            pipelined.write(frame(2, GatewayProtocol.OP_DEPOSIT, concat(string(number), dbl(25), string("held"))));
+            pipelined.write(frame(3, GatewayProtocol.OP_BALANCE, string(number)));
+            out.write(pipelined.toByteArray());
+            check(service.entered.await(10, TimeUnit.SECONDS), "deposit reached the worker");
+
+            Response first = readResponse(in);
+            check(first.requestId == 3 && first.status == GatewayProtocol.STATUS_OK && first.balance == 100,
+                    "balance answered before the held deposit: " + first);
+            service.release.countDown();
+            Response second = readResponse(in);
+            check(second.requestId == 2 && second.status == GatewayProtocol.STATUS_OK && second.balance == 125,
+                    "held deposit answered afterwards with its own id: " + second);
+        }
+    }
+
+    private static void clientMatchesResponsesById(int port, HeldDeposits service, String number) {
+        try (GatewayClient client = new GatewayClient("127.0.0.1", port)) {
+            check(client.authenticate(KEY).join().isOk(), "client authenticated");
+            service.release = new CountDownLatch(1);
+            CompletableFuture<GatewayClient.Response> deposit = client.deposit(number, 5, "held");
+            CompletableFuture<GatewayClient.Response> balance = client.balance(number);
+            GatewayClient.Response balanceResponse = balance.join();
+            check(balanceResponse.isOk() && !deposit.isDone(), "later request completes while the earlier one waits");
+            check(client.getInFlightCount() == 1, "only the held deposit is in flight");
+            service.release.countDown();
+            GatewayClient.Response depositResponse = deposit.join();
+            check(depositResponse.isOk() && depositResponse.getBalance() == balanceResponse.getBalance() + 5,
+                    "deposit future gets the deposit's own response");
+        }
+    }
+
+    private static void malformedFramesAreRejectedPerFrame(int port, String number)
+            throws IOException, InterruptedException {
+        try (Socket socket = connect(port)) {
+            OutputStream out = socket.getOutputStream();
+            DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            out.write(frame(1, GatewayProtocol.OP_BALANCE, string(number)));
+            check(readResponse(in).status == GatewayProtocol.STATUS_UNAUTHORIZED, "request before AUTH refused");
+            out.write(frame(2, GatewayProtocol.OP_AUTH, string("wrong-key")));
+            check(readResponse(in).status == GatewayProtocol.STATUS_UNAUTHORIZED, "wrong key refused");
+            out.write(frame(3, GatewayProtocol.OP_AUTH, string(KEY)));
+            check(readResponse(in).status == GatewayProtocol.STATUS_OK, "right key accepted");
+
+            ByteArrayOutputStream batch = new ByteArrayOutputStream();
+            // The string claims 50 bytes but the frame ends after 3; decoding must not run into the next frame
+            byte[] truncated = concat(new byte[] {0, 50}, "ACC".getBytes(StandardCharsets.UTF_8));
+            batch.write(frame(4, GatewayProtocol.OP_BALANCE, truncated));
+            batch.write(frame(5, GatewayProtocol.OP_BALANCE, string(number)));
+            batch.write(frame(6, (byte) 42, new byte[0]));
+            batch.write(frame(7, GatewayProtocol.OP_DEPOSIT, concat(string(number), dbl(Double.NaN), string("nan"))));
+            batch.write(frame(8, GatewayProtocol.OP_HISTORY_PAGE, concat(string(number), integer(0), integer(0))));
+            batch.write(frame(9, GatewayProtocol.OP_BALANCE, string("NO-SUCH-ACCOUNT")));
+            batch.write(frame(10, GatewayProtocol.OP_DEPOSIT, string(number))); // Amount missing
+            out.write(batch.toByteArray());
+            check(readResponse(in).matches(4, GatewayProtocol.STATUS_BAD_REQUEST), "truncated string rejected");
+            check(readResponse(in).matches(5, GatewayProtocol.STATUS_OK), "next frame still decoded");
+            check(readResponse(in).matches(6, GatewayProtocol.STATUS_BAD_REQUEST), "unknown opcode rejected");
+            check(readResponse(in).matches(7, GatewayProtocol.STATUS_BAD_REQUEST), "non-finite amount rejected");
+            check(readResponse(in).matches(8, GatewayProtocol.STATUS_BAD_REQUEST), "empty history page rejected");
+            check(readResponse(in).matches(9, GatewayProtocol.STATUS_NOT_FOUND), "unknown account");
+            check(readResponse(in).matches(10, GatewayProtocol.STATUS_BAD_REQUEST), "missing amount rejected");
+
+            // A frame that arrives in pieces is only decoded once it is complete
+            byte[] split = frame(11, GatewayProtocol.OP_BALANCE, string(number));
+            out.write(split, 0, 3);
+            out.flush();
+            Thread.sleep(50);
+            out.write(split, 3, split.length - 3);
+            check(readResponse(in).matches(11, GatewayProtocol.STATUS_OK), "split frame reassembled");
+        }
+    }
+
+    private static void corruptLengthClosesTheConnection(int port) throws IOException {
+        for (int length : new int[] {3, 1 << 20}) {
+            try (Socket socket = connect(port)) {
+                DataInputStream in = new DataInputStream(socket.getInputStream());
+                socket.getOutputStream().write(ByteBuffer.allocate(16).putInt(length).putLong(1).array());
+                boolean closed;
+                try {
+                    in.readInt();
+                    closed = false;
+                } catch (IOException e) {
+                    // EOF, or a reset if the server closed before reading everything
+                    closed = true;
+                }
+                check(closed, "length " + length + " closes the connection");
+            }
+        }
+    }
+
+    // ============= Frames =============
+
+    private static final class Response {
+        final long requestId;
+        final byte status;
+        final double balance;
+
+        Response(long requestId, byte status, double balance) {
+            this.requestId = requestId;
+            this.status = status;
+            this.balance = balance;
+        }
+
+        boolean matches(long expectedId, byte expectedStatus) {
+            return requestId == expectedId && status == expectedStatus;
+        }
+
+        @Override
+        public String toString() {
+            return "Response{id=" + requestId + ", status=" + status + ", balance=" + balance + '}';
+        }
+    }
+
+    private static Socket connect(int port) throws IOException {
+        Socket socket = new Socket("127.0.0.1", port);
+        socket.setSoTimeout(10_000);
+        socket.setTcpNoDelay(true);
+        return socket;
+    }
+
+    private static Response readResponse(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        long requestId = in.readLong();
+        byte status = in.readByte();
+        double balance = Double.NaN;
+        int remaining = length - (GatewayProtocol.RESPONSE_HEADER - 4);
+        if (remaining == 8) {
+            balance = in.readDouble();
+        } else {
+            in.skipBytes(remaining);
+        }
+        return new Response(requestId, status, balance);
+    }
+
+    private static byte[] frame(long requestId, byte opcode, byte[] arguments) {
+        ByteBuffer frame = ByteBuffer.allocate(GatewayProtocol.REQUEST_HEADER + arguments.length);
+        frame.putInt(GatewayProtocol.REQUEST_HEADER - 4 + arguments.length).putLong(requestId).put(opcode).put(arguments);
+        return frame.array();
+    }
+
+    private static byte[] string(String value) {
+        byte[] utf8 = GatewayProtocol.encode(value);
+        ByteBuffer buffer = ByteBuffer.allocate(GatewayProtocol.sizeOf(utf8));
+        GatewayProtocol.putString(buffer, utf8);
+        return buffer.array();
+    }
+
+    private static byte[] dbl(double value) {
+        return ByteBuffer.allocate(8).putDouble(value).array();
+    }
+
+    private static byte[] integer(int value) {
+        return ByteBuffer.allocate(4).putInt(value).array();
+    }
+
+    private static byte[] concat(byte[]... parts) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for (byte[] part : parts) {
+            out.write(part, 0, part.length);
+        }
+        return out.toByteArray();
+    }
+
+    private static void check(boolean condition, String message) {
+        if (!condition) {
+            failures++;
+            System.out.println("FAIL: " + message);
+        }
+    }
+}
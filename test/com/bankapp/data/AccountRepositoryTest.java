@@ -0,0 +1,115 @@
+package com.bankapp.data;
+
+import com.bankapp.model.Account;
+import com.bankapp.model.CheckingAccount;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+/**
+ * Kiểm thử việc tra cứu tài khoản đã lưu trữ: đọc không đưa tài khoản trở lại bảng đang dùng,
+ * cập nhật được ghi lại vào kho, và bản lưu trữ hỏng được báo lỗi thay vì coi như không tồn tại.
+ * Kiểm thử thêm việc lưu và liệt kê số tài khoản đồng thời từ nhiều luồng.
+ */
+public class AccountRepositoryTest {
+    private static int failures;
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        Path directory = Files.createTempDirectory("bankapp-archive-test");
+        try {
+            archivedReadsStayArchived(directory);
+            unreadableArchiveIsReported(directory);
+            concurrentSavesAndListings();
+        } finally {
+            try (Stream<Path> files = Files.walk(directory)) {
+                files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+            }
+        }
+        if (failures > 0) {
+            System.out.println(failures + " check(s) failed");
+            System.exit(1);
+        }
+        System.out.println("AccountRepositoryTest OK");
+    }
+
+    private static void archivedReadsStayArchived(Path directory) {
+        AccountRepository repository = new AccountRepository(new NumericKeyedMap<>(), new AccountArchive(directory));
+        Account account = new CheckingAccount("ACC3001", 25);
+        repository.save(account);
+        account.closeAccount();
+        check(repository.archive("ACC3001"), "closed account is archived");
+
+        Account first = repository.findByAccountNumber("ACC3001");
+        Account second = repository.findByAccountNumber("ACC3001");
+        check(first != null && first.getBalance() == 25, "archived account is readable");
+        check(first != second, "each read is a detached copy");
+        check(repository.findTombstone("ACC3001") != null, "lookup keeps the tombstone");
+        check(repository.getArchivedAccountCount() == 1, "lookup does not un-archive");
+        check(repository.getBalanceIndex().rank("ACC3001") < 0, "archived account stays out of the balance index");
+
+        first.setOwnerUserId("USR9");
+        check(repository.update(first), "update of an archived copy succeeds");
+        check("USR9".equals(repository.findByAccountNumber("ACC3001").getOwnerUserId()), "update is written to the archive");
+        check(repository.getArchivedAccountCount() == 1, "update keeps the account archived");
+    }
+
+    private static void unreadableArchiveIsReported(Path directory) throws IOException {
+        AccountRepository repository = new AccountRepository(new NumericKeyedMap<>(), new AccountArchive(directory));
+        Account account = new CheckingAccount("ACC3002", 5);
+        repository.save(account);
+        account.closeAccount();
+        repository.archive("ACC3002");
+        Files.write(directory.resolve("ACC3002.acc.gz"), new byte[]{1, 2, 3});
+        boolean reported = false;
+        try {
+            repository.findByAccountNumber("ACC3002");
+        } catch (UncheckedIOException e) {
+            reported = true;
+        }
+        check(reported, "corrupt archive raises instead of reading as missing");
+    }
+
+    private static void concurrentSavesAndListings() throws InterruptedException {
+        AccountRepository repository = new AccountRepository();
+        int writers = 4;
+        int perWriter = 5000;
+        Thread[] threads = new Thread[writers];
+        for (int w = 0; w < writers; w++) {
+            int first = w * perWriter;
+            threads[w] = new Thread(() -> {
+                for (int i = first; i < first + perWriter; i++) {
+                    Account account = new CheckingAccount("ACC" + (100000 + i), 1);
+                    repository.save(account);
+                    repository.update(account);
+                }
+            });
+            threads[w].start();
+        }
+        // Listing while the map grows must neither throw nor return torn entries
+        int listings = 0;
+        boolean clean = true;
+        while (threads[writers - 1].isAlive() || listings == 0) {
+            for (String number : repository.getAccountNumbers()) {
+                clean &= number != null && repository.exists(number);
+            }
+            listings++;
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        check(clean, "listed account numbers exist while accounts are saved concurrently");
+        check(repository.getAccountCount() == writers * perWriter,
+                "every concurrent save kept: " + repository.getAccountCount());
+        check(repository.getBalanceIndex().rank("ACC100000") >= 0, "balance index updated under concurrency");
+    }
+
+    private static void check(boolean condition, String message) {
+        if (!condition) {
+            failures++;
+            System.out.println("FAIL: " + message);
+        }
+    }
+}
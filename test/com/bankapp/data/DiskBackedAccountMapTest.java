@@ -0,0 +1,99 @@
+package com.bankapp.data;
+
+import com.bankapp.model.Account;
+import com.bankapp.model.CheckingAccount;
+import com.bankapp.model.User;
+import java.io.IOException;
+import java.lang.ref.WeakReference;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+/**
+ * Kiểm thử kho tài khoản trên đĩa cùng người dùng: người dùng chỉ giữ số tài khoản nên tài khoản
+ * bị đẩy khỏi bộ đệm được giải phóng, tổng số dư vẫn đúng khi tài khoản được nạp lại,
+ * và cập nhật liên tục một tài khoản nóng không ghi lại file mỗi lần.
+ */
+public class DiskBackedAccountMapTest {
+    private static final int ACCOUNTS = 500;
+    private static int failures;
+
+    public static void main(String[] args) throws IOException {
+        Path directory = Files.createTempDirectory("bankapp-accounts-test");
+        System.setProperty("bankapp.accounts.dir", directory.toString());
+        System.setProperty("bankapp.accounts.cacheSize", "50");
+        try {
+            evictedAccountsAreReleasedAndTotalsSurviveReloads();
+        } finally {
+            System.clearProperty("bankapp.accounts.dir");
+            System.clearProperty("bankapp.accounts.cacheSize");
+            try (Stream<Path> files = Files.walk(directory)) {
+                files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+            }
+        }
+        if (failures > 0) {
+            System.out.println(failures + " check(s) failed");
+            System.exit(1);
+        }
+        System.out.println("DiskBackedAccountMapTest OK");
+    }
+
+    private static void evictedAccountsAreReleasedAndTotalsSurviveReloads() {
+        InMemoryDataStore dataStore = new InMemoryDataStore();
+        AccountRepository accounts = dataStore.getAccountRepository();
+        DiskBackedAccountMap storage = dataStore.getAccountStorage();
+        User user = new User("USR1", "alice", "hash", "Alice", "alice@example.com");
+        dataStore.getUserRepository().save(user);
+
+        WeakReference<Account> first = null;
+        for (int i = 0; i < ACCOUNTS; i++) {
+            Account account = new CheckingAccount(String.format("ACC%05d", i), 10);
+            accounts.save(account);
+            user.addAccount(account);
+            if (i == 0) {
+                first = new WeakReference<>(account);
+            }
+        }
+        dataStore.getUserRepository().update(user);
+        check(user.getAccountCount() == ACCOUNTS && user.getTotalBalance() == ACCOUNTS * 10.0, "opening totals");
+        check(storage.getCachedAccountCount() <= 50, "cache stays bounded");
+        for (int i = 0; i < 5 && first.get() != null; i++) {
+            System.gc();
+        }
+        check(first.get() == null, "an evicted account is not pinned by its owner");
+
+        // Mutate every account through a fresh lookup; most of them are reloaded from disk
+        for (int i = 0; i < ACCOUNTS; i++) {
+            Account account = accounts.findByAccountNumber(String.format("ACC%05d", i));
+            account.deposit(1, "bonus");
+            accounts.update(account);
+        }
+        check(user.getTotalBalance() == ACCOUNTS * 11.0, "totals follow reloaded instances, got " + user.getTotalBalance());
+        check(user.getBalanceByType("CHECKING") == ACCOUNTS * 11.0, "per-type totals follow reloaded instances");
+
+        Account sample = user.getAccountByNumber("ACC00000");
+        check(sample != null && sample.getBalance() == 11.0, "owner resolves its account by number");
+        check(user.getAccountByNumber("ACC99999") == null, "foreign account is not resolved");
+
+        // Write-back: a hot account updated many times is written at most when it leaves the cache
+        Account hot = accounts.findByAccountNumber("ACC00001");
+        long writesBefore = storage.getWriteCount();
+        for (int i = 0; i < 1000; i++) {
+            hot.deposit(1, "hot");
+            accounts.update(hot);
+        }
+        check(storage.getWriteCount() - writesBefore < 10, "updates to a cached account do not rewrite its file");
+        check(user.getTotalBalance() == ACCOUNTS * 11.0 + 1000, "hot updates reach the totals");
+
+        dataStore.shutdown();
+        check(accounts.findByAccountNumber("ACC00001").getBalance() == 1011.0, "flushed state reads back");
+    }
+
+    private static void check(boolean condition, String message) {
+        if (!condition) {
+            failures++;
+            System.out.println("FAIL: " + message);
+        }
+    }
+}
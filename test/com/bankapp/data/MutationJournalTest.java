@@ -0,0 +1,327 @@
+package com.bankapp.data;
+
+import com.bankapp.model.Account;
+import com.bankapp.model.CheckingAccount;
+import com.bankapp.model.SavingsAccount;
+import com.bankapp.model.Transaction;
+import com.bankapp.model.TransactionPeriodSummary;
+import com.bankapp.model.User;
+import com.bankapp.services.AccountService;
+import com.bankapp.services.TransactionService;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.stream.Stream;
+
+/**
+ * Kiểm thử nhật ký thay đổi: các giao dịch đồng thời trên một tài khoản được ghi vào nhật ký đúng
+ * thứ tự áp dụng, việc đặt lại bộ đếm lượt rút trong tháng được phát lại khi khởi động lại, điểm kiểm tra
+ * cắt ngắn nhật ký mà không mất thay đổi ghi trong lúc chụp, việc nén sổ cái được phát lại, số tài khoản
+ * cấp sau khi khởi động lại luôn lớn hơn số của các tài khoản đã khôi phục, và
+ * hai chính sách xử lý khi nút dự phòng không xác nhận kịp (suy giảm hoặc chờ).
+ */
+public class MutationJournalTest {
+    private static final int THREADS = 8;
+    private static final int DEPOSITS_PER_THREAD = 500;
+    private static int failures;
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        Path directory = Files.createTempDirectory("bankapp-journal-test");
+        try {
+            concurrentPostsAreJournaledInOrder(directory.resolve("order"));
+            withdrawalResetsAreReplayed(directory.resolve("reset"));
+            checkpointTruncatesTheLog(directory.resolve("checkpoint"));
+            ledgerCompactionIsReplayed(directory.resolve("compaction"));
+            periodSummariesSurviveCheckpoint(directory.resolve("summaries"));
+            restartIssuesNumbersAboveRestoredAccounts(directory.resolve("numbers"));
+            syncTimeoutDegradesExplicitly();
+            syncTimeoutCanStallWrites();
+        } finally {
+            System.clearProperty("bankapp.journal.dir");
+            System.clearProperty("bankapp.retention.days");
+            System.clearProperty("bankapp.retention.intervalSeconds");
+            try (Stream<Path> files = Files.walk(directory)) {
+                files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+            }
+        }
+        if (failures > 0) {
+            System.out.println(failures + " check(s) failed");
+            System.exit(1);
+        }
+        System.out.println("MutationJournalTest OK");
+    }
+
+    private static void concurrentPostsAreJournaledInOrder(Path directory) throws InterruptedException, IOException {
+        System.setProperty("bankapp.journal.dir", directory.toString());
+        InMemoryDataStore dataStore = new InMemoryDataStore();
+        User user = new User("USR1", "alice", "hash", "Alice", "alice@example.com");
+        dataStore.getUserRepository().save(user);
+        Account account = new AccountService(dataStore).createCheckingAccount(user, 0, 0);
+        TransactionService transactionService = new TransactionService(dataStore);
+
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            threads.add(new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int i = 0; i < DEPOSITS_PER_THREAD; i++) {
+                    transactionService.deposit(account.getAccountNumber(), 1, "concurrent");
+                }
+            }));
+        }
+        threads.forEach(Thread::start);
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        dataStore.shutdown();
+
+        MutationJournal journal = new MutationJournal(directory, false, false, 0, 0);
+        double previous = 0;
+        int posted = 0;
+        boolean ordered = true;
+        for (JournalEntry entry : journal.takeRecoveredEntries()) {
+            entry.decode();
+            if (entry.type != JournalEntry.TRANSACTIONS_POSTED) {
+                continue;
+            }
+            for (Transaction transaction : entry.transactions) {
+                ordered &= transaction.getBalanceAfter() == previous + 1;
+                previous = transaction.getBalanceAfter();
+                posted++;
+            }
+        }
+        journal.close();
+        check(posted == THREADS * DEPOSITS_PER_THREAD, "every deposit journaled, got " + posted);
+        check(ordered, "journal order matches the order the deposits were applied");
+
+        InMemoryDataStore restarted = new InMemoryDataStore();
+        Account replayed = restarted.getAccountRepository().findByAccountNumber(account.getAccountNumber());
+        check(replayed != null && replayed.getBalance() == THREADS * DEPOSITS_PER_THREAD, "replayed balance");
+        restarted.shutdown();
+    }
+
+    private static void withdrawalResetsAreReplayed(Path directory) {
+        System.setProperty("bankapp.journal.dir", directory.toString());
+        InMemoryDataStore dataStore = new InMemoryDataStore();
+        User user = new User("USR2", "bob", "hash", "Bob", "bob@example.com");
+        dataStore.getUserRepository().save(user);
+        AccountService accountService = new AccountService(dataStore);
+        SavingsAccount account = accountService.createSavingsAccount(user, 1000, 0.01);
+        TransactionService transactionService = new TransactionService(dataStore);
+        transactionService.withdraw(account.getAccountNumber(), 10, "first");
+        transactionService.withdraw(account.getAccountNumber(), 10, "second");
+        check(accountService.resetMonthlyWithdrawals() == 1, "one active account reset");
+        transactionService.withdraw(account.getAccountNumber(), 10, "next month");
+        check(account.getWithdrawalsThisMonth() == 1, "counter after reset, got " + account.getWithdrawalsThisMonth());
+        dataStore.shutdown();
+
+        InMemoryDataStore restarted = new InMemoryDataStore();
+        SavingsAccount replayed = (SavingsAccount) restarted.getAccountRepository()
+                .findByAccountNumber(account.getAccountNumber());
+        check(replayed != null && replayed.getWithdrawalsThisMonth() == 1,
+                "replayed counter includes the reset, got " + (replayed != null ? replayed.getWithdrawalsThisMonth() : -1));
+        check(replayed != null && replayed.getBalance() == 970, "replayed balance");
+        restarted.shutdown();
+    }
+
+    private static void checkpointTruncatesTheLog(Path directory) throws InterruptedException, IOException {
+        System.setProperty("bankapp.journal.dir", directory.toString());
+        InMemoryDataStore dataStore = new InMemoryDataStore();
+        User user = new User("USR3", "carol", "hash", "Carol", "carol@example.com");
+        dataStore.getUserRepository().save(user);
+        AccountService accountService = new AccountService(dataStore);
+        List<String> numbers = new ArrayList<>();
+        for (int a = 0; a < 4; a++) {
+            numbers.add(accountService.createCheckingAccount(user, 0, 0).getAccountNumber());
+        }
+        TransactionService transactionService = new TransactionService(dataStore);
+        for (int i = 0; i < DEPOSITS_PER_THREAD; i++) {
+            transactionService.deposit(numbers.get(i % numbers.size()), 1, "before");
+        }
+        long logBefore = Files.size(directory.resolve("mutations.log"));
+
+        // Keep writing while the checkpoint is taken; those writes must survive the truncation
+        Thread writer = new Thread(() -> {
+            for (int i = 0; i < DEPOSITS_PER_THREAD; i++) {
+                transactionService.deposit(numbers.get(i % numbers.size()), 1, "during");
+            }
+        });
+        writer.start();
+        long sequence = dataStore.checkpoint();
+        writer.join();
+        check(sequence > 0 && Files.exists(directory.resolve("checkpoint.snap")), "checkpoint written at " + sequence);
+        check(Files.size(directory.resolve("mutations.log")) < logBefore, "log truncated to the entries after the checkpoint");
+        transactionService.deposit(numbers.get(0), 1, "after");
+        dataStore.shutdown();
+
+        InMemoryDataStore restarted = new InMemoryDataStore();
+        double total = 0;
+        int history = 0;
+        for (String number : numbers) {
+            Account replayed = restarted.getAccountRepository().findByAccountNumber(number);
+            total += replayed != null ? replayed.getBalance() : 0;
+            history += replayed != null ? replayed.getTransactionCount() : 0;
+        }
+        check(total == 2 * DEPOSITS_PER_THREAD + 1 && history == 2 * DEPOSITS_PER_THREAD + 1,
+                "checkpoint plus log restore every deposit, balance " + total + ", history " + history);
+        User owner = restarted.getUserRepository().findById("USR3");
+        check(owner != null && owner.getAccountNumbers().size() == numbers.size(), "owner keeps its accounts");
+        restarted.shutdown();
+    }
+
+    private static void ledgerCompactionIsReplayed(Path directory) throws InterruptedException {
+        System.setProperty("bankapp.journal.dir", directory.toString());
+        System.setProperty("bankapp.retention.days", "0");
+        System.setProperty("bankapp.retention.intervalSeconds", "3600");
+        InMemoryDataStore dataStore = new InMemoryDataStore();
+        User user = new User("USR4", "dave", "hash", "Dave", "dave@example.com");
+        dataStore.getUserRepository().save(user);
+        Account account = new AccountService(dataStore).createCheckingAccount(user, 0, 0);
+        TransactionService transactionService = new TransactionService(dataStore);
+        for (int i = 0; i < 100; i++) {
+            transactionService.deposit(account.getAccountNumber(), 1, "old");
+        }
+        Thread.sleep(5); // Everything above is now older than the zero-day horizon
+        int compacted = transactionService.compactHistory();
+        transactionService.deposit(account.getAccountNumber(), 1, "new");
+        dataStore.shutdown();
+
+        InMemoryDataStore restarted = new InMemoryDataStore();
+        TransactionRepository ledger = restarted.getTransactionRepository();
+        check(compacted == 100 && ledger.getCompactedTransactionCount() == compacted,
+                "replay compacts the same rows, " + ledger.getCompactedTransactionCount() + " of " + compacted);
+        check(ledger.getTransactionCount(account.getAccountNumber()) == 1, "only the new row stays detailed");
+        check(!ledger.getPeriodSummaries(account.getAccountNumber()).isEmpty(), "period summary rebuilt");
+        Account replayed = restarted.getAccountRepository().findByAccountNumber(account.getAccountNumber());
+        check(replayed != null && replayed.getBalance() == 101, "balance unaffected by compaction");
+        restarted.shutdown();
+        System.clearProperty("bankapp.retention.days");
+        System.clearProperty("bankapp.retention.intervalSeconds");
+    }
+
+    private static void periodSummariesSurviveCheckpoint(Path directory) throws InterruptedException {
+        System.setProperty("bankapp.journal.dir", directory.toString());
+        System.setProperty("bankapp.retention.days", "0");
+        System.setProperty("bankapp.retention.intervalSeconds", "3600");
+        InMemoryDataStore dataStore = new InMemoryDataStore();
+        User user = new User("USR6", "frank", "hash", "Frank", "frank@example.com");
+        dataStore.getUserRepository().save(user);
+        Account account = new AccountService(dataStore).createCheckingAccount(user, 0, 0);
+        TransactionService transactionService = new TransactionService(dataStore);
+        for (int i = 0; i < 50; i++) {
+            transactionService.deposit(account.getAccountNumber(), 2, "old");
+        }
+        Thread.sleep(5);
+        int compacted = transactionService.compactHistory();
+        String before = describe(transactionService.getPeriodSummaries(account.getAccountNumber()));
+        check(dataStore.checkpoint() >= 0, "checkpoint written after compaction");
+        transactionService.deposit(account.getAccountNumber(), 2, "new");
+        dataStore.shutdown();
+
+        // The checkpoint dropped the compaction entry from the log, so the summaries come from the snapshot
+        InMemoryDataStore restarted = new InMemoryDataStore();
+        String after = describe(restarted.getTransactionRepository().getPeriodSummaries(account.getAccountNumber()));
+        check(compacted == 50 && !before.isEmpty(), "history compacted before the checkpoint");
+        check(before.equals(after), "period summaries unchanged by checkpoint and restart: " + before + " vs " + after);
+        Account replayed = restarted.getAccountRepository().findByAccountNumber(account.getAccountNumber());
+        check(replayed != null && replayed.getBalance() == 102, "balance restored after checkpoint");
+        restarted.shutdown();
+        System.clearProperty("bankapp.retention.days");
+        System.clearProperty("bankapp.retention.intervalSeconds");
+    }
+
+    private static String describe(List<TransactionPeriodSummary> summaries) {
+        StringBuilder text = new StringBuilder();
+        for (TransactionPeriodSummary summary : summaries) {
+            text.append(summary.getPeriodStart()).append(' ').append(summary.getTransactionCount()).append(' ')
+                    .append(summary.getOpeningBalance()).append("->").append(summary.getClosingBalance())
+                    .append(' ').append(summary.getSumByType()).append(';');
+        }
+        return text.toString();
+    }
+
+    private static void restartIssuesNumbersAboveRestoredAccounts(Path directory) {
+        System.setProperty("bankapp.journal.dir", directory.toString());
+        InMemoryDataStore dataStore = new InMemoryDataStore();
+        // As if a previous run had a clock far ahead of this one
+        long ahead = System.currentTimeMillis() + 1_000_000_000L;
+        Account restored = new CheckingAccount("ACC" + ahead, 0);
+        dataStore.getAccountRepository().save(restored);
+        dataStore.getMutationJournal().recordAccountOpened(null, restored);
+        dataStore.shutdown();
+
+        InMemoryDataStore restarted = new InMemoryDataStore();
+        User user = new User("USR5", "erin", "hash", "Erin", "erin@example.com");
+        restarted.getUserRepository().save(user);
+        Account opened = new AccountService(restarted).createCheckingAccount(user, 0, 0);
+        check(opened != null && Long.parseLong(opened.getAccountNumber().substring(3)) > ahead,
+                "new number above the restored one, got " + (opened != null ? opened.getAccountNumber() : null));
+        restarted.shutdown();
+    }
+
+    private static void syncTimeoutDegradesExplicitly() {
+        MutationJournal journal = new MutationJournal(null, true, true, 50,
+                MutationJournal.SyncTimeoutPolicy.DEGRADE, 1000);
+        journal.setFollowerAttached(true);
+        long start = System.nanoTime();
+        journal.recordAccountClosed("ACC1");
+        journal.awaitReplication();
+        long firstMillis = (System.nanoTime() - start) / 1_000_000;
+        check(firstMillis >= 40, "first write waits for the timeout, took " + firstMillis + " ms");
+        check(journal.isDegraded() && journal.getSyncTimeoutCount() == 1, "timeout switches to degraded mode");
+
+        start = System.nanoTime();
+        journal.recordAccountClosed("ACC2");
+        journal.awaitReplication();
+        long degradedMillis = (System.nanoTime() - start) / 1_000_000;
+        check(degradedMillis < 40 && journal.getSyncTimeoutCount() == 1,
+                "degraded writes do not wait again, took " + degradedMillis + " ms");
+
+        journal.acknowledge(1);
+        check(!journal.isDegraded(), "acknowledging the timed-out write leaves degraded mode");
+        journal.setFollowerAttached(false);
+        check(journal.isDegraded(), "no standby attached is reported as degraded");
+    }
+
+    private static void syncTimeoutCanStallWrites() throws InterruptedException {
+        MutationJournal journal = new MutationJournal(null, true, true, 50,
+                MutationJournal.SyncTimeoutPolicy.STALL, 1000);
+        Thread writer = new Thread(() -> {
+            journal.recordAccountClosed("ACC1");
+            journal.awaitReplication();
+        });
+        writer.start();
+        writer.join(300);
+        check(writer.isAlive(), "stalled write waits past the timeout even without a standby");
+        check(!journal.isDegraded() && journal.getSyncTimeoutCount() == 0, "stall never degrades");
+        journal.acknowledge(1);
+        writer.join(1000);
+        check(!writer.isAlive(), "acknowledgement releases the stalled write");
+
+        Thread pending = new Thread(() -> {
+            journal.recordAccountClosed("ACC2");
+            journal.awaitReplication();
+        });
+        pending.start();
+        pending.join(100);
+        journal.close();
+        pending.join(1000);
+        check(!pending.isAlive(), "closing the journal releases stalled writes");
+    }
+
+    private static void check(boolean condition, String message) {
+        if (!condition) {
+            failures++;
+            System.out.println("FAIL: " + message);
+        }
+    }
+}
@@ -0,0 +1,158 @@
+package com.bankapp.data;
+
+import com.bankapp.model.User;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Kiểm thử danh bạ người dùng ngoài heap: bảng băm dò tuyến tính vẫn tra đúng khi nhiều khóa trùng mã băm
+ * hoặc trùng ô (kể cả cụm vòng qua cuối bảng), khi xóa dịch lùi phần tử, và khi bảng lớn lên qua nhiều khối;
+ * danh bạ vẫn đúng khi số bản ghi vượt một khối, khi đổi tên đăng nhập và khi dùng lại bản ghi đã xóa.
+ */
+public class OffHeapUserDirectoryTest {
+    private static final int INITIAL_SLOTS = 1024;
+    private static int failures;
+
+    public static void main(String[] args) {
+        collidingEntriesAreToldApart();
+        removalKeepsWrappedClustersReachable();
+        indexGrowsAcrossChunks();
+        directoryGrowsAndReusesRecords();
+        renamedUsernameMovesInTheIndex();
+        if (failures > 0) {
+            System.out.println(failures + " check(s) failed");
+            System.exit(1);
+        }
+        System.out.println("OffHeapUserDirectoryTest OK");
+    }
+
+    private static void collidingEntriesAreToldApart() {
+        OffHeapHashIndex index = new OffHeapHashIndex();
+        long hash = 0x1234_5678_0000_0007L;
+        // Three records share one full hash, so only the predicate can tell them apart
+        index.insert(hash, 10);
+        index.insert(hash, 20);
+        index.insert(hash, 30);
+        // A different hash that lands on the same slot
+        index.insert(hash + INITIAL_SLOTS, 40);
+        check(index.find(hash, record -> record == 20) == 20, "predicate picks the right record among equal hashes");
+        check(index.find(hash, record -> record == 40) == OffHeapHashIndex.MISSING,
+                "same slot but different hash is not a candidate");
+        check(index.find(hash + INITIAL_SLOTS, record -> true) == 40, "slot collision found by its own hash");
+        check(index.find(hash, record -> record == 99) == OffHeapHashIndex.MISSING, "no record matches");
+
+        index.remove(hash, 20);
+        check(index.size() == 3, "only the exact pair is removed");
+        check(index.find(hash, record -> record == 30) == 30 && index.find(hash, record -> record == 10) == 10,
+                "other records with the same hash survive");
+        check(index.find(hash + INITIAL_SLOTS, record -> true) == 40, "later slot collision shifted back");
+        index.remove(hash, 99);
+        check(index.size() == 3, "removing an absent pair is a no-op");
+    }
+
+    private static void removalKeepsWrappedClustersReachable() {
+        OffHeapHashIndex index = new OffHeapHashIndex();
+        long last = INITIAL_SLOTS - 1;
+        // Home slot is the last one, so the cluster wraps to slots 0 and 1 where slot 0 already has an owner
+        index.insert(last, 1);
+        index.insert(last + INITIAL_SLOTS, 2);
+        index.insert(INITIAL_SLOTS, 3); // Home slot 0
+        index.insert(last + 2L * INITIAL_SLOTS, 4);
+        index.remove(last, 1);
+        check(index.find(last + INITIAL_SLOTS, record -> true) == 2, "wrapped entry shifted into the gap");
+        check(index.find(INITIAL_SLOTS, record -> true) == 3, "entry at its home slot still found");
+        check(index.find(last + 2L * INITIAL_SLOTS, record -> true) == 4, "entry past the home-slot owner found");
+        check(index.find(last, record -> true) == OffHeapHashIndex.MISSING, "removed entry is gone");
+    }
+
+    private static void indexGrowsAcrossChunks() {
+        OffHeapHashIndex index = new OffHeapHashIndex();
+        // Past three quarters of 2^20 slots the table needs a second 16 MB chunk
+        int keys = 800_000;
+        for (int i = 0; i < keys; i++) {
+            index.insert(OffHeapHashIndex.hash("key" + i), i);
+        }
+        check(index.size() == keys, "size after growth " + index.size());
+        int missing = 0;
+        for (int i = 0; i < keys; i += 7) {
+            long record = i;
+            if (index.find(OffHeapHashIndex.hash("key" + i), candidate -> candidate == record) != record) {
+                missing++;
+            }
+        }
+        check(missing == 0, "every key found after rehashing, missing " + missing);
+        for (int i = 0; i < keys; i += 2) {
+            index.remove(OffHeapHashIndex.hash("key" + i), i);
+        }
+        int wrong = 0;
+        for (int i = 0; i < keys; i += 5) {
+            long record = i;
+            long found = index.find(OffHeapHashIndex.hash("key" + i), candidate -> candidate == record);
+            if ((i % 2 == 0) != (found == OffHeapHashIndex.MISSING)) {
+                wrong++;
+            }
+        }
+        check(wrong == 0 && index.size() == keys / 2, "removals across chunks, wrong lookups " + wrong);
+    }
+
+    private static void directoryGrowsAndReusesRecords() {
+        OffHeapUserDirectory directory = new OffHeapUserDirectory();
+        // More users than one 65536-record chunk holds
+        int users = 70_000;
+        for (int i = 0; i < users; i++) {
+            directory.put("USR" + i, user(i, "user" + i));
+        }
+        check(directory.size() == users, "size after growth");
+        User first = directory.get("USR0");
+        User last = directory.get("USR" + (users - 1));
+        check(first != null && "user0".equals(first.getUsername()) && "User 0".equals(first.getFullName()),
+                "first chunk still readable");
+        check(last != null && ("user" + (users - 1)).equals(last.getUsername()), "second chunk readable");
+        check(directory.findByUsername("user65536") != null && directory.containsUsername("user69999"),
+                "username index spans both chunks");
+
+        long bytesBefore = directory.getOffHeapBytes();
+        for (int i = 0; i < 1000; i++) {
+            directory.remove("USR" + i);
+        }
+        check(directory.get("USR5") == null && !directory.containsUsername("user5"), "removed user is gone");
+        for (int i = 0; i < 1000; i++) {
+            directory.put("NEW" + i, user(i, "new" + i));
+        }
+        check(directory.size() == users, "size after remove and re-add");
+        check(directory.getOffHeapBytes() >= bytesBefore && directory.findByUsername("new999") != null,
+                "re-added users readable");
+        check(directory.getWastedStringBytes() > 0, "strings of removed users counted as waste");
+
+        Set<String> seen = new HashSet<>();
+        directory.forEach((id, user) -> seen.add(id));
+        check(seen.size() == users && seen.contains("NEW0") && !seen.contains("USR0"), "iteration sees live users only");
+    }
+
+    private static void renamedUsernameMovesInTheIndex() {
+        OffHeapUserDirectory directory = new OffHeapUserDirectory();
+        directory.put("USR1", user(1, "alice"));
+        User previous = directory.put("USR1", user(1, "alice2"));
+        check(previous != null && "alice".equals(previous.getUsername()), "put returns the previous user");
+        check(directory.findByUsername("alice") == null, "old username released");
+        check(directory.findByUsername("alice2") != null && directory.size() == 1, "new username indexed");
+        try {
+            directory.put("USR2", user(3, "carol"));
+            check(false, "user stored under another id is rejected");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+    }
+
+    private static User user(int i, String username) {
+        return new User((username.startsWith("new") ? "NEW" : "USR") + i, username, "hash" + i, "User " + i,
+                username + "@example.com");
+    }
+
+    private static void check(boolean condition, String message) {
+        if (!condition) {
+            failures++;
+            System.out.println("FAIL: " + message);
+        }
+    }
+}
@@ -0,0 +1,155 @@
+package com.bankapp.data;
+
+import com.bankapp.model.Account;
+import com.bankapp.model.User;
+import com.bankapp.services.AccountService;
+import com.bankapp.services.AuthService;
+import com.bankapp.services.TransactionService;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Stream;
+
+/**
+ * Kiểm thử đồng bộ lại nút dự phòng: nút dự phòng kết nối sau khi nút chính đã bỏ các bản ghi nó cần
+ * được nạp bản chụp của nút chính (kể cả khi nút chính vẫn đang nhận giao dịch), theo kịp nút chính,
+ * và khởi động lại được từ điểm kiểm tra cộng nhật ký của chính nó.
+ */
+public class ReplicationTest {
+    private static final int USERS = 3;
+    private static final int ACCOUNTS_PER_USER = 4;
+    private static final int DEPOSITS_BEFORE = 300;
+    private static final int DEPOSITS_DURING = 2000;
+    private static int failures;
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        Path directory = Files.createTempDirectory("bankapp-replication-test");
+        try {
+            laggingStandbyIsResynchronisedFromASnapshot(directory);
+        } finally {
+            clearProperties();
+            try (Stream<Path> files = Files.walk(directory)) {
+                files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+            }
+        }
+        if (failures > 0) {
+            System.out.println(failures + " check(s) failed");
+            System.exit(1);
+        }
+        System.out.println("ReplicationTest OK");
+    }
+
+    private static void laggingStandbyIsResynchronisedFromASnapshot(Path directory) throws InterruptedException {
+        System.setProperty("bankapp.replication.role", "leader");
+        System.setProperty("bankapp.replication.port", "0");
+        System.setProperty("bankapp.replication.maxBacklog", "50");
+        InMemoryDataStore leader = new InMemoryDataStore();
+        clearProperties();
+
+        AuthService authService = new AuthService(leader);
+        AccountService accountService = new AccountService(leader);
+        TransactionService transactionService = new TransactionService(leader);
+        List<String> numbers = new ArrayList<>();
+        for (int u = 0; u < USERS; u++) {
+            User user = authService.register("user" + u, "Passw0rd!", "User " + (char) ('A' + u),
+                    "user" + u + "@example.com");
+            for (int a = 0; a < ACCOUNTS_PER_USER; a++) {
+                numbers.add(accountService.createCheckingAccount(user, 100, 50).getAccountNumber());
+            }
+        }
+        Random random = new Random(7);
+        for (int i = 0; i < DEPOSITS_BEFORE; i++) {
+            transactionService.deposit(numbers.get(random.nextInt(numbers.size())), 1, "before");
+        }
+        String closed = numbers.remove(numbers.size() - 1);
+        transactionService.withdraw(closed, 100, "empty");
+        accountService.closeAccount(closed);
+        accountService.archiveClosedAccounts();
+
+        // Keep writing while the standby loads the snapshot so the per-account cuts matter
+        Thread writer = new Thread(() -> {
+            Random writes = new Random(11);
+            for (int i = 0; i < DEPOSITS_DURING; i++) {
+                String from = numbers.get(writes.nextInt(numbers.size()));
+                if (i % 3 == 0) {
+                    transactionService.transfer(from, numbers.get(writes.nextInt(numbers.size())), 1, "during");
+                } else {
+                    transactionService.deposit(from, 1, "during");
+                }
+            }
+        });
+        System.setProperty("bankapp.replication.role", "follower");
+        System.setProperty("bankapp.replication.leader", "localhost:" + leader.getReplicationLeader().getPort());
+        System.setProperty("bankapp.journal.dir", directory.resolve("standby").toString());
+        writer.start();
+        InMemoryDataStore standby = new InMemoryDataStore();
+        clearProperties();
+        writer.join();
+
+        ReplicationFollower follower = standby.getReplicationFollower();
+        long target = leader.getMutationJournal().getLastSequence();
+        long deadline = System.currentTimeMillis() + 30_000;
+        while (follower.getAppliedSequence() < target && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+        }
+        check(follower.getAppliedSequence() == target,
+                "standby caught up, applied " + follower.getAppliedSequence() + " of " + target);
+        check(follower.getResyncCount() >= 1 && leader.getReplicationLeader().getSnapshotsSent() >= 1,
+                "standby was resynchronised from a snapshot");
+        check(follower.isFollowing(), "standby keeps following after the resync, failure " + follower.getLastFailure());
+        compare(leader, standby, numbers, closed, "after resync");
+
+        standby.promote();
+        standby.shutdown();
+        System.setProperty("bankapp.journal.dir", directory.resolve("standby").toString());
+        InMemoryDataStore restarted = new InMemoryDataStore();
+        clearProperties();
+        check(restarted.getMutationJournal().getLastSequence() == target, "restart resumes after the last applied entry");
+        compare(leader, restarted, numbers, closed, "after restart");
+        restarted.shutdown();
+        leader.shutdown();
+    }
+
+    private static void compare(InMemoryDataStore leader, InMemoryDataStore standby, List<String> numbers,
+                                String closed, String label) {
+        int matching = 0;
+        for (String number : numbers) {
+            Account expected = leader.getAccountRepository().findByAccountNumber(number);
+            Account actual = standby.getAccountRepository().findByAccountNumber(number);
+            if (actual != null && actual.getBalance() == expected.getBalance()
+                    && actual.getTransactionCount() == expected.getTransactionCount()
+                    && standby.getTransactionRepository().getTransactionCount(number)
+                    == leader.getTransactionRepository().getTransactionCount(number)) {
+                matching++;
+            }
+        }
+        check(matching == numbers.size(), label + ": balances and histories match, " + matching + "/" + numbers.size());
+        check(standby.getAccountRepository().findTombstone(closed) != null, label + ": archived account stays archived");
+        for (int u = 0; u < USERS; u++) {
+            User expected = leader.getUserRepository().findByUsername("user" + u);
+            User actual = standby.getUserRepository().findByUsername("user" + u);
+            check(actual != null && actual.getAccountNumbers().size() == expected.getAccountNumbers().size()
+                            && actual.getTotalBalance() == expected.getTotalBalance(),
+                    label + ": user" + u + " accounts and total balance");
+        }
+    }
+
+    private static void clearProperties() {
+        System.clearProperty("bankapp.replication.role");
+        System.clearProperty("bankapp.replication.port");
+        System.clearProperty("bankapp.replication.maxBacklog");
+        System.clearProperty("bankapp.replication.leader");
+        System.clearProperty("bankapp.journal.dir");
+    }
+
+    private static void check(boolean condition, String message) {
+        if (!condition) {
+            failures++;
+            System.out.println("FAIL: " + message);
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package com.bankapp.data;
+
+import com.bankapp.model.Account;
+import com.bankapp.model.CheckingAccount;
+import com.bankapp.model.Transaction;
+import java.io.IOException;
+import java.lang.ref.WeakReference;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Kiểm thử việc chuyển lịch sử giao dịch ra đĩa: sau khi ghi segment, sổ cái và tài khoản
+ * không còn giữ đối tượng Transaction, nhưng vẫn tra cứu được qua sổ cái.
+ */
+public class TieredTransactionStoreTest {
+    private static int failures;
+
+    public static void main(String[] args) throws IOException {
+        Path directory = Files.createTempDirectory("bankapp-tiered-test");
+        try {
+            spilledRowsAreReleasedAndStillReadable(directory.resolve("aged"));
+            recentRowsSpillBeyondHotLimit(directory.resolve("recent"));
+        } finally {
+            try (Stream<Path> files = Files.walk(directory)) {
+                files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+            }
+        }
+        if (failures > 0) {
+            System.out.println(failures + " check(s) failed");
+            System.exit(1);
+        }
+        System.out.println("TieredTransactionStoreTest OK");
+    }
+
+    private static void spilledRowsAreReleasedAndStillReadable(Path directory) {
+        TieredTransactionStore store = new TieredTransactionStore(directory, 10, 0, 4);
+        TransactionRepository repository = new TransactionRepository();
+        repository.setHistoryStore(store);
+        Account account = new CheckingAccount("ACC1001", 0);
+
+        WeakReference<Transaction> first = null;
+        String firstId = null;
+        for (int i = 0; i < 300; i++) {
+            int postedBefore = account.getTransactionCount();
+            account.deposit(1, "invoice " + i);
+            List<Transaction> posted = account.getTransactionsFrom(postedBefore);
+            if (i == 0) {
+                first = new WeakReference<>(posted.get(0));
+                firstId = posted.get(0).getTransactionId();
+            }
+            repository.saveTransactions(account, postedBefore, posted);
+            store.spillIfNeeded(account);
+        }
+
+        check(account.getArchivedTransactionCount() >= 128, "a segment was written");
+        check(repository.getTotalTransactionCount() == 300, "ledger keeps every ordinal");
+        for (int i = 0; i < 5 && first.get() != null; i++) {
+            System.gc();
+        }
+        check(first.get() == null, "spilled transaction is no longer reachable from the heap");
+
+        Transaction reloaded = repository.findById(firstId);
+        check(reloaded != null && "invoice 0".equals(reloaded.getDescription()), "spilled row is read back by id");
+        check(repository.searchByPhrase("invoice 0").size() == 1, "phrase search reads the spilled row");
+        List<Transaction> history = repository.getTransactionsByAccount(account.getAccountNumber());
+        check(history.size() == 300 && history.get(299).getBalanceAfter() == 300.0,
+                "account history mixes cold and hot rows in order");
+        check(repository.query(new TransactionQuery().withType("DEPOSIT")).size() == 300,
+                "query resolves cold rows");
+    }
+
+    private static void recentRowsSpillBeyondHotLimit(Path directory) {
+        // A one-day age threshold keeps every freshly posted row hot unless the spill ignores age
+        TieredTransactionStore store = new TieredTransactionStore(directory, 10, 24L * 3600 * 1000, 4);
+        TransactionRepository repository = new TransactionRepository();
+        repository.setHistoryStore(store);
+        Account account = new CheckingAccount("ACC1002", 0);
+        for (int i = 0; i < 300; i++) {
+            int postedBefore = account.getTransactionCount();
+            account.deposit(1, "import " + i);
+            repository.saveTransactions(account, postedBefore, account.getTransactionsFrom(postedBefore));
+            store.spillIfNeeded(account);
+        }
+        check(account.getArchivedTransactionCount() == 0, "age threshold keeps recent rows hot");
+
+        check(store.spillBeyondHotLimit(account), "spill ignores age");
+        check(account.getTransactions().size() == 300 - account.getArchivedTransactionCount()
+                && account.getArchivedTransactionCount() >= 290, "only the hot limit stays in memory");
+        Transaction first = repository.getTransactionsByAccount(account.getAccountNumber()).get(0);
+        check(first != null && "import 0".equals(first.getDescription()), "spilled recent row reads back");
+        check(repository.findById(first.getTransactionId()) != null, "id index resolves the spilled row");
+    }
+
+    private static void check(boolean condition, String message) {
+        if (!condition) {
+            failures++;
+            System.out.println("FAIL: " + message);
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package com.bankapp.data;
+
+/**
+ * Kiểm thử chỉ mục mã giao dịch: mã dạng số và mã dạng khác không lẫn vào nhau.
+ */
+public class TransactionIdIndexTest {
+    private static int failures;
+
+    public static void main(String[] args) {
+        numericAndOtherIdsAreKeptApart();
+        if (failures > 0) {
+            System.out.println(failures + " check(s) failed");
+            System.exit(1);
+        }
+        System.out.println("TransactionIdIndexTest OK");
+    }
+
+    private static void numericAndOtherIdsAreKeptApart() {
+        TransactionIdIndex index = new TransactionIdIndex();
+        index.put("DEP-7", 1);
+        index.put("DEP-007", 2);
+        index.put("WDR-7", 3);
+        index.put("TRF-123456789012345678", 4);
+        index.put("TRF-1234567890123456789", 5);
+        index.put("TRF-81-D", 6);
+        index.put("dep-7", 7);
+
+        check(index.get("DEP-7") == 1, "numeric id");
+        check(index.get("DEP-007") == 2, "leading zeros do not collide");
+        check(index.get("WDR-7") == 3, "prefixes are separate");
+        check(index.get("TRF-123456789012345678") == 4, "18 digits");
+        check(index.get("TRF-1234567890123456789") == 5, "too long for a long falls back");
+        check(index.get("TRF-81-D") == 6, "transfer leg id");
+        check(index.get("dep-7") == 7, "lower-case prefix falls back");
+        check(index.get("DEP-8") == TransactionIdIndex.MISSING, "unknown id");
+
+        index.remove("DEP-7");
+        index.remove("TRF-81-D");
+        check(index.get("DEP-7") == TransactionIdIndex.MISSING, "numeric id removed");
+        check(index.get("TRF-81-D") == TransactionIdIndex.MISSING, "other id removed");
+        check(index.get("DEP-007") == 2, "neighbour kept");
+        index.clear();
+        check(index.get("WDR-7") == TransactionIdIndex.MISSING, "cleared");
+    }
+
+    private static void check(boolean condition, String message) {
+        if (!condition) {
+            failures++;
+            System.out.println("FAIL: " + message);
+        }
+    }
+}
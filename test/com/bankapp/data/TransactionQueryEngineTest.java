@@ -0,0 +1,92 @@
+package com.bankapp.data;
+
+import com.bankapp.model.Transaction;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Kiểm thử tìm kiếm theo khoảng thời gian của TransactionQueryEngine khi giao dịch
+ * được ghi sổ không theo thứ tự thời gian.
+ */
+public class TransactionQueryEngineTest {
+    private static int failures;
+
+    public static void main(String[] args) {
+        outOfOrderRowsAreStillFoundByTime();
+        timeRangeStaysIndexedAfterOutOfOrderPost();
+        trimmedLateRowsAreNotReturned();
+        if (failures > 0) {
+            System.out.println(failures + " check(s) failed");
+            System.exit(1);
+        }
+        System.out.println("TransactionQueryEngineTest OK");
+    }
+
+    private static void outOfOrderRowsAreStillFoundByTime() {
+        List<Transaction> rows = new ArrayList<>();
+        TransactionQueryEngine engine = new TransactionQueryEngine(rows);
+        long[] times = {100, 200, 150, 300, 120, 400};
+        for (long time : times) {
+            add(rows, engine, time);
+        }
+
+        List<Transaction> found = engine.execute(new TransactionQuery().between(110L, 210L));
+        check(ids(found).equals(List.of("T1", "T2", "T4")), "rows 110..210 in ledger order, got " + ids(found));
+
+        found = engine.execute(new TransactionQuery().between(100L, 130L));
+        check(ids(found).equals(List.of("T0", "T4")), "late row after the range is found, got " + ids(found));
+
+        found = engine.execute(new TransactionQuery().between(0L, 160L).limit(2));
+        check(ids(found).equals(List.of("T0", "T2")), "limit is applied in ledger order, got " + ids(found));
+    }
+
+    private static void timeRangeStaysIndexedAfterOutOfOrderPost() {
+        List<Transaction> rows = new ArrayList<>();
+        TransactionQueryEngine engine = new TransactionQueryEngine(rows);
+        add(rows, engine, 1000);
+        add(rows, engine, 999);
+        for (int i = 0; i < 10000; i++) {
+            add(rows, engine, 2000 + i);
+        }
+        TransactionQuery query = new TransactionQuery().between(5000L, 5009L);
+        check(engine.explain(query).startsWith("TIME (estimated rows: 10)"),
+                "time index still used after a late row, got " + engine.explain(query));
+        check(engine.execute(query).size() == 10, "ten rows in the window");
+    }
+
+    private static void trimmedLateRowsAreNotReturned() {
+        List<Transaction> rows = new ArrayList<>();
+        TransactionQueryEngine engine = new TransactionQueryEngine(rows);
+        add(rows, engine, 500);
+        add(rows, engine, 100);
+        add(rows, engine, 600);
+        rows.set(0, null);
+        rows.set(1, null);
+        engine.trimBefore(2);
+        List<Transaction> found = engine.execute(new TransactionQuery().between(0L, 1000L));
+        check(ids(found).equals(List.of("T2")), "compacted late row is gone, got " + ids(found));
+    }
+
+    private static void add(List<Transaction> rows, TransactionQueryEngine engine, long timestamp) {
+        int ordinal = rows.size();
+        Transaction transaction = new Transaction("T" + ordinal, "ACC1", null, 10, "DEPOSIT",
+                "row " + ordinal, timestamp, "SUCCESS", 10);
+        rows.add(transaction);
+        engine.index(ordinal, transaction);
+    }
+
+    private static List<String> ids(List<Transaction> transactions) {
+        List<String> ids = new ArrayList<>();
+        for (Transaction transaction : transactions) {
+            ids.add(transaction.getTransactionId());
+        }
+        return ids;
+    }
+
+    private static void check(boolean condition, String message) {
+        if (!condition) {
+            failures++;
+            System.out.println("FAIL: " + message);
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package com.bankapp.data;
+
+import com.bankapp.model.Account;
+import com.bankapp.model.CheckingAccount;
+import com.bankapp.model.Transaction;
+import com.bankapp.model.TransactionPeriodSummary;
+import java.lang.ref.WeakReference;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+
+/**
+ * Kiểm thử việc nén sổ cái: sau khi nén, giao dịch chi tiết không còn được giữ bởi sổ cái
+ * lẫn tài khoản sở hữu, còn bản ghi tổng hợp và các giao dịch mới vẫn tra cứu được; các ô tổng hợp
+ * theo ngày của những ngày đã nén hết bị loại bỏ.
+ */
+public class TransactionRepositoryTest {
+    private static final int ROWS = 10000;
+    private static int failures;
+
+    public static void main(String[] args) {
+        compactionReleasesLedgerAndAccountRows();
+        compactionEvictsRollupCells();
+        if (failures > 0) {
+            System.out.println(failures + " check(s) failed");
+            System.exit(1);
+        }
+        System.out.println("TransactionRepositoryTest OK");
+    }
+
+    private static void compactionReleasesLedgerAndAccountRows() {
+        TransactionRepository repository = new TransactionRepository();
+        Account account = new CheckingAccount("ACC2001", 0);
+        WeakReference<Transaction> first = null;
+        for (int i = 0; i < ROWS; i++) {
+            int postedBefore = account.getTransactionCount();
+            account.deposit(1, "salary " + i);
+            List<Transaction> posted = account.getTransactionsFrom(postedBefore);
+            if (i == 0) {
+                first = new WeakReference<>(posted.get(0));
+            }
+            repository.saveTransactions(account, postedBefore, posted);
+        }
+
+        // Every row posted so far is older than the horizon
+        repository.setRetentionPolicy(new RetentionPolicy(-60_000, ChronoUnit.MONTHS, null));
+        int compacted = 0;
+        int batch;
+        while ((batch = repository.compact(1000)) > 0) {
+            compacted += batch;
+        }
+        repository.setRetentionPolicy(null);
+
+        check(compacted == ROWS, "every row compacted, got " + compacted);
+        check(account.getTransactions().isEmpty(), "account released its compacted rows");
+        check(account.getTransactionCount() == ROWS, "account still counts its whole history");
+        for (int i = 0; i < 5 && first.get() != null; i++) {
+            System.gc();
+        }
+        check(first.get() == null, "compacted transaction is no longer reachable");
+        check(repository.getTransactionsByAccount(account.getAccountNumber()).isEmpty(), "no detail rows left");
+        check(repository.getTotalTransactionCount() == ROWS, "ordinals are never reused");
+
+        long summarized = 0;
+        for (TransactionPeriodSummary summary : repository.getPeriodSummaries(account.getAccountNumber())) {
+            summarized += summary.getTransactionCount();
+        }
+        check(summarized == ROWS, "period summaries cover the compacted rows");
+
+        // New rows after compaction are indexed and queryable as before
+        int postedBefore = account.getTransactionCount();
+        account.deposit(5, "after compaction");
+        repository.saveTransactions(account, postedBefore, account.getTransactionsFrom(postedBefore));
+        check(repository.query(new TransactionQuery().withType("DEPOSIT")).size() == 1, "only the new row remains");
+        check(repository.searchByTerm("compaction").size() == 1, "text index sees the new row");
+        long now = System.currentTimeMillis();
+        check(repository.query(new TransactionQuery().between(0, now + 1000)).size() == 1, "time index after trim");
+        check(account.getBalanceAt(now + 1000) == ROWS + 5, "balance after compaction");
+    }
+
+    private static void compactionEvictsRollupCells() {
+        TransactionRepository repository = new TransactionRepository();
+        long day = 24L * 60 * 60 * 1000;
+        long now = System.currentTimeMillis();
+        long[] timestamps = {now - 40 * day, now - 39 * day, now};
+        for (int i = 0; i < timestamps.length; i++) {
+            repository.saveTransaction("ACC2002", new Transaction("EV" + i, "ACC2002", null, 10, "DEPOSIT", "rollup",
+                    timestamps[i], "SUCCESS", 10 * (i + 1)));
+        }
+        TransactionRollups rollups = repository.getRollups();
+        int cellsBefore = rollups.getAccountCellCount();
+        repository.setRetentionPolicy(new RetentionPolicy(10 * day, ChronoUnit.DAYS, null));
+        check(repository.compact(1000) == 2, "the two old rows are compacted");
+        repository.setRetentionPolicy(null);
+
+        // Compacted through day -39: every earlier day is summarized, day -39 itself may still receive rows
+        check(rollups.getDailyTotals("ACC2002", "DEPOSIT", dayOf(timestamps[0])).getCount() == 0,
+                "cell of a fully compacted day evicted");
+        check(rollups.getDailyTotals("ACC2002", "DEPOSIT", dayOf(timestamps[1])).getCount() == 1,
+                "cell of the last compacted day kept");
+        check(rollups.getDailyTotals("ACC2002", "DEPOSIT", dayOf(now)).getCount() == 1, "live day untouched");
+        check(rollups.getAccountCellCount() < cellsBefore, "cells evicted: " + cellsBefore + " -> "
+                + rollups.getAccountCellCount());
+        check(rollups.getBankTotals("DEPOSIT").getCount() == 3, "bank-wide totals keep every row");
+    }
+
+    private static LocalDate dayOf(long timestamp) {
+        return Instant.ofEpochMilli(timestamp).atZone(ZoneId.systemDefault()).toLocalDate();
+    }
+
+    private static void check(boolean condition, String message) {
+        if (!condition) {
+            failures++;
+            System.out.println("FAIL: " + message);
+        }
+    }
+}
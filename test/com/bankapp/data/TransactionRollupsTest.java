@@ -0,0 +1,111 @@
+package com.bankapp.data;
+
+import com.bankapp.model.Transaction;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+
+/**
+ * Kiểm thử số liệu tổng hợp giao dịch: cộng dồn theo ngày, tháng và toàn ngân hàng theo múi giờ đã chọn,
+ * chuyển khoản chỉ tính một lần vào tổng tiền luân chuyển, và việc ghi đồng thời từ nhiều luồng
+ * không làm mất lượt cộng nào.
+ */
+public class TransactionRollupsTest {
+    private static final ZoneId ZONE = ZoneId.of("Asia/Ho_Chi_Minh"); // UTC+7, no daylight saving
+    private static int failures;
+
+    public static void main(String[] args) throws InterruptedException {
+        totalsFollowTheConfiguredZone();
+        transfersCountOnceInVolume();
+        concurrentRecordsAreNotLost();
+        if (failures > 0) {
+            System.out.println(failures + " check(s) failed");
+            System.exit(1);
+        }
+        System.out.println("TransactionRollupsTest OK");
+    }
+
+    private static void totalsFollowTheConfiguredZone() {
+        TransactionRollups rollups = new TransactionRollups(ZONE);
+        // Both instants fall on different local days even though they are an hour apart
+        long lateJanuary = ZonedDateTime.of(2024, 1, 31, 23, 30, 0, 0, ZONE).toInstant().toEpochMilli();
+        long earlyFebruary = ZonedDateTime.of(2024, 2, 1, 0, 30, 0, 0, ZONE).toInstant().toEpochMilli();
+        rollups.record("ACC1", transaction("ACC1", "DEPOSIT", 100, lateJanuary));
+        rollups.record("ACC1", transaction("ACC1", "DEPOSIT", 50, earlyFebruary));
+        rollups.record("ACC1", transaction("ACC1", "WITHDRAWAL", 20, earlyFebruary));
+        rollups.record("ACC2", transaction("ACC2", "DEPOSIT", 7, earlyFebruary));
+
+        TransactionRollups.Totals january31 = rollups.getDailyTotals("ACC1", "DEPOSIT", LocalDate.of(2024, 1, 31));
+        TransactionRollups.Totals february1 = rollups.getDailyTotals("ACC1", "DEPOSIT", LocalDate.of(2024, 2, 1));
+        check(january31.getCount() == 1 && january31.getSum() == 100, "late-night deposit stays on 31 January");
+        check(february1.getCount() == 1 && february1.getSum() == 50, "after midnight counts on 1 February");
+        check(rollups.getMonthlyTotals("ACC1", "DEPOSIT", YearMonth.of(2024, 1)).getSum() == 100
+                && rollups.getMonthlyTotals("ACC1", "DEPOSIT", YearMonth.of(2024, 2)).getSum() == 50,
+                "monthly totals split at the local month boundary");
+        check(rollups.getMonthlyTotals("ACC1", "WITHDRAWAL", YearMonth.of(2024, 2)).getCount() == 1,
+                "types are kept apart");
+        check(rollups.getDailyTotals("ACC2", "DEPOSIT", LocalDate.of(2024, 2, 1)).getSum() == 7,
+                "accounts are kept apart");
+        check(rollups.getDailyTotals("ACC3", "DEPOSIT", LocalDate.of(2024, 2, 1)).getCount() == 0,
+                "unknown account reads as zero");
+
+        TransactionRollups.Totals bankDeposits = rollups.getBankTotals("DEPOSIT");
+        check(bankDeposits.getCount() == 3 && bankDeposits.getSum() == 157, "bank-wide deposits " + bankDeposits);
+        check(rollups.getTransactionTypes().toString().equals("[DEPOSIT, WITHDRAWAL]"), "types listed in order");
+
+        rollups.clear();
+        check(rollups.getTotalTransactionCount() == 0 && rollups.getTransactionTypes().isEmpty()
+                && rollups.getAccountCellCount() == 0, "clear resets every counter");
+    }
+
+    private static void transfersCountOnceInVolume() {
+        TransactionRollups rollups = new TransactionRollups(ZONE);
+        long now = System.currentTimeMillis();
+        rollups.record("ACC1", transaction("ACC1", "TRANSFER_OUT", 40, now));
+        rollups.record("ACC2", transaction("ACC2", "TRANSFER_IN", 40, now));
+        rollups.record("ACC1", transaction("ACC1", "DEPOSIT", 10, now));
+        check(rollups.getTotalTransactionCount() == 3, "both transfer legs are counted as transactions");
+        check(rollups.getTotalVolume() == 50, "transfer counted once in volume, got " + rollups.getTotalVolume());
+    }
+
+    private static void concurrentRecordsAreNotLost() throws InterruptedException {
+        TransactionRollups rollups = new TransactionRollups(ZONE);
+        long now = System.currentTimeMillis();
+        int threads = 4;
+        int perThread = 20_000;
+        Thread[] writers = new Thread[threads];
+        for (int t = 0; t < threads; t++) {
+            writers[t] = new Thread(() -> {
+                for (int i = 0; i < perThread; i++) {
+                    // Every thread hits the same cells, including the first write that creates them
+                    rollups.record("ACC" + (i % 3), transaction("ACC" + (i % 3), "DEPOSIT", 1, now));
+                }
+            });
+            writers[t].start();
+        }
+        for (Thread writer : writers) {
+            writer.join();
+        }
+        LocalDate today = java.time.Instant.ofEpochMilli(now).atZone(ZONE).toLocalDate();
+        long perAccount = 0;
+        for (int a = 0; a < 3; a++) {
+            perAccount += rollups.getDailyTotals("ACC" + a, "DEPOSIT", today).getCount();
+        }
+        check(perAccount == (long) threads * perThread, "every concurrent record counted per account: " + perAccount);
+        check(rollups.getBankTotals("DEPOSIT").getSum() == threads * perThread, "bank sum exact under concurrency");
+        check(rollups.getAccountCellCount() == 6, "one day and one month cell per account");
+    }
+
+    private static Transaction transaction(String accountNumber, String type, double amount, long timestamp) {
+        return new Transaction("RL-" + System.nanoTime(), accountNumber, null, amount, type, "rollup",
+                timestamp, "SUCCESS", 0);
+    }
+
+    private static void check(boolean condition, String message) {
+        if (!condition) {
+            failures++;
+            System.out.println("FAIL: " + message);
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package com.bankapp.data;
+
+import com.bankapp.model.Transaction;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Kiểm thử mã hóa / giải mã segment: mọi trường, kể cả null và các giá trị biên,
+ * phải được khôi phục nguyên văn.
+ */
+public class TransactionSegmentCodecTest {
+    private static int failures;
+
+    public static void main(String[] args) throws IOException {
+        nullFieldsRoundTrip();
+        edgeValuesRoundTrip();
+        identifiersRoundTrip();
+        blocksAreDecodedIndependently();
+        garbageIsRejected();
+        if (failures > 0) {
+            System.out.println(failures + " check(s) failed");
+            System.exit(1);
+        }
+        System.out.println("TransactionSegmentCodecTest OK");
+    }
+
+    private static void nullFieldsRoundTrip() throws IOException {
+        List<Transaction> rows = List.of(
+                new Transaction(null, "ACC1", null, 10, "DEPOSIT", "cash", 1000, "SUCCESS", 10),
+                new Transaction("", "ACC1", null, 5, "WITHDRAWAL", "", 1001, "SUCCESS", 5),
+                new Transaction(null, null, null, 1, null, null, 1002, null, 6),
+                new Transaction("DEP-1", null, "ACC2", 1, "FEE", null, 1003, "REVERSED", 7));
+        assertRoundTrip(rows, "null fields");
+        List<Transaction> decoded = TransactionSegmentCodec.decode(TransactionSegmentCodec.encode(rows));
+        check(decoded.get(0).getTransactionId() == null, "null id stays null");
+        check("".equals(decoded.get(1).getTransactionId()), "empty id stays empty");
+    }
+
+    private static void edgeValuesRoundTrip() throws IOException {
+        double[] values = {
+                0.0, -0.0, 0.01, -0.01, 0.1 + 0.2, 1e-300, Double.MIN_VALUE, -Double.MIN_VALUE,
+                8.9e13, 9.0e13, Double.MAX_VALUE, -Double.MAX_VALUE,
+                Double.NaN, Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY
+        };
+        long[] timestamps = {0, -1, Long.MIN_VALUE, Long.MAX_VALUE, 1, -86_400_000L, 1_700_000_000_000L};
+        List<Transaction> rows = new ArrayList<>();
+        double balance = 0;
+        for (int i = 0; i < values.length * timestamps.length; i++) {
+            double amount = values[i % values.length];
+            long timestamp = timestamps[i % timestamps.length];
+            String type = i % 2 == 0 ? "DEPOSIT" : "WITHDRAWAL";
+            // Alternate between balances the codec can predict and arbitrary ones
+            balance = i % 3 == 0 ? values[(i * 7) % values.length]
+                    : type.equals("DEPOSIT") ? balance + amount : balance - amount;
+            rows.add(new Transaction("TXN-" + i, "ACC1", null, amount, type, "row " + i,
+                    timestamp, "SUCCESS", balance));
+        }
+        assertRoundTrip(rows, "edge values");
+    }
+
+    private static void identifiersRoundTrip() throws IOException {
+        List<Transaction> rows = new ArrayList<>();
+        String[] ids = {
+                "DEP-0", "DEP-007", "DEP-999999999999999999", "DEP-1000000000000000000",
+                "TRF-81-D", "TRF-81-C", "12345", "ĐẶT-٣", "DEP-9", "DEP-3", "x"
+        };
+        for (int i = 0; i < ids.length; i++) {
+            rows.add(new Transaction(ids[i], "ACC1", "ACC2", 1, "TRANSFER_OUT", "Chuyển khoản " + i,
+                    1000 + i, "SUCCESS", -i));
+        }
+        assertRoundTrip(rows, "identifiers");
+    }
+
+    private static void blocksAreDecodedIndependently() throws IOException {
+        List<Transaction> rows = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            rows.add(new Transaction("DEP-" + (5000 + i), "ACC1", null, 1, "DEPOSIT", "d",
+                    10_000 + i * 10L, "SUCCESS", i + 1));
+        }
+        byte[] data = TransactionSegmentCodec.encode(rows);
+        assertRoundTrip(rows, "multiple blocks");
+
+        List<Transaction> block = TransactionSegmentCodec.decodeBlockAt(data, 10_000 + 70 * 10L);
+        check(!block.isEmpty() && block.get(0).getTransactionId().equals("DEP-5064"), "second block starts at row 64");
+        check(block.size() == 64 && block.get(63).getBalanceAfter() == 128, "block decodes its balances alone");
+        check(TransactionSegmentCodec.decodeBlockAt(data, 9_999).isEmpty(), "nothing before the first block");
+        check(TransactionSegmentCodec.decode(TransactionSegmentCodec.encode(List.of())).isEmpty(), "empty segment");
+    }
+
+    private static void garbageIsRejected() {
+        byte[] data = TransactionSegmentCodec.encode(List.of(
+                new Transaction("DEP-1", "ACC1", null, 1, "DEPOSIT", "d", 1, "SUCCESS", 1)));
+        byte[] truncated = java.util.Arrays.copyOf(data, data.length - 3);
+        check(throwsIOException(truncated), "truncated segment is rejected");
+        check(throwsIOException(new byte[]{1, 2, 3, 4, 5}), "wrong magic is rejected");
+    }
+
+    private static boolean throwsIOException(byte[] data) {
+        try {
+            TransactionSegmentCodec.decode(data);
+            return false;
+        } catch (IOException e) {
+            return true;
+        }
+    }
+
+    private static void assertRoundTrip(List<Transaction> rows, String label) throws IOException {
+        List<Transaction> decoded = TransactionSegmentCodec.decode(TransactionSegmentCodec.encode(rows));
+        check(decoded.size() == rows.size(), label + ": row count");
+        for (int i = 0; i < Math.min(rows.size(), decoded.size()); i++) {
+            Transaction expected = rows.get(i);
+            Transaction actual = decoded.get(i);
+            boolean same = Objects.equals(expected.getTransactionId(), actual.getTransactionId())
+                    && Objects.equals(expected.getFromAccountNumber(), actual.getFromAccountNumber())
+                    && Objects.equals(expected.getToAccountNumber(), actual.getToAccountNumber())
+                    && Objects.equals(expected.getType(), actual.getType())
+                    && Objects.equals(expected.getDescription(), actual.getDescription())
+                    && Objects.equals(expected.getStatus(), actual.getStatus())
+                    && expected.getTimestamp() == actual.getTimestamp()
+                    && Double.doubleToRawLongBits(expected.getAmount()) == Double.doubleToRawLongBits(actual.getAmount())
+                    && Double.doubleToRawLongBits(expected.getBalanceAfter())
+                    == Double.doubleToRawLongBits(actual.getBalanceAfter());
+            check(same, label + ": row " + i + " expected " + expected + " got " + actual);
+        }
+    }
+
+    private static void check(boolean condition, String message) {
+        if (!condition) {
+            failures++;
+            System.out.println("FAIL: " + message);
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package com.bankapp.data;
+
+import com.bankapp.model.Transaction;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Kiểm thử chỉ mục văn bản trên mô tả giao dịch: tìm theo cụm từ phải đúng thứ tự và liền nhau,
+ * tìm theo tiền tố gộp nhiều từ mà không trùng kết quả, danh sách vị trí nén vẫn đúng với khoảng cách
+ * lớn giữa các ordinal, và trimBefore bỏ các vị trí đã bị nén khỏi sổ cái.
+ */
+public class TransactionTextIndexTest {
+    private static int failures;
+
+    public static void main(String[] args) {
+        phraseSearchNeedsAdjacentTermsInOrder();
+        prefixSearchMergesTermsWithoutDuplicates();
+        postingsSurviveLargeGapsAndTrim();
+        if (failures > 0) {
+            System.out.println(failures + " check(s) failed");
+            System.exit(1);
+        }
+        System.out.println("TransactionTextIndexTest OK");
+    }
+
+    private static void phraseSearchNeedsAdjacentTermsInOrder() {
+        List<Transaction> rows = new ArrayList<>();
+        TransactionTextIndex index = new TransactionTextIndex(rows);
+        add(rows, index, "Paid invoice 4411 today");   // 0: match
+        add(rows, index, "4411 invoice reversed");     // 1: both terms, wrong order
+        add(rows, index, "Invoice-4411, second copy"); // 2: match after case folding and punctuation
+        add(rows, index, "invoice for order 4411");    // 3: both terms, not adjacent
+        add(rows, index, "invoice 44110");             // 4: different term
+
+        check(Arrays.equals(index.searchPhrase("invoice 4411"), new int[] {0, 2}),
+                "phrase matches only adjacent terms in order: " + Arrays.toString(index.searchPhrase("invoice 4411")));
+        check(Arrays.equals(index.searchPhrase("INVOICE   4411"), new int[] {0, 2}), "phrase is case-insensitive");
+        check(Arrays.equals(index.searchTerm("invoice 4411"), new int[] {0, 2}), "multi-word term searches the phrase");
+        check(index.searchPhrase("invoice 9999").length == 0, "unknown term gives no match");
+        check(index.searchPhrase("  ,, ").length == 0, "blank phrase gives no match");
+
+        // A compacted row is null in the ledger and must be skipped by the order check
+        rows.set(0, null);
+        check(Arrays.equals(index.searchPhrase("invoice 4411"), new int[] {2}), "compacted row skipped");
+    }
+
+    private static void prefixSearchMergesTermsWithoutDuplicates() {
+        List<Transaction> rows = new ArrayList<>();
+        TransactionTextIndex index = new TransactionTextIndex(rows);
+        add(rows, index, "investment top-up");    // 0
+        add(rows, index, "invoice and invoices"); // 1: two matching terms in one row
+        add(rows, index, "salary");               // 2
+        add(rows, index, "Inventory check");      // 3
+
+        check(Arrays.equals(index.searchPrefix("inv"), new int[] {0, 1, 3}),
+                "prefix merges terms in ordinal order: " + Arrays.toString(index.searchPrefix("inv")));
+        check(Arrays.equals(index.searchPrefix("invoice"), new int[] {1}), "row listed once per prefix match");
+        check(index.searchPrefix("sal ary").length == 0, "prefix with two words rejected");
+        check(index.searchPrefix("zzz").length == 0, "prefix without terms");
+        check(Arrays.equals(index.searchTerm("invoice"), new int[] {1}), "exact term does not match by prefix");
+    }
+
+    private static void postingsSurviveLargeGapsAndTrim() {
+        List<Transaction> rows = new ArrayList<>();
+        TransactionTextIndex index = new TransactionTextIndex(rows);
+        List<Integer> expected = new ArrayList<>();
+        for (int ordinal = 0; ordinal < 40_000; ordinal++) {
+            // Gaps of 1, 200 and 20000 need one, two and three varint bytes
+            boolean tagged = ordinal == 0 || ordinal == 1 || ordinal == 201 || ordinal == 20_201 || ordinal == 39_999;
+            add(rows, index, tagged ? "rent rent payment" : "misc " + ordinal);
+            if (tagged) {
+                expected.add(ordinal);
+            }
+        }
+        int[] found = index.searchTerm("rent");
+        check(Arrays.equals(found, expected.stream().mapToInt(Integer::intValue).toArray()),
+                "postings decode across varint widths: " + Arrays.toString(found));
+
+        int termsBefore = index.getTermCount();
+        index.trimBefore(20_000);
+        check(Arrays.equals(index.searchTerm("rent"), new int[] {20_201, 39_999}), "trim drops earlier ordinals");
+        check(index.searchTerm("100").length == 0, "terms only before the mark are trimmed");
+        check(index.getTermCount() < termsBefore, "dictionary shrinks after trim");
+        check(Arrays.equals(index.searchPhrase("rent payment"), new int[] {20_201, 39_999}), "phrase after trim");
+    }
+
+    private static void add(List<Transaction> rows, TransactionTextIndex index, String description) {
+        Transaction transaction = new Transaction("TXT" + rows.size(), "ACC1", null, 1, "DEPOSIT", description);
+        index.index(rows.size(), transaction);
+        rows.add(transaction);
+    }
+
+    private static void check(boolean condition, String message) {
+        if (!condition) {
+            failures++;
+            System.out.println("FAIL: " + message);
+        }
+    }
+}
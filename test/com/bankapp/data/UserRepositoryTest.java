@@ -0,0 +1,82 @@
+package com.bankapp.data;
+
+import com.bankapp.model.User;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Kiểm thử đăng ký đồng thời: cùng một tên đăng nhập chỉ được lưu một lần, và chỉ mục tên đăng nhập
+ * luôn khớp với bảng người dùng, cả khi người dùng nằm trên heap lẫn ngoài heap.
+ */
+public class UserRepositoryTest {
+    private static final int THREADS = 8;
+    private static final int USERNAMES = 2000;
+    private static int failures;
+
+    public static void main(String[] args) throws InterruptedException {
+        concurrentRegistrationsKeepUsernamesUnique(new UserRepository(), "heap");
+        concurrentRegistrationsKeepUsernamesUnique(new UserRepository(new OffHeapUserDirectory()), "off-heap");
+        if (failures > 0) {
+            System.out.println(failures + " check(s) failed");
+            System.exit(1);
+        }
+        System.out.println("UserRepositoryTest OK");
+    }
+
+    private static void concurrentRegistrationsKeepUsernamesUnique(UserRepository repository, String label)
+            throws InterruptedException {
+        AtomicInteger saved = new AtomicInteger();
+        AtomicInteger ids = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            threads.add(new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int i = 0; i < USERNAMES; i++) {
+                    String username = "user" + i;
+                    // Same check-then-save sequence as AuthService.register
+                    if (!repository.usernameExists(username)) {
+                        User user = new User("USR" + ids.incrementAndGet(), username, "hash", "Name", "a@b.c");
+                        if (repository.save(user)) {
+                            saved.incrementAndGet();
+                        }
+                    }
+                }
+            }));
+        }
+        threads.forEach(Thread::start);
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        check(saved.get() == USERNAMES, label + ": each username saved once, got " + saved.get());
+        check(repository.getUserCount() == USERNAMES, label + ": user count, got " + repository.getUserCount());
+        int consistent = 0;
+        for (int i = 0; i < USERNAMES; i++) {
+            User user = repository.findByUsername("user" + i);
+            if (user != null && repository.findById(user.getUserId()) != null) {
+                consistent++;
+            }
+        }
+        check(consistent == USERNAMES, label + ": username index matches the users, got " + consistent);
+
+        User first = repository.findByUsername("user0");
+        check(repository.delete(first.getUserId()) && !repository.usernameExists("user0"), label + ": delete frees the name");
+        check(repository.save(new User("USR-NEW", "user0", "hash", "Name", "a@b.c")), label + ": freed name is reusable");
+        check(!repository.save(new User("USR-OTHER", "user1", "hash", "Name", "a@b.c")), label + ": taken name is refused");
+    }
+
+    private static void check(boolean condition, String message) {
+        if (!condition) {
+            failures++;
+            System.out.println("FAIL: " + message);
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package com.bankapp.model;
+
+import com.bankapp.data.TieredTransactionStore;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Kiểm thử tra cứu số dư tại một thời điểm: kết quả dùng mốc số dư phải khớp với việc cộng dồn lại
+ * từ đầu ở mọi thời điểm (kể cả giữa hai giao dịch và quanh các mốc), phần lịch sử đã lưu trữ trả về NaN
+ * trong khi phần còn trong bộ nhớ vẫn đúng, và kho lưu trữ trả lời đúng cho phần NaN đó.
+ */
+public class AccountBalanceAtTest {
+    private static final int TRANSACTIONS = 300; // Several checkpoints at one per 64 transactions
+    private static final long STEP = 10;
+    private static int failures;
+
+    public static void main(String[] args) throws IOException {
+        Path directory = Files.createTempDirectory("bankapp-balance-at-test");
+        try {
+            checkpointsAgreeWithFullReplay();
+            archivedHistoryIsNaNAndStoreAnswersIt(directory);
+        } finally {
+            try (Stream<Path> files = Files.walk(directory)) {
+                files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+            }
+        }
+        if (failures > 0) {
+            System.out.println(failures + " check(s) failed");
+            System.exit(1);
+        }
+        System.out.println("AccountBalanceAtTest OK");
+    }
+
+    private static void checkpointsAgreeWithFullReplay() {
+        Account account = new CheckingAccount("ACC2001", 500);
+        List<Transaction> posted = post(account, TRANSACTIONS);
+
+        check(account.getBalanceCheckpoints().size() == TRANSACTIONS / 64, "one checkpoint per 64 transactions");
+        check(account.getBalanceAt(account.getCreatedAt() - 1) == 0.0, "zero before the account was opened");
+        check(account.getBalanceAt(posted.get(0).getTimestamp() - 1) == 500.0, "opening balance before the first row");
+        int mismatches = 0;
+        for (int i = 0; i < TRANSACTIONS; i++) {
+            long timestamp = posted.get(i).getTimestamp();
+            double expected = replay(500, posted, timestamp);
+            // Probe each row and the gap right after it, which falls between two rows
+            if (account.getBalanceAt(timestamp) != expected || account.getBalanceAt(timestamp + STEP / 2) != expected) {
+                mismatches++;
+            }
+        }
+        check(mismatches == 0, "checkpoint lookup matches full replay, mismatches: " + mismatches);
+        check(account.getBalanceAt(Long.MAX_VALUE) == account.getBalance(), "far future is the current balance");
+    }
+
+    private static void archivedHistoryIsNaNAndStoreAnswersIt(Path directory) {
+        TieredTransactionStore store = new TieredTransactionStore(directory, 20, 0, 2);
+        Account account = new CheckingAccount("ACC2002", 500);
+        List<Transaction> posted = post(account, TRANSACTIONS);
+        check(store.spillBeyondHotLimit(account), "old rows were written to a segment");
+        int archived = account.getArchivedTransactionCount();
+        check(archived == TRANSACTIONS - 20, "only the hot limit stays in memory, archived " + archived);
+
+        long archivedTimestamp = posted.get(archived / 2).getTimestamp();
+        check(Double.isNaN(account.getBalanceAt(archivedTimestamp)), "archived part reads as NaN");
+        check(Double.isNaN(account.getBalanceAt(posted.get(0).getTimestamp() - 1)),
+                "before the first row is unknown once rows are archived");
+        check(account.getBalanceAt(account.getCreatedAt() - 1) == 0.0, "before opening is still zero");
+
+        int hotMismatches = 0;
+        int coldMismatches = 0;
+        for (int i = 0; i < TRANSACTIONS; i++) {
+            long timestamp = posted.get(i).getTimestamp() + STEP / 2;
+            double expected = replay(500, posted, timestamp);
+            if (i >= archived) {
+                // Checkpoint indexes span the whole history and must map onto the in-memory tail
+                if (account.getBalanceAt(timestamp) != expected) {
+                    hotMismatches++;
+                }
+            } else if (store.getBalanceAt(account, timestamp) != expected) {
+                coldMismatches++;
+            }
+        }
+        check(hotMismatches == 0, "in-memory tail still exact after archiving, mismatches: " + hotMismatches);
+        check(coldMismatches == 0, "store answers the archived part, mismatches: " + coldMismatches);
+    }
+
+    /**
+     * Ghi các giao dịch nạp / rút với thời điểm cách đều nhau sau thời điểm mở tài khoản.
+     */
+    private static List<Transaction> post(Account account, int count) {
+        List<Transaction> posted = new ArrayList<>();
+        long base = account.getCreatedAt() + 1000;
+        for (int i = 0; i < count; i++) {
+            boolean withdrawal = i % 3 == 2;
+            double amount = (i % 7) + 1;
+            account.balance += withdrawal ? -amount : amount;
+            Transaction transaction = new Transaction("BAT-" + account.getAccountNumber() + "-" + i,
+                    account.getAccountNumber(), null, amount, withdrawal ? "WITHDRAWAL" : "DEPOSIT",
+                    "row " + i, base + i * STEP, "SUCCESS", 0);
+            account.recordTransaction(transaction);
+            posted.add(transaction);
+        }
+        return posted;
+    }
+
+    private static double replay(double opening, List<Transaction> posted, long timestamp) {
+        double balance = opening;
+        for (Transaction transaction : posted) {
+            if (transaction.getTimestamp() > timestamp) {
+                break;
+            }
+            balance += "WITHDRAWAL".equals(transaction.getType()) ? -transaction.getAmount() : transaction.getAmount();
+        }
+        return balance;
+    }
+
+    private static void check(boolean condition, String message) {
+        if (!condition) {
+            failures++;
+            System.out.println("FAIL: " + message);
+        }
+    }
+}
@@ -0,0 +1,236 @@
+package com.bankapp.model;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Kiểm thử tải cho quan hệ người dùng - tài khoản: nhiều luồng cùng mở tài khoản (kể cả trùng số)
+ * trong khi các luồng khác đọc bản chụp, và số lượng lớn tài khoản được thêm trong thời gian tuyến tính.
+ * Tổng số dư cập nhật dần (toàn bộ và theo loại) phải luôn khớp với việc cộng lại số dư các tài khoản,
+ * kể cả khi gỡ tài khoản, khi tài khoản được nạp lại thành đối tượng mới và khi nhiều luồng cùng giao dịch.
+ */
+public class UserTest {
+    private static final int THREADS = 8;
+    private static final int ACCOUNTS_PER_THREAD = 5000;
+    private static int failures;
+
+    public static void main(String[] args) throws InterruptedException {
+        concurrentOpensAreAllVisibleExactlyOnce();
+        snapshotsStayStableAcrossAppendsAndRemovals();
+        manyOpensTakeLinearTime();
+        balanceAggregatesFollowAccountEvents();
+        reloadedAccountIsReconciled();
+        concurrentBalanceChangesAreAllFolded();
+        if (failures > 0) {
+            System.out.println(failures + " check(s) failed");
+            System.exit(1);
+        }
+        System.out.println("UserTest OK");
+    }
+
+    private static void concurrentOpensAreAllVisibleExactlyOnce() throws InterruptedException {
+        User user = new User("USR1", "alice", "hash", "Alice", "alice@example.com");
+        Map<String, Account> opened = new ConcurrentHashMap<>();
+        user.setAccountResolver(opened::get);
+        AtomicInteger added = new AtomicInteger();
+        AtomicBoolean writing = new AtomicBoolean(true);
+        AtomicInteger readerErrors = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            int thread = t;
+            threads.add(new Thread(() -> {
+                await(start);
+                for (int i = 0; i < ACCOUNTS_PER_THREAD; i++) {
+                    // Threads 2k and 2k+1 race on the same account numbers
+                    String number = String.format("ACC%d-%05d", thread / 2, i);
+                    Account account = i % 3 == 0 ? new SavingsAccount(number, 1, 0.01) : new CheckingAccount(number, 1);
+                    opened.putIfAbsent(number, account);
+                    if (user.addAccount(opened.get(number))) {
+                        added.incrementAndGet();
+                    }
+                }
+            }));
+        }
+        Thread reader = new Thread(() -> {
+            await(start);
+            int lastSize = 0;
+            while (writing.get()) {
+                List<String> snapshot = user.getAccountNumbers();
+                Set<String> seen = new HashSet<>();
+                for (String number : snapshot) {
+                    if (number == null || !seen.add(number)) {
+                        readerErrors.incrementAndGet();
+                    }
+                }
+                if (snapshot.size() < lastSize) {
+                    readerErrors.incrementAndGet();
+                }
+                lastSize = snapshot.size();
+            }
+        });
+        reader.start();
+        threads.forEach(Thread::start);
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        writing.set(false);
+        reader.join();
+
+        int expected = THREADS / 2 * ACCOUNTS_PER_THREAD;
+        check(added.get() == expected, "each account number added once, got " + added.get());
+        check(user.getAccountCount() == expected, "membership count");
+        check(user.getAccountNumbers().size() == expected, "snapshot size");
+        check(new HashSet<>(user.getAccountNumbers()).size() == expected, "snapshot has no duplicates");
+        check(user.getAccountCount("SAVINGS") + user.getAccountCount("CHECKING") == expected, "per-type snapshots");
+        check(user.getTotalBalance() == expected, "totals, got " + user.getTotalBalance());
+        check(user.getAccounts().size() == expected, "every number resolves");
+        check(readerErrors.get() == 0, "readers never saw a torn or shrinking snapshot");
+    }
+
+    private static void snapshotsStayStableAcrossAppendsAndRemovals() {
+        User user = new User("USR2", "bob", "hash", "Bob", "bob@example.com");
+        user.addAccount(new CheckingAccount("A1", 0));
+        user.addAccount(new CheckingAccount("A2", 0));
+        List<String> before = user.getAccountNumbers();
+        user.removeAccount("A2");
+        List<String> afterRemove = user.getAccountNumbers();
+        user.addAccount(new CheckingAccount("A3", 0));
+        user.addAccounts(List.of(new CheckingAccount("A4", 0), new CheckingAccount("A5", 0)));
+        check(before.equals(List.of("A1", "A2")), "old snapshot unchanged, got " + before);
+        check(afterRemove.equals(List.of("A1")), "snapshot after removal unchanged, got " + afterRemove);
+        check(user.getAccountNumbers().equals(List.of("A1", "A3", "A4", "A5")), "current snapshot");
+        check(!user.addAccounts(List.of(new CheckingAccount("A6", 0), new CheckingAccount("A1", 0))),
+                "batch with an existing account is rejected");
+        check(user.getAccountCount() == 4 && user.getAccountCount("CHECKING") == 4, "rejected batch adds nothing");
+    }
+
+    private static void manyOpensTakeLinearTime() {
+        User user = new User("USR3", "carol", "hash", "Carol", "carol@example.com");
+        int count = 200_000;
+        long start = System.nanoTime();
+        for (int i = 0; i < count; i++) {
+            user.addAccount(new CheckingAccount("C" + i, 0));
+        }
+        long millis = (System.nanoTime() - start) / 1_000_000;
+        // Copying the snapshot on every add would take minutes at this size
+        check(millis < 10_000, count + " opens took " + millis + " ms");
+        check(user.getAccountCount() == count, "all opens recorded");
+    }
+
+    private static void balanceAggregatesFollowAccountEvents() {
+        User user = new User("USR4", "dave", "hash", "Dave", "dave@example.com");
+        CheckingAccount checking = new CheckingAccount("D1", 100);
+        SavingsAccount savings = new SavingsAccount("D2", 1000, 0.02);
+        CheckingAccount second = new CheckingAccount("D3", 50);
+        user.addAccount(checking);
+        user.addAccounts(List.of(savings, second));
+        check(user.getTotalBalance() == 1150 && user.getBalanceByType("CHECKING") == 150
+                && user.getBalanceByType("SAVINGS") == 1000, "opening balances folded in");
+
+        checking.deposit(25, "salary");
+        savings.withdraw(200, "rent");
+        checking.withdraw(500, "declined"); // No overdraft, so this is refused and nothing changes
+        // A transfer between two accounts of the same user moves money but keeps the total
+        second.transfer(30, "D1");
+        checking.receiveTransfer(30, "D3");
+        check(user.getTotalBalance() == sumOfBalances(checking, savings, second),
+                "total follows deposits, withdrawals and transfers, got " + user.getTotalBalance());
+        check(user.getBalanceByType("CHECKING") == checking.getBalance() + second.getBalance(),
+                "checking subtotal, got " + user.getBalanceByType("CHECKING"));
+        check(user.getBalanceByType("SAVINGS") == savings.getBalance(), "savings subtotal");
+
+        check(user.removeAccount("D2"), "savings account removed");
+        check(user.getBalanceByType("SAVINGS") == 0 && user.getAccountCount("SAVINGS") == 0, "type dropped");
+        savings.deposit(999, "after removal");
+        check(user.getTotalBalance() == checking.getBalance() + second.getBalance(),
+                "removed account no longer counted, got " + user.getTotalBalance());
+        user.removeAccount("D3");
+        check(user.getBalanceByType("CHECKING") == checking.getBalance(), "subtotal after removing one of a type");
+        check(!user.removeAccount("D3"), "second removal is rejected");
+    }
+
+    private static void reloadedAccountIsReconciled() {
+        User user = new User("USR5", "erin", "hash", "Erin", "erin@example.com");
+        Map<String, Account> store = new ConcurrentHashMap<>();
+        user.setAccountResolver(store::get);
+        CheckingAccount original = new CheckingAccount("E1", 100);
+        store.put("E1", original);
+        user.addAccount(original);
+
+        // The cached instance was evicted and changed on disk; a fresh object comes back with a newer balance
+        CheckingAccount reloaded = new CheckingAccount("E1", 180);
+        store.put("E1", reloaded);
+        check(user.getAccountByNumber("E1") == reloaded, "resolver returns the reloaded account");
+        check(user.getTotalBalance() == 180, "attach reconciles the missed change, got " + user.getTotalBalance());
+        reloaded.deposit(20, "after reload");
+        check(user.getTotalBalance() == 200, "listener registered on the reloaded object");
+        user.attachAccount(reloaded);
+        check(user.getTotalBalance() == 200, "attaching twice does not double count");
+        user.attachAccount(new CheckingAccount("X9", 500));
+        check(user.getTotalBalance() == 200, "foreign account ignored");
+    }
+
+    private static void concurrentBalanceChangesAreAllFolded() throws InterruptedException {
+        User user = new User("USR6", "frank", "hash", "Frank", "frank@example.com");
+        List<Account> owned = new ArrayList<>();
+        for (int i = 0; i < THREADS; i++) {
+            Account account = i % 2 == 0 ? new CheckingAccount("F" + i, 0) : new SavingsAccount("F" + i, 0, 0.01);
+            owned.add(account);
+            user.addAccount(account);
+        }
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<>();
+        for (Account account : owned) {
+            // One writer per account, as the services serialise changes per account; the user sees them all at once
+            threads.add(new Thread(() -> {
+                await(start);
+                for (int i = 0; i < 5000; i++) {
+                    account.deposit(2, "in");
+                    account.withdraw(1, "out");
+                }
+            }));
+        }
+        threads.forEach(Thread::start);
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        double expected = sumOfBalances(owned.toArray(new Account[0]));
+        check(user.getTotalBalance() == expected,
+                "concurrent changes all folded, got " + user.getTotalBalance() + " expected " + expected);
+        check(user.getBalanceByType("CHECKING") + user.getBalanceByType("SAVINGS") == expected, "per-type totals");
+    }
+
+    private static double sumOfBalances(Account... accounts) {
+        double sum = 0;
+        for (Account account : accounts) {
+            sum += account.getBalance();
+        }
+        return sum;
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void check(boolean condition, String message) {
+        if (!condition) {
+            failures++;
+            System.out.println("FAIL: " + message);
+        }
+    }
+}
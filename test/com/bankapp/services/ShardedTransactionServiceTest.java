@@ -0,0 +1,97 @@
+package com.bankapp.services;
+
+import com.bankapp.data.PartitionedDataStore;
+import com.bankapp.model.Account;
+import com.bankapp.model.Transaction;
+import com.bankapp.model.User;
+import java.util.List;
+
+/**
+ * Kiểm thử định tuyến người dùng của ShardedTransactionService: người dùng được đăng ký, đăng nhập và
+ * tra cứu ở phân vùng của tên đăng nhập, tài khoản mở cho người dùng nằm cùng phân vùng với người dùng,
+ * và chuyển khoản giữa người dùng ở hai phân vùng vẫn giữ nguyên tổng số dư và mô tả giao dịch.
+ */
+public class ShardedTransactionServiceTest {
+    private static final int PARTITIONS = 4;
+    private static final int USERS = 12;
+    private static int failures;
+
+    public static void main(String[] args) {
+        usersAndTheirAccountsShareAPartition();
+        if (failures > 0) {
+            System.out.println(failures + " check(s) failed");
+            System.exit(1);
+        }
+        System.out.println("ShardedTransactionServiceTest OK");
+    }
+
+    private static void usersAndTheirAccountsShareAPartition() {
+        PartitionedDataStore dataStore = new PartitionedDataStore(PARTITIONS);
+        ShardedTransactionService service = new ShardedTransactionService(dataStore);
+        User[] users = new User[USERS];
+        Account[] accounts = new Account[USERS];
+        boolean[] used = new boolean[PARTITIONS];
+        for (int u = 0; u < USERS; u++) {
+            String username = "user" + u;
+            users[u] = service.registerUser(username, "Passw0rd!", "User " + (char) ('A' + u), username + "@example.com");
+            check(users[u] != null, username + " registered");
+            if (users[u] == null) {
+                continue;
+            }
+            int partition = dataStore.partitionOf(username);
+            used[partition] = true;
+            check(dataStore.getPartition(partition).getUserRepository().findByUsername(username) != null,
+                    username + " stored in the partition of its username");
+            accounts[u] = u % 2 == 0 ? service.createCheckingAccount(users[u], 100, 0)
+                    : service.createSavingsAccount(users[u], 100, 0.01);
+            check(accounts[u] != null && dataStore.partitionOf(accounts[u].getAccountNumber()) == partition,
+                    username + " account opened in the owner's partition");
+            check(users[u].getAccountNumbers().size() == 1 && users[u].getTotalBalance() == 100,
+                    username + " owns its account");
+        }
+        check(service.registerUser("user0", "Passw0rd!", "Someone Else", "else@example.com") == null,
+                "duplicate username rejected");
+        check(service.login("user3", "Passw0rd!") == users[3] && service.login("user3", "wrong") == null, "login routed");
+        check(service.getUserByUsername("user5") == users[5], "lookup by username routed");
+        check(service.getUserById(users[7].getUserId()) == users[7], "lookup by id finds the owning partition");
+        check(service.getUserById("USER_MISSING") == null, "unknown id not found");
+
+        int from = -1;
+        int to = -1;
+        for (int u = 0; u < USERS && to < 0; u += 2) {
+            if (from < 0) {
+                from = u;
+            } else if (dataStore.partitionOf("user" + u) != dataStore.partitionOf("user" + from)) {
+                to = u;
+            }
+        }
+        check(to >= 0, "users spread over partitions");
+        if (to >= 0) {
+            check(service.transfer(accounts[from].getAccountNumber(), accounts[to].getAccountNumber(), 40, "rent"),
+                    "cross-partition transfer between users");
+            check(users[from].getTotalBalance() == 60 && users[to].getTotalBalance() == 140,
+                    "owners see the transferred amount");
+            check(lastDescription(service, accounts[from]).equals("rent")
+                    && lastDescription(service, accounts[to]).equals("rent"), "both legs keep the description");
+        }
+        int partitionsUsed = 0;
+        for (boolean partitionUsed : used) {
+            partitionsUsed += partitionUsed ? 1 : 0;
+        }
+        check(partitionsUsed > 1, "users placed on " + partitionsUsed + " partitions");
+        service.shutdown();
+        dataStore.shutdown();
+    }
+
+    private static String lastDescription(TransactionOperations service, Account account) {
+        List<Transaction> recent = service.getRecentTransactions(account.getAccountNumber(), 1);
+        return recent.isEmpty() ? "" : String.valueOf(recent.get(0).getDescription());
+    }
+
+    private static void check(boolean condition, String message) {
+        if (!condition) {
+            failures++;
+            System.out.println("FAIL: " + message);
+        }
+    }
+}
@@ -0,0 +1,168 @@
+package com.bankapp.services;
+
+import com.bankapp.data.PartitionedDataStore;
+import com.bankapp.data.TransferLog;
+import com.bankapp.model.Account;
+import com.bankapp.model.CheckingAccount;
+import com.bankapp.model.Transaction;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+/**
+ * Kiểm thử khôi phục chuyển khoản hai pha giữa phân vùng qua nhiều tiến trình: một tiến trình con chạy
+ * chuyển khoản với nhật ký chuyển khoản và nhật ký thay đổi của các phân vùng trên đĩa rồi tự dừng đột ngột
+ * (Runtime.halt) ở từng bước của giao thức; tiến trình kiểm thử khởi động lại service trên cùng thư mục và
+ * kiểm tra chuyển khoản được hoàn tất hoặc hủy trọn vẹn, tổng số dư không đổi và lần khởi động tiếp theo
+ * không còn gì phải khôi phục.
+ */
+public class ShardedTransferRecoveryTest {
+    private static final int PARTITIONS = 2;
+    private static final double OPENING_BALANCE = 100;
+    private static final double AMOUNT = 30;
+    private static final int CRASH_EXIT = 3;
+    // Crash point -> whether recovery must commit the transfer
+    private static final String[][] CRASH_POINTS = {
+            {"begin", "abort"},
+            {"debit", "abort"},
+            {"abort-decided", "abort"},
+            {"credit", "commit"},
+            {"commit-decided", "commit"},
+            {"source-committed", "commit"},
+    };
+    private static int failures;
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        if (args.length == 3 && "child".equals(args[0])) {
+            runUntilCrash(Paths.get(args[1]), args[2]);
+            return;
+        }
+        for (String[] point : CRASH_POINTS) {
+            Path directory = Files.createTempDirectory("bankapp-transfer-recovery");
+            try {
+                int exit = runChild(directory, point[0]);
+                check(exit == CRASH_EXIT, point[0] + ": child crashed at the requested step, exit " + exit);
+                recoverAndCheck(directory, point[0], "commit".equals(point[1]));
+            } finally {
+                try (Stream<Path> files = Files.walk(directory)) {
+                    files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+                }
+            }
+        }
+        if (failures > 0) {
+            System.out.println(failures + " check(s) failed");
+            System.exit(1);
+        }
+        System.out.println("ShardedTransferRecoveryTest OK");
+    }
+
+    private static int runChild(Path directory, String crashPoint) throws IOException, InterruptedException {
+        Process child = new ProcessBuilder(Paths.get(System.getProperty("java.home"), "bin", "java").toString(),
+                "-cp", System.getProperty("java.class.path"),
+                "-Dbankapp.journal.dir=" + directory.resolve("journal"),
+                ShardedTransferRecoveryTest.class.getName(), "child", directory.toString(), crashPoint)
+                .inheritIO().start();
+        return child.waitFor();
+    }
+
+    /**
+     * Tiến trình con: mở hai tài khoản ở hai phân vùng rồi tự điều phối một chuyển khoản theo đúng các bước
+     * của ShardedTransactionService, dừng đột ngột ngay sau bước crashPoint.
+     */
+    private static void runUntilCrash(Path directory, String crashPoint) {
+        PartitionedDataStore dataStore = new PartitionedDataStore(PARTITIONS);
+        TransferLog transferLog = new TransferLog(directory.resolve("transfers"));
+        ShardedTransactionService service = new ShardedTransactionService(dataStore, transferLog);
+        String[] numbers = accountNumbers();
+        service.openAccount(new CheckingAccount(numbers[0], OPENING_BALANCE));
+        service.openAccount(new CheckingAccount(numbers[1], OPENING_BALANCE));
+        TransactionService source = new TransactionService(dataStore.partitionFor(numbers[0]));
+        TransactionService target = new TransactionService(dataStore.partitionFor(numbers[1]));
+
+        String transferId = transferLog.begin(numbers[0], numbers[1], AMOUNT, "rent");
+        crashAfter("begin", crashPoint);
+        source.prepareTransferDebit(transferId, numbers[0], numbers[1], AMOUNT, "rent");
+        crashAfter("debit", crashPoint);
+        if ("abort-decided".equals(crashPoint)) {
+            transferLog.decide(transferId, false);
+            crashAfter("abort-decided", crashPoint);
+        }
+        target.applyTransferCredit(transferId, numbers[1], numbers[0], AMOUNT, "rent");
+        crashAfter("credit", crashPoint);
+        transferLog.decide(transferId, true);
+        crashAfter("commit-decided", crashPoint);
+        source.commitTransfer(transferId, numbers[0]);
+        crashAfter("source-committed", crashPoint);
+        throw new IllegalStateException("Unknown crash point " + crashPoint);
+    }
+
+    private static void crashAfter(String step, String crashPoint) {
+        if (step.equals(crashPoint)) {
+            Runtime.getRuntime().halt(CRASH_EXIT); // No shutdown hooks, no journal close
+        }
+    }
+
+    private static void recoverAndCheck(Path directory, String crashPoint, boolean committed) {
+        String[] numbers = accountNumbers();
+        double expectedFrom = committed ? OPENING_BALANCE - AMOUNT : OPENING_BALANCE;
+        double expectedTo = committed ? OPENING_BALANCE + AMOUNT : OPENING_BALANCE;
+        for (int restart = 1; restart <= 2; restart++) {
+            System.setProperty("bankapp.journal.dir", directory.resolve("journal").toString());
+            PartitionedDataStore dataStore = new PartitionedDataStore(PARTITIONS);
+            System.clearProperty("bankapp.journal.dir");
+            TransferLog transferLog = new TransferLog(directory.resolve("transfers"));
+            ShardedTransactionService service = new ShardedTransactionService(dataStore, transferLog);
+            String label = crashPoint + ", restart " + restart;
+
+            // The first restart finishes the transfer; the second finds nothing left to do
+            check(service.getRecoveredTransferCount() == (restart == 1 ? 1 : 0),
+                    label + ": recovered " + service.getRecoveredTransferCount());
+            check(transferLog.getUnfinished().isEmpty(), label + ": no unfinished transfer left");
+            Account from = dataStore.partitionFor(numbers[0]).getAccountRepository().findByAccountNumber(numbers[0]);
+            Account to = dataStore.partitionFor(numbers[1]).getAccountRepository().findByAccountNumber(numbers[1]);
+            check(from != null && to != null, label + ": both accounts recovered");
+            if (from != null && to != null) {
+                check(from.getBalance() == expectedFrom && to.getBalance() == expectedTo,
+                        label + ": balances " + from.getBalance() + " / " + to.getBalance());
+                check(from.getBalance() + to.getBalance() == 2 * OPENING_BALANCE, label + ": no money created or lost");
+                check(noPendingLegs(from) && noPendingLegs(to), label + ": no leg left pending");
+            }
+            service.shutdown();
+            dataStore.shutdown();
+        }
+    }
+
+    private static boolean noPendingLegs(Account account) {
+        for (Transaction transaction : account.getTransactions()) {
+            if ("PENDING".equals(transaction.getStatus())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Chọn hai số tài khoản thuộc hai phân vùng khác nhau, giống nhau ở mọi tiến trình.
+     */
+    private static String[] accountNumbers() {
+        String[] numbers = new String[PARTITIONS];
+        for (int i = 0; numbers[0] == null || numbers[1] == null; i++) {
+            String candidate = "ACC-T" + i;
+            int partition = PartitionedDataStore.partitionOf(candidate, PARTITIONS);
+            if (numbers[partition] == null) {
+                numbers[partition] = candidate;
+            }
+        }
+        return numbers;
+    }
+
+    private static void check(boolean condition, String message) {
+        if (!condition) {
+            failures++;
+            System.out.println("FAIL: " + message);
+        }
+    }
+}
@@ -0,0 +1,194 @@
+package com.bankapp.services;
+
+import com.bankapp.data.InMemoryDataStore;
+import com.bankapp.model.Account;
+import com.bankapp.model.Transaction;
+import com.bankapp.model.User;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Kiểm thử nhập giao dịch hàng loạt: mỗi dòng lỗi được ghi vào tệp rejects với đúng số dòng và lý do,
+ * việc đọc tiếp tục đúng sau dòng lỗi, sau một dòng dài hơn buffer đọc và qua ranh giới giữa hai lần đọc,
+ * và các giao dịch của cùng một tài khoản được áp dụng đúng thứ tự trong tệp dù có nhiều luồng.
+ */
+public class TransactionImportServiceTest {
+    private static final int READ_BUFFER_BYTES = 1 << 20; // As TransactionImportService reads
+    private static int failures;
+
+    public static void main(String[] args) throws IOException {
+        Path directory = Files.createTempDirectory("bankapp-import-test");
+        try {
+            rejectsCarryLineNumbersAndReasons(directory);
+            readingResumesAfterLongLinesAndBufferBoundaries(directory);
+            rowsOfOneAccountApplyInFileOrder(directory);
+            fixedWidthRecords(directory);
+        } finally {
+            try (Stream<Path> files = Files.walk(directory)) {
+                files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+            }
+        }
+        if (failures > 0) {
+            System.out.println(failures + " check(s) failed");
+            System.exit(1);
+        }
+        System.out.println("TransactionImportServiceTest OK");
+    }
+
+    private static void rejectsCarryLineNumbersAndReasons(Path directory) throws IOException {
+        InMemoryDataStore dataStore = new InMemoryDataStore();
+        String a = open(dataStore, "importa", 100);
+        String b = open(dataStore, "importb", 0);
+        Path source = write(directory.resolve("rows.csv"), String.join("\r\n",
+                "accountNumber,type,amount,description",
+                a + ",DEPOSIT,50,\"Branch 7, counter 2\"",  // 2
+                b + ",D,10",                               // 3
+                a + ",W,1000",                             // 4: insufficient funds
+                "BAD-ACCT,D,10",                           // 5
+                a + ",TRANSFER,10",                        // 6
+                a + ",D,abc",                              // 7
+                a + ",D,NaN",                              // 8
+                a + ",D,10,\"unterminated",                // 9
+                a + ",D",                                  // 10
+                "",
+                "ACC99999999,D,10",                        // 12: well-formed but unknown
+                b + ",W,5,\"say \"\"hi\"\"\"")             // 13, no newline at end of file
+        );
+        Path rejectsFile = directory.resolve("rows.rejects");
+        TransactionImportService.Result result = new TransactionImportService(dataStore, 3)
+                .importFile(source, TransactionImportService.Format.CSV, rejectsFile);
+
+        check(result.getRows() == 11 && result.getApplied() == 3 && result.getRejected() == 8,
+                "counts skip the header and blank line: " + result);
+        List<String> rejects = Files.readAllLines(rejectsFile, StandardCharsets.UTF_8);
+        check(rejects.get(0).equals("line,reason,record"), "rejects header");
+        List<String> expected = List.of(
+                "4,insufficient funds or withdrawal limit," + a + ",W,1000",
+                "5,invalid account number,BAD-ACCT,D,10",
+                "6,unknown transaction type," + a + ",TRANSFER,10",
+                "7,invalid amount," + a + ",D,abc",
+                "8,invalid amount," + a + ",D,NaN",
+                "9,unterminated quote," + a + ",D,10,\"unterminated",
+                "10,expected 3 or 4 fields," + a + ",D",
+                "12,account not found,ACC99999999,D,10");
+        // Parse rejects are written by the reader and apply rejects by the workers, so order may differ
+        check(rejects.size() == 9 && rejects.subList(1, 9).containsAll(expected), "rejects file: " + rejects);
+
+        TransactionService transactions = new TransactionService(dataStore);
+        check(balance(dataStore, a) == 150 && balance(dataStore, b) == 5, "balances after import");
+        List<Transaction> history = transactions.getRecentTransactions(a, 1);
+        check(history.get(0).getDescription().equals("Branch 7, counter 2"), "quoted comma kept in description");
+        check(transactions.getRecentTransactions(b, 2).get(0).getDescription().equals("Bulk import")
+                        && transactions.getRecentTransactions(b, 1).get(0).getDescription().equals("say \"hi\""),
+                "default description and escaped quotes");
+    }
+
+    private static void readingResumesAfterLongLinesAndBufferBoundaries(Path directory) throws IOException {
+        InMemoryDataStore dataStore = new InMemoryDataStore();
+        String a = open(dataStore, "importc", 0);
+        Path source = directory.resolve("long.csv");
+        String row = a + ",D,1\n";
+        long shortRows = 0;
+        try (BufferedWriter out = Files.newBufferedWriter(source, StandardCharsets.US_ASCII)) {
+            // Enough short rows that one of them straddles the end of the first read buffer
+            for (long written = 0; written < READ_BUFFER_BYTES + row.length() * 3L; written += row.length()) {
+                out.write(row);
+                shortRows++;
+            }
+            // One line longer than the whole read buffer, rejected once and then skipped to its end
+            StringBuilder longLine = new StringBuilder(a).append(",D,1,");
+            while (longLine.length() < READ_BUFFER_BYTES * 2 + 100) {
+                longLine.append('x');
+            }
+            out.write(longLine.append('\n').toString());
+            out.write(a + ",D,1000,after the long line\n");
+            out.write(a + ",Q,1\n");
+        }
+        long longLineNumber = shortRows + 1;
+        long lastLineNumber = shortRows + 3;
+        Path rejectsFile = directory.resolve("long.rejects");
+        TransactionImportService.Result result = new TransactionImportService(dataStore, 2)
+                .importFile(source, TransactionImportService.Format.CSV, rejectsFile);
+
+        check(result.getRows() == shortRows + 3 && result.getApplied() == shortRows + 1 && result.getRejected() == 2,
+                "long line counted once: " + result);
+        check(balance(dataStore, a) == shortRows + 1000, "every short row and the row after the long line applied");
+        List<String> rejects = Files.readAllLines(rejectsFile, StandardCharsets.UTF_8);
+        check(rejects.contains(longLineNumber + ",line too long,"),
+                "long line rejected with its number: " + rejects.subList(1, rejects.size()));
+        check(rejects.contains(lastLineNumber + ",unknown transaction type," + a + ",Q,1"),
+                "numbering continues after the long line");
+        check(result.getBytes() == Files.size(source), "whole file read");
+    }
+
+    private static void rowsOfOneAccountApplyInFileOrder(Path directory) throws IOException {
+        InMemoryDataStore dataStore = new InMemoryDataStore();
+        String[] accounts = new String[6];
+        for (int i = 0; i < accounts.length; i++) {
+            accounts[i] = open(dataStore, "order" + i, 0);
+        }
+        StringBuilder content = new StringBuilder();
+        int pairs = 3000;
+        for (int i = 0; i < pairs; i++) {
+            for (String account : accounts) {
+                // Each withdrawal only succeeds if the deposit just before it was applied first
+                content.append(account).append(",D,").append(i % 9 + 1).append('\n');
+                content.append(account).append(",W,").append(i % 9 + 1).append('\n');
+            }
+        }
+        Path source = write(directory.resolve("order.csv"), content.toString());
+        TransactionImportService.Result result = new TransactionImportService(dataStore, 4)
+                .importFile(source, TransactionImportService.Format.CSV, directory.resolve("order.rejects"));
+        check(result.getRejected() == 0 && result.getApplied() == 2L * pairs * accounts.length,
+                "no withdrawal overtook its deposit: " + result);
+        boolean allZero = true;
+        for (String account : accounts) {
+            allZero &= balance(dataStore, account) == 0;
+        }
+        check(allZero, "every account back to zero");
+    }
+
+    private static void fixedWidthRecords(Path directory) throws IOException {
+        InMemoryDataStore dataStore = new InMemoryDataStore();
+        String a = open(dataStore, "fixed", 0);
+        String valid = String.format("%-16s%s%15s%s", a, "D", "42.50", "Payroll run");
+        String invalidType = String.format("%-16s%s%15s", a, "X", "1");
+        Path source = write(directory.resolve("rows.dat"), valid + "\n" + "short record\n" + invalidType + "\n");
+        Path rejectsFile = directory.resolve("rows.dat.rejects");
+        TransactionImportService.Result result = new TransactionImportService(dataStore, 1)
+                .importFile(source, TransactionImportService.Format.FIXED_WIDTH, rejectsFile);
+        check(result.getApplied() == 1 && result.getRejected() == 2, "fixed width counts: " + result);
+        check(balance(dataStore, a) == 42.5, "fixed width amount");
+        List<String> rejects = Files.readAllLines(rejectsFile, StandardCharsets.UTF_8);
+        check(rejects.contains("2,record shorter than 32 columns,short record")
+                && rejects.contains("3,unknown transaction type," + invalidType), "fixed width rejects: " + rejects);
+    }
+
+    private static String open(InMemoryDataStore dataStore, String username, double balance) {
+        User user = new AuthService(dataStore).register(username, "Passw0rd!", "Import User",
+                username + "@example.com");
+        Account account = new AccountService(dataStore).createCheckingAccount(user, balance, 0);
+        return account.getAccountNumber();
+    }
+
+    private static double balance(InMemoryDataStore dataStore, String accountNumber) {
+        return new AccountService(dataStore).getAccountBalance(accountNumber);
+    }
+
+    private static Path write(Path file, String content) throws IOException {
+        return Files.write(file, content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static void check(boolean condition, String message) {
+        if (!condition) {
+            failures++;
+            System.out.println("FAIL: " + message);
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package com.bankapp.services;
+
+import com.bankapp.data.InMemoryDataStore;
+import com.bankapp.model.Account;
+import com.bankapp.model.CheckingAccount;
+import com.bankapp.model.User;
+import java.util.List;
+
+/**
+ * Kiểm thử việc từ chối số tiền không hợp lệ (NaN, vô cực, không dương) ở tầng dịch vụ lẫn tầng
+ * tài khoản: số dư và lịch sử không thay đổi.
+ */
+public class TransactionServiceTest {
+    private static final double[] INVALID = {
+            Double.NaN, Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY, 0.0, -0.0, -5.0
+    };
+    private static int failures;
+
+    public static void main(String[] args) {
+        nonFiniteAmountsAreRejected();
+        if (failures > 0) {
+            System.out.println(failures + " check(s) failed");
+            System.exit(1);
+        }
+        System.out.println("TransactionServiceTest OK");
+    }
+
+    private static void nonFiniteAmountsAreRejected() {
+        InMemoryDataStore dataStore = new InMemoryDataStore();
+        AccountService accountService = new AccountService(dataStore);
+        TransactionService transactionService = new TransactionService(dataStore);
+        User user = new User("USR1", "alice", "hash", "Alice", "alice@example.com");
+        dataStore.getUserRepository().save(user);
+        Account from = accountService.createCheckingAccount(user, 100, 0);
+        Account to = accountService.createCheckingAccount(user, 100, 0);
+
+        for (double amount : INVALID) {
+            check(!transactionService.deposit(from.getAccountNumber(), amount, "x"), "deposit " + amount);
+            check(!transactionService.withdraw(from.getAccountNumber(), amount, "x"), "withdraw " + amount);
+            check(!transactionService.transfer(from.getAccountNumber(), to.getAccountNumber(), amount, "x"),
+                    "transfer " + amount);
+            check(!transactionService.prepareTransferDebit("T1", from.getAccountNumber(), to.getAccountNumber(), amount,
+                    "x"),
+                    "prepare debit " + amount);
+            check(!transactionService.applyTransferCredit("T1", to.getAccountNumber(), from.getAccountNumber(), amount,
+                    "x"),
+                    "apply credit " + amount);
+
+            Account direct = new CheckingAccount("ACC-DIRECT", 100);
+            check(!direct.deposit(amount, "x") && !direct.withdraw(amount, "x")
+                    && !direct.transfer(amount, "ACC-OTHER") && !direct.reserveTransfer("T2", amount, "ACC-OTHER"),
+                    "account methods reject " + amount);
+            boolean thrown = false;
+            try {
+                direct.receiveTransfer(amount, "ACC-OTHER");
+            } catch (IllegalArgumentException e) {
+                thrown = true;
+            }
+            check(thrown, "receiveTransfer rejects " + amount);
+            check(direct.getBalance() == 100 && direct.getTransactionCount() == 0, "direct account unchanged by " + amount);
+        }
+        for (double amount : INVALID) {
+            if (amount >= 0) {
+                continue; // Zero is a valid opening balance and limit
+            }
+            check(accountService.openAccountsBatch(user, List.of(
+                    AccountService.AccountSpec.checking(amount, 0))) == null, "batch rejects balance " + amount);
+            check(accountService.openAccountsBatch(user, List.of(
+                    AccountService.AccountSpec.savings(100, amount))) == null, "batch rejects rate " + amount);
+        }
+        check(from.getBalance() == 100 && to.getBalance() == 100, "balances unchanged");
+        check(from.getTransactionCount() == 0 && to.getTransactionCount() == 0, "no transactions recorded");
+        check(user.getTotalBalance() == 200, "user totals unchanged");
+        check(accountService.createCheckingAccount(user, Double.NaN, 0) == null, "NaN opening balance rejected");
+        check(accountService.createSavingsAccount(user, 10, Double.POSITIVE_INFINITY) == null, "infinite rate rejected");
+
+        check(transactionService.transfer(from.getAccountNumber(), to.getAccountNumber(), 40, "ok"), "valid transfer");
+        check(from.getBalance() == 60 && to.getBalance() == 140, "valid transfer applied");
+    }
+
+    private static void check(boolean condition, String message) {
+        if (!condition) {
+            failures++;
+            System.out.println("FAIL: " + message);
+        }
+    }
+}